@@ -1,73 +1,124 @@
 package ru.axel.catty.engine;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.axel.catty.engine.handler.ClientActions;
 import ru.axel.catty.engine.handler.IQueryHandler;
+import ru.axel.catty.engine.selector.EventLoop;
+import ru.axel.catty.engine.selector.UnixSocketListener;
+import ru.axel.catty.engine.tls.TlsContext;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Движок сервера, создает подключение и слушает указанный порт.
  * Движок ничего не знает об обработки ответа или запроса, за это отвечает класс в параметрах конструктора handler.
+ * Асинхронные каналы JDK работают только с сетевыми адресами, поэтому Unix domain socket (адрес движка
+ * или {@link ListenerOptions#setUnixSocket}) обслуживается отдельным циклом {@link EventLoop}: цикл выполняет
+ * только ввод-вывод, обработчики запросов выполняются в пуле движка.
+ * При создании с количеством потоков каждый слушающий сокет и цикл Unix domain socket получают собственный
+ * пул со своей долей потоков и ничего не делят между собой; пул, переданный в конструктор, обслуживает
+ * один слушающий сокет.
  */
 public final class CattyEngine implements ICattyEngine {
     private static Logger logger = Logger.getLogger(CattyEngine.class.getName());
-    private final InetSocketAddress hostAddress;
-    private final ExecutorService pool;
+    private final SocketAddress hostAddress;
+    private final ExecutorService pool; // пул из конструктора, null - пулы создаются фабрикой
+    private final IntFunction<ExecutorService> poolFactory;
+    private final int poolLimit;
     private final int buffer_size = 16_384; // 16kb
-    private volatile boolean stop = false;
+    private final CountDownLatch stopLatch = new CountDownLatch(1);
     private final IQueryHandler queryHandler;
     private final long limitAllocateBufferForRequest; // максимальный размер буфера для принятия запроса
     private long timeToReadBuffer = 5L; // время ожидания чтения из буфера запроса
-    private AsynchronousChannelGroup group;
+    private ListenerOptions listenerOptions = new ListenerOptions();
+    private TlsContext tlsContext = null;
+    private final List<AsynchronousChannelGroup> groups = new ArrayList<>();
+    private final List<ExecutorService> executors = new ArrayList<>();
+    private ExecutorService unixPool = null;
+    private final List<UnixSocketListener> unixListeners = new ArrayList<>();
+    private EventLoop unixLoop = null;
 
     /**
      * Конструктор класса
-     * @param hostAddress адрес сервера
+     * @param hostAddress адрес сервера: сетевой или Unix domain socket
      * @param poolLimit лимит потоков
      * @param limitAllocateBufferForRequest максимальный размер буфера для принятия запроса
      * @param handler класс обработчик запроса и ответа
      */
     public CattyEngine(
-        InetSocketAddress hostAddress,
+        SocketAddress hostAddress,
         int poolLimit,
         long limitAllocateBufferForRequest,
         @NotNull IQueryHandler handler
     ) {
+        this(hostAddress, poolLimit, Executors::newWorkStealingPool, limitAllocateBufferForRequest, handler);
+    }
+    /**
+     * Конструктор класса
+     * @param hostAddress адрес сервера: сетевой или Unix domain socket
+     * @param poolLimit лимит потоков, делится между слушающими сокетами и циклом Unix domain socket
+     * @param poolFactory фабрика пула: получает количество потоков, пул останавливается вместе со своей группой каналов
+     * @param limitAllocateBufferForRequest максимальный размер буфера для принятия запроса
+     * @param handler класс обработчик запроса и ответа
+     */
+    public CattyEngine(
+        SocketAddress hostAddress,
+        int poolLimit,
+        @NotNull IntFunction<ExecutorService> poolFactory,
+        long limitAllocateBufferForRequest,
+        @NotNull IQueryHandler handler
+    ) {
+        if (poolLimit < 1) throw new IllegalArgumentException("Лимит потоков должен быть больше 0");
+
         this.hostAddress = hostAddress;
-        pool = Executors.newWorkStealingPool(poolLimit);
+        pool = null;
+        this.poolFactory = poolFactory;
+        this.poolLimit = poolLimit;
         this.limitAllocateBufferForRequest = limitAllocateBufferForRequest;
         queryHandler = handler;
     }
     /**
-     * Конструктор класса
-     * @param hostAddress адрес сервера
-     * @param executor трэд пул
+     * Конструктор класса. Пул нельзя разделить между слушающими сокетами, поэтому сетевой адрес
+     * слушает один сокет, настройка количества слушающих сокетов не используется.
+     * @param hostAddress адрес сервера: сетевой или Unix domain socket
+     * @param executor трэд пул, например {@link ru.axel.catty.engine.executor.AdaptiveExecutor} с автоматическим подбором количества потоков
      * @param limitAllocateBufferForRequest максимальный размер буфера для принятия запроса
      * @param handler класс обработчик запроса и ответа
      */
     public CattyEngine(
-        InetSocketAddress hostAddress,
+        SocketAddress hostAddress,
         ExecutorService executor,
         long limitAllocateBufferForRequest,
         @NotNull IQueryHandler handler
     ) {
         this.hostAddress = hostAddress;
         pool = executor;
+        poolFactory = null;
+        poolLimit = 0;
         this.limitAllocateBufferForRequest = limitAllocateBufferForRequest;
         queryHandler = handler;
     }
@@ -91,17 +142,78 @@ public final class CattyEngine implements ICattyEngine {
     }
 
     /**
-     * Метод создает подключение
+     * Устанавливает настройки слушающих сокетов. Должен вызываться до запуска сервера.
+     * @param options настройки слушающих сокетов.
+     */
+    @Override
+    public void setListenerOptions(@NotNull ListenerOptions options) {
+        listenerOptions = options;
+    }
+
+    /**
+     * Включает TLS для принятых соединений. Должен вызываться до запуска сервера.
+     * Обработчики получают канал {@link ru.axel.catty.engine.tls.TlsSocketChannel} и работают без изменений.
+     * @param tls контекст TLS, null - соединения без шифрования.
+     */
+    @Override
+    public void setTls(@Nullable TlsContext tls) {
+        tlsContext = tls;
+    }
+
+    /**
+     * Метод создает подключение.
+     * Если слушающих сокетов несколько, каждый открывается с SO_REUSEPORT в собственной группе каналов
+     * с собственным пулом, пулы делят лимит потоков поровну. Пул из конструктора обслуживает один слушающий сокет.
      * @throws IOException ошибка подключения
      */
     @Override
     public void startServer() throws IOException {
-        group = AsynchronousChannelGroup.withThreadPool(pool);
-        final AsynchronousServerSocketChannel server = AsynchronousServerSocketChannel.open(group);
-        server.bind(hostAddress);
+        final boolean unix = hostAddress instanceof UnixDomainSocketAddress;
+        final boolean unixListener = unix || listenerOptions.getUnixSocket() != null;
+        int acceptors = unix ? 0 : listenerOptions.getAcceptors();
 
-        logger.info("Сервер запущен на порту: " + hostAddress.getPort());
-        loop(server);
+        if (pool != null && acceptors > 1) {
+            logger.warning("Пул из конструктора обслуживает один слушающий сокет, настройка acceptors: " + acceptors + " не используется");
+            acceptors = 1;
+        }
+        if (acceptors > 1 && !reusePortSupported()) {
+            logger.warning("SO_REUSEPORT не поддерживается, сервер запущен с одним слушающим сокетом");
+            acceptors = 1;
+        }
+
+        final int workers = acceptors + (unixListener ? 1 : 0);
+        if (unixListener) unixPool = executor(workers - 1, workers);
+        if (unix) startUnixListener((UnixDomainSocketAddress) hostAddress);
+        if (listenerOptions.getUnixSocket() != null) startUnixListener(listenerOptions.getUnixSocket());
+        if (unixLoop != null) new Thread(unixLoop, "catty-unix").start();
+
+        for (int i = 0; i < acceptors; i++) {
+            final ExecutorService executor = executor(i, workers);
+            final AsynchronousChannelGroup group = AsynchronousChannelGroup.withThreadPool(executor);
+            groups.add(group);
+
+            final AsynchronousServerSocketChannel server = AsynchronousServerSocketChannel.open(group);
+
+            configureServer(server);
+            server.bind(hostAddress, listenerOptions.getBacklog());
+            loop(server, executor);
+        }
+
+        logger.info(
+            "Сервер запущен на " + ListenerOptions.describe(hostAddress) +
+            (listenerOptions.getUnixSocket() == null ? "" : " и " + ListenerOptions.describe(listenerOptions.getUnixSocket())) +
+            ", слушающих сокетов: " + Math.max(acceptors, 1)
+        );
+        if (logger.isLoggable(Level.CONFIG)) logger.config("Настройки сокетов: " + listenerOptions);
+        if (tlsContext != null && logger.isLoggable(Level.CONFIG)) {
+            logger.config("Настройки TLS: " + tlsContext.getOptions());
+        }
+
+        try {
+            stopLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -109,63 +221,191 @@ public final class CattyEngine implements ICattyEngine {
      */
     @Override
     public void stopServer() {
-        stop = true;
-        pool.shutdown();
-        group.shutdown();
+        for (AsynchronousChannelGroup group : groups) {
+            try {
+                group.shutdownNow(); // закрывает слушающий сокет и соединения группы
+            } catch (IOException e) {
+                logger.warning("Ошибка остановки группы каналов: " + e.getLocalizedMessage());
+            }
+        }
+        unixListeners.forEach(UnixSocketListener::close);
+        if (unixLoop != null) unixLoop.stop();
+        executors.forEach(ExecutorService::shutdown);
+        if (pool != null) pool.shutdown();
+        stopLatch.countDown();
+    }
+
+    /**
+     * Метод возвращает пул для слушающего сокета или цикла Unix domain socket.
+     * @param index номер получателя пула.
+     * @param workers количество получателей пула.
+     * @return пул из конструктора или новый пул с долей лимита потоков.
+     */
+    private @NotNull ExecutorService executor(int index, int workers) {
+        if (pool != null) return pool;
+
+        final int threads = Math.max(1, poolLimit / workers + (index < poolLimit % workers ? 1 : 0));
+        final ExecutorService executor = poolFactory.apply(threads);
+
+        executors.add(executor);
+        return executor;
+    }
+
+    /**
+     * Метод возвращает группы каналов слушающих сокетов.
+     * @return группы каналов.
+     */
+    @NotNull List<AsynchronousChannelGroup> getGroups() {
+        return Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * Метод возвращает пулы, созданные движком.
+     * @return пулы слушающих сокетов и цикла Unix domain socket.
+     */
+    @NotNull List<ExecutorService> getExecutors() {
+        return Collections.unmodifiableList(executors);
+    }
+
+    /**
+     * Метод открывает слушающий Unix domain socket в цикле обработки событий движка.
+     * @param address адрес сокета.
+     * @throws IOException ошибка создания сокета.
+     */
+    private void startUnixListener(@NotNull UnixDomainSocketAddress address) throws IOException {
+        if (unixLoop == null) unixLoop = new EventLoop(logger);
+
+        final UnixSocketListener listener = UnixSocketListener.open(
+            address,
+            listenerOptions.getBacklog(),
+            listenerOptions.getReceiveBufferSize(),
+            logger
+        );
+
+        unixListeners.add(listener);
+        listener.register(unixLoop, this::serveUnix);
+    }
+
+    /**
+     * Метод регистрирует соединение Unix domain socket в цикле и запускает чтение запроса.
+     * Выполняется в потоке цикла, обработчики завершения операций канала выполняются в пуле движка.
+     * @param channel канал клиента.
+     * @throws IOException ошибка регистрации.
+     */
+    private void serveUnix(@NotNull SocketChannel channel) throws IOException {
+        if (listenerOptions.getSendBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, listenerOptions.getSendBufferSize());
+        }
+
+        serve(unixLoop.register(channel, unixPool), unixPool);
+    }
+
+    /**
+     * Метод проверяет поддержку SO_REUSEPORT до создания групп каналов, чтобы при отказе
+     * единственный слушающий сокет получил все потоки.
+     * @return true, если SO_REUSEPORT поддерживается.
+     * @throws IOException ошибка создания проверочного сокета.
+     */
+    private static boolean reusePortSupported() throws IOException {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+    }
+
+    /**
+     * Метод применяет настройки к слушающему сокету.
+     * @param server слушающий сокет.
+     * @return false, если SO_REUSEPORT требуется, но не поддерживается.
+     * @throws IOException ошибка установки настроек.
+     */
+    private boolean configureServer(@NotNull AsynchronousServerSocketChannel server) throws IOException {
+        if (listenerOptions.getReceiveBufferSize() > 0) { // до bind, чтобы учитывалось при согласовании окна TCP
+            server.setOption(StandardSocketOptions.SO_RCVBUF, listenerOptions.getReceiveBufferSize());
+        }
+
+        if (listenerOptions.isReusePort()) {
+            if (!server.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) return false;
+            server.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+
+        return true;
+    }
+
+    /**
+     * Метод применяет настройки к принятому соединению.
+     * @param clientChannel канал клиента.
+     */
+    private void configureClient(@NotNull AsynchronousSocketChannel clientChannel) {
+        try {
+            if (listenerOptions.isTcpNoDelay()) {
+                clientChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            if (listenerOptions.getSendBufferSize() > 0) {
+                clientChannel.setOption(StandardSocketOptions.SO_SNDBUF, listenerOptions.getSendBufferSize());
+            }
+        } catch (IOException e) {
+            logger.warning("Не удалось установить настройки сокета клиента: " + e.getLocalizedMessage());
+        }
     }
 
     /**
      * Метод запускает петлю обработки событий
+     * @param server слушающий сокет.
+     * @param executor пул группы слушающего сокета.
      */
-    private void loop(final @NotNull AsynchronousServerSocketChannel server) {
+    private void loop(final @NotNull AsynchronousServerSocketChannel server, final @NotNull ExecutorService executor) {
         server.accept(null, new CompletionHandler<>() {
             @Override
             public void completed(final AsynchronousSocketChannel clientChannel, final Object attachment) {
-//                try {
-//                    clientChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-//                } catch (IOException e) {
-//                    throw new RuntimeException(e);
-//                }
-
                 if (server.isOpen()) { // если удалить условия не будет параллелизма в запросах
                     if (logger.isLoggable(Level.FINEST)) logger.finest("Server is accepted");
                     server.accept(null, this);
                 }
 
                 if (clientChannel.isOpen()) {
+                    configureClient(clientChannel);
+
                     if (logger.isLoggable(Level.FINEST)) logger.finest("Server accept client: " + clientChannel);
 
-                    final ByteBuffer buffer = ByteBuffer.allocate(buffer_size);
-
-                    final Map<String, Object> readInfo = new HashMap<>();
-                    readInfo.put("action", ClientActions.READ);
-                    readInfo.put("buffer", buffer);
-
-                    clientChannel.read(
-                        buffer,
-                        timeToReadBuffer,
-                        TimeUnit.SECONDS,
-                        readInfo,
-                        queryHandler.getHandler(
-                            clientChannel,
-                            limitAllocateBufferForRequest,
-                            logger
-                        )
-                    );
+                    serve(clientChannel, executor);
                 }
             }
 
             @Override
             public void failed(final Throwable ex, final Object attachment) {
-                logger.severe("Ошибка принятия соединения от клиента. Инфо: " + attachment);
-                logger.throwing(CattyEngine.class.getName(), "loop", ex);
-                ex.printStackTrace();
+                if (logger.isLoggable(Level.SEVERE)) {
+                    logger.log(Level.SEVERE, "Ошибка принятия соединения от клиента. Инфо: " + attachment, ex);
+                }
             }
         });
+    }
 
-        while (!stop) {
-            Thread.onSpinWait();
-        }
+    /**
+     * Метод запускает чтение запроса из принятого соединения.
+     * @param clientChannel канал клиента.
+     * @param executor пул, принявший соединение.
+     */
+    private void serve(@NotNull AsynchronousSocketChannel clientChannel, @NotNull ExecutorService executor) {
+        final AsynchronousSocketChannel client = tlsContext == null
+            ? clientChannel
+            : tlsContext.wrap(clientChannel, executor);
+        final ByteBuffer buffer = ByteBuffer.allocate(buffer_size);
+
+        final Map<String, Object> readInfo = new HashMap<>();
+        readInfo.put("action", ClientActions.READ);
+        readInfo.put("buffer", buffer);
+
+        client.read(
+            buffer,
+            timeToReadBuffer,
+            TimeUnit.SECONDS,
+            readInfo,
+            queryHandler.getHandler(
+                client,
+                limitAllocateBufferForRequest,
+                logger
+            )
+        );
     }
 
     /**
@@ -1,11 +1,16 @@
 package ru.axel.catty.engine;
 
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.tls.TlsContext;
+
 import java.io.IOException;
 import java.util.logging.Logger;
 
 public interface ICattyEngine extends AutoCloseable {
     void setLogger(Logger loggerInstance);
     void setTimeToReadBuffer(Long timeSeconds);
+    void setListenerOptions(ListenerOptions options);
+    void setTls(@Nullable TlsContext tls);
     void startServer() throws IOException;
     void stopServer();
 }
@@ -0,0 +1,116 @@
+package ru.axel.catty.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+
+/**
+ * Настройки слушающих сокетов движка и принятых соединений.
+ * Значение 0 у размеров буферов и backlog означает значение по умолчанию операционной системы.
+ */
+public final class ListenerOptions {
+    private int acceptors = 1;
+    private boolean reusePort = false;
+    private int backlog = 0;
+    private boolean tcpNoDelay = false;
+    private int receiveBufferSize = 0;
+    private int sendBufferSize = 0;
+    private UnixDomainSocketAddress unixSocket = null;
+
+    /**
+     * Количество слушающих сокетов на одном адресе. Больше одного требует SO_REUSEPORT,
+     * каждый сокет получает собственную группу каналов и пул с долей потоков движка, соединения распределяет ядро ОС.
+     * Движок с пулом из конструктора слушает один сокет.
+     * @param count количество слушающих сокетов.
+     * @return объект настроек.
+     */
+    public ListenerOptions setAcceptors(int count) {
+        if (count < 1) throw new IllegalArgumentException("Количество слушающих сокетов должно быть больше 0");
+
+        acceptors = count;
+        if (count > 1) reusePort = true;
+        return this;
+    }
+
+    public ListenerOptions setReusePort(boolean reuse) {
+        reusePort = reuse;
+        return this;
+    }
+    public ListenerOptions setBacklog(int size) {
+        backlog = size;
+        return this;
+    }
+    public ListenerOptions setTcpNoDelay(boolean noDelay) {
+        tcpNoDelay = noDelay;
+        return this;
+    }
+    public ListenerOptions setReceiveBufferSize(int size) {
+        receiveBufferSize = size;
+        return this;
+    }
+    public ListenerOptions setSendBufferSize(int size) {
+        sendBufferSize = size;
+        return this;
+    }
+
+    /**
+     * Дополнительный слушающий Unix domain socket рядом с основным адресом движка,
+     * например для sidecar прокси на той же машине. Соединения через него обслуживаются одним
+     * циклом {@link ru.axel.catty.engine.selector.EventLoop}, TCP настройки к ним не применяются.
+     * @param path путь файла сокета, null - без дополнительного сокета.
+     * @return объект настроек.
+     */
+    public ListenerOptions setUnixSocket(@Nullable Path path) {
+        unixSocket = path == null ? null : UnixDomainSocketAddress.of(path);
+        return this;
+    }
+
+    public int getAcceptors() {
+        return acceptors;
+    }
+    public boolean isReusePort() {
+        return reusePort;
+    }
+    public int getBacklog() {
+        return backlog;
+    }
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+    public @Nullable UnixDomainSocketAddress getUnixSocket() {
+        return unixSocket;
+    }
+
+    /**
+     * Метод возвращает описание адреса для журнала.
+     * @param address адрес.
+     * @return "порту: N" для сетевого адреса, "сокете: unix:путь" для Unix domain socket.
+     */
+    static @NotNull String describe(@NotNull SocketAddress address) {
+        if (address instanceof InetSocketAddress inet) return "порту: " + inet.getPort();
+        if (address instanceof UnixDomainSocketAddress unix) return "сокете: unix:" + unix.getPath();
+
+        return "адресе: " + address;
+    }
+
+    @Override
+    public String toString() {
+        return "{ acceptors: " + acceptors +
+            ", reusePort: " + reusePort +
+            ", backlog: " + backlog +
+            ", tcpNoDelay: " + tcpNoDelay +
+            ", receiveBufferSize: " + receiveBufferSize +
+            ", sendBufferSize: " + sendBufferSize +
+            ", unixSocket: " + (unixSocket == null ? null : unixSocket.getPath()) + " }";
+    }
+}
@@ -0,0 +1,298 @@
+package ru.axel.catty.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.handler.ClientActions;
+import ru.axel.catty.engine.handler.IQueryHandler;
+import ru.axel.catty.engine.selector.EventLoop;
+import ru.axel.catty.engine.selector.SelectorSocketChannel;
+import ru.axel.catty.engine.selector.UnixSocketListener;
+import ru.axel.catty.engine.tls.TlsContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Движок сервера на {@link java.nio.channels.Selector}: по одному циклу обработки событий на ядро.
+ * Соединение закрепляется за одним циклом и обслуживается только его потоком.
+ * Обработчики запросов те же, что и для {@link CattyEngine}: они получают асинхронный канал,
+ * реализованный поверх неблокирующего сокета цикла.
+ * Адрес движка может быть {@link UnixDomainSocketAddress}: тогда слушающий сокет один, TCP настройки не применяются.
+ */
+public final class SelectorCattyEngine implements ICattyEngine {
+    private static Logger logger = Logger.getLogger(SelectorCattyEngine.class.getName());
+    private final SocketAddress hostAddress;
+    private final int loopCount;
+    private final int buffer_size = 16_384; // 16kb
+    private final IQueryHandler queryHandler;
+    private final long limitAllocateBufferForRequest; // максимальный размер буфера для принятия запроса
+    private long timeToReadBuffer = 5L; // время ожидания чтения из буфера запроса
+    private ListenerOptions listenerOptions = new ListenerOptions();
+    private TlsContext tlsContext = null;
+    private final List<EventLoop> loops = new ArrayList<>();
+    private final List<ServerSocketChannel> servers = new ArrayList<>();
+    private final List<UnixSocketListener> unixListeners = new ArrayList<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final CountDownLatch stopLatch = new CountDownLatch(1);
+
+    /**
+     * Конструктор класса
+     * @param hostAddress адрес сервера: сетевой или Unix domain socket
+     * @param loopCount количество циклов обработки событий (потоков)
+     * @param limitAllocateBufferForRequest максимальный размер буфера для принятия запроса
+     * @param handler класс обработчик запроса и ответа
+     */
+    public SelectorCattyEngine(
+        SocketAddress hostAddress,
+        int loopCount,
+        long limitAllocateBufferForRequest,
+        @NotNull IQueryHandler handler
+    ) {
+        if (loopCount < 1) throw new IllegalArgumentException("Количество циклов должно быть больше 0");
+
+        this.hostAddress = hostAddress;
+        this.loopCount = loopCount;
+        this.limitAllocateBufferForRequest = limitAllocateBufferForRequest;
+        queryHandler = handler;
+    }
+
+    /**
+     * Конструктор класса, количество циклов равно количеству ядер.
+     * @param hostAddress адрес сервера: сетевой или Unix domain socket
+     * @param limitAllocateBufferForRequest максимальный размер буфера для принятия запроса
+     * @param handler класс обработчик запроса и ответа
+     */
+    public SelectorCattyEngine(
+        SocketAddress hostAddress,
+        long limitAllocateBufferForRequest,
+        @NotNull IQueryHandler handler
+    ) {
+        this(hostAddress, Runtime.getRuntime().availableProcessors(), limitAllocateBufferForRequest, handler);
+    }
+
+    /**
+     * Метод устанавливает логгер.
+     * @param loggerInstance объект логгера.
+     */
+    @Override
+    public void setLogger(Logger loggerInstance) {
+        logger = loggerInstance;
+    }
+
+    /**
+     * Устанавливает время ожидания чтения из буфера запроса
+     * @param timeSeconds - время в секундах
+     */
+    @Override
+    public void setTimeToReadBuffer(Long timeSeconds) {
+        timeToReadBuffer = timeSeconds;
+    }
+
+    /**
+     * Устанавливает настройки слушающих сокетов. Должен вызываться до запуска сервера.
+     * Если сокетов несколько и включен SO_REUSEPORT, каждый цикл получает собственный слушающий сокет,
+     * иначе соединения принимает первый цикл и распределяет их по циклам по кругу.
+     * @param options настройки слушающих сокетов.
+     */
+    @Override
+    public void setListenerOptions(@NotNull ListenerOptions options) {
+        listenerOptions = options;
+    }
+
+    /**
+     * Включает TLS для принятых соединений. Должен вызываться до запуска сервера.
+     * Обработчики получают канал {@link ru.axel.catty.engine.tls.TlsSocketChannel} и работают без изменений.
+     * @param tls контекст TLS, null - соединения без шифрования.
+     */
+    @Override
+    public void setTls(@Nullable TlsContext tls) {
+        tlsContext = tls;
+    }
+
+    /**
+     * Метод создает подключение
+     * @throws IOException ошибка подключения
+     */
+    @Override
+    public void startServer() throws IOException {
+        for (int i = 0; i < loopCount; i++) loops.add(new EventLoop(logger));
+
+        final boolean unix = hostAddress instanceof UnixDomainSocketAddress;
+        boolean reusePort = listenerOptions.isReusePort() && !unix;
+        if (reusePort && !isReusePortSupported()) {
+            logger.warning("SO_REUSEPORT не поддерживается, сервер запущен с одним слушающим сокетом");
+            reusePort = false;
+        }
+
+        final int acceptors = reusePort ? Math.min(listenerOptions.getAcceptors(), loopCount) : 1;
+        if (unix) {
+            openUnixListener((UnixDomainSocketAddress) hostAddress).register(loops.get(0), this::dispatch);
+        } else {
+            for (int i = 0; i < acceptors; i++) {
+                final EventLoop owner = loops.get(i);
+                final ServerSocketChannel server = openServer(reusePort);
+
+                servers.add(server);
+                owner.registerServer(server, acceptors == 1 ? this::dispatch : channel -> serve(owner, channel));
+            }
+        }
+        if (listenerOptions.getUnixSocket() != null) {
+            openUnixListener(listenerOptions.getUnixSocket()).register(loops.get(0), this::dispatch);
+        }
+
+        for (int i = 0; i < loopCount; i++) {
+            final Thread thread = new Thread(loops.get(i), "catty-loop-" + i);
+            thread.start();
+        }
+
+        logger.info(
+            "Сервер запущен на " + ListenerOptions.describe(hostAddress) +
+            (listenerOptions.getUnixSocket() == null ? "" : " и " + ListenerOptions.describe(listenerOptions.getUnixSocket())) +
+            ", циклов обработки событий: " + loopCount +
+            ", слушающих сокетов: " + acceptors
+        );
+        if (logger.isLoggable(Level.CONFIG)) logger.config("Настройки сокетов: " + listenerOptions);
+        if (tlsContext != null && logger.isLoggable(Level.CONFIG)) {
+            logger.config("Настройки TLS: " + tlsContext.getOptions());
+        }
+
+        try {
+            stopLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Метод останавливает сервер
+     */
+    @Override
+    public void stopServer() {
+        servers.forEach(server -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                logger.warning("Ошибка закрытия слушающего сокета: " + e.getLocalizedMessage());
+            }
+        });
+        unixListeners.forEach(UnixSocketListener::close);
+        loops.forEach(EventLoop::stop);
+        stopLatch.countDown();
+    }
+
+    private @NotNull UnixSocketListener openUnixListener(@NotNull UnixDomainSocketAddress address) throws IOException {
+        final UnixSocketListener listener = UnixSocketListener.open(
+            address,
+            listenerOptions.getBacklog(),
+            listenerOptions.getReceiveBufferSize(),
+            logger
+        );
+
+        unixListeners.add(listener);
+        return listener;
+    }
+
+    /**
+     * Метод проверяет, поддерживает ли платформа SO_REUSEPORT для слушающих сокетов.
+     * @return true, если опция поддерживается.
+     * @throws IOException ошибка открытия сокета.
+     */
+    private static boolean isReusePortSupported() throws IOException {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+    }
+
+    private @NotNull ServerSocketChannel openServer(boolean reusePort) throws IOException {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+
+        if (listenerOptions.getReceiveBufferSize() > 0) {
+            server.setOption(StandardSocketOptions.SO_RCVBUF, listenerOptions.getReceiveBufferSize());
+        }
+        if (reusePort) server.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+
+        server.bind(hostAddress, listenerOptions.getBacklog());
+        server.configureBlocking(false);
+
+        return server;
+    }
+
+    /**
+     * Метод передает принятое соединение следующему циклу по кругу.
+     * @param channel канал клиента.
+     */
+    private void dispatch(@NotNull SocketChannel channel) {
+        final EventLoop loop = loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+
+        if (loop.inLoop()) {
+            serve(loop, channel);
+        } else {
+            loop.execute(() -> serve(loop, channel));
+        }
+    }
+
+    /**
+     * Метод регистрирует соединение в цикле и запускает чтение запроса. Выполняется в потоке цикла.
+     * @param loop цикл обработки событий.
+     * @param channel канал клиента.
+     */
+    private void serve(@NotNull EventLoop loop, @NotNull SocketChannel channel) {
+        try {
+            final boolean tcp = channel.getLocalAddress() instanceof InetSocketAddress;
+
+            if (tcp && listenerOptions.isTcpNoDelay()) channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if (listenerOptions.getSendBufferSize() > 0) {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, listenerOptions.getSendBufferSize());
+            }
+
+            final SelectorSocketChannel registered = loop.register(channel);
+            final AsynchronousSocketChannel client = tlsContext == null ? registered : tlsContext.wrap(registered);
+            final ByteBuffer buffer = ByteBuffer.allocate(buffer_size);
+
+            final Map<String, Object> readInfo = new HashMap<>();
+            readInfo.put("action", ClientActions.READ);
+            readInfo.put("buffer", buffer);
+
+            client.read(
+                buffer,
+                timeToReadBuffer,
+                TimeUnit.SECONDS,
+                readInfo,
+                queryHandler.getHandler(
+                    client,
+                    limitAllocateBufferForRequest,
+                    logger
+                )
+            );
+        } catch (IOException e) {
+            logger.severe("Ошибка регистрации соединения клиента: " + e.getLocalizedMessage());
+
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // соединение уже закрыто
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stopServer();
+    }
+}
@@ -0,0 +1,341 @@
+package ru.axel.catty.engine.assets;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Набор статических файлов, собранный при запуске из каталога или из ресурсов classpath.
+ * Файлы читаются в память один раз, для каждого заранее вычисляются тип, ETag и сжатый gzip вариант,
+ * поэтому отдача файла - поиск в хеш-таблице и запись готового массива в ответ.
+ * Ресурсы classpath читаются и из каталога, и из JAR, в том числе из исполняемого JAR со всеми зависимостями.
+ * Изменения файлов после сборки набора не учитываются.
+ */
+public final class AssetBundle {
+    private static final Map<String, String> mimeTypes = Map.ofEntries(
+        Map.entry("html", "text/html"),
+        Map.entry("htm", "text/html"),
+        Map.entry("css", "text/css"),
+        Map.entry("js", "text/javascript"),
+        Map.entry("mjs", "text/javascript"),
+        Map.entry("json", "application/json"),
+        Map.entry("map", "application/json"),
+        Map.entry("xml", "application/xml"),
+        Map.entry("txt", "text/plain"),
+        Map.entry("csv", "text/csv"),
+        Map.entry("svg", "image/svg+xml"),
+        Map.entry("png", "image/png"),
+        Map.entry("jpg", "image/jpeg"),
+        Map.entry("jpeg", "image/jpeg"),
+        Map.entry("gif", "image/gif"),
+        Map.entry("webp", "image/webp"),
+        Map.entry("avif", "image/avif"),
+        Map.entry("ico", "image/x-icon"),
+        Map.entry("woff", "font/woff"),
+        Map.entry("woff2", "font/woff2"),
+        Map.entry("ttf", "font/ttf"),
+        Map.entry("otf", "font/otf"),
+        Map.entry("wasm", "application/wasm"),
+        Map.entry("pdf", "application/pdf"),
+        Map.entry("mp4", "video/mp4"),
+        Map.entry("webm", "video/webm"),
+        Map.entry("mp3", "audio/mpeg")
+    );
+
+    private final String urlPrefix;
+    private final Map<String, StaticAsset> assets;
+    private final long totalBytes;
+    private final long totalGzipBytes;
+
+    private AssetBundle(@NotNull String prefix, @NotNull Map<String, StaticAsset> indexed) {
+        urlPrefix = prefix;
+        assets = Map.copyOf(indexed);
+
+        long size = 0;
+        long gzipSize = 0;
+        for (StaticAsset asset : indexed.values()) {
+            size += asset.getSize();
+            gzipSize += asset.getGzipSize();
+        }
+        totalBytes = size;
+        totalGzipBytes = gzipSize;
+    }
+
+    /**
+     * Сборка набора из каталога файловой системы.
+     * @param directory каталог со статическими файлами.
+     * @param urlPrefix путь запроса, по которому доступен каталог, например "/static".
+     * @param options настройки сборки.
+     * @return набор файлов.
+     * @throws IOException ошибка чтения каталога или файла.
+     */
+    public static @NotNull AssetBundle fromDirectory(
+        @NotNull Path directory,
+        @NotNull String urlPrefix,
+        @NotNull AssetOptions options
+    ) throws IOException {
+        if (!Files.isDirectory(directory)) throw new IOException("Каталог статики не найден: " + directory);
+
+        final String prefix = normalizePrefix(urlPrefix);
+        final Map<String, StaticAsset> indexed = new HashMap<>();
+
+        index(directory, prefix, options, indexed);
+        return new AssetBundle(prefix, indexed);
+    }
+
+    /**
+     * Сборка набора из ресурсов classpath. Если каталог ресурсов есть в нескольких элементах classpath,
+     * файлы объединяются, при совпадении путей используется файл из первого элемента.
+     * @param loader загрузчик классов.
+     * @param resourcePrefix каталог ресурсов, например "static".
+     * @param urlPrefix путь запроса, по которому доступны ресурсы, например "/static".
+     * @param options настройки сборки.
+     * @return набор файлов.
+     * @throws IOException ошибка чтения ресурсов или каталог ресурсов не найден.
+     */
+    public static @NotNull AssetBundle fromClasspath(
+        @NotNull ClassLoader loader,
+        @NotNull String resourcePrefix,
+        @NotNull String urlPrefix,
+        @NotNull AssetOptions options
+    ) throws IOException {
+        final String resource = resourcePrefix.replaceAll("^/+|/+$", "");
+        final String prefix = normalizePrefix(urlPrefix);
+        final Map<String, StaticAsset> indexed = new HashMap<>();
+        final Enumeration<URL> roots = loader.getResources(resource);
+
+        if (!roots.hasMoreElements()) throw new IOException("Ресурсы статики не найдены: " + resourcePrefix);
+
+        while (roots.hasMoreElements()) {
+            final URI uri = toUri(roots.nextElement());
+
+            if ("file".equals(uri.getScheme())) {
+                index(Path.of(uri), prefix, options, indexed);
+                continue;
+            }
+
+            FileSystem created = null;
+            try {
+                created = FileSystems.newFileSystem(uri, Map.of());
+            } catch (FileSystemAlreadyExistsException e) {
+                // файловая система архива уже открыта, используем ее и не закрываем
+            }
+
+            try {
+                index(Path.of(uri), prefix, options, indexed);
+            } finally {
+                if (created != null) created.close();
+            }
+        }
+
+        return new AssetBundle(prefix, indexed);
+    }
+
+    /**
+     * Метод ищет файл по пути запроса.
+     * @param requestPath путь запроса, например "/static/styles/index.css".
+     * @return файл или null.
+     */
+    public @Nullable StaticAsset get(@NotNull String requestPath) {
+        final StaticAsset asset = assets.get(requestPath);
+        if (asset != null || requestPath.indexOf('%') < 0) return asset;
+
+        try {
+            return assets.get(URLDecoder.decode(requestPath.replace("+", "%2B"), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Обработчик маршрута: отдает файл по пути запроса или 404.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     */
+    public void serve(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final StaticAsset asset = request.getPath().map(this::get).orElse(null);
+
+        if (asset == null) {
+            response.respond(ResponseCode.NOT_FOUND, "Not Found");
+        } else {
+            asset.writeTo(request, response);
+        }
+    }
+
+    /**
+     * Метод добавляет в набор все файлы каталога.
+     * @param root корень каталога.
+     * @param prefix путь запроса каталога.
+     * @param options настройки сборки.
+     * @param indexed файлы набора.
+     * @throws IOException ошибка чтения файла.
+     */
+    private static void index(
+        @NotNull Path root,
+        @NotNull String prefix,
+        @NotNull AssetOptions options,
+        @NotNull Map<String, StaticAsset> indexed
+    ) throws IOException {
+        final MessageDigest digest = sha256();
+
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                final StringBuilder relative = new StringBuilder();
+                for (Path part : root.relativize(file)) relative.append('/').append(part);
+
+                final String assetPath = prefix + relative;
+                if (indexed.containsKey(assetPath)) return;
+
+                try {
+                    final StaticAsset asset = build(assetPath, Files.readAllBytes(file), options, digest);
+
+                    indexed.put(assetPath, asset);
+                    if (file.getFileName().toString().equals(options.getIndexFile())) {
+                        indexed.putIfAbsent(assetPath.substring(0, assetPath.length() - options.getIndexFile().length()), asset);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static @NotNull StaticAsset build(
+        @NotNull String assetPath,
+        byte @NotNull [] content,
+        @NotNull AssetOptions options,
+        @NotNull MessageDigest digest
+    ) throws IOException {
+        final String type = mimeType(assetPath);
+        byte[] gzip = null;
+
+        if (content.length >= options.getGzipMinSize() && isCompressible(type)) {
+            gzip = gzip(content, options.getGzipLevel());
+            if (gzip.length >= content.length) gzip = null; // сжатие не уменьшило файл
+        }
+
+        final byte[] hash = digest.digest(content);
+        final StringBuilder etag = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) etag.append(String.format("%02x", hash[i]));
+
+        return new StaticAsset(assetPath, contentType(type), etag.toString(), content, gzip, options.getCacheControl());
+    }
+
+    private static byte @NotNull [] gzip(byte @NotNull [] content, int level) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 2 + 32);
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output) { { def.setLevel(level); } }) {
+            gzip.write(content);
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * Метод определяет MIME тип по расширению файла.
+     * @param assetPath путь файла.
+     * @return MIME тип.
+     */
+    private static @NotNull String mimeType(@NotNull String assetPath) {
+        final int dot = assetPath.lastIndexOf('.');
+        final String type = dot < 0 ? null : mimeTypes.get(assetPath.substring(dot + 1).toLowerCase(Locale.ROOT));
+        if (type != null) return type;
+
+        final String guessed = URLConnection.guessContentTypeFromName(assetPath);
+        return guessed == null ? "application/octet-stream" : guessed;
+    }
+
+    /**
+     * Текстовым типам добавляется кодировка, двоичным - нет.
+     * @param type MIME тип.
+     * @return значение заголовка Content-Type.
+     */
+    private static @NotNull String contentType(@NotNull String type) {
+        final boolean text = type.startsWith("text/")
+            || type.equals("application/json")
+            || type.equals("application/xml")
+            || type.equals("image/svg+xml");
+
+        return text ? type + "; charset=utf-8" : type;
+    }
+
+    private static boolean isCompressible(@NotNull String type) {
+        return type.startsWith("text/")
+            || type.equals("application/json")
+            || type.equals("application/xml")
+            || type.equals("application/wasm")
+            || type.equals("image/svg+xml")
+            || type.equals("image/x-icon");
+    }
+
+    private static @NotNull String normalizePrefix(@NotNull String urlPrefix) {
+        final String trimmed = urlPrefix.replaceAll("/+$", "");
+        return trimmed.isEmpty() || trimmed.startsWith("/") ? trimmed : "/" + trimmed;
+    }
+
+    private static @NotNull URI toUri(@NotNull URL url) throws IOException {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException("Некорректный адрес ресурсов: " + url, e);
+        }
+    }
+
+    private static @NotNull MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public @NotNull String getUrlPrefix() {
+        return urlPrefix;
+    }
+    public int size() {
+        return assets.size();
+    }
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+    public long getTotalGzipBytes() {
+        return totalGzipBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetBundle{" +
+            "urlPrefix='" + urlPrefix + '\'' +
+            ", assets=" + assets.size() +
+            ", totalBytes=" + totalBytes +
+            ", totalGzipBytes=" + totalGzipBytes +
+            '}';
+    }
+}
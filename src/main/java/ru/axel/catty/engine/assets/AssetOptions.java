@@ -0,0 +1,85 @@
+package ru.axel.catty.engine.assets;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.zip.Deflater;
+
+/**
+ * Настройки сборки набора статических файлов.
+ */
+public final class AssetOptions {
+    private int gzipMinSize = 256;
+    private int gzipLevel = Deflater.BEST_COMPRESSION;
+    private String cacheControl = null;
+    private String indexFile = "index.html";
+
+    /**
+     * Минимальный размер файла, для которого готовится сжатый gzip вариант.
+     * Сжатый вариант сохраняется, только если он меньше исходного файла.
+     * @param bytes размер в байтах.
+     * @return объект настроек.
+     */
+    public AssetOptions setGzipMinSize(int bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Размер не может быть отрицательным");
+
+        gzipMinSize = bytes;
+        return this;
+    }
+
+    /**
+     * Уровень сжатия gzip. Файлы сжимаются один раз при сборке набора,
+     * поэтому по умолчанию используется максимальный уровень.
+     * @param level уровень от 0 до 9.
+     * @return объект настроек.
+     */
+    public AssetOptions setGzipLevel(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Уровень сжатия должен быть от 0 до 9");
+        }
+
+        gzipLevel = level;
+        return this;
+    }
+
+    /**
+     * Значение заголовка Cache-Control для всех файлов набора.
+     * @param value значение, например "public, max-age=3600", null - заголовок не добавляется.
+     * @return объект настроек.
+     */
+    public AssetOptions setCacheControl(@Nullable String value) {
+        cacheControl = value;
+        return this;
+    }
+
+    /**
+     * Файл, который отдается по пути каталога, оканчивающемуся на "/".
+     * @param fileName имя файла, null - каталоги не отдаются.
+     * @return объект настроек.
+     */
+    public AssetOptions setIndexFile(@Nullable String fileName) {
+        indexFile = fileName;
+        return this;
+    }
+
+    public int getGzipMinSize() {
+        return gzipMinSize;
+    }
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+    public @Nullable String getCacheControl() {
+        return cacheControl;
+    }
+    public @Nullable String getIndexFile() {
+        return indexFile;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "{ gzipMinSize: " + gzipMinSize +
+            ", gzipLevel: " + gzipLevel +
+            ", cacheControl: " + cacheControl +
+            ", indexFile: " + indexFile + " }";
+    }
+}
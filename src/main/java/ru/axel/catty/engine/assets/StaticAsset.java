@@ -0,0 +1,116 @@
+package ru.axel.catty.engine.assets;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.util.Locale;
+
+/**
+ * Статический файл набора: содержимое, тип, ETag и заранее сжатый gzip вариант.
+ * Все значения вычисляются при сборке набора, массивы общие для всех ответов и не изменяются.
+ */
+public final class StaticAsset {
+    private final String path;
+    private final String contentType;
+    private final String etag;
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String gzipEtag;
+    private final String cacheControl;
+
+    StaticAsset(
+        @NotNull String assetPath,
+        @NotNull String type,
+        @NotNull String hash,
+        byte @NotNull [] content,
+        byte @Nullable [] gzipContent,
+        @Nullable String cacheControlValue
+    ) {
+        path = assetPath;
+        contentType = type;
+        etag = "\"" + hash + "\"";
+        body = content;
+        gzipBody = gzipContent;
+        gzipEtag = "\"" + hash + "-gz\""; // у каждого представления свой сильный ETag
+        cacheControl = cacheControlValue;
+    }
+
+    /**
+     * Метод заполняет ответ файлом. Если клиент принимает gzip и сжатый вариант есть, отдается он.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     */
+    public void writeTo(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final boolean gzip = gzipBody != null && acceptsGzip(request.getHeaders(Headers.ACCEPT_ENCODING));
+
+        response.setResponseCode(ResponseCode.OK);
+        response.addHeader(Headers.CONTENT_TYPE, contentType);
+        response.addHeader(Headers.ETAG, gzip ? gzipEtag : etag);
+        if (gzipBody != null) response.addHeader(Headers.VARY, "Accept-Encoding");
+        if (gzip) response.addHeader(Headers.CONTENT_ENCODING, "gzip");
+        if (cacheControl != null) response.addHeader(Headers.CACHE_CONTROL, cacheControl);
+        response.setBody(gzip ? gzipBody : body);
+    }
+
+    /**
+     * Метод проверяет, принимает ли клиент gzip: кодировка gzip или "*" указана без q=0.
+     * @param acceptEncoding значение заголовка Accept-Encoding или null.
+     * @return true, если можно отдать gzip.
+     */
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            final int parameters = coding.indexOf(';');
+            final String name = (parameters < 0 ? coding : coding.substring(0, parameters)).trim();
+
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) continue;
+            if (parameters < 0) return true;
+
+            final String quality = coding.substring(parameters + 1).trim().toLowerCase(Locale.ROOT);
+            if (!quality.startsWith("q=")) return true;
+
+            try {
+                return Double.parseDouble(quality.substring(2).trim()) > 0;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    public @NotNull String getPath() {
+        return path;
+    }
+    public @NotNull String getContentType() {
+        return contentType;
+    }
+    public @NotNull String getEtag() {
+        return etag;
+    }
+    public int getSize() {
+        return body.length;
+    }
+    public int getGzipSize() {
+        return gzipBody == null ? 0 : gzipBody.length;
+    }
+    public boolean hasGzip() {
+        return gzipBody != null;
+    }
+
+    @Override
+    public String toString() {
+        return "StaticAsset{" +
+            "path='" + path + '\'' +
+            ", contentType='" + contentType + '\'' +
+            ", etag=" + etag +
+            ", size=" + getSize() +
+            ", gzipSize=" + getGzipSize() +
+            '}';
+    }
+}
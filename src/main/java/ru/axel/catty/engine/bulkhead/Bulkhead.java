@@ -0,0 +1,245 @@
+package ru.axel.catty.engine.bulkhead;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Изолированная группа маршрутов (bulkhead): собственный исполнитель, ограничение одновременно выполняемых
+ * обработчиков и очереди. Медленные обработчики одной группы занимают только ее места,
+ * запросы сверх очереди отклоняются сразу, не занимая потоки.
+ * Ожидающая работа хранится в очереди группы и передается исполнителю, только когда есть свободное место,
+ * поэтому потоки внешнего исполнителя не блокируются в ожидании места.
+ * <p>
+ * API обработчиков синхронное: {@link BulkheadRoute} держит поток движка, пока работа ждет в очереди
+ * и выполняется. Поэтому емкость группы (maxConcurrent + maxQueue) должна быть меньше количества потоков
+ * движка, иначе заполненная группа займет весь пул и остальные маршруты перестанут отвечать.
+ * Группа с такой емкостью не создается.
+ */
+public final class Bulkhead implements AutoCloseable {
+    private final String name;
+    private final BulkheadOptions options;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final Semaphore running;
+    private final ConcurrentLinkedQueue<Task> pending = new ConcurrentLinkedQueue<>();
+    private final int capacity;
+    private final int engineThreads;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * Работа, выполняемая в группе.
+     */
+    @FunctionalInterface
+    public interface Work {
+        void run() throws Exception;
+    }
+
+    /**
+     * Принятая работа, ожидающая места в группе.
+     */
+    private static final class Task {
+        private final Work work;
+        private final long queuedAt;
+        private final CompletableFuture<Boolean> done;
+
+        Task(@NotNull Work work, long queuedAt, @NotNull CompletableFuture<Boolean> done) {
+            this.work = work;
+            this.queuedAt = queuedAt;
+            this.done = done;
+        }
+    }
+
+    /**
+     * Создание группы.
+     * @param bulkheadName имя группы.
+     * @param bulkheadOptions настройки группы.
+     * @param engineThreadCount количество потоков пула движка, обрабатывающих запросы.
+     * @throws IllegalArgumentException емкость группы не меньше количества потоков движка.
+     */
+    public Bulkhead(@NotNull String bulkheadName, @NotNull BulkheadOptions bulkheadOptions, int engineThreadCount) {
+        final int groupCapacity = bulkheadOptions.getMaxConcurrent() + bulkheadOptions.getMaxQueue();
+
+        if (groupCapacity >= engineThreadCount) {
+            throw new IllegalArgumentException(
+                "Емкость группы " + bulkheadName + " (" + groupCapacity + ") должна быть меньше количества потоков движка: " +
+                engineThreadCount
+            );
+        }
+
+        name = bulkheadName;
+        options = bulkheadOptions;
+        capacity = groupCapacity;
+        engineThreads = engineThreadCount;
+        running = new Semaphore(options.getMaxConcurrent());
+        ownExecutor = options.getExecutor() == null;
+        executor = ownExecutor ? newPool(bulkheadName, options.getMaxConcurrent()) : options.getExecutor();
+    }
+
+    private static @NotNull ExecutorService newPool(@NotNull String name, int threads) {
+        final AtomicInteger number = new AtomicInteger();
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), // размер очереди ограничивает submit
+            task -> {
+                final Thread thread = new Thread(task, "catty-bulkhead-" + name + "-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Метод ставит работу в группу, если в ней есть место.
+     * @param work работа.
+     * @return завершение работы: true - выполнена, false - не выполнялась из-за превышения ожидания в очереди
+     * или остановки исполнителя; null - группа заполнена, работа не принята.
+     */
+    public @Nullable CompletableFuture<Boolean> submit(@NotNull Work work) {
+        int current;
+
+        do {
+            current = inFlight.get();
+            if (current >= capacity) {
+                rejected.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        peak.accumulateAndGet(current + 1, Math::max);
+
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        pending.add(new Task(work, System.nanoTime(), done));
+        dispatch();
+
+        return done;
+    }
+
+    /**
+     * Метод передает исполнителю ожидающую работу, пока есть свободные места.
+     * Работа добавляется в очередь до попытки занять место, а место освобождается до проверки очереди,
+     * поэтому работа не остается в очереди при свободном месте.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty() && running.tryAcquire()) {
+            final Task task = pending.poll();
+
+            if (task == null) { // работу забрал другой поток, проверяем очередь еще раз
+                running.release();
+                continue;
+            }
+
+            try {
+                executor.execute(() -> run(task));
+            } catch (RejectedExecutionException e) { // исполнитель остановлен
+                running.release();
+                inFlight.decrementAndGet();
+                rejected.increment();
+                task.done.complete(false);
+            }
+        }
+    }
+
+    private void run(@NotNull Task task) {
+        active.incrementAndGet();
+
+        Throwable failure = null;
+        boolean executed = false;
+        try {
+            final long maxWait = options.getMaxQueueWaitMillis();
+
+            if (maxWait > 0 && System.nanoTime() - task.queuedAt > TimeUnit.MILLISECONDS.toNanos(maxWait)) {
+                expired.increment();
+            } else {
+                executed = true;
+                task.work.run();
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            if (executed) completed.increment();
+            active.decrementAndGet();
+            running.release();
+            inFlight.decrementAndGet(); // место освобождается до ответа ожидающему потоку
+        }
+
+        if (failure != null) {
+            task.done.completeExceptionally(failure);
+        } else {
+            task.done.complete(executed);
+        }
+
+        dispatch();
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+    public @NotNull BulkheadOptions getOptions() {
+        return options;
+    }
+    public int getCapacity() {
+        return capacity;
+    }
+    public int getEngineThreads() {
+        return engineThreads;
+    }
+
+    /**
+     * Метод возвращает снимок метрик группы.
+     * @return метрики группы.
+     */
+    public @NotNull BulkheadStats getStats() {
+        final int activeNow = active.get();
+
+        return new BulkheadStats(
+            name,
+            activeNow,
+            Math.max(0, inFlight.get() - activeNow),
+            capacity,
+            peak.get(),
+            completed.sum(),
+            rejected.sum(),
+            expired.sum()
+        );
+    }
+
+    /**
+     * Метод останавливает собственный пул группы, выполняемые обработчики завершаются.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{" +
+            "name='" + name + '\'' +
+            ", options=" + options +
+            ", stats=" + getStats() +
+            '}';
+    }
+}
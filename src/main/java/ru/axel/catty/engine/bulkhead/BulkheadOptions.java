@@ -0,0 +1,108 @@
+package ru.axel.catty.engine.bulkhead;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Настройки изолированной группы маршрутов (bulkhead).
+ * Емкость группы ограничена количеством потоков движка, поэтому по умолчанию группа без очереди
+ * и с половиной процессоров в качестве одновременных обработчиков.
+ */
+public final class BulkheadOptions {
+    private int maxConcurrent = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int maxQueue = 0;
+    private long maxQueueWaitMillis = 0;
+    private long retryAfterSeconds = 1;
+    private ExecutorService executor = null;
+
+    /**
+     * Количество одновременно выполняемых обработчиков группы.
+     * Без собственного исполнителя столько же потоков получает пул группы.
+     * @param count количество обработчиков.
+     * @return объект настроек.
+     */
+    public BulkheadOptions setMaxConcurrent(int count) {
+        if (count < 1) throw new IllegalArgumentException("Количество одновременных обработчиков должно быть больше 0");
+
+        maxConcurrent = count;
+        return this;
+    }
+
+    /**
+     * Количество запросов, ожидающих свободного обработчика. Запросы сверх очереди сразу получают 503.
+     * Ожидающий запрос держит поток движка: maxConcurrent + maxQueue должно быть меньше количества потоков движка.
+     * @param count размер очереди, 0 - без очереди.
+     * @return объект настроек.
+     */
+    public BulkheadOptions setMaxQueue(int count) {
+        if (count < 0) throw new IllegalArgumentException("Размер очереди не может быть отрицательным");
+
+        maxQueue = count;
+        return this;
+    }
+
+    /**
+     * Максимальное время ожидания в очереди. Запрос, дождавшийся обработчика позже, получает 503
+     * без выполнения обработчика.
+     * @param millis время в миллисекундах, 0 - без ограничения.
+     * @return объект настроек.
+     */
+    public BulkheadOptions setMaxQueueWaitMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Время ожидания в очереди не может быть отрицательным");
+
+        maxQueueWaitMillis = millis;
+        return this;
+    }
+
+    /**
+     * Значение заголовка Retry-After ответа 503.
+     * @param seconds время в секундах, 0 - без заголовка.
+     * @return объект настроек.
+     */
+    public BulkheadOptions setRetryAfterSeconds(long seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("Retry-After не может быть отрицательным");
+
+        retryAfterSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Исполнитель обработчиков группы вместо собственного пула потоков, например
+     * Executors.newVirtualThreadPerTaskExecutor() на Java 21. Ограничение maxConcurrent соблюдается
+     * и для него: исполнитель получает работу, только когда в группе есть свободное место, и его потоки
+     * не ждут. Исполнитель не останавливается при закрытии группы.
+     * @param executorService исполнитель, null - собственный пул из maxConcurrent потоков.
+     * @return объект настроек.
+     */
+    public BulkheadOptions setExecutor(@Nullable ExecutorService executorService) {
+        executor = executorService;
+        return this;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+    public @Nullable ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "{ maxConcurrent: " + maxConcurrent +
+            ", maxQueue: " + maxQueue +
+            ", maxQueueWaitMillis: " + maxQueueWaitMillis +
+            ", retryAfterSeconds: " + retryAfterSeconds +
+            ", executor: " + (executor == null ? "own" : executor.getClass().getSimpleName()) + " }";
+    }
+}
@@ -0,0 +1,104 @@
+package ru.axel.catty.engine.bulkhead;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Маршрут, обработчик которого выполняется в изолированной группе {@link Bulkhead}.
+ * Поток запроса ждет завершения обработчика; если группа заполнена или ожидание в очереди превышено,
+ * запрос сразу получает 503 с Retry-After.
+ * API обработчиков синхронное, поэтому ожидание занимает поток движка. Занятых так потоков не больше
+ * емкости группы, которая при создании {@link Bulkhead} ограничена количеством потоков движка,
+ * и остальные маршруты продолжают обслуживаться.
+ */
+public class BulkheadRoute implements ICattyRoute {
+    private final ICattyRoute route;
+    private final Bulkhead bulkhead;
+
+    public BulkheadRoute(@NotNull ICattyRoute originalRoute, @NotNull Bulkhead routeBulkhead) {
+        route = originalRoute;
+        bulkhead = routeBulkhead;
+    }
+
+    @Override
+    public String getPath() {
+        return route.getPath();
+    }
+
+    /**
+     * Метод возвращает паттерн для поиска подходящего маршрута.
+     * @return паттерн для поиска подходящего маршрута.
+     */
+    @Override
+    public Pattern getPattern() {
+        return route.getPattern();
+    }
+    @Override
+    public String getMethod() {
+        return route.getMethod();
+    }
+    @Override
+    public RouteExecute getHandler() {
+        return this::handle;
+    }
+
+    public @NotNull Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Выполнить обработку маршрута в группе.
+     * @param request объект запроса
+     * @param response объект ответа
+     * @throws IOException ошибка обработчика или прерывание ожидания.
+     * @throws URISyntaxException ошибка обработчика.
+     * @throws NullPointerException ошибка обработчика.
+     */
+    @Override
+    public void handle(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException, URISyntaxException, NullPointerException {
+        final CompletableFuture<Boolean> done = bulkhead.submit(() -> route.handle(request, response));
+
+        if (done == null) {
+            unavailable(response);
+            return;
+        }
+
+        try {
+            if (!done.get()) unavailable(response);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof URISyntaxException uri) throw uri;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            request.retain(); // обработчик еще может обращаться к запросу
+            Thread.currentThread().interrupt();
+            throw new IOException("Ожидание обработчика группы " + bulkhead.getName() + " прервано");
+        }
+    }
+
+    private void unavailable(@NotNull IHttpCattyResponse response) {
+        final long retryAfter = bulkhead.getOptions().getRetryAfterSeconds();
+
+        response.addHeader(Headers.CONTENT_TYPE, "text/plain; charset=utf-8");
+        if (retryAfter > 0) response.addHeader(Headers.RETRY_AFTER, String.valueOf(retryAfter));
+        response.respond(ResponseCode.SERVICE_UNAVAILABLE, ResponseCode.SERVICE_UNAVAILABLE.getReason());
+    }
+}
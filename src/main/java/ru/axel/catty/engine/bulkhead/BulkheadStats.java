@@ -0,0 +1,96 @@
+package ru.axel.catty.engine.bulkhead;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Снимок метрик группы маршрутов.
+ */
+public final class BulkheadStats {
+    private final String name;
+    private final int active;
+    private final int queued;
+    private final int capacity;
+    private final int peak;
+    private final long completed;
+    private final long rejected;
+    private final long expired;
+
+    BulkheadStats(
+        @NotNull String name,
+        int active,
+        int queued,
+        int capacity,
+        int peak,
+        long completed,
+        long rejected,
+        long expired
+    ) {
+        this.name = name;
+        this.active = active;
+        this.queued = queued;
+        this.capacity = capacity;
+        this.peak = peak;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.expired = expired;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+    public int getActive() {
+        return active;
+    }
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Наибольшее количество запросов в группе (выполняемых и ожидающих) с момента создания.
+     * @return пиковое количество запросов.
+     */
+    public int getPeak() {
+        return peak;
+    }
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Количество запросов, получивших 503 из-за заполненной очереди.
+     * @return количество отклоненных запросов.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Количество запросов, получивших 503 после превышения времени ожидания в очереди.
+     * @return количество запросов с истекшим ожиданием.
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Доля занятых мест группы: 1.0 - следующий запрос будет отклонен.
+     * @return заполненность группы от 0 до 1.
+     */
+    public double getSaturation() {
+        return capacity == 0 ? 0.0 : (double) (active + queued) / capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "{ name: " + name +
+            ", active: " + active +
+            ", queued: " + queued +
+            ", saturation: " + String.format(Locale.ROOT, "%.2f", getSaturation()) +
+            ", peak: " + peak +
+            ", completed: " + completed +
+            ", rejected: " + rejected +
+            ", expired: " + expired + " }";
+    }
+}
@@ -0,0 +1,93 @@
+package ru.axel.catty.engine.bulkhead;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Именованные группы маршрутов одного движка и их метрики.
+ * Заполненные группы держат потоки движка одновременно, поэтому суммарная емкость групп
+ * должна оставаться меньше количества потоков движка: хотя бы один поток обслуживает остальные маршруты.
+ */
+public final class Bulkheads implements AutoCloseable {
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final int engineThreads;
+    private int totalCapacity = 0;
+
+    /**
+     * Создание набора групп.
+     * @param engineThreadCount количество потоков пула движка, обрабатывающих запросы.
+     */
+    public Bulkheads(int engineThreadCount) {
+        if (engineThreadCount < 2) throw new IllegalArgumentException("Для групп маршрутов движку нужно не меньше 2 потоков");
+
+        engineThreads = engineThreadCount;
+    }
+
+    /**
+     * Метод создает группу.
+     * @param name имя группы.
+     * @param options настройки группы.
+     * @return группа.
+     * @throws IllegalArgumentException группа уже существует или суммарная емкость групп
+     * не меньше количества потоков движка.
+     */
+    public synchronized @NotNull Bulkhead create(@NotNull String name, @NotNull BulkheadOptions options) {
+        if (bulkheads.containsKey(name)) throw new IllegalArgumentException("Группа маршрутов уже существует: " + name);
+
+        final int capacity = totalCapacity + options.getMaxConcurrent() + options.getMaxQueue();
+        if (capacity >= engineThreads) {
+            throw new IllegalArgumentException(
+                "Суммарная емкость групп маршрутов (" + capacity + ") должна быть меньше количества потоков движка: " +
+                engineThreads
+            );
+        }
+
+        final Bulkhead bulkhead = new Bulkhead(name, options, engineThreads);
+
+        bulkheads.put(name, bulkhead);
+        totalCapacity = capacity;
+
+        return bulkhead;
+    }
+
+    public @Nullable Bulkhead get(@NotNull String name) {
+        return bulkheads.get(name);
+    }
+    public int getEngineThreads() {
+        return engineThreads;
+    }
+    public @NotNull Collection<Bulkhead> getAll() {
+        return Collections.unmodifiableCollection(bulkheads.values());
+    }
+
+    /**
+     * Метод возвращает метрики всех групп.
+     * @return снимки метрик групп.
+     */
+    public @NotNull List<BulkheadStats> getStats() {
+        final List<BulkheadStats> stats = new ArrayList<>(bulkheads.size());
+        for (Bulkhead bulkhead : bulkheads.values()) stats.add(bulkhead.getStats());
+
+        return stats;
+    }
+
+    /**
+     * Метод останавливает собственные пулы всех групп.
+     */
+    @Override
+    public void close() {
+        bulkheads.values().forEach(Bulkhead::close);
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkheads" + getStats();
+    }
+}
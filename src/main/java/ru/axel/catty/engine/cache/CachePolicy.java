@@ -0,0 +1,93 @@
+package ru.axel.catty.engine.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Настройки кэширования ответов маршрута.
+ */
+public final class CachePolicy {
+    private long ttlSeconds = 5L;
+    private String[] queryParams = new String[0];
+    private long singleFlightTimeoutMillis = 0L; // 0 - одновременные запросы не объединяются
+    private int singleFlightWaiters = 16;
+
+    /**
+     * Время жизни ответа в кэше, если обработчик не указал Cache-Control: max-age.
+     * @param seconds время в секундах.
+     * @return объект настроек.
+     */
+    public CachePolicy setTtlSeconds(long seconds) {
+        if (seconds <= 0) throw new IllegalArgumentException("Время жизни должно быть больше 0");
+
+        ttlSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Параметры строки запроса, входящие в ключ кэша. Остальные параметры на выбор ответа не влияют.
+     * @param names имена параметров.
+     * @return объект настроек.
+     */
+    public CachePolicy setQueryParams(String @NotNull ... names) {
+        queryParams = names.clone();
+        return this;
+    }
+
+    /**
+     * Включает объединение одновременных одинаковых запросов: пока обработчик выполняется для одного запроса,
+     * остальные запросы с тем же ключом ждут его ответ. Если ответ не получен за указанное время,
+     * запрос выполняется самостоятельно. Ожидающий запрос блокирует поток пула движка на время ожидания,
+     * количество ожидающих ограничивается {@link #setSingleFlightWaiters(int)}.
+     * @param timeoutMillis время ожидания ответа в миллисекундах, 0 - выключить объединение.
+     * @return объект настроек.
+     */
+    public CachePolicy setSingleFlight(long timeoutMillis) {
+        if (timeoutMillis < 0) throw new IllegalArgumentException("Время ожидания не может быть отрицательным");
+
+        singleFlightTimeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Максимальное количество запросов, ожидающих ответ одного объединенного запроса. Каждый ожидающий занимает
+     * поток пула движка, поэтому запросы сверх лимита не ждут и сразу выполняются самостоятельно.
+     * @param maxWaiters количество ожидающих запросов, 0 - запросы не ждут.
+     * @return объект настроек.
+     */
+    public CachePolicy setSingleFlightWaiters(int maxWaiters) {
+        if (maxWaiters < 0) throw new IllegalArgumentException("Количество ожидающих не может быть отрицательным");
+
+        singleFlightWaiters = maxWaiters;
+        return this;
+    }
+
+    public boolean isSingleFlight() {
+        return singleFlightTimeoutMillis > 0;
+    }
+    public long getSingleFlightTimeoutMillis() {
+        return singleFlightTimeoutMillis;
+    }
+    public int getSingleFlightWaiters() {
+        return singleFlightWaiters;
+    }
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+    public String[] getQueryParams() {
+        return queryParams.clone();
+    }
+
+    String[] queryParams() {
+        return queryParams;
+    }
+
+    @Override
+    public String toString() {
+        return "{ ttlSeconds: " + ttlSeconds +
+            ", queryParams: " + Arrays.toString(queryParams) +
+            ", singleFlightTimeoutMillis: " + singleFlightTimeoutMillis +
+            ", singleFlightWaiters: " + singleFlightWaiters + " }";
+    }
+}
@@ -0,0 +1,61 @@
+package ru.axel.catty.engine.cache;
+
+/**
+ * Снимок метрик кэша ответов.
+ */
+public final class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long stores;
+    private final long evictions;
+    private final long entries;
+    private final long bytes;
+
+    CacheStats(long hits, long misses, long stores, long evictions, long entries, long bytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.stores = stores;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+    public long getMisses() {
+        return misses;
+    }
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * Количество записей, вытесненных из-за превышения лимита памяти или истечения времени жизни.
+     * @return количество вытесненных записей.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+    public long getEntries() {
+        return entries;
+    }
+    public long getBytes() {
+        return bytes;
+    }
+
+    public double getHitRate() {
+        final long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "{ hits: " + hits +
+            ", misses: " + misses +
+            ", stores: " + stores +
+            ", evictions: " + evictions +
+            ", entries: " + entries +
+            ", bytes: " + bytes + " }";
+    }
+}
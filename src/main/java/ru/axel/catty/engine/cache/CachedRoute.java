@@ -0,0 +1,172 @@
+package ru.axel.catty.engine.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.IHttpHeaders;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Маршрут с кэшированием ответов.
+ * При попадании в кэш обработчик маршрута не выполняется, а в ответ подставляются готовые байты.
+ * Кэшируются только ответы на GET с кэшируемым кодом, без Set-Cookie и без Cache-Control: no-store,
+ * private или no-cache. Cache-Control: max-age обработчика заменяет время жизни из настроек маршрута.
+ */
+public class CachedRoute implements ICattyRoute {
+    private static final int[] cacheableCodes = { 200, 203, 204, 300, 301, 404, 405, 410, 414, 501 };
+    private final ICattyRoute route;
+    private final ResponseCache cache;
+    private final CachePolicy policy;
+
+    public CachedRoute(@NotNull ICattyRoute originalRoute, @NotNull ResponseCache responseCache, @NotNull CachePolicy cachePolicy) {
+        route = originalRoute;
+        cache = responseCache;
+        policy = cachePolicy;
+    }
+
+    @Override
+    public String getPath() {
+        return route.getPath();
+    }
+
+    /**
+     * Метод возвращает паттерн для поиска подходящего маршрута.
+     * @return паттерн для поиска подходящего маршрута.
+     */
+    @Override
+    public Pattern getPattern() {
+        return route.getPattern();
+    }
+    @Override
+    public String getMethod() {
+        return route.getMethod();
+    }
+    @Override
+    public RouteExecute getHandler() {
+        return this::handle;
+    }
+
+    /**
+     * Выполнить обработку маршрута с учетом кэша.
+     * @param request объект запроса
+     * @param response объект ответа
+     * @throws IOException ошибка чтения статического файла.
+     * @throws URISyntaxException ошибка формирования URL при чтении статического файла.
+     * @throws NullPointerException не удалось получить статический файл.
+     */
+    @Override
+    public void handle(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException, URISyntaxException, NullPointerException {
+        if (!"GET".equals(request.getMethod())) {
+            route.handle(request, response);
+            return;
+        }
+
+        final String primaryKey = ResponseCache.primaryKey(request, policy);
+        final ResponseCache.CacheEntry entry = cache.get(primaryKey, request);
+
+        if (entry != null) {
+            response.setResponseCode(entry.getResponseCode());
+            response.setPreparedBytes(entry.getBytes());
+            return;
+        }
+
+        route.handle(request, response);
+        store(primaryKey, request, response);
+    }
+
+    /**
+     * Метод сохраняет ответ в кэше, если ответ кэшируемый.
+     * Ответ сериализуется один раз, эти же байты отдаются текущему клиенту.
+     * @param primaryKey основной ключ запроса.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @throws IOException ошибка сериализации ответа.
+     */
+    private void store(
+        @NotNull String primaryKey,
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException {
+        if (!isCacheableCode(response.getResponseCode())) return;
+
+        final IHttpHeaders headers = response.getHeaders();
+        if (headers.contains(Headers.SET_COOKIE)) return;
+
+        final long ttl = ttlSeconds(headers.get(Headers.CACHE_CONTROL));
+        if (ttl <= 0) return;
+
+        final String[] varyNames = varyNames(headers.getAll(Headers.VARY));
+        if (varyNames == null) return;
+
+        final byte[] bytes = response.getBytes();
+        response.setPreparedBytes(bytes);
+        cache.put(primaryKey, request, varyNames, response.getResponseCode(), bytes, ttl);
+    }
+
+    /**
+     * Метод определяет время жизни ответа по заголовку Cache-Control.
+     * @param cacheControl значение заголовка или null.
+     * @return время жизни в секундах, 0 - ответ не кэшируется.
+     */
+    private long ttlSeconds(@Nullable String cacheControl) {
+        if (cacheControl == null) return policy.getTtlSeconds();
+
+        long ttl = policy.getTtlSeconds();
+        for (String directive : cacheControl.split(",")) {
+            final String value = directive.trim().toLowerCase(Locale.ROOT);
+
+            if (value.equals("no-store") || value.equals("no-cache") || value.equals("private")) return 0;
+            if (value.startsWith("max-age=")) {
+                try {
+                    ttl = Long.parseLong(value.substring("max-age=".length()).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return ttl;
+    }
+
+    /**
+     * Метод собирает имена заголовков из Vary.
+     * @param vary значения заголовков Vary.
+     * @return имена заголовков или null, если ответ зависит от всего запроса (Vary: *).
+     */
+    private static String @Nullable [] varyNames(@NotNull List<String> vary) {
+        if (vary.isEmpty()) return new String[0];
+
+        final List<String> names = new ArrayList<>();
+        for (String value : vary) {
+            for (String name : value.split(",")) {
+                final String trimmed = name.trim();
+
+                if (trimmed.equals("*")) return null;
+                if (!trimmed.isEmpty()) names.add(trimmed.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        return names.toArray(String[]::new);
+    }
+
+    private static boolean isCacheableCode(int code) {
+        for (int cacheable : cacheableCodes) {
+            if (cacheable == code) return true;
+        }
+
+        return false;
+    }
+}
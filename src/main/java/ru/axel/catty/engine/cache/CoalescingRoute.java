@@ -0,0 +1,281 @@
+package ru.axel.catty.engine.cache;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.HttpHeaders;
+import ru.axel.catty.engine.headers.IHttpHeaders;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Маршрут с объединением одновременных одинаковых GET запросов (single-flight).
+ * Первый запрос с ключом выполняет обработчик, остальные ждут его и получают копию ответа:
+ * код, заголовки и те же сериализованные байты. По истечении времени ожидания,
+ * при Set-Cookie в ответе или несовпадении заголовков из Vary запрос выполняется самостоятельно.
+ * Если обработчик первого запроса завершился ошибкой, один из ожидающих становится новым первым запросом,
+ * остальные ждут уже его; после второй ошибки подряд ожидающие выполняют обработчик сами.
+ * <p>
+ * Ожидание блокирует поток пула движка. Количество ожидающих одного ответа ограничено
+ * {@link CachePolicy#setSingleFlightWaiters(int)}, запросы сверх лимита сразу выполняются самостоятельно.
+ * Ключ строится так же, как ключ {@link ResponseCache}.
+ */
+public class CoalescingRoute implements ICattyRoute {
+    private final ICattyRoute route;
+    private final CachePolicy policy;
+    private final Map<String, InFlight> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    public CoalescingRoute(@NotNull ICattyRoute originalRoute, @NotNull CachePolicy cachePolicy) {
+        if (!cachePolicy.isSingleFlight()) {
+            throw new IllegalArgumentException("В настройках не задано время ожидания объединенного запроса");
+        }
+
+        route = originalRoute;
+        policy = cachePolicy;
+    }
+
+    @Override
+    public String getPath() {
+        return route.getPath();
+    }
+
+    /**
+     * Метод возвращает паттерн для поиска подходящего маршрута.
+     * @return паттерн для поиска подходящего маршрута.
+     */
+    @Override
+    public Pattern getPattern() {
+        return route.getPattern();
+    }
+    @Override
+    public String getMethod() {
+        return route.getMethod();
+    }
+    @Override
+    public RouteExecute getHandler() {
+        return this::handle;
+    }
+
+    /**
+     * Метод возвращает количество запросов, получивших ответ другого запроса.
+     * @return количество объединенных запросов.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Метод возвращает количество запросов, не дождавшихся ответа и выполненных самостоятельно.
+     * @return количество запросов с истекшим ожиданием.
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Метод возвращает количество запросов, выполненных самостоятельно из-за лимита ожидающих.
+     * @return количество запросов сверх лимита.
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Выполнить обработку маршрута с объединением одинаковых запросов.
+     * @param request объект запроса
+     * @param response объект ответа
+     * @throws IOException ошибка чтения статического файла.
+     * @throws URISyntaxException ошибка формирования URL при чтении статического файла.
+     * @throws NullPointerException не удалось получить статический файл.
+     */
+    @Override
+    public void handle(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException, URISyntaxException, NullPointerException {
+        if (!"GET".equals(request.getMethod())) {
+            route.handle(request, response);
+            return;
+        }
+
+        final String key = ResponseCache.primaryKey(request, policy);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getSingleFlightTimeoutMillis());
+        boolean takeover = true;
+
+        while (true) {
+            final InFlight own = new InFlight();
+            final InFlight inFlight = flights.putIfAbsent(key, own);
+
+            if (inFlight == null) {
+                lead(key, own, request, response);
+                return;
+            }
+            if (follow(inFlight, deadline, takeover, request, response)) return;
+
+            takeover = false; // первый запрос завершился ошибкой, пробуем стать новым первым запросом
+        }
+    }
+
+    private void lead(
+        @NotNull String key,
+        @NotNull InFlight own,
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException, URISyntaxException {
+        try {
+            route.handle(request, response);
+
+            final byte[] bytes = response.getBytes();
+            response.setPreparedBytes(bytes);
+
+            flights.remove(key, own);
+            own.result.complete(new Flight(request, response, bytes));
+        } catch (Throwable exc) {
+            // ключ освобождается до пробуждения ожидающих, чтобы новым первым запросом стал только один из них
+            flights.remove(key, own);
+            own.result.completeExceptionally(exc);
+            throw exc;
+        }
+    }
+
+    /**
+     * Ожидание ответа первого запроса.
+     * @param takeover при ошибке первого запроса вернуть false, чтобы запрос попробовал стать новым первым.
+     * @return true, если запрос обработан.
+     */
+    private boolean follow(
+        @NotNull InFlight inFlight,
+        long deadline,
+        boolean takeover,
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException, URISyntaxException {
+        if (inFlight.waiters.incrementAndGet() > policy.getSingleFlightWaiters()) {
+            inFlight.waiters.decrementAndGet();
+            overflows.increment();
+            route.handle(request, response);
+            return true;
+        }
+
+        final Flight flight;
+
+        try {
+            flight = inFlight.result.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            route.handle(request, response);
+            return true;
+        } catch (ExecutionException e) {
+            if (takeover) return false;
+
+            route.handle(request, response);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            route.handle(request, response);
+            return true;
+        } finally {
+            inFlight.waiters.decrementAndGet();
+        }
+
+        if (!flight.isShareable() || !flight.matchesVary(request)) {
+            route.handle(request, response);
+            return true;
+        }
+
+        coalesced.increment();
+        flight.copyTo(response);
+        return true;
+    }
+
+    /**
+     * Выполняющийся первый запрос: будущий ответ и количество ожидающих его запросов.
+     */
+    private static final class InFlight {
+        private final CompletableFuture<Flight> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    /**
+     * Результат выполнения обработчика первым запросом.
+     * Заголовки ответа и значения заголовков из Vary копируются: запрос и ответ первого запроса
+     * могут вернуться в {@link ru.axel.catty.engine.request.ExchangePool} до того, как ответ получат ожидающие.
+     */
+    private static final class Flight {
+        private final int responseCode;
+        private final IHttpHeaders headers = new HttpHeaders();
+        private final Map<String, String> varyValues = new HashMap<>();
+        private final boolean varyAny;
+        private final byte[] bytes;
+
+        Flight(@NotNull IHttpCattyRequest leaderRequest, @NotNull IHttpCattyResponse response, byte @NotNull [] responseBytes) {
+            final IHttpHeaders source = response.getHeaders();
+            boolean any = false;
+
+            for (int i = 0; i < source.size(); i++) headers.add(source.getName(i), source.getValue(i));
+            for (String value : headers.getAll(Headers.VARY)) {
+                for (String name : value.split(",")) {
+                    final String trimmed = name.trim();
+
+                    if (trimmed.equals("*")) any = true;
+                    else if (!trimmed.isEmpty()) varyValues.put(trimmed, leaderRequest.getHeaders(trimmed));
+                }
+            }
+
+            responseCode = response.getResponseCode();
+            varyAny = any;
+            bytes = responseBytes;
+        }
+
+        /**
+         * Ответ с Set-Cookie относится к конкретному клиенту и другим запросам не передается.
+         * @return true, если ответ можно отдать другим запросам.
+         */
+        boolean isShareable() {
+            return !headers.contains(Headers.SET_COOKIE);
+        }
+
+        /**
+         * Метод проверяет, что заголовки из Vary ответа совпадают у запроса и первого запроса.
+         * @param other запрос, ожидающий ответ.
+         * @return true, если ответ подходит запросу.
+         */
+        boolean matchesVary(@NotNull IHttpCattyRequest other) {
+            if (varyAny) return false;
+
+            for (Map.Entry<String, String> entry : varyValues.entrySet()) {
+                if (!Objects.equals(entry.getValue(), other.getHeaders(entry.getKey()))) return false;
+            }
+
+            return true;
+        }
+
+        void copyTo(@NotNull IHttpCattyResponse response) {
+            final IHttpHeaders target = response.getHeaders();
+
+            target.clear();
+            for (int i = 0; i < headers.size(); i++) target.add(headers.getName(i), headers.getValue(i));
+
+            response.setResponseCode(responseCode);
+            response.setPreparedBytes(bytes);
+        }
+    }
+}
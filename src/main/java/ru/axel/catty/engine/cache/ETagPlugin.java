@@ -0,0 +1,414 @@
+package ru.axel.catty.engine.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.IHttpHeaders;
+import ru.axel.catty.engine.plugins.PluginExecute;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.RouteExecute;
+import ru.axel.catty.engine.routing.RouteForget;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.URISyntaxException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Плагин автоматического ETag для динамических ответов.
+ * После выполнения обработчика маршрута тело ответа 200 на GET или HEAD хешируется быстрым некриптографическим
+ * хешем (MurmurHash64A), хеш и длина тела записываются в заголовок ETag. Если ETag совпадает с одним из значений
+ * If-None-Match запроса, ответ заменяется ответом 304 без тела.
+ * Если обработчик сам установил ETag, хеш не вычисляется, но 304 отдается по его значению.
+ * Ответы с готовыми байтами ({@link CachedRoute}, {@link CoalescingRoute}) обрабатываются так же: ETag вставляется
+ * в копию байтов, общий массив кэша не изменяется, а 304 собирается из заголовков готового ответа. Для таких ответов
+ * хеш и копия вычисляются на каждый запрос; чтобы избежать этого, обработчик может установить ETag сам, тогда он
+ * сохраняется в кэше вместе с ответом. Ответы с переключением протокола не изменяются.
+ * Плагин подменяет маршрут запроса оберткой, поэтому должен выполняться после поиска маршрута.
+ * Подключение: plugins.addPlugin("etag", "/api", new ETagPlugin()).
+ */
+public class ETagPlugin implements PluginExecute, RouteForget {
+    private static final VarHandle longs = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long multiplier = 0xc6a4a7935bd1e995L;
+    private static final int shift = 47;
+    private static final byte[] emptyBody = new byte[0];
+    private final boolean weak;
+    private final Map<ICattyRoute, ICattyRoute> wrapped = new ConcurrentHashMap<>();
+    private final LongAdder tagged = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    /**
+     * Плагин со слабым ETag (W/"..."): значение говорит о совпадении содержимого, а не о побайтовом совпадении
+     * ответа, которое нельзя гарантировать для динамических ответов при сжатии на промежуточных узлах.
+     */
+    public ETagPlugin() {
+        this(true);
+    }
+
+    /**
+     * @param weakETag true - слабый ETag, false - сильный ETag.
+     */
+    public ETagPlugin(boolean weakETag) {
+        weak = weakETag;
+    }
+
+    @Override
+    public boolean exec(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final ICattyRoute route = request.getRoute().orElse(null);
+
+        if (route != null && !(route instanceof ETagRoute)) {
+            request.setRoute(wrapped.computeIfAbsent(route, ETagRoute::new));
+        }
+
+        return true;
+    }
+
+    /**
+     * Метод добавляет ETag к ответу и при совпадении с If-None-Match превращает ответ в 304.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     */
+    private void apply(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final String method = request.getMethod();
+
+        if (!"GET".equals(method) && !"HEAD".equals(method)) return;
+        if (response.getResponseCode() != ResponseCode.OK.getCode()) return;
+        if (response.getUpgrade() != null) return;
+
+        final byte[] prepared = response.getPreparedBytes();
+        if (prepared != null) {
+            applyPrepared(request, response, prepared);
+            return;
+        }
+
+        final byte[] body = response.getBody();
+        if (body == null) return;
+
+        final IHttpHeaders headers = response.getHeaders();
+        String etag = headers.get(Headers.ETAG);
+
+        if (etag == null) {
+            etag = tag(body);
+            response.addHeader(Headers.ETAG, etag);
+            tagged.increment();
+        }
+
+        if (!matches(request.getHeaders(Headers.IF_NONE_MATCH), etag)) return;
+
+        response.setResponseCode(ResponseCode.NOT_MODIFIED);
+        response.setBody(emptyBody);
+        headers.remove(Headers.CONTENT_LENGTH);
+        headers.remove(Headers.CONTENT_TYPE);
+        notModified.increment();
+    }
+
+    /**
+     * Метод добавляет ETag к готовому ответу и при совпадении с If-None-Match заменяет его ответом 304.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @param prepared готовые байты ответа, общий массив не изменяется.
+     */
+    private void applyPrepared(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response,
+        byte @NotNull [] prepared
+    ) {
+        final int headEnd = headEnd(prepared);
+        if (headEnd < 0) return;
+
+        String etag = headerValue(prepared, headEnd, "etag");
+        byte[] bytes = prepared;
+
+        if (etag == null) {
+            final int bodyStart = headEnd + 2;
+
+            etag = tag(prepared, bodyStart, prepared.length - bodyStart);
+            bytes = withHeader(prepared, headEnd, "ETag: " + etag + "\r\n");
+            tagged.increment();
+        }
+
+        if (matches(request.getHeaders(Headers.IF_NONE_MATCH), etag)) {
+            bytes = notModifiedHead(bytes, headEnd(bytes));
+            response.setResponseCode(ResponseCode.NOT_MODIFIED);
+            notModified.increment();
+        }
+
+        response.setPreparedBytes(bytes);
+    }
+
+    /**
+     * Метод ищет конец заголовков готового ответа.
+     * @param bytes готовые байты ответа.
+     * @return позиция CRLF пустой строки или -1.
+     */
+    private static int headEnd(byte @NotNull [] bytes) {
+        for (int i = 0; i + 3 < bytes.length; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') return i + 2;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Метод ищет значение заголовка в готовом ответе.
+     * @param bytes готовые байты ответа.
+     * @param headEnd конец заголовков.
+     * @param name имя заголовка в нижнем регистре.
+     * @return значение заголовка или null.
+     */
+    private static @Nullable String headerValue(byte @NotNull [] bytes, int headEnd, @NotNull String name) {
+        int lineStart = lineAfter(bytes, 0);
+
+        while (lineStart < headEnd) {
+            final int lineEnd = lineAfter(bytes, lineStart) - 2;
+
+            if (isHeader(bytes, lineStart, lineEnd, name)) {
+                final int valueStart = lineStart + name.length() + 1;
+                return new String(bytes, valueStart, lineEnd - valueStart, StandardCharsets.ISO_8859_1).trim();
+            }
+
+            lineStart = lineEnd + 2;
+        }
+
+        return null;
+    }
+
+    /**
+     * Метод собирает ответ 304 из готового ответа: строка статуса заменяется, заголовки тела и тело удаляются.
+     * @param bytes готовые байты ответа.
+     * @param headEnd конец заголовков.
+     * @return байты ответа 304.
+     */
+    private static byte @NotNull [] notModifiedHead(byte @NotNull [] bytes, int headEnd) {
+        final byte[] statusLine = ResponseCode.NOT_MODIFIED.getStatusLine();
+        final byte[] head = new byte[statusLine.length + headEnd + 2];
+        int position = statusLine.length;
+        int lineStart = lineAfter(bytes, 0);
+
+        System.arraycopy(statusLine, 0, head, 0, statusLine.length);
+        while (lineStart < headEnd) {
+            final int nextLine = lineAfter(bytes, lineStart);
+            final int lineEnd = nextLine - 2;
+
+            if (
+                !isHeader(bytes, lineStart, lineEnd, "content-length") &&
+                !isHeader(bytes, lineStart, lineEnd, "content-type") &&
+                !isHeader(bytes, lineStart, lineEnd, "transfer-encoding")
+            ) {
+                System.arraycopy(bytes, lineStart, head, position, nextLine - lineStart);
+                position += nextLine - lineStart;
+            }
+
+            lineStart = nextLine;
+        }
+        head[position++] = '\r';
+        head[position++] = '\n';
+
+        return Arrays.copyOf(head, position);
+    }
+
+    /**
+     * Метод вставляет строку заголовка перед пустой строкой в копию готового ответа.
+     * @param bytes готовые байты ответа.
+     * @param headEnd конец заголовков.
+     * @param line строка заголовка с CRLF.
+     * @return копия ответа с заголовком.
+     */
+    private static byte @NotNull [] withHeader(byte @NotNull [] bytes, int headEnd, @NotNull String line) {
+        final byte[] header = line.getBytes(StandardCharsets.ISO_8859_1);
+        final byte[] result = new byte[bytes.length + header.length];
+
+        System.arraycopy(bytes, 0, result, 0, headEnd);
+        System.arraycopy(header, 0, result, headEnd, header.length);
+        System.arraycopy(bytes, headEnd, result, headEnd + header.length, bytes.length - headEnd);
+
+        return result;
+    }
+
+    /**
+     * Метод возвращает позицию после ближайшего перевода строки.
+     * @param bytes готовые байты ответа.
+     * @param start начало поиска.
+     * @return начало следующей строки.
+     */
+    private static int lineAfter(byte @NotNull [] bytes, int start) {
+        int position = start;
+        while (position < bytes.length && bytes[position] != '\n') position++;
+
+        return position + 1;
+    }
+
+    /**
+     * Метод проверяет имя заголовка в строке без учета регистра.
+     * @param bytes готовые байты ответа.
+     * @param lineStart начало строки.
+     * @param lineEnd конец строки без CRLF.
+     * @param name имя заголовка в нижнем регистре.
+     * @return true, если строка - заголовок с этим именем.
+     */
+    private static boolean isHeader(byte @NotNull [] bytes, int lineStart, int lineEnd, @NotNull String name) {
+        if (lineEnd - lineStart <= name.length() || bytes[lineStart + name.length()] != ':') return false;
+
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase((char) bytes[lineStart + i]) != name.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Метод формирует значение ETag из длины и хеша тела.
+     * @param body тело ответа.
+     * @return значение заголовка ETag.
+     */
+    private @NotNull String tag(byte @NotNull [] body) {
+        return tag(body, 0, body.length);
+    }
+    private @NotNull String tag(byte @NotNull [] data, int offset, int length) {
+        final String value = '"' + Integer.toHexString(length) + '-' + Long.toHexString(hash(data, offset, length)) + '"';
+        return weak ? "W/" + value : value;
+    }
+
+    /**
+     * Слабое сравнение ETag со списком If-None-Match (RFC 9110, 13.1.2): префикс W/ не учитывается.
+     * @param ifNoneMatch значение заголовка If-None-Match или null.
+     * @param etag ETag ответа.
+     * @return true, если ответ не изменился.
+     */
+    static boolean matches(@Nullable String ifNoneMatch, @NotNull String etag) {
+        if (ifNoneMatch == null) return false;
+
+        final String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String trimmed = candidate.trim();
+
+            if (trimmed.equals("*") || opaque(trimmed).equals(opaque)) return true;
+        }
+
+        return false;
+    }
+
+    private static @NotNull String opaque(@NotNull String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * MurmurHash64A: тело обрабатывается по 8 байт за шаг.
+     * @param data данные.
+     * @return 64-битный хеш.
+     */
+    static long hash(byte @NotNull [] data) {
+        return hash(data, 0, data.length);
+    }
+
+    /**
+     * MurmurHash64A части массива.
+     * @param data данные.
+     * @param offset начало части.
+     * @param length длина части.
+     * @return 64-битный хеш.
+     */
+    static long hash(byte @NotNull [] data, int offset, int length) {
+        final int blocks = length & ~7;
+        long hash = length * multiplier;
+
+        for (int i = 0; i < blocks; i += 8) {
+            long block = (long) longs.get(data, offset + i);
+
+            block *= multiplier;
+            block ^= block >>> shift;
+            block *= multiplier;
+
+            hash ^= block;
+            hash *= multiplier;
+        }
+
+        if (blocks < length) {
+            long tail = 0;
+            for (int i = length - 1; i >= blocks; i--) tail = (tail << 8) | (data[offset + i] & 0xFF);
+
+            hash ^= tail;
+            hash *= multiplier;
+        }
+
+        hash ^= hash >>> shift;
+        hash *= multiplier;
+        hash ^= hash >>> shift;
+
+        return hash;
+    }
+
+    /**
+     * Метод удаляет обертки маршрутов, например удаленных из таблицы маршрутов при замене набора.
+     * Вызывается из {@link ru.axel.catty.engine.plugins.Plugins#forget}, если плагин добавлен в Plugins.
+     * @param routes маршруты.
+     */
+    @Override
+    public void forget(@NotNull Collection<? extends ICattyRoute> routes) {
+        for (ICattyRoute route : routes) wrapped.remove(route);
+    }
+
+    /**
+     * Метод возвращает количество ответов, получивших вычисленный ETag.
+     * @return количество ответов с ETag.
+     */
+    public long getTagged() {
+        return tagged.sum();
+    }
+
+    /**
+     * Метод возвращает количество ответов, замененных ответом 304.
+     * @return количество ответов 304.
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * Обертка маршрута, которая после обработчика добавляет ETag к ответу.
+     */
+    private final class ETagRoute implements ICattyRoute {
+        private final ICattyRoute route;
+
+        ETagRoute(@NotNull ICattyRoute originalRoute) {
+            route = originalRoute;
+        }
+
+        @Override
+        public String getPath() {
+            return route.getPath();
+        }
+        @Override
+        public Pattern getPattern() {
+            return route.getPattern();
+        }
+        @Override
+        public String getMethod() {
+            return route.getMethod();
+        }
+        @Override
+        public RouteExecute getHandler() {
+            return this::handle;
+        }
+
+        @Override
+        public void handle(
+            @NotNull IHttpCattyRequest request,
+            @NotNull IHttpCattyResponse response
+        ) throws IOException, URISyntaxException, NullPointerException {
+            route.handle(request, response);
+            apply(request, response);
+        }
+    }
+}
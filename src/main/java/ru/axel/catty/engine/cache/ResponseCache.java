@@ -0,0 +1,297 @@
+package ru.axel.catty.engine.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш сериализованных ответов с ограничением по памяти.
+ * Записи распределены по сегментам, каждый сегмент - LRU список под собственной блокировкой,
+ * лимит памяти делится между сегментами поровну.
+ * Ключ записи - метод, путь, выбранные параметры запроса и значения заголовков из Vary ответа.
+ * Сегмент выбирается по основному ключу, поэтому все варианты ответа по Vary лежат в одном сегменте
+ * вместе с индексом имен Vary, и индекс удаляется при вытеснении последнего варианта.
+ * Время жизни записи ограничено {@link #maxTtlSeconds}.
+ */
+public final class ResponseCache {
+    /**
+     * Максимальное время жизни записи в секундах, большие значения max-age урезаются до него.
+     */
+    public static final long maxTtlSeconds = TimeUnit.DAYS.toSeconds(365);
+    private static final int entryOverhead = 96; // примерная стоимость записи и ключа сверх тела ответа
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Создание кэша.
+     * @param maxBytes лимит памяти под ответы в байтах.
+     */
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, 16);
+    }
+    public ResponseCache(long maxBytes, int segmentCount) {
+        if (maxBytes <= 0 || segmentCount <= 0) {
+            throw new IllegalArgumentException("Лимит памяти и количество сегментов должны быть больше 0");
+        }
+
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) segments[i] = new Segment(Math.max(1, maxBytes / segmentCount));
+    }
+
+    /**
+     * Метод формирует основной ключ кэша: метод, путь и выбранные параметры запроса.
+     * @param request объект запроса.
+     * @param policy настройки кэширования маршрута.
+     * @return ключ кэша.
+     */
+    public static @NotNull String primaryKey(@NotNull IHttpCattyRequest request, @NotNull CachePolicy policy) {
+        final StringBuilder key = new StringBuilder(64)
+            .append(request.getMethod())
+            .append(' ')
+            .append(request.getPath().orElse(""));
+
+        for (String name : policy.queryParams()) {
+            final String value = request.getQueryParam(name);
+            if (value != null) key.append('&').append(name).append('=').append(value);
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Метод ищет ответ в кэше.
+     * @param primaryKey основной ключ запроса.
+     * @param request объект запроса, нужен для заголовков из Vary.
+     * @return запись кэша или null, если ответа нет или он устарел.
+     */
+    public @Nullable CacheEntry get(@NotNull String primaryKey, @NotNull IHttpCattyRequest request) {
+        final CacheEntry entry = segmentFor(primaryKey).get(primaryKey, request, System.nanoTime());
+
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Метод сохраняет ответ в кэше.
+     * @param primaryKey основной ключ запроса.
+     * @param request объект запроса, нужен для заголовков из Vary.
+     * @param varyNames имена заголовков из Vary ответа.
+     * @param responseCode код ответа.
+     * @param bytes сериализованный ответ, массив не копируется и не должен изменяться.
+     * @param ttlSeconds время жизни в секундах, не больше {@link #maxTtlSeconds}.
+     */
+    public void put(
+        @NotNull String primaryKey,
+        @NotNull IHttpCattyRequest request,
+        String @NotNull [] varyNames,
+        int responseCode,
+        byte @NotNull [] bytes,
+        long ttlSeconds
+    ) {
+        if (ttlSeconds <= 0) return;
+
+        final String key = fullKey(primaryKey, varyNames, request);
+        final CacheEntry entry = new CacheEntry(
+            primaryKey,
+            responseCode,
+            bytes,
+            System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.min(ttlSeconds, maxTtlSeconds)),
+            bytes.length + key.length() * 2L + entryOverhead
+        );
+
+        if (segmentFor(primaryKey).put(key, varyNames, entry)) stores.increment();
+    }
+
+    /**
+     * Метод удаляет все записи кэша.
+     */
+    public void clear() {
+        for (Segment segment : segments) segment.clear();
+    }
+
+    /**
+     * Метод возвращает метрики кэша.
+     * @return снимок метрик.
+     */
+    public @NotNull CacheStats getStats() {
+        long entries = 0;
+        long bytes = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.entries.size();
+                bytes += segment.bytes;
+            }
+        }
+
+        return new CacheStats(hits.sum(), misses.sum(), stores.sum(), evictions.sum(), entries, bytes);
+    }
+
+    /**
+     * Метод возвращает количество основных ключей в индексах Vary всех сегментов.
+     * @return количество ключей.
+     */
+    int varyIndexSize() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.variantsSize();
+
+        return size;
+    }
+
+    private static @NotNull String fullKey(
+        @NotNull String primaryKey,
+        String @Nullable [] varyNames,
+        @NotNull IHttpCattyRequest request
+    ) {
+        if (varyNames == null || varyNames.length == 0) return primaryKey;
+
+        final StringBuilder key = new StringBuilder(primaryKey);
+        for (String name : varyNames) {
+            final String value = request.getHeaders(name);
+            key.append('\n').append(name).append(':').append(value == null ? "" : value);
+        }
+
+        return key.toString();
+    }
+
+    private @NotNull Segment segmentFor(@NotNull String key) {
+        final int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    /**
+     * Запись кэша: готовые байты ответа и код ответа.
+     */
+    public static final class CacheEntry {
+        private final String primaryKey;
+        private final int responseCode;
+        private final byte[] bytes;
+        private final long expiresAt;
+        private final long size;
+
+        CacheEntry(String primaryKey, int responseCode, byte[] bytes, long expiresAt, long size) {
+            this.primaryKey = primaryKey;
+            this.responseCode = responseCode;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+            this.size = size;
+        }
+
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        /**
+         * Метод возвращает сериализованный ответ. Массив общий для всех запросов и не должен изменяться.
+         * @return байты ответа.
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Имена заголовков из Vary для основного ключа и количество записей с этим ключом в сегменте.
+     */
+    private static final class Variants {
+        private String[] names;
+        private int entries = 0;
+
+        Variants(String[] names) {
+            this.names = names;
+        }
+    }
+
+    /**
+     * Сегмент кэша: LRU список с собственным лимитом памяти и индекс имен Vary по основному ключу.
+     */
+    private final class Segment {
+        private final long maxBytes;
+        private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<String, Variants> variants = new HashMap<>();
+        private long bytes = 0;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized @Nullable CacheEntry get(@NotNull String primaryKey, @NotNull IHttpCattyRequest request, long now) {
+            final Variants vary = variants.get(primaryKey);
+            if (vary == null) return null;
+
+            final String key = fullKey(primaryKey, vary.names, request);
+            final CacheEntry entry = entries.get(key);
+            if (entry == null) return null;
+
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(key);
+                removed(entry);
+
+                return null;
+            }
+
+            return entry;
+        }
+
+        synchronized boolean put(@NotNull String key, String @NotNull [] varyNames, @NotNull CacheEntry entry) {
+            if (entry.size > maxBytes) return false; // ответ больше сегмента - не кэшируем
+
+            final Variants vary = variants.computeIfAbsent(entry.primaryKey, primaryKey -> new Variants(varyNames));
+            vary.names = varyNames;
+
+            final CacheEntry previous = entries.put(key, entry);
+            if (previous == null) {
+                vary.entries++;
+            } else {
+                bytes -= previous.size;
+            }
+            bytes += entry.size;
+
+            final Iterator<CacheEntry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                final CacheEntry evicted = eldest.next();
+
+                eldest.remove();
+                removed(evicted);
+            }
+
+            return true;
+        }
+
+        synchronized int variantsSize() {
+            return variants.size();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            variants.clear();
+            bytes = 0;
+        }
+
+        /**
+         * Учет удаленной записи: память, метрика вытеснения и индекс Vary ее основного ключа.
+         */
+        private void removed(@NotNull CacheEntry entry) {
+            bytes -= entry.size;
+            evictions.increment();
+
+            final Variants vary = variants.get(entry.primaryKey);
+            if (vary != null && --vary.entries == 0) variants.remove(entry.primaryKey);
+        }
+    }
+}
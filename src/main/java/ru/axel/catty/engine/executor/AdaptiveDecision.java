@@ -0,0 +1,23 @@
+package ru.axel.catty.engine.executor;
+
+/**
+ * Решение, принятое {@link AdaptiveExecutor} по результатам очередного замера.
+ */
+public enum AdaptiveDecision {
+    /**
+     * Количество потоков не изменилось.
+     */
+    HOLD,
+    /**
+     * Задачи ждут в очереди дольше целевого времени - добавлен поток.
+     */
+    GROW,
+    /**
+     * Потоки простаивают - лишний поток убран.
+     */
+    SHRINK,
+    /**
+     * Предыдущее изменение снизило пропускную способность под нагрузкой и отменено.
+     */
+    BACKOFF
+}
@@ -0,0 +1,233 @@
+package ru.axel.catty.engine.executor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Пул потоков, сам подбирающий количество потоков в заданных границах.
+ * Раз в интервал замеряется среднее время ожидания задач в очереди и пропускная способность:
+ * при ожидании дольше целевого пул растет, при простаивающих потоках - уменьшается. Если изменение
+ * под нагрузкой снизило пропускную способность, оно отменяется и направление блокируется на несколько
+ * замеров (восхождение к вершине, как в пуле потоков .NET).
+ * Передается в конструктор движка вместо фиксированного лимита потоков.
+ */
+public final class AdaptiveExecutor extends AbstractExecutorService {
+    private final Logger logger;
+    private final AdaptiveExecutorOptions options;
+    private final ThreadPoolExecutor pool;
+    private final Thread tuner;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    // состояние настройки, меняется только потоком tuner
+    private int threads;
+    private int lastMove = 0; // изменение размера последним решением
+    private double throughputBeforeMove = 0;
+    private int blockedDirection = 0;
+    private int cooldown = 0;
+    private long sampledAt = System.nanoTime();
+    private long sampledStarted = 0;
+    private long sampledCompleted = 0;
+    private long sampledWait = 0;
+
+    private volatile double throughput = 0;
+    private volatile double queueWaitMillis = 0;
+    private volatile AdaptiveDecision lastDecision = AdaptiveDecision.HOLD;
+    private final LongAdder grows = new LongAdder();
+    private final LongAdder shrinks = new LongAdder();
+    private final LongAdder backoffs = new LongAdder();
+
+    public AdaptiveExecutor(@NotNull AdaptiveExecutorOptions executorOptions, Logger loggerInstance) {
+        logger = loggerInstance;
+        options = executorOptions;
+        threads = options.getMinThreads();
+
+        final AtomicInteger number = new AtomicInteger();
+        pool = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            task -> {
+                final Thread thread = new Thread(task, "catty-adaptive-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+
+        tuner = new Thread(this::run, "catty-adaptive-tuner");
+        tuner.setDaemon(true);
+        tuner.start();
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        final long queuedAt = System.nanoTime();
+
+        pool.execute(() -> {
+            waitNanos.add(System.nanoTime() - queuedAt);
+            started.increment();
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+            }
+        });
+    }
+
+    private void run() {
+        while (!pool.isShutdown()) {
+            try {
+                Thread.sleep(options.getSampleIntervalMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            tune();
+        }
+    }
+
+    /**
+     * Метод снимает замер и принимает решение о размере пула.
+     */
+    private void tune() {
+        final long now = System.nanoTime();
+        final long startedNow = started.sum();
+        final long completedNow = completed.sum();
+        final long waitNow = waitNanos.sum();
+        final long startedDelta = startedNow - sampledStarted;
+        final int queued = pool.getQueue().size();
+        final int busy = peakActive.getAndSet(active.get());
+
+        throughput = (completedNow - sampledCompleted) / ((now - sampledAt) / 1e9);
+        queueWaitMillis = startedDelta == 0 ? 0 : (waitNow - sampledWait) / (double) startedDelta / 1e6;
+        sampledAt = now;
+        sampledStarted = startedNow;
+        sampledCompleted = completedNow;
+        sampledWait = waitNow;
+
+        final AdaptiveDecision decision = HillClimbing.decide(
+            options,
+            threads,
+            lastMove,
+            throughputBeforeMove,
+            throughput,
+            queueWaitMillis,
+            queued,
+            startedDelta,
+            busy,
+            blockedDirection,
+            cooldown
+        );
+        final int size = HillClimbing.resize(options, decision, threads, lastMove);
+
+        switch (decision) {
+            case BACKOFF -> {
+                blockedDirection = Integer.signum(lastMove);
+                cooldown = options.getCooldownSamples();
+                backoffs.increment();
+                lastMove = 0;
+            }
+            case GROW -> grows.increment();
+            case SHRINK -> shrinks.increment();
+            case HOLD -> lastMove = 0;
+        }
+        if (decision == AdaptiveDecision.GROW || decision == AdaptiveDecision.SHRINK) {
+            lastMove = size - threads;
+            throughputBeforeMove = throughput;
+        }
+        resize(size);
+
+        if (cooldown > 0 && decision != AdaptiveDecision.BACKOFF) cooldown--;
+        lastDecision = decision;
+
+        if (decision != AdaptiveDecision.HOLD && logger.isLoggable(Level.FINE)) {
+            logger.fine("Пул потоков: " + decision + ", " + getStats());
+        }
+    }
+
+    private void resize(int size) {
+        if (size > threads) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else if (size < threads) {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+
+        threads = size;
+    }
+
+    /**
+     * Метод возвращает снимок метрик пула и последнее решение о его размере.
+     * @return метрики пула.
+     */
+    public @NotNull AdaptiveExecutorStats getStats() {
+        return new AdaptiveExecutorStats(
+            pool.getCorePoolSize(),
+            active.get(),
+            pool.getQueue().size(),
+            throughput,
+            queueWaitMillis,
+            lastDecision,
+            grows.sum(),
+            shrinks.sum(),
+            backoffs.sum(),
+            completed.sum()
+        );
+    }
+    public @NotNull AdaptiveExecutorOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+        tuner.interrupt();
+    }
+
+    @Override
+    public @NotNull List<Runnable> shutdownNow() {
+        tuner.interrupt();
+        return pool.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveExecutor{" +
+            "options=" + options +
+            ", stats=" + getStats() +
+            '}';
+    }
+}
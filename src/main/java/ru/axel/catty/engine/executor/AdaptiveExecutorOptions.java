@@ -0,0 +1,125 @@
+package ru.axel.catty.engine.executor;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Настройки пула потоков с автоматическим подбором размера.
+ */
+public final class AdaptiveExecutorOptions {
+    private int minThreads = Runtime.getRuntime().availableProcessors();
+    private int maxThreads = Runtime.getRuntime().availableProcessors() * 8;
+    private int step = 1;
+    private long sampleIntervalMillis = 500;
+    private long targetQueueWaitMillis = 5;
+    private double tolerance = 0.05;
+    private int cooldownSamples = 4;
+
+    /**
+     * Границы количества потоков. Пул стартует с минимального количества.
+     * @param min минимальное количество потоков.
+     * @param max максимальное количество потоков.
+     * @return объект настроек.
+     */
+    public AdaptiveExecutorOptions setThreads(int min, int max) {
+        if (min < 1) throw new IllegalArgumentException("Минимальное количество потоков должно быть больше 0");
+        if (max < min) throw new IllegalArgumentException("Максимальное количество потоков меньше минимального");
+
+        minThreads = min;
+        maxThreads = max;
+        return this;
+    }
+
+    /**
+     * Количество потоков, добавляемых или убираемых за одно решение.
+     * @param count шаг изменения.
+     * @return объект настроек.
+     */
+    public AdaptiveExecutorOptions setStep(int count) {
+        if (count < 1) throw new IllegalArgumentException("Шаг изменения пула должен быть больше 0");
+
+        step = count;
+        return this;
+    }
+
+    /**
+     * Интервал замеров времени ожидания в очереди и пропускной способности.
+     * @param millis интервал в миллисекундах.
+     * @return объект настроек.
+     */
+    public AdaptiveExecutorOptions setSampleIntervalMillis(long millis) {
+        if (millis < 10) throw new IllegalArgumentException("Интервал замеров должен быть не меньше 10 мс");
+
+        sampleIntervalMillis = millis;
+        return this;
+    }
+
+    /**
+     * Среднее время ожидания задачи в очереди, при превышении которого пул растет.
+     * @param millis время в миллисекундах.
+     * @return объект настроек.
+     */
+    public AdaptiveExecutorOptions setTargetQueueWaitMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Целевое время ожидания не может быть отрицательным");
+
+        targetQueueWaitMillis = millis;
+        return this;
+    }
+
+    /**
+     * Доля падения пропускной способности после изменения пула, при которой изменение отменяется.
+     * Меньшие колебания считаются шумом замера.
+     * @param fraction доля от 0 до 1.
+     * @return объект настроек.
+     */
+    public AdaptiveExecutorOptions setTolerance(double fraction) {
+        if (fraction < 0 || fraction >= 1) throw new IllegalArgumentException("Допуск должен быть от 0 до 1");
+
+        tolerance = fraction;
+        return this;
+    }
+
+    /**
+     * Количество замеров после отмены изменения, в течение которых пул не меняется в том же направлении.
+     * @param samples количество замеров.
+     * @return объект настроек.
+     */
+    public AdaptiveExecutorOptions setCooldownSamples(int samples) {
+        if (samples < 0) throw new IllegalArgumentException("Количество замеров не может быть отрицательным");
+
+        cooldownSamples = samples;
+        return this;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+    public int getStep() {
+        return step;
+    }
+    public long getSampleIntervalMillis() {
+        return sampleIntervalMillis;
+    }
+    public long getTargetQueueWaitMillis() {
+        return targetQueueWaitMillis;
+    }
+    public double getTolerance() {
+        return tolerance;
+    }
+    public int getCooldownSamples() {
+        return cooldownSamples;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "{ minThreads: " + minThreads +
+            ", maxThreads: " + maxThreads +
+            ", step: " + step +
+            ", sampleIntervalMillis: " + sampleIntervalMillis +
+            ", targetQueueWaitMillis: " + targetQueueWaitMillis +
+            ", tolerance: " + tolerance +
+            ", cooldownSamples: " + cooldownSamples + " }";
+    }
+}
@@ -0,0 +1,105 @@
+package ru.axel.catty.engine.executor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Снимок метрик пула потоков с автоматическим подбором размера.
+ * Пропускная способность и время ожидания относятся к последнему завершенному замеру.
+ */
+public final class AdaptiveExecutorStats {
+    private final int threads;
+    private final int active;
+    private final int queued;
+    private final double throughput;
+    private final double queueWaitMillis;
+    private final AdaptiveDecision lastDecision;
+    private final long grows;
+    private final long shrinks;
+    private final long backoffs;
+    private final long completed;
+
+    AdaptiveExecutorStats(
+        int threads,
+        int active,
+        int queued,
+        double throughput,
+        double queueWaitMillis,
+        @NotNull AdaptiveDecision lastDecision,
+        long grows,
+        long shrinks,
+        long backoffs,
+        long completed
+    ) {
+        this.threads = threads;
+        this.active = active;
+        this.queued = queued;
+        this.throughput = throughput;
+        this.queueWaitMillis = queueWaitMillis;
+        this.lastDecision = lastDecision;
+        this.grows = grows;
+        this.shrinks = shrinks;
+        this.backoffs = backoffs;
+        this.completed = completed;
+    }
+
+    /**
+     * Текущий размер пула, выбранный последним решением.
+     * @return количество потоков.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    public int getActive() {
+        return active;
+    }
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Пропускная способность за последний замер.
+     * @return завершенных задач в секунду.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Среднее время ожидания в очереди задач, начатых за последний замер.
+     * @return время в миллисекундах.
+     */
+    public double getQueueWaitMillis() {
+        return queueWaitMillis;
+    }
+    public @NotNull AdaptiveDecision getLastDecision() {
+        return lastDecision;
+    }
+    public long getGrows() {
+        return grows;
+    }
+    public long getShrinks() {
+        return shrinks;
+    }
+    public long getBackoffs() {
+        return backoffs;
+    }
+    public long getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "{ threads: " + threads +
+            ", active: " + active +
+            ", queued: " + queued +
+            ", throughput: " + String.format(Locale.ROOT, "%.1f", throughput) +
+            ", queueWaitMillis: " + String.format(Locale.ROOT, "%.2f", queueWaitMillis) +
+            ", lastDecision: " + lastDecision +
+            ", grows: " + grows +
+            ", shrinks: " + shrinks +
+            ", backoffs: " + backoffs +
+            ", completed: " + completed + " }";
+    }
+}
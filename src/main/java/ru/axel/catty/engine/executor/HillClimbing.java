@@ -0,0 +1,86 @@
+package ru.axel.catty.engine.executor;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Решения восхождения к вершине для {@link AdaptiveExecutor}: функции замера без часов, потоков и пула.
+ * Состояние между замерами (прошлое изменение, блокировка направления) хранит вызывающий.
+ */
+final class HillClimbing {
+    private HillClimbing() {
+    }
+
+    /**
+     * Метод принимает решение о размере пула по замеру.
+     * Задачи в очереди, которые за весь замер так и не начались, ждут дольше любого целевого времени;
+     * пока все потоки заняты и прошлое увеличение подняло пропускную способность, пул продолжает расти.
+     * Если под нагрузкой прошлое изменение снизило пропускную способность, оно отменяется.
+     * @param options настройки пула.
+     * @param size текущее количество потоков.
+     * @param lastMove изменение размера прошлым решением, 0 - размер не менялся.
+     * @param previousThroughput пропускная способность до прошлого изменения, задач в секунду.
+     * @param throughput пропускная способность за замер, задач в секунду.
+     * @param queueWaitMillis среднее время ожидания задач в очереди за замер.
+     * @param queued количество задач в очереди.
+     * @param started количество задач, начатых за замер.
+     * @param busy наибольшее количество занятых потоков за замер.
+     * @param blockedDirection направление, заблокированное отменой: 1 - рост, -1 - уменьшение.
+     * @param cooldown оставшееся количество замеров блокировки направления.
+     * @return решение.
+     */
+    @Contract(pure = true)
+    static @NotNull AdaptiveDecision decide(
+        @NotNull AdaptiveExecutorOptions options,
+        int size,
+        int lastMove,
+        double previousThroughput,
+        double throughput,
+        double queueWaitMillis,
+        int queued,
+        long started,
+        int busy,
+        int blockedDirection,
+        int cooldown
+    ) {
+        final boolean improved = lastMove > 0 && throughput > previousThroughput * (1 + options.getTolerance());
+        final boolean pressure = queueWaitMillis > options.getTargetQueueWaitMillis()
+            || (queued > 0 && started == 0)
+            || (busy >= size && improved);
+
+        if (lastMove != 0 && pressure && throughput < previousThroughput * (1 - options.getTolerance())) {
+            return AdaptiveDecision.BACKOFF;
+        }
+        if (pressure && size < options.getMaxThreads() && (cooldown == 0 || blockedDirection != 1)) {
+            return AdaptiveDecision.GROW;
+        }
+        if (
+            !pressure && queued == 0 && busy <= size - options.getStep() && size > options.getMinThreads() &&
+            (cooldown == 0 || blockedDirection != -1)
+        ) {
+            return AdaptiveDecision.SHRINK;
+        }
+
+        return AdaptiveDecision.HOLD;
+    }
+
+    /**
+     * Метод возвращает размер пула после решения.
+     * @param options настройки пула.
+     * @param decision решение.
+     * @param size текущее количество потоков.
+     * @param lastMove изменение размера прошлым решением, отменяется при BACKOFF.
+     * @return количество потоков в границах настроек.
+     */
+    @Contract(pure = true)
+    static int resize(@NotNull AdaptiveExecutorOptions options, @NotNull AdaptiveDecision decision, int size, int lastMove) {
+        final int next = switch (decision) {
+            case GROW -> size + options.getStep();
+            case SHRINK -> size - options.getStep();
+            case BACKOFF -> size - lastMove;
+            case HOLD -> size;
+        };
+
+        return Math.max(options.getMinThreads(), Math.min(next, options.getMaxThreads()));
+    }
+}
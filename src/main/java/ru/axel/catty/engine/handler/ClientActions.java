@@ -3,5 +3,7 @@ package ru.axel.catty.engine.handler;
 public enum ClientActions {
     READ,
     WRITE,
-    SEND
+    SEND,
+    CONTINUE,   // отправляется 100 Continue
+    READ_BODY   // читается тело запроса после 100 Continue
 }
@@ -1,13 +1,32 @@
 package ru.axel.catty.engine.handler;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.http2.Http2Connection;
+import ru.axel.catty.engine.logging.AccessLog;
+import ru.axel.catty.engine.request.ClientInfo;
+import ru.axel.catty.engine.request.ExchangePool;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.request.RequestBuildException;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.RouteExecute;
+import ru.axel.catty.engine.tracing.RequestTrace;
+import ru.axel.catty.engine.tracing.Tracing;
+import ru.axel.catty.engine.utilites.Ascii;
 import ru.axel.catty.engine.utilites.RegexPatterns;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -16,9 +35,20 @@ import java.util.regex.Matcher;
  * Обработчик входящих запросов.
  */
 public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer, Map<String, Object>> {
+    private static final ByteBuffer continueLine = ByteBuffer
+        .wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII))
+        .asReadOnlyBuffer();
     protected final Logger logger;
     protected final AsynchronousSocketChannel client;
     private final long limitAllocateBufferForRequest;
+    private IConnectionUpgrade upgrade;
+    private int receivedLength = 0; // длина данных первого чтения, переданных в responseBuffer
+    private final long acceptNanos = System.nanoTime(); // обработчик создается при принятии соединения
+    private long startNanos = acceptNanos; // завершение первого чтения
+    private long headersNanos = 0; // чтение, в котором получен конец заголовков
+    private long writeStartNanos;
+    private Tracing requestTracing;
+    private RequestTrace trace;
 
     public HttpCattyQueryHandler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
         client = clientChannel;
@@ -36,6 +66,119 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
      */
     protected abstract ByteBuffer responseBuffer(ByteBuffer requestBuffer);
 
+    /**
+     * Метод возвращает обработчик запросов HTTP/2. Если обработчик задан, соединение, начинающееся
+     * с преамбулы HTTP/2 (h2c с предварительным знанием), передается в Http2Connection.
+     * По умолчанию HTTP/2 выключен.
+     * @return обработчик запросов или null.
+     */
+    protected @Nullable RouteExecute http2Handler() {
+        return null;
+    }
+
+    /**
+     * Метод передает переключение протокола из ответа (IHttpCattyResponse.getUpgrade()):
+     * после отправки ответа канал клиента не закрывается, а передается upgrade.
+     * Вызывается из responseBuffer.
+     * @param connectionUpgrade обработчик переключения или null.
+     */
+    protected void upgradeAfterResponse(@Nullable IConnectionUpgrade connectionUpgrade) {
+        upgrade = connectionUpgrade;
+    }
+
+    /**
+     * Метод возвращает журнал доступа, в который пишутся запросы HTTP/2 и запросы HTTP/1.1,
+     * переданные в logAccess. По умолчанию журнал выключен.
+     * @return журнал доступа или null.
+     */
+    protected @Nullable AccessLog accessLog() {
+        return null;
+    }
+
+    /**
+     * Метод записывает запрос в журнал доступа, время обработки считается от начала чтения запроса.
+     * Вызывается из responseBuffer после формирования ответа.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     */
+    protected void logAccess(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final AccessLog log = accessLog();
+        if (log != null) log.log(request, response, startNanos);
+    }
+
+    /**
+     * Метод возвращает пул запросов и ответов. Если пул задан, HTTP/2 берет объекты потоков из пула,
+     * а responseBuffer может получать их через {@link ExchangePool#request} и {@link ExchangePool#response}
+     * и возвращать методом {@link ExchangePool#release} после формирования байтов ответа.
+     * По умолчанию пул не используется: пул экспериментальный и включается только переопределением этого метода.
+     * @return пул или null.
+     */
+    protected @Nullable ExchangePool exchangePool() {
+        return null;
+    }
+
+    /**
+     * Метод возвращает трассировку запросов. Если трассировка задана, для запроса создается трасса
+     * с интервалами first-byte (от принятия соединения до первого чтения), headers-read (от принятия
+     * соединения до чтения конца заголовков), body-read (от конца заголовков до конца запроса) и write
+     * (запись ответа), интервал serialize добавляет {@link #serialize}, а после отправки ответа
+     * трасса медленного запроса передается получателю. По умолчанию трассировка выключена.
+     * @return трассировка или null.
+     */
+    protected @Nullable Tracing tracing() {
+        return null;
+    }
+
+    /**
+     * Метод связывает трассу соединения с разобранным запросом, после чего маршрутизация, плагины
+     * и обработчик добавляют в нее свои интервалы. Вызывается из responseBuffer сразу после создания запроса.
+     * @param request объект запроса.
+     * @param parseStartNanos начало разбора запроса System.nanoTime().
+     */
+    protected void attachTrace(@NotNull IHttpCattyRequest request, long parseStartNanos) {
+        if (trace != null) requestTracing.attach(request, trace, parseStartNanos);
+    }
+
+    /**
+     * Метод сериализует ответ и добавляет в трассу запроса интервал serialize.
+     * Вызывается из responseBuffer вместо response.getByteBuffer().
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @return буфер с данными ответа клиенту.
+     * @throws IOException ошибка сериализации ответа.
+     */
+    protected @NotNull ByteBuffer serialize(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException {
+        final RequestTrace requestTrace = request.getTrace();
+        final long start = requestTrace == null ? 0 : System.nanoTime();
+        final ByteBuffer bytes = response.getByteBuffer();
+
+        if (requestTrace != null) requestTrace.span("serialize", start);
+        return bytes;
+    }
+
+    /**
+     * Метод проверяет запрос с заголовком Expect: 100-continue до получения тела, например выполняет
+     * маршрутизацию и проверку прав. Тело запроса в этот момент еще не отправлено клиентом.
+     * По умолчанию все запросы принимаются.
+     * @param request запрос без тела.
+     * @return null - ответить 100 Continue и прочитать тело, иначе ответ, который отправляется вместо
+     * чтения тела, после чего соединение закрывается.
+     */
+    protected @Nullable IHttpCattyResponse expectContinue(@NotNull IHttpCattyRequest request) {
+        return null;
+    }
+
+    /**
+     * Метод возвращает executor, в котором обрабатываются потоки HTTP/2.
+     * @return executor.
+     */
+    protected @NotNull Executor http2Executor() {
+        return ForkJoinPool.commonPool();
+    }
+
     /**
      * Invoked when an operation has completed.
      *
@@ -63,6 +206,28 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
             if (logger.isLoggable(Level.FINEST)) logger.finest("Action: " + action.name());
             final ByteBuffer buffer = (ByteBuffer) attachment.get("buffer");
 
+            if (!attachment.containsKey("newBuffer")) { // первое чтение: проверяем преамбулу HTTP/2
+                final RouteExecute http2 = http2Handler();
+
+                startNanos = System.nanoTime();
+                requestTracing = tracing();
+                if (http2 != null && Http2Connection.isPreface(buffer.array(), buffer.position())) {
+                    new Http2Connection(client, http2, http2Executor(), limitAllocateBufferForRequest, logger)
+                        .setAccessLog(accessLog())
+                        .setTracing(requestTracing)
+                        .setExchangePool(exchangePool())
+                        .start(buffer.array(), buffer.position());
+                    return;
+                }
+                if (headLength(buffer.array(), buffer.position()) >= 0) headersNanos = startNanos;
+                if (requestTracing != null) {
+                    trace = requestTracing.start(acceptNanos);
+                    trace.span("first-byte", acceptNanos, startNanos);
+                    if (headersNanos != 0) trace.span("headers-read", acceptNanos, headersNanos);
+                }
+                if (expectation(buffer, attachment)) return;
+            }
+
             // Если буффер заполнен или выделялся новый буфер(т.е. идет повторное чтение).
             if (result == buffer.capacity() || attachment.containsKey("newBuffer")) {
                 try { // Пробуем аллоцировать новый буфер или продолжаем читать, если уже была аллокация
@@ -86,9 +251,22 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
                 : (ByteBuffer) attachment.get("buffer");
 
             attachment.put("action", ClientActions.SEND);
+            if (trace != null) {
+                final long now = System.nanoTime();
+
+                if (headersNanos == 0) { // заголовки не поместились в первое чтение
+                    headersNanos = now;
+                    trace.span("headers-read", acceptNanos, headersNanos);
+                }
+                trace.span("body-read", headersNanos, now);
+            }
+            receivedLength = buffer.position();
 
             try {
-                client.write(responseBuffer(buffer), attachment, this);
+                final ByteBuffer response = responseBuffer(buffer);
+
+                writeStartNanos = System.nanoTime();
+                client.write(response, attachment, this);
             } catch (Throwable exc) {
                 logger.severe("Ошибка записи ответа в канал клиента: " + exc.getLocalizedMessage());
                 failed(exc, attachment);
@@ -97,6 +275,19 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
             if (logger.isLoggable(Level.FINEST)) logger.finest("Action: " + action.name());
             attachment.put("action", ClientActions.READ);
 
+            if (trace != null) {
+                trace.span("write", writeStartNanos);
+                requestTracing.finish(trace);
+                trace = null;
+            }
+
+            if (upgrade != null) { // канал переходит к другому протоколу
+                if (logger.isLoggable(Level.FINEST)) logger.finest("Connection upgrade: " + client);
+
+                upgrade.upgrade(client, pipelined(attachment), logger);
+                return;
+            }
+
             try {
 //                client.shutdownOutput();
                 client.close();
@@ -105,6 +296,32 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
             } catch (IOException e) {
                 failed(e, attachment);
             }
+        } else if (action.equals(ClientActions.CONTINUE)) {
+            final ByteBuffer interim = (ByteBuffer) attachment.get("interim");
+
+            if (interim.hasRemaining()) {
+                client.write(interim, attachment, this);
+                return;
+            }
+
+            attachment.remove("interim");
+            attachment.put("action", ClientActions.READ_BODY);
+            client.read((ByteBuffer) attachment.get("newBuffer"), attachment, this);
+        } else if (action.equals(ClientActions.READ_BODY)) {
+            final ByteBuffer body = (ByteBuffer) attachment.get("newBuffer");
+
+            if (result < 0) { // клиент закрыл соединение, не отправив тело
+                closeQuietly();
+                return;
+            }
+            if (body.hasRemaining()) {
+                client.read(body, attachment, this);
+                return;
+            }
+
+            attachment.put("finished", true);
+            attachment.put("action", ClientActions.WRITE);
+            completed(result, attachment);
         } else {
             if (logger.isLoggable(Level.FINEST)) logger.finest("Client without attachment action: " + client);
         }
@@ -118,9 +335,9 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
      */
     @Override
     public void failed(@NotNull Throwable exc, @NotNull Map<String, Object> attachment) {
-        logger.severe("Attachment: " + attachment);
-        logger.throwing(this.getClass().getName(), "completed", exc);
-        exc.printStackTrace();
+        if (logger.isLoggable(Level.SEVERE)) {
+            logger.log(Level.SEVERE, "Ошибка обработки запроса, attachment: " + attachment, exc);
+        }
 
         try {
             client.close();
@@ -130,6 +347,185 @@ public abstract class HttpCattyQueryHandler implements CompletionHandler<Integer
         }
     }
 
+    /**
+     * Метод обрабатывает первое чтение запроса с заголовком Expect. Если клиент ждет 100 Continue,
+     * до чтения тела проверяются лимит размера и expectContinue: при отказе сразу отправляется
+     * окончательный ответ, иначе 100 Continue, после чего тело читается в буфер точного размера.
+     * @param buffer буфер первого чтения.
+     * @param attachment состояние запроса.
+     * @return true, если дальше соединение обслуживается этой веткой.
+     */
+    private boolean expectation(@NotNull ByteBuffer buffer, @NotNull Map<String, Object> attachment) {
+        final byte[] bytes = buffer.array();
+        final int headLength = headLength(bytes, buffer.position());
+        if (headLength < 0 || !containsExpect(bytes, headLength)) return false;
+
+        final IHttpCattyRequest request;
+        try {
+            request = new Request(ByteBuffer.wrap(bytes).position(headLength), logger);
+            request.setClientInfo(new ClientInfo(client.getLocalAddress(), client.getRemoteAddress()));
+        } catch (RequestBuildException | IOException e) {
+            return false; // ошибку разбора вернет обычная обработка запроса
+        }
+
+        final String expect = request.getHeaders(Headers.EXPECT);
+        if (expect.isEmpty()) return false;
+        if (!expect.trim().equalsIgnoreCase("100-continue")) {
+            respondEarly(request, earlyResponse(ResponseCode.EXPECTATION_FAILED), attachment);
+            return true;
+        }
+
+        final long contentLength = contentLength(request);
+        if (contentLength <= 0 || buffer.position() > headLength) return false; // тела нет или клиент не ждет 100 Continue
+
+        if (headLength + contentLength > Math.min(limitAllocateBufferForRequest, Integer.MAX_VALUE - 8)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Размер запроса превышен до чтения тела, лимит: " + limitAllocateBufferForRequest +
+                    ", запрошено: " + (headLength + contentLength));
+            }
+
+            respondEarly(request, earlyResponse(ResponseCode.PAYLOAD_TOO_LARGE), attachment);
+            return true;
+        }
+
+        final IHttpCattyResponse rejection = expectContinue(request);
+        if (rejection != null) {
+            respondEarly(request, rejection, attachment);
+            return true;
+        }
+
+        final ByteBuffer body = ByteBuffer.allocate((int) (headLength + contentLength));
+        final ByteBuffer interim = continueLine.duplicate();
+
+        body.put(bytes, 0, headLength);
+        attachment.put("newBuffer", body);
+        attachment.put("interim", interim);
+        attachment.put("action", ClientActions.CONTINUE);
+        client.write(interim, attachment, this);
+
+        return true;
+    }
+
+    /**
+     * Метод отправляет окончательный ответ без чтения тела запроса и закрывает соединение.
+     * @param request запрос без тела.
+     * @param response ответ.
+     * @param attachment состояние запроса.
+     */
+    private void respondEarly(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response,
+        @NotNull Map<String, Object> attachment
+    ) {
+        response.addHeader(Headers.CONNECTION, "close");
+        logAccess(request, response);
+
+        try {
+            final long serializeStart = System.nanoTime();
+            final ByteBuffer bytes = response.getByteBuffer();
+
+            writeStartNanos = System.nanoTime();
+            if (trace != null) trace.span("serialize", serializeStart, writeStartNanos);
+            attachment.put("action", ClientActions.SEND);
+            client.write(bytes, attachment, this);
+        } catch (Throwable exc) {
+            failed(exc, attachment);
+        }
+    }
+
+    private @NotNull IHttpCattyResponse earlyResponse(@NotNull ResponseCode code) {
+        final IHttpCattyResponse response = new Response(logger);
+
+        response.respond(code, code.getReason());
+        return response;
+    }
+
+    private void closeQuietly() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.FINEST)) logger.finest("Ошибка закрытия канала клиента: " + e);
+        }
+    }
+
+    /**
+     * Метод ищет конец заголовков запроса.
+     * @param bytes данные запроса.
+     * @param length длина прочитанных данных.
+     * @return длина заголовков вместе с пустой строкой или -1, если заголовки прочитаны не полностью.
+     */
+    private static int headLength(byte @NotNull [] bytes, int length) {
+        for (int i = 3; i < length; i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') return i + 1;
+        }
+
+        return -1;
+    }
+
+    private static boolean containsExpect(byte @NotNull [] bytes, int headLength) {
+        for (int i = 0; i + 8 < headLength; i++) {
+            if (bytes[i] == '\n' && Ascii.equalsIgnoreCase(bytes, i + 1, 7, "expect:")) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Метод возвращает байты, прочитанные первым чтением после конца запроса на переключение протокола.
+     * Запрос, читавшийся в буфер точного размера, лишних байтов не содержит.
+     * @param attachment состояние запроса.
+     * @return байты после запроса, пустой буфер, если их нет.
+     */
+    private @NotNull ByteBuffer pipelined(@NotNull Map<String, Object> attachment) {
+        if (attachment.containsKey("newBuffer")) return ByteBuffer.allocate(0);
+
+        final byte[] bytes = ((ByteBuffer) attachment.get("buffer")).array();
+        final int headLength = headLength(bytes, receivedLength);
+        if (headLength < 0) return ByteBuffer.allocate(0);
+
+        final long end = headLength + Math.max(0L, contentLength(bytes, headLength));
+        if (end >= receivedLength) return ByteBuffer.allocate(0);
+
+        return ByteBuffer.wrap(bytes, (int) end, receivedLength - (int) end).slice();
+    }
+
+    /**
+     * Метод ищет Content-Length в заголовках, не разбирая запрос.
+     * @param bytes данные запроса.
+     * @param headLength длина заголовков.
+     * @return значение заголовка или -1, если заголовка нет или он неверный.
+     */
+    private static long contentLength(byte @NotNull [] bytes, int headLength) {
+        final String name = "content-length:";
+
+        for (int i = 0; i + name.length() < headLength; i++) {
+            if (bytes[i] != '\n' || !Ascii.equalsIgnoreCase(bytes, i + 1, name.length(), name)) continue;
+
+            final int start = i + 1 + name.length();
+            int end = start;
+            while (end < headLength && bytes[end] != '\r') end++;
+
+            try {
+                return Long.parseLong(new String(bytes, start, end - start, StandardCharsets.US_ASCII).trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    private static long contentLength(@NotNull IHttpCattyRequest request) {
+        final String value = request.getHeaders(Headers.CONTENT_LENGTH);
+        if (value.isEmpty()) return -1;
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Метод обрабатывает буфер в случае его переполнения, выделяя новый.
      * @param oldBuffer буфер.
@@ -0,0 +1,37 @@
+package ru.axel.catty.engine.handler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.logging.Logger;
+
+/**
+ * Переключение соединения на другой протокол после отправки ответа (например, 101 Switching Protocols).
+ * Вместо закрытия канал клиента передается новому владельцу.
+ */
+@FunctionalInterface
+public interface IConnectionUpgrade {
+    /**
+     * Метод принимает канал клиента после записи ответа.
+     * @param client канал клиента.
+     * @param logger логгер.
+     */
+    void upgrade(@NotNull AsynchronousSocketChannel client, @NotNull Logger logger);
+
+    /**
+     * Метод принимает канал клиента после записи ответа вместе с байтами, прочитанными после конца запроса:
+     * клиент может отправить данные нового протокола, не дожидаясь ответа. Реализация, которой нужны
+     * эти байты, переопределяет метод, по умолчанию они отбрасываются.
+     * @param client канал клиента.
+     * @param received байты после запроса, буфер действителен только во время вызова.
+     * @param logger логгер.
+     */
+    default void upgrade(
+        @NotNull AsynchronousSocketChannel client,
+        @NotNull ByteBuffer received,
+        @NotNull Logger logger
+    ) {
+        upgrade(client, logger);
+    }
+}
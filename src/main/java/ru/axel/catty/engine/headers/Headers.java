@@ -1,5 +1,15 @@
 package ru.axel.catty.engine.headers;
 
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.utilites.Ascii;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum Headers implements IHeaders {
     DATE            ("Date"),
     CONTENT_TYPE    ("Content-Type"),
@@ -14,12 +24,72 @@ public enum Headers implements IHeaders {
     KEEP_ALIVE      ("Keep-Alive"),
     VARY            ("Vary"),
     CACHE_CONTROL   ("Cache-Control"),
+    HOST            ("Host"),
+    USER_AGENT      ("User-Agent"),
+    ACCEPT          ("Accept"),
+    COOKIE          ("Cookie"),
+    TRANSFER_ENCODING("Transfer-Encoding"),
+    UPGRADE         ("Upgrade"),
+    SEC_WEBSOCKET_KEY("Sec-WebSocket-Key"),
+    SEC_WEBSOCKET_ACCEPT("Sec-WebSocket-Accept"),
+    SEC_WEBSOCKET_VERSION("Sec-WebSocket-Version"),
+    SEC_WEBSOCKET_EXTENSIONS("Sec-WebSocket-Extensions"),
+    RETRY_AFTER     ("Retry-After"),
+    REFERER         ("Referer"),
+    TRACEPARENT     ("traceparent"),
+    TRACESTATE      ("tracestate"),
+    EXPECT          ("Expect"),
+    ETAG            ("ETag"),
+    IF_NONE_MATCH   ("If-None-Match"),
     ;
 
+    private static final Map<String, Headers> byLowerName = new HashMap<>();
+    private static final Headers[] all = values();
+
+    static {
+        for (Headers header : values()) {
+            byLowerName.put(header.headerName.toLowerCase(Locale.ROOT), header);
+        }
+    }
+
     private final String headerName;
+    private final byte[] headerBytes;
+    private final byte[] prefixBytes; // "Name: " для записи строки заголовка ответа
 
     Headers(String headerName) {
         this.headerName = headerName;
+        headerBytes = headerName.getBytes(StandardCharsets.US_ASCII);
+        prefixBytes = (headerName + ": ").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Метод ищет известный заголовок по имени без учета регистра.
+     * @param name имя заголовка.
+     * @return заголовок или null, если имя не относится к известным заголовкам.
+     */
+    public static @Nullable Headers of(@NotNull String name) {
+        return byLowerName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Метод ищет известный заголовок по имени, записанному в массиве байт, без учета регистра.
+     * @param source массив байт.
+     * @param offset начало имени.
+     * @param length длина имени.
+     * @return заголовок или null, если имя не относится к известным заголовкам.
+     */
+    public static @Nullable Headers of(byte @NotNull [] source, int offset, int length) {
+        for (Headers header : all) {
+            if (Ascii.equalsIgnoreCase(source, offset, length, header.headerBytes)) {
+                return header;
+            }
+        }
+
+        return null;
+    }
+
+    static Headers byOrdinal(int ordinal) {
+        return all[ordinal];
     }
 
     @Override
@@ -27,6 +97,27 @@ public enum Headers implements IHeaders {
         return headerName;
     }
 
+    /**
+     * Метод возвращает имя заголовка в кодировке ASCII.
+     * Массив общий для всех вызовов и не должен изменяться.
+     * @return байты имени заголовка.
+     */
+    @Contract(pure = true)
+    @Override
+    final public byte[] getHeaderBytes() {
+        return headerBytes;
+    }
+
+    /**
+     * Метод возвращает начало строки заголовка ("Name: ") в кодировке ASCII.
+     * Массив общий для всех вызовов и не должен изменяться.
+     * @return байты начала строки заголовка.
+     */
+    @Contract(pure = true)
+    final public byte[] getPrefixBytes() {
+        return prefixBytes;
+    }
+
     @Override
     final public String toString() {
         return getHeaderName();
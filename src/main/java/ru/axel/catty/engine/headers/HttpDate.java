@@ -0,0 +1,63 @@
+package ru.axel.catty.engine.headers;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Значение заголовка Date в формате RFC 1123.
+ * Значение формируется один раз в секунду таймером, запросы только читают готовые байты.
+ */
+public final class HttpDate {
+    private static final DateTimeFormatter formatter = DateTimeFormatter
+        .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+        .withZone(ZoneOffset.UTC);
+    private static volatile String value;
+    private static volatile byte[] headerLine; // "Date: ...\r\n"
+
+    static {
+        update();
+
+        final Timer timer = new Timer("catty-http-date", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                update();
+            }
+        }, 1000L - System.currentTimeMillis() % 1000L, 1000L);
+    }
+
+    private HttpDate() {}
+
+    private static void update() {
+        final String date = formatter.format(ZonedDateTime.now(ZoneOffset.UTC));
+
+        headerLine = ("Date: " + date + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        value = date;
+    }
+
+    /**
+     * Метод возвращает текущее значение заголовка Date.
+     * @return дата в формате RFC 1123.
+     */
+    public static @NotNull String getValue() {
+        return value;
+    }
+
+    /**
+     * Метод возвращает готовую строку заголовка Date вместе с переводом строки.
+     * Массив общий для всех вызовов и не должен изменяться.
+     * @return байты строки заголовка.
+     */
+    @Contract(pure = true)
+    public static byte @NotNull [] getHeaderLine() {
+        return headerLine;
+    }
+}
@@ -0,0 +1,318 @@
+package ru.axel.catty.engine.headers;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.utilites.Ascii;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Компактное хранилище заголовков.
+ * Строки заголовков хранятся в плоских массивах: для заголовков запроса это смещения в буфере запроса,
+ * строки создаются только при обращении к значению. Известные заголовки {@link Headers} ищутся по ordinal,
+ * остальные - сравнением имени без учета регистра.
+ */
+public final class HttpHeaders implements IHttpHeaders {
+    private static final int SLOT = 4; // nameStart, nameLength, valueStart, valueLength
+    private byte[] source;
+    private int[] slices;
+    private byte[] known;       // ordinal + 1 известного заголовка, 0 - неизвестный
+    private String[] names;     // имена, заданные строкой или уже декодированные
+    private String[] values;    // значения, заданные строкой или уже декодированные
+    private int count = 0;
+
+    /**
+     * Создание пустого хранилища для заголовков, задаваемых строками (заголовки ответа).
+     */
+    public HttpHeaders() {
+        this(null, 8);
+    }
+
+    /**
+     * Создание хранилища для заголовков, лежащих в буфере запроса.
+     * @param requestBytes буфер запроса, массив не копируется.
+     */
+    public HttpHeaders(byte @Nullable [] requestBytes) {
+        this(requestBytes, 16);
+    }
+
+    private HttpHeaders(byte @Nullable [] requestBytes, int capacity) {
+        source = requestBytes;
+        slices = new int[capacity * SLOT];
+        known = new byte[capacity];
+    }
+
+    /**
+     * Метод добавляет строку заголовка, лежащую в буфере запроса.
+     * @param nameStart начало имени.
+     * @param nameLength длина имени.
+     * @param valueStart начало значения.
+     * @param valueLength длина значения.
+     */
+    public void addRaw(int nameStart, int nameLength, int valueStart, int valueLength) {
+        if (source == null) throw new IllegalStateException("Хранилище создано без буфера запроса");
+
+        final int index = append();
+        final int slot = index * SLOT;
+        final Headers header = Headers.of(source, nameStart, nameLength);
+
+        slices[slot] = nameStart;
+        slices[slot + 1] = nameLength;
+        slices[slot + 2] = valueStart;
+        slices[slot + 3] = valueLength;
+        known[index] = header == null ? 0 : (byte) (header.ordinal() + 1);
+    }
+
+    @Override
+    public void add(@NotNull IHeaders header, @NotNull String value) {
+        if (header instanceof Headers knownHeader) {
+            addString(knownHeader.getHeaderName(), value, knownHeader);
+        } else {
+            add(header.getHeaderName(), value);
+        }
+    }
+    @Override
+    public void add(@NotNull String name, @NotNull String value) {
+        addString(name, value, Headers.of(name));
+    }
+
+    @Override
+    public void set(@NotNull IHeaders header, @NotNull String value) {
+        remove(header);
+        add(header, value);
+    }
+    @Override
+    public void set(@NotNull String name, @NotNull String value) {
+        remove(name);
+        add(name, value);
+    }
+
+    @Override
+    public boolean remove(@NotNull IHeaders header) {
+        if (header instanceof Headers knownHeader) {
+            boolean removed = false;
+
+            for (int i = count - 1; i >= 0; i--) {
+                if (known[i] == knownHeader.ordinal() + 1) {
+                    removeAt(i);
+                    removed = true;
+                }
+            }
+
+            return removed;
+        }
+
+        return remove(header.getHeaderName());
+    }
+    @Override
+    public boolean remove(@NotNull String name) {
+        boolean removed = false;
+
+        for (int i = count - 1; i >= 0; i--) {
+            if (nameEquals(i, name)) {
+                removeAt(i);
+                removed = true;
+            }
+        }
+
+        return removed;
+    }
+
+    @Override
+    public @Nullable String get(@NotNull IHeaders header) {
+        final int index = indexOf(header, 0);
+        return index < 0 ? null : getValue(index);
+    }
+    @Override
+    public @Nullable String get(@NotNull String name) {
+        final int index = indexOf(name, 0);
+        return index < 0 ? null : getValue(index);
+    }
+
+    @Override
+    public @NotNull List<String> getAll(@NotNull IHeaders header) {
+        int index = indexOf(header, 0);
+        if (index < 0) return Collections.emptyList();
+
+        final List<String> result = new ArrayList<>(2);
+        while (index >= 0) {
+            result.add(getValue(index));
+            index = indexOf(header, index + 1);
+        }
+
+        return result;
+    }
+    @Override
+    public @NotNull List<String> getAll(@NotNull String name) {
+        int index = indexOf(name, 0);
+        if (index < 0) return Collections.emptyList();
+
+        final List<String> result = new ArrayList<>(2);
+        while (index >= 0) {
+            result.add(getValue(index));
+            index = indexOf(name, index + 1);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean contains(@NotNull IHeaders header) {
+        return indexOf(header, 0) >= 0;
+    }
+    @Override
+    public boolean contains(@NotNull String name) {
+        return indexOf(name, 0) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public @NotNull String getName(int index) {
+        checkIndex(index);
+
+        if (names == null) names = new String[known.length];
+        if (names[index] == null) {
+            final int slot = index * SLOT;
+            names[index] = new String(source, slices[slot], slices[slot + 1], StandardCharsets.US_ASCII);
+        }
+
+        return names[index];
+    }
+
+    @Override
+    public @NotNull String getValue(int index) {
+        checkIndex(index);
+
+        if (values == null) values = new String[known.length];
+        if (values[index] == null) {
+            final int slot = index * SLOT;
+            values[index] = new String(source, slices[slot + 2], slices[slot + 3], StandardCharsets.UTF_8);
+        }
+
+        return values[index];
+    }
+
+    @Override
+    public @Nullable Headers getKnown(int index) {
+        checkIndex(index);
+        return known[index] == 0 ? null : Headers.byOrdinal(known[index] - 1);
+    }
+
+    /**
+     * Метод очищает хранилище и связывает его с новым буфером запроса, массивы строк заголовков
+     * сохраняются для повторного использования.
+     * @param requestBytes буфер запроса, массив не копируется.
+     */
+    public void reset(byte @Nullable [] requestBytes) {
+        clear();
+        source = requestBytes;
+    }
+
+    @Override
+    public void clear() {
+        if (names != null) Arrays.fill(names, 0, count, null);
+        if (values != null) Arrays.fill(values, 0, count, null);
+        count = 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(getName(i)).append(": ").append(getValue(i));
+        }
+
+        return builder.append("}").toString();
+    }
+
+    private void addString(@NotNull String name, @NotNull String value, @Nullable Headers header) {
+        final int index = append();
+
+        if (names == null) names = new String[known.length];
+        if (values == null) values = new String[known.length];
+
+        slices[index * SLOT] = -1;
+        names[index] = name;
+        values[index] = value;
+        known[index] = header == null ? 0 : (byte) (header.ordinal() + 1);
+    }
+
+    private int indexOf(@NotNull IHeaders header, int from) {
+        if (!(header instanceof Headers knownHeader)) return indexOf(header.getHeaderName(), from);
+
+        final byte ordinal = (byte) (knownHeader.ordinal() + 1);
+        for (int i = from; i < count; i++) {
+            if (known[i] == ordinal) return i;
+        }
+
+        return -1;
+    }
+
+    private int indexOf(@NotNull String name, int from) {
+        for (int i = from; i < count; i++) {
+            if (nameEquals(i, name)) return i;
+        }
+
+        return -1;
+    }
+
+    private boolean nameEquals(int index, @NotNull String name) {
+        final int slot = index * SLOT;
+
+        if (slices[slot] < 0 || (names != null && names[index] != null)) {
+            return names[index].equalsIgnoreCase(name);
+        }
+
+        return Ascii.equalsIgnoreCase(source, slices[slot], slices[slot + 1], name);
+    }
+
+    /**
+     * Метод резервирует место под новую строку заголовка.
+     * @return индекс новой строки.
+     */
+    private int append() {
+        if (count == known.length) {
+            final int capacity = known.length * 2;
+
+            slices = Arrays.copyOf(slices, capacity * SLOT);
+            known = Arrays.copyOf(known, capacity);
+            if (names != null) names = Arrays.copyOf(names, capacity);
+            if (values != null) values = Arrays.copyOf(values, capacity);
+        }
+
+        final int index = count++;
+        if (names != null) names[index] = null;
+        if (values != null) values[index] = null;
+
+        return index;
+    }
+
+    private void removeAt(int index) {
+        final int tail = count - index - 1;
+
+        if (tail > 0) {
+            System.arraycopy(slices, (index + 1) * SLOT, slices, index * SLOT, tail * SLOT);
+            System.arraycopy(known, index + 1, known, index, tail);
+            if (names != null) System.arraycopy(names, index + 1, names, index, tail);
+            if (values != null) System.arraycopy(values, index + 1, values, index, tail);
+        }
+
+        count--;
+        if (names != null) names[count] = null;
+        if (values != null) values[count] = null;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException(index);
+    }
+}
@@ -1,8 +1,18 @@
 package ru.axel.catty.engine.headers;
 
+import java.nio.charset.StandardCharsets;
+
 public interface IHeaders {
     String getHeaderName();
 
+    /**
+     * Метод возвращает имя заголовка в кодировке ASCII.
+     * @return байты имени заголовка.
+     */
+    default byte[] getHeaderBytes() {
+        return getHeaderName().getBytes(StandardCharsets.US_ASCII);
+    }
+
     @Override
     String toString();
 }
@@ -0,0 +1,87 @@
+package ru.axel.catty.engine.headers;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Набор заголовков запроса или ответа.
+ * Имена сравниваются без учета регистра, одно имя может иметь несколько значений.
+ */
+public interface IHttpHeaders {
+    /**
+     * Метод добавляет значение заголовка, не удаляя уже существующие.
+     * @param header заголовок.
+     * @param value значение заголовка.
+     */
+    void add(@NotNull IHeaders header, @NotNull String value);
+    void add(@NotNull String name, @NotNull String value);
+
+    /**
+     * Метод устанавливает значение заголовка, заменяя все существующие.
+     * @param header заголовок.
+     * @param value значение заголовка.
+     */
+    void set(@NotNull IHeaders header, @NotNull String value);
+    void set(@NotNull String name, @NotNull String value);
+
+    /**
+     * Метод удаляет все значения заголовка.
+     * @param header заголовок.
+     * @return true, если заголовок был найден.
+     */
+    boolean remove(@NotNull IHeaders header);
+    boolean remove(@NotNull String name);
+
+    /**
+     * Метод возвращает первое значение заголовка.
+     * @param header заголовок.
+     * @return значение заголовка или null.
+     */
+    @Nullable String get(@NotNull IHeaders header);
+    @Nullable String get(@NotNull String name);
+
+    /**
+     * Метод возвращает все значения заголовка в порядке добавления.
+     * @param header заголовок.
+     * @return список значений, пустой если заголовка нет.
+     */
+    @NotNull List<String> getAll(@NotNull IHeaders header);
+    @NotNull List<String> getAll(@NotNull String name);
+
+    boolean contains(@NotNull IHeaders header);
+    boolean contains(@NotNull String name);
+
+    /**
+     * Метод возвращает количество строк заголовков.
+     * @return количество строк заголовков.
+     */
+    int size();
+
+    /**
+     * Метод возвращает имя заголовка по индексу строки.
+     * @param index индекс строки заголовка.
+     * @return имя заголовка.
+     */
+    @NotNull String getName(int index);
+
+    /**
+     * Метод возвращает значение заголовка по индексу строки.
+     * @param index индекс строки заголовка.
+     * @return значение заголовка.
+     */
+    @NotNull String getValue(int index);
+
+    /**
+     * Метод возвращает известный заголовок по индексу строки.
+     * @param index индекс строки заголовка.
+     * @return заголовок или null, если имя не относится к известным заголовкам.
+     */
+    @Nullable Headers getKnown(int index);
+
+    /**
+     * Метод удаляет все заголовки.
+     */
+    void clear();
+}
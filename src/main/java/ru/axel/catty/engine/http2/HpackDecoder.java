@@ -0,0 +1,124 @@
+package ru.axel.catty.engine.http2;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Декодер блока заголовков HPACK (RFC 7541).
+ * Состояние общее для соединения, поэтому блоки декодируются строго в порядке получения.
+ */
+final class HpackDecoder {
+    private final HpackTable table;
+    private final int maxTableSize;
+    private final int maxHeaderListSize;
+
+    /**
+     * @param maxTableSize размер динамической таблицы, объявленный в SETTINGS_HEADER_TABLE_SIZE.
+     * @param maxHeaderListSize предельный размер списка заголовков (RFC 9113, 6.5.2).
+     */
+    HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+        this.table = new HpackTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    /**
+     * Метод декодирует блок заголовков.
+     * @param block байты блока.
+     * @param length длина блока.
+     * @param sink получатель пар имя-значение.
+     * @throws Http2Exception ошибка сжатия или превышение размера списка заголовков.
+     */
+    void decode(
+        byte @NotNull [] block,
+        int length,
+        @NotNull BiConsumer<String, String> sink
+    ) throws Http2Exception {
+        final int[] position = { 0 };
+        boolean headerSeen = false;
+        long listSize = 0;
+
+        while (position[0] < length) {
+            final int first = block[position[0]] & 0xFF;
+            final String name;
+            final String value;
+
+            if ((first & 0x80) != 0) { // индексированное поле
+                final String[] entry = table.get(readInt(block, position, length, 7));
+
+                name = entry[0];
+                value = entry[1];
+            } else if ((first & 0xE0) == 0x20) { // изменение размера динамической таблицы
+                if (headerSeen) throw Http2Exception.compression("Изменение размера таблицы после заголовков");
+
+                final int newSize = readInt(block, position, length, 5);
+                if (newSize > maxTableSize) throw Http2Exception.compression("Размер таблицы больше объявленного");
+
+                table.setMaxSize(newSize);
+                continue;
+            } else { // литерал: с индексацией (01), без индексации (0000), никогда не индексировать (0001)
+                final boolean indexing = (first & 0xC0) == 0x40;
+                final int nameIndex = readInt(block, position, length, indexing ? 6 : 4);
+
+                name = nameIndex == 0 ? readString(block, position, length) : table.get(nameIndex)[0];
+                value = readString(block, position, length);
+
+                if (indexing) table.add(name, value);
+            }
+
+            headerSeen = true;
+            listSize += HpackTable.entrySize(name, value);
+
+            if (listSize > maxHeaderListSize) {
+                throw Http2Exception.connection(Http2ErrorCode.ENHANCE_YOUR_CALM, "Превышен размер списка заголовков");
+            }
+
+            sink.accept(name, value);
+        }
+    }
+
+    static int readInt(byte @NotNull [] block, int @NotNull [] position, int length, int prefix) throws Http2Exception {
+        final int mask = (1 << prefix) - 1;
+        int value = block[position[0]++] & mask;
+
+        if (value < mask) return value;
+
+        int shift = 0;
+
+        while (true) {
+            if (position[0] >= length) throw Http2Exception.compression("Обрыв целого HPACK");
+            if (shift > 21) throw Http2Exception.compression("Переполнение целого HPACK");
+
+            final int octet = block[position[0]++] & 0xFF;
+
+            value += (octet & 0x7F) << shift;
+            shift += 7;
+
+            if ((octet & 0x80) == 0) return value;
+        }
+    }
+
+    private static @NotNull String readString(
+        byte @NotNull [] block,
+        int @NotNull [] position,
+        int length
+    ) throws Http2Exception {
+        if (position[0] >= length) throw Http2Exception.compression("Обрыв строки HPACK");
+
+        final boolean huffman = (block[position[0]] & 0x80) != 0;
+        final int stringLength = readInt(block, position, length, 7);
+
+        if (stringLength > length - position[0]) throw Http2Exception.compression("Обрыв строки HPACK");
+
+        final int start = position[0];
+        position[0] += stringLength;
+
+        if (huffman) {
+            return new String(Huffman.decode(block, start, stringLength), StandardCharsets.ISO_8859_1);
+        }
+
+        return new String(block, start, stringLength, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.axel.catty.engine.http2;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Кодировщик блока заголовков HPACK (RFC 7541).
+ * Состояние общее для соединения, поэтому блоки кодируются в том же порядке, в котором уходят в канал.
+ */
+final class HpackEncoder {
+    /* значения меняются от ответа к ответу, индексировать их бессмысленно */
+    private static final Set<String> notIndexed = Set.of("content-length", "etag", "last-modified", "location", "age");
+    /* значения не должны попадать в таблицы посредников */
+    private static final Set<String> neverIndexed = Set.of("set-cookie", "authorization", "proxy-authorization");
+    /* ограничение собственной таблицы, даже если клиент разрешает больше */
+    private static final int maxOwnTableSize = 4096;
+
+    private final HpackTable table = new HpackTable(4096);
+    private int pendingSizeUpdate = -1;
+
+    /**
+     * Метод применяет SETTINGS_HEADER_TABLE_SIZE клиента.
+     * Изменение размера сообщается в начале следующего блока.
+     * @param peerMaxSize размер, разрешенный клиентом.
+     */
+    void setPeerMaxTableSize(int peerMaxSize) {
+        final int newSize = Math.min(peerMaxSize, maxOwnTableSize);
+
+        if (newSize != table.getMaxSize()) {
+            pendingSizeUpdate = pendingSizeUpdate == -1 ? newSize : Math.min(pendingSizeUpdate, newSize);
+            table.setMaxSize(newSize);
+        }
+    }
+
+    /**
+     * Метод кодирует строку статуса.
+     * @param status код ответа.
+     * @param out буфер записи.
+     */
+    void encodeStatus(int status, @NotNull ByteArrayOutputStream out) {
+        flushSizeUpdate(out);
+
+        final int index = switch (status) {
+            case 200 -> 8;
+            case 204 -> 9;
+            case 206 -> 10;
+            case 304 -> 11;
+            case 400 -> 12;
+            case 404 -> 13;
+            case 500 -> 14;
+            default -> 0;
+        };
+
+        if (index != 0) {
+            writeInt(out, 0x80, 7, index);
+        } else {
+            encode(":status", String.valueOf(status), out);
+        }
+    }
+
+    /**
+     * Метод кодирует поле заголовка.
+     * @param name имя в нижнем регистре.
+     * @param value значение.
+     * @param out буфер записи.
+     */
+    void encode(@NotNull String name, @NotNull String value, @NotNull ByteArrayOutputStream out) {
+        flushSizeUpdate(out);
+
+        if (neverIndexed.contains(name)) {
+            writeLiteral(out, 0x10, name, value);
+            return;
+        }
+
+        final int dynamic = table.find(name, value, true);
+
+        if (dynamic > 0) {
+            writeInt(out, 0x80, 7, dynamic);
+            return;
+        }
+
+        int nameIndex = HpackTable.staticNameIndex(name);
+        if (nameIndex == 0 && dynamic < 0) nameIndex = -dynamic;
+
+        if (notIndexed.contains(name)) {
+            writeLiteral(out, 0x00, nameIndex, name, value);
+        } else {
+            writeLiteral(out, 0x40, nameIndex, name, value);
+            table.add(name, value);
+        }
+    }
+
+    private void writeLiteral(@NotNull ByteArrayOutputStream out, int flags, String name, String value) {
+        writeLiteral(out, flags, HpackTable.staticNameIndex(name), name, value);
+    }
+
+    private static void writeLiteral(
+        @NotNull ByteArrayOutputStream out,
+        int flags,
+        int nameIndex,
+        @NotNull String name,
+        @NotNull String value
+    ) {
+        writeInt(out, flags, flags == 0x40 ? 6 : 4, nameIndex);
+        if (nameIndex == 0) writeString(out, name);
+        writeString(out, value);
+    }
+
+    private void flushSizeUpdate(@NotNull ByteArrayOutputStream out) {
+        if (pendingSizeUpdate != -1) {
+            if (pendingSizeUpdate != table.getMaxSize()) writeInt(out, 0x20, 5, pendingSizeUpdate);
+            writeInt(out, 0x20, 5, table.getMaxSize());
+            pendingSizeUpdate = -1;
+        }
+    }
+
+    static void writeInt(@NotNull ByteArrayOutputStream out, int flags, int prefix, int value) {
+        final int mask = (1 << prefix) - 1;
+
+        if (value < mask) {
+            out.write(flags | value);
+            return;
+        }
+
+        out.write(flags | mask);
+        value -= mask;
+
+        while (value >= 0x80) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    private static void writeString(@NotNull ByteArrayOutputStream out, @NotNull String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        final int huffmanLength = Huffman.encodedLength(bytes);
+
+        if (huffmanLength < bytes.length) {
+            writeInt(out, 0x80, 7, huffmanLength);
+            Huffman.encode(bytes, out);
+        } else {
+            writeInt(out, 0x00, 7, bytes.length);
+            out.writeBytes(bytes);
+        }
+    }
+}
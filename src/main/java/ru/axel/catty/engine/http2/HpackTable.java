@@ -0,0 +1,222 @@
+package ru.axel.catty.engine.http2;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Таблица индексации HPACK: статическая часть (RFC 7541, приложение A) и динамическая.
+ * Строки хранятся в ISO-8859-1, один символ на октет.
+ * Экземпляр не потокобезопасен, доступ синхронизирует владелец.
+ */
+final class HpackTable {
+    static final String[][] STATIC = {
+        null,
+        {":authority", ""},
+        {":method", "GET"},
+        {":method", "POST"},
+        {":path", "/"},
+        {":path", "/index.html"},
+        {":scheme", "http"},
+        {":scheme", "https"},
+        {":status", "200"},
+        {":status", "204"},
+        {":status", "206"},
+        {":status", "304"},
+        {":status", "400"},
+        {":status", "404"},
+        {":status", "500"},
+        {"accept-charset", ""},
+        {"accept-encoding", "gzip, deflate"},
+        {"accept-language", ""},
+        {"accept-ranges", ""},
+        {"accept", ""},
+        {"access-control-allow-origin", ""},
+        {"age", ""},
+        {"allow", ""},
+        {"authorization", ""},
+        {"cache-control", ""},
+        {"content-disposition", ""},
+        {"content-encoding", ""},
+        {"content-language", ""},
+        {"content-length", ""},
+        {"content-location", ""},
+        {"content-range", ""},
+        {"content-type", ""},
+        {"cookie", ""},
+        {"date", ""},
+        {"etag", ""},
+        {"expect", ""},
+        {"expires", ""},
+        {"from", ""},
+        {"host", ""},
+        {"if-match", ""},
+        {"if-modified-since", ""},
+        {"if-none-match", ""},
+        {"if-range", ""},
+        {"if-unmodified-since", ""},
+        {"last-modified", ""},
+        {"link", ""},
+        {"location", ""},
+        {"max-forwards", ""},
+        {"proxy-authenticate", ""},
+        {"proxy-authorization", ""},
+        {"range", ""},
+        {"referer", ""},
+        {"refresh", ""},
+        {"retry-after", ""},
+        {"server", ""},
+        {"set-cookie", ""},
+        {"strict-transport-security", ""},
+        {"transfer-encoding", ""},
+        {"user-agent", ""},
+        {"vary", ""},
+        {"via", ""},
+        {"www-authenticate", ""}
+    };
+    static final int STATIC_LENGTH = STATIC.length - 1;
+    private static final Map<String, Integer> staticNames = new HashMap<>();
+
+    static {
+        for (int i = STATIC_LENGTH; i > 0; i--) staticNames.put(STATIC[i][0], i); // первый индекс имени
+    }
+
+    /* кольцевой буфер: самая новая запись в head */
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+    private int head = 0;
+    private int count = 0;
+    private int size = 0;
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Метод возвращает индекс имени в статической таблице.
+     * @param name имя заголовка в нижнем регистре.
+     * @return индекс или 0.
+     */
+    static int staticNameIndex(@NotNull String name) {
+        final Integer index = staticNames.get(name);
+        return index == null ? 0 : index;
+    }
+
+    static int entrySize(@NotNull String name, @NotNull String value) {
+        return name.length() + value.length() + 32;
+    }
+
+    int length() {
+        return count;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Метод возвращает запись по индексу адресного пространства HPACK (статическая, затем динамическая часть).
+     * @param index индекс начиная с 1.
+     * @return имя и значение.
+     * @throws Http2Exception индекс вне таблицы.
+     */
+    String @NotNull [] get(int index) throws Http2Exception {
+        if (index <= 0) throw Http2Exception.compression("Индекс HPACK 0");
+        if (index <= STATIC_LENGTH) return STATIC[index];
+
+        final int dynamic = index - STATIC_LENGTH - 1;
+        if (dynamic >= count) throw Http2Exception.compression("Индекс HPACK вне таблицы: " + index);
+
+        final int slot = (head + dynamic) & (names.length - 1);
+        return new String[] { names[slot], values[slot] };
+    }
+
+    /**
+     * Метод ищет запись в динамической таблице.
+     * @param name имя заголовка.
+     * @param value значение заголовка.
+     * @param nameOnly вернуть индекс совпадения только по имени, если полного совпадения нет.
+     * @return индекс HPACK, отрицательный для совпадения только по имени, или 0.
+     */
+    int find(@NotNull String name, @NotNull String value, boolean nameOnly) {
+        int nameIndex = 0;
+
+        for (int i = 0; i < count; i++) {
+            final int slot = (head + i) & (names.length - 1);
+
+            if (names[slot].equals(name)) {
+                if (values[slot].equals(value)) return STATIC_LENGTH + 1 + i;
+                if (nameOnly && nameIndex == 0) nameIndex = -(STATIC_LENGTH + 1 + i);
+            }
+        }
+
+        return nameIndex;
+    }
+
+    /**
+     * Метод добавляет запись, вытесняя старые при превышении размера.
+     * @param name имя заголовка.
+     * @param value значение заголовка.
+     */
+    void add(@NotNull String name, @NotNull String value) {
+        final int entry = entrySize(name, value);
+
+        if (entry > maxSize) { // запись больше таблицы - таблица очищается
+            evict(0);
+            return;
+        }
+
+        evict(maxSize - entry);
+
+        if (count == names.length) grow();
+
+        head = (head - 1) & (names.length - 1);
+        names[head] = name;
+        values[head] = value;
+        count++;
+        size += entry;
+    }
+
+    /**
+     * Метод изменяет максимальный размер таблицы.
+     * @param newMaxSize новый размер.
+     */
+    void setMaxSize(int newMaxSize) {
+        maxSize = newMaxSize;
+        evict(maxSize);
+    }
+
+    private void evict(int limit) {
+        while (size > limit && count > 0) {
+            final int slot = (head + count - 1) & (names.length - 1);
+
+            size -= entrySize(names[slot], values[slot]);
+            names[slot] = null;
+            values[slot] = null;
+            count--;
+        }
+    }
+
+    private void grow() {
+        final String[] newNames = new String[names.length * 2];
+        final String[] newValues = new String[values.length * 2];
+
+        for (int i = 0; i < count; i++) {
+            final int slot = (head + i) & (names.length - 1);
+
+            newNames[i] = names[slot];
+            newValues[i] = values[slot];
+        }
+
+        names = newNames;
+        values = newValues;
+        head = 0;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "HpackTable{count=" + count + ", size=" + size + ", maxSize=" + maxSize + '}';
+    }
+}
@@ -0,0 +1,1226 @@
+package ru.axel.catty.engine.http2;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.headers.HttpDate;
+import ru.axel.catty.engine.headers.IHttpHeaders;
+import ru.axel.catty.engine.logging.AccessLog;
+import ru.axel.catty.engine.request.ClientInfo;
+import ru.axel.catty.engine.request.ExchangePool;
+import ru.axel.catty.engine.request.IClientInfo;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.RouteExecute;
+import ru.axel.catty.engine.tracing.RequestTrace;
+import ru.axel.catty.engine.tracing.Tracing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Соединение HTTP/2 без TLS с предварительным знанием (h2c prior knowledge, RFC 9113, 3.3).
+ * Фреймы читаются одним потоком чтения, каждый поток запроса обрабатывается в executor,
+ * ответы кодируются и ставятся в очередь записи под монитором соединения, чтобы порядок блоков HPACK
+ * совпадал с порядком в канале. Server push и приоритеты не поддерживаются.
+ */
+public final class Http2Connection {
+    /**
+     * Преамбула клиента.
+     */
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /* типы фреймов */
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int PRIORITY = 0x2;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    /* флаги */
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    /* параметры SETTINGS */
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    private static final int frameHeaderLength = 9;
+    private static final int maxFrameSize = 16384;
+    private static final int maxConcurrentStreams = 100;
+    private static final int maxHeaderListSize = 65536;
+    private static final int defaultWindow = 65535;
+    private static final int connectionReceiveWindow = 1 << 20;
+    private static final int maxWindow = Integer.MAX_VALUE;
+    private static final int maxWriteChunk = 65536;
+    /* заголовки уровня соединения HTTP/1.1, запрещенные в HTTP/2 */
+    private static final Set<String> connectionHeaders = Set.of(
+        "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade"
+    );
+
+    private final AsynchronousSocketChannel client;
+    private final RouteExecute handler;
+    private final Executor executor;
+    private final long limitAllocateBufferForRequest;
+    private final Logger logger;
+    private AccessLog accessLog;
+    private Tracing tracing;
+    private ExchangePool exchangePool;
+    private long idleTimeout = 60;
+    private IClientInfo clientInfo;
+
+    /* состояние чтения, меняется только потоком чтения */
+    private ByteBuffer readBuffer;
+    private boolean prefaceReceived = false;
+    private boolean settingsReceived = false;
+    private final HpackDecoder decoder = new HpackDecoder(4096, maxHeaderListSize);
+    private int lastStreamId = 0;
+    private int continuationStream = 0;
+    private boolean continuationEndStream = false;
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream(256);
+    private int connectionReceiveConsumed = 0;
+
+    /* состояние отправки и потоков, под монитором соединения */
+    private final Map<Integer, Http2Stream> streams = new HashMap<>();
+    private final HpackEncoder encoder = new HpackEncoder();
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private final ArrayDeque<Http2Stream> dataStreams = new ArrayDeque<>();
+    private final WriteHandler writeHandler = new WriteHandler();
+    private boolean writing = false;
+    private boolean closing = false;
+    private boolean closed = false;
+    private boolean goAway = false;
+    private long sendWindow = defaultWindow;
+    private int peerInitialWindow = defaultWindow;
+    private int peerMaxFrameSize = 16384;
+
+    /**
+     * @param clientChannel канал клиента.
+     * @param routeExecute обработчик запросов, вызывается для каждого потока.
+     * @param streamExecutor executor обработки потоков.
+     * @param limitBuffer предельный размер тела запроса.
+     * @param loggerInstance логгер.
+     */
+    public Http2Connection(
+        @NotNull AsynchronousSocketChannel clientChannel,
+        @NotNull RouteExecute routeExecute,
+        @NotNull Executor streamExecutor,
+        long limitBuffer,
+        @NotNull Logger loggerInstance
+    ) {
+        client = clientChannel;
+        handler = routeExecute;
+        executor = streamExecutor;
+        limitAllocateBufferForRequest = limitBuffer;
+        logger = loggerInstance;
+    }
+
+    /**
+     * Метод проверяет, начинаются ли прочитанные данные с преамбулы HTTP/2.
+     * @param bytes прочитанные данные.
+     * @param length длина данных.
+     * @return true, если данные совпадают с началом преамбулы (не менее 3 байт).
+     */
+    public static boolean isPreface(byte @NotNull [] bytes, int length) {
+        if (length < 3) return false;
+
+        final int compare = Math.min(length, PREFACE.length);
+        for (int i = 0; i < compare; i++) {
+            if (bytes[i] != PREFACE[i]) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Метод устанавливает время ожидания данных от клиента, после которого соединение закрывается.
+     * @param seconds время в секундах.
+     * @return текущий экземпляр.
+     */
+    public Http2Connection setIdleTimeout(long seconds) {
+        idleTimeout = seconds;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает журнал доступа, в который пишется каждый поток после отправки ответа.
+     * @param log журнал доступа или null.
+     * @return текущий экземпляр.
+     */
+    public Http2Connection setAccessLog(@Nullable AccessLog log) {
+        accessLog = log;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает трассировку: для каждого потока создается трасса с интервалами body-read, queue,
+     * parse, маршрутизации, плагинов, обработчика и write.
+     * @param requestTracing трассировка или null.
+     * @return текущий экземпляр.
+     */
+    public Http2Connection setTracing(@Nullable Tracing requestTracing) {
+        tracing = requestTracing;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает пул запросов и ответов: объекты потока берутся из пула и возвращаются в него
+     * после отправки ответа и записи в журнал доступа.
+     * @param pool пул или null - объекты создаются для каждого потока.
+     * @return текущий экземпляр.
+     */
+    public Http2Connection setExchangePool(@Nullable ExchangePool pool) {
+        exchangePool = pool;
+        return this;
+    }
+
+    /**
+     * Метод запускает обработку соединения.
+     * @param initial уже прочитанные из канала данные, начиная с преамбулы.
+     * @param length длина данных.
+     */
+    public void start(byte @NotNull [] initial, int length) {
+        try {
+            clientInfo = new ClientInfo(client.getLocalAddress(), client.getRemoteAddress());
+        } catch (IOException e) {
+            closeChannel();
+            return;
+        }
+
+        readBuffer = ByteBuffer.allocate(Math.max(length, 2 * (maxFrameSize + frameHeaderLength)));
+        readBuffer.put(initial, 0, length);
+
+        synchronized (this) {
+            final ByteBuffer settings = ByteBuffer.allocate(18);
+            settings.putShort((short) SETTINGS_MAX_CONCURRENT_STREAMS).putInt(maxConcurrentStreams);
+            settings.putShort((short) SETTINGS_MAX_HEADER_LIST_SIZE).putInt(maxHeaderListSize);
+            settings.putShort((short) SETTINGS_ENABLE_PUSH).putInt(0);
+
+            enqueue(frame(SETTINGS, 0, 0, settings.array(), 0, settings.capacity()));
+            enqueue(windowUpdate(0, connectionReceiveWindow - defaultWindow));
+        }
+
+        if (logger.isLoggable(Level.FINEST)) logger.finest("HTTP/2 соединение: " + clientInfo.getRemoteAddress());
+
+        process();
+    }
+
+    /**
+     * Метод разбирает накопленные фреймы и запускает следующее чтение.
+     */
+    private void process() {
+        readBuffer.flip();
+
+        try {
+            if (!prefaceReceived) {
+                final int compare = Math.min(readBuffer.remaining(), PREFACE.length);
+
+                for (int i = 0; i < compare; i++) {
+                    if (readBuffer.get(readBuffer.position() + i) != PREFACE[i]) {
+                        throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "Неверная преамбула");
+                    }
+                }
+
+                if (compare == PREFACE.length) {
+                    readBuffer.position(readBuffer.position() + PREFACE.length);
+                    prefaceReceived = true;
+                }
+            }
+
+            while (prefaceReceived && readBuffer.remaining() >= frameHeaderLength) {
+                final int start = readBuffer.position();
+                final int length = ((readBuffer.get(start) & 0xFF) << 16)
+                    | ((readBuffer.get(start + 1) & 0xFF) << 8)
+                    | (readBuffer.get(start + 2) & 0xFF);
+
+                if (length > maxFrameSize) {
+                    throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Фрейм больше " + maxFrameSize);
+                }
+                if (readBuffer.remaining() < frameHeaderLength + length) break;
+
+                final int type = readBuffer.get(start + 3) & 0xFF;
+                final int flags = readBuffer.get(start + 4) & 0xFF;
+                final int streamId = readBuffer.getInt(start + 5) & 0x7FFFFFFF;
+
+                readBuffer.position(start + frameHeaderLength + length);
+
+                try {
+                    onFrame(type, flags, streamId, readBuffer.array(), start + frameHeaderLength, length);
+                } catch (Http2Exception exc) {
+                    if (exc.isConnectionError()) throw exc;
+                    resetStream(exc.getStreamId(), exc.getErrorCode(), exc.getMessage());
+                }
+            }
+
+            readBuffer.compact();
+        } catch (Http2Exception exc) {
+            connectionError(exc);
+            return;
+        } catch (RuntimeException exc) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка разбора фреймов HTTP/2: " + exc);
+            connectionError(Http2Exception.connection(Http2ErrorCode.INTERNAL_ERROR, String.valueOf(exc)));
+            return;
+        }
+
+        synchronized (this) {
+            if (closed || closing) return;
+        }
+
+        try {
+            client.read(readBuffer, idleTimeout, TimeUnit.SECONDS, null, new ReadHandler());
+        } catch (Throwable exc) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка чтения HTTP/2: " + exc);
+            closeChannel();
+        }
+    }
+
+    private void onFrame(
+        int type,
+        int flags,
+        int streamId,
+        byte @NotNull [] data,
+        int offset,
+        int length
+    ) throws Http2Exception {
+        if (continuationStream != 0 && (type != CONTINUATION || streamId != continuationStream)) {
+            throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "Ожидался фрейм CONTINUATION");
+        }
+        if (!settingsReceived && type != SETTINGS) {
+            throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "Первым фреймом должен быть SETTINGS");
+        }
+
+        switch (type) {
+            case DATA -> onData(flags, streamId, data, offset, length);
+            case HEADERS -> onHeaders(flags, streamId, data, offset, length);
+            case PRIORITY -> {
+                if (streamId == 0) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "PRIORITY для потока 0");
+                if (length != 5) throw Http2Exception.stream(streamId, Http2ErrorCode.FRAME_SIZE_ERROR, "Размер PRIORITY");
+            }
+            case RST_STREAM -> {
+                if (streamId == 0 || streamId > lastStreamId) {
+                    throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "RST_STREAM для неоткрытого потока");
+                }
+                if (length != 4) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер RST_STREAM");
+
+                synchronized (this) {
+                    final Http2Stream stream = streams.remove(streamId);
+
+                    if (stream != null) {
+                        stream.reset = true;
+                        dataStreams.remove(stream);
+                    }
+                    closeIfIdle();
+                }
+            }
+            case SETTINGS -> onSettings(flags, streamId, data, offset, length);
+            case PUSH_PROMISE -> throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "PUSH_PROMISE от клиента");
+            case PING -> {
+                if (streamId != 0) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "PING для потока");
+                if (length != 8) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер PING");
+
+                if ((flags & FLAG_ACK) == 0) {
+                    synchronized (this) {
+                        enqueue(frame(PING, FLAG_ACK, 0, data, offset, length));
+                    }
+                }
+            }
+            case GOAWAY -> {
+                if (streamId != 0) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "GOAWAY для потока");
+
+                synchronized (this) {
+                    goAway = true;
+                    closeIfIdle();
+                }
+            }
+            case WINDOW_UPDATE -> onWindowUpdate(streamId, data, offset, length);
+            case CONTINUATION -> {
+                if (continuationStream == 0) {
+                    throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "CONTINUATION без HEADERS");
+                }
+
+                appendHeaderBlock(data, offset, length);
+                if ((flags & FLAG_END_HEADERS) != 0) endHeaders();
+            }
+            default -> {} // неизвестные типы фреймов игнорируются
+        }
+    }
+
+    private void onHeaders(
+        int flags,
+        int streamId,
+        byte @NotNull [] data,
+        int offset,
+        int length
+    ) throws Http2Exception {
+        if (streamId == 0 || (streamId & 1) == 0) {
+            throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "Неверный идентификатор потока: " + streamId);
+        }
+
+        int padding = 0;
+
+        if ((flags & FLAG_PADDED) != 0) {
+            if (length < 1) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер HEADERS");
+
+            padding = data[offset] & 0xFF;
+            offset++;
+            length--;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            if (length < 5) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер HEADERS");
+
+            offset += 5;
+            length -= 5;
+        }
+        if (padding > length) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "Дополнение больше фрейма");
+
+        headerBlock.reset();
+        continuationStream = streamId;
+        continuationEndStream = (flags & FLAG_END_STREAM) != 0;
+        appendHeaderBlock(data, offset, length - padding);
+
+        if ((flags & FLAG_END_HEADERS) != 0) endHeaders();
+    }
+
+    private void appendHeaderBlock(byte @NotNull [] data, int offset, int length) throws Http2Exception {
+        if (headerBlock.size() + length > maxHeaderListSize) {
+            throw Http2Exception.connection(Http2ErrorCode.ENHANCE_YOUR_CALM, "Блок заголовков слишком большой");
+        }
+
+        headerBlock.write(data, offset, length);
+    }
+
+    /**
+     * Метод обрабатывает полностью полученный блок заголовков: открывает поток или принимает трейлеры.
+     * @throws Http2Exception ошибка протокола.
+     */
+    private void endHeaders() throws Http2Exception {
+        final int streamId = continuationStream;
+        final byte[] block = headerBlock.toByteArray();
+        final Http2Stream stream;
+
+        continuationStream = 0;
+
+        synchronized (this) {
+            stream = streams.get(streamId);
+        }
+
+        if (stream == null) {
+            if (streamId <= lastStreamId) {
+                decoder.decode(block, block.length, (name, value) -> {}); // состояние HPACK должно сохраниться
+                throw Http2Exception.connection(Http2ErrorCode.STREAM_CLOSED, "HEADERS для закрытого потока");
+            }
+
+            lastStreamId = streamId;
+            final Http2Stream opened;
+
+            synchronized (this) {
+                opened = new Http2Stream(streamId, peerInitialWindow);
+            }
+
+            final boolean[] malformed = { false };
+            final boolean[] scheme = { false };
+
+            decoder.decode(block, block.length, (name, value) -> {
+                if (!isValidField(name, value)) {
+                    malformed[0] = true;
+                } else if (name.charAt(0) == ':') {
+                    if (!opened.headers.isEmpty()) malformed[0] = true; // псевдозаголовок после обычных
+
+                    switch (name) {
+                        case ":method" -> {
+                            malformed[0] |= opened.method != null;
+                            opened.method = value;
+                        }
+                        case ":path" -> {
+                            malformed[0] |= opened.path != null;
+                            opened.path = value;
+                        }
+                        case ":authority" -> {
+                            malformed[0] |= opened.authority != null;
+                            opened.authority = value;
+                        }
+                        case ":scheme" -> {
+                            malformed[0] |= scheme[0];
+                            scheme[0] = true;
+                        }
+                        default -> malformed[0] = true;
+                    }
+                } else if (connectionHeaders.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+                    malformed[0] = true;
+                } else {
+                    opened.addHeader(name, value);
+                }
+            });
+
+            final boolean refused;
+
+            synchronized (this) {
+                refused = goAway || closing || streams.size() >= maxConcurrentStreams;
+                if (!refused) streams.put(streamId, opened);
+            }
+
+            if (refused) throw Http2Exception.stream(streamId, Http2ErrorCode.REFUSED_STREAM, "Поток отклонен");
+            if (malformed[0] || !scheme[0] || !isValidTarget(opened.method, opened.path)) {
+                throw Http2Exception.stream(streamId, Http2ErrorCode.PROTOCOL_ERROR, "Неверные поля запроса");
+            }
+
+            if (continuationEndStream) dispatch(opened);
+        } else {
+            final boolean[] malformed = { false };
+
+            decoder.decode(block, block.length, (name, value) -> { // трейлеры не передаются обработчику
+                if (!isValidField(name, value) || name.charAt(0) == ':') malformed[0] = true;
+            });
+
+            if (malformed[0]) throw Http2Exception.stream(streamId, Http2ErrorCode.PROTOCOL_ERROR, "Неверные трейлеры");
+            if (stream.remoteClosed) {
+                throw Http2Exception.stream(streamId, Http2ErrorCode.STREAM_CLOSED, "HEADERS после END_STREAM");
+            }
+            if (!continuationEndStream) {
+                throw Http2Exception.stream(streamId, Http2ErrorCode.PROTOCOL_ERROR, "Трейлеры без END_STREAM");
+            }
+
+            dispatch(stream);
+        }
+    }
+
+    /**
+     * Метод проверяет поле по RFC 9113, 8.2.1: имя без заглавных букв, пробелов, управляющих символов
+     * и ':' (кроме первого символа псевдозаголовка), значение без NUL, CR, LF и пробелов по краям.
+     * @param name имя поля.
+     * @param value значение поля.
+     * @return true, если поле допустимо.
+     */
+    static boolean isValidField(@NotNull String name, @NotNull String value) {
+        if (name.isEmpty() || name.equals(":")) return false;
+
+        for (int i = 0; i < name.length(); i++) {
+            final char symbol = name.charAt(i);
+
+            if (symbol <= 0x20 || symbol >= 0x7f || (symbol >= 'A' && symbol <= 'Z') || (symbol == ':' && i > 0)) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char symbol = value.charAt(i);
+            if (symbol == 0 || symbol == '\r' || symbol == '\n') return false;
+        }
+
+        return value.isEmpty() || !(isBlank(value.charAt(0)) || isBlank(value.charAt(value.length() - 1)));
+    }
+
+    private static boolean isBlank(char symbol) {
+        return symbol == ' ' || symbol == '\t';
+    }
+
+    /**
+     * Метод проверяет :method и :path: метод - токен, путь начинается с '/' или равен '*' для OPTIONS.
+     * @param method значение :method.
+     * @param path значение :path.
+     * @return true, если цель запроса допустима.
+     */
+    static boolean isValidTarget(@Nullable String method, @Nullable String path) {
+        if (method == null || method.isEmpty() || path == null || path.isEmpty()) return false;
+
+        for (int i = 0; i < method.length(); i++) {
+            final char symbol = method.charAt(i);
+            if (symbol <= 0x20 || symbol >= 0x7f || "\"(),/:;<=>?@[\\]{}".indexOf(symbol) >= 0) return false;
+        }
+
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) <= 0x20 || path.charAt(i) == 0x7f) return false;
+        }
+
+        return path.charAt(0) == '/' || (path.equals("*") && method.equals("OPTIONS"));
+    }
+
+    private void onData(
+        int flags,
+        int streamId,
+        byte @NotNull [] data,
+        int offset,
+        int length
+    ) throws Http2Exception {
+        if (streamId == 0) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "DATA для потока 0");
+
+        final int flowLength = length;
+
+        if ((flags & FLAG_PADDED) != 0) {
+            if (length < 1) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер DATA");
+
+            final int padding = data[offset] & 0xFF;
+            if (padding >= length) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "Дополнение больше фрейма");
+
+            offset++;
+            length -= 1 + padding;
+        }
+
+        final Http2Stream stream;
+
+        synchronized (this) {
+            connectionReceiveConsumed += flowLength;
+
+            if (connectionReceiveConsumed >= connectionReceiveWindow / 2) {
+                enqueue(windowUpdate(0, connectionReceiveConsumed));
+                connectionReceiveConsumed = 0;
+            }
+
+            stream = streams.get(streamId);
+        }
+
+        if (stream == null || stream.remoteClosed) {
+            if (streamId > lastStreamId) {
+                throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "DATA для неоткрытого потока");
+            }
+            throw Http2Exception.stream(streamId, Http2ErrorCode.STREAM_CLOSED, "DATA для закрытого потока");
+        }
+        if (stream.body.size() + length > limitAllocateBufferForRequest) {
+            throw Http2Exception.stream(
+                streamId,
+                Http2ErrorCode.ENHANCE_YOUR_CALM,
+                "Размер запроса превышен, лимит: " + limitAllocateBufferForRequest
+            );
+        }
+
+        stream.body.write(data, offset, length);
+
+        if ((flags & FLAG_END_STREAM) != 0) {
+            dispatch(stream);
+        } else if (flowLength > 0) {
+            synchronized (this) {
+                enqueue(windowUpdate(streamId, flowLength));
+            }
+        }
+    }
+
+    private void onSettings(
+        int flags,
+        int streamId,
+        byte @NotNull [] data,
+        int offset,
+        int length
+    ) throws Http2Exception {
+        if (streamId != 0) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "SETTINGS для потока");
+
+        if ((flags & FLAG_ACK) != 0) {
+            if (length != 0) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "SETTINGS ACK с данными");
+            return;
+        }
+        if (length % 6 != 0) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер SETTINGS");
+
+        settingsReceived = true;
+
+        synchronized (this) {
+            for (int i = offset; i < offset + length; i += 6) {
+                final int id = ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF);
+                final long value = readUnsignedInt(data, i + 2);
+
+                switch (id) {
+                    case SETTINGS_HEADER_TABLE_SIZE -> encoder.setPeerMaxTableSize((int) Math.min(value, maxWindow));
+                    case SETTINGS_ENABLE_PUSH -> {
+                        if (value > 1) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "ENABLE_PUSH: " + value);
+                    }
+                    case SETTINGS_INITIAL_WINDOW_SIZE -> {
+                        if (value > maxWindow) {
+                            throw Http2Exception.connection(Http2ErrorCode.FLOW_CONTROL_ERROR, "INITIAL_WINDOW_SIZE: " + value);
+                        }
+
+                        final long delta = value - peerInitialWindow;
+
+                        for (Http2Stream stream : streams.values()) {
+                            stream.sendWindow += delta;
+
+                            if (stream.sendWindow > maxWindow) {
+                                throw Http2Exception.connection(Http2ErrorCode.FLOW_CONTROL_ERROR, "Переполнение окна");
+                            }
+                        }
+
+                        peerInitialWindow = (int) value;
+                    }
+                    case SETTINGS_MAX_FRAME_SIZE -> {
+                        if (value < 16384 || value > 16777215) {
+                            throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "MAX_FRAME_SIZE: " + value);
+                        }
+
+                        peerMaxFrameSize = (int) value;
+                    }
+                    default -> {} // MAX_CONCURRENT_STREAMS и MAX_HEADER_LIST_SIZE клиента не влияют на ответы
+                }
+            }
+
+            enqueue(frame(SETTINGS, FLAG_ACK, 0, data, 0, 0));
+            flushData();
+        }
+    }
+
+    private void onWindowUpdate(int streamId, byte @NotNull [] data, int offset, int length) throws Http2Exception {
+        if (length != 4) throw Http2Exception.connection(Http2ErrorCode.FRAME_SIZE_ERROR, "Размер WINDOW_UPDATE");
+
+        final long increment = readUnsignedInt(data, offset) & 0x7FFFFFFFL;
+
+        if (increment == 0) {
+            if (streamId == 0) throw Http2Exception.connection(Http2ErrorCode.PROTOCOL_ERROR, "WINDOW_UPDATE 0");
+            throw Http2Exception.stream(streamId, Http2ErrorCode.PROTOCOL_ERROR, "WINDOW_UPDATE 0");
+        }
+
+        synchronized (this) {
+            if (streamId == 0) {
+                sendWindow += increment;
+                if (sendWindow > maxWindow) throw Http2Exception.connection(Http2ErrorCode.FLOW_CONTROL_ERROR, "Переполнение окна");
+            } else {
+                final Http2Stream stream = streams.get(streamId);
+                if (stream == null) return; // поток уже завершен
+
+                stream.sendWindow += increment;
+                if (stream.sendWindow > maxWindow) {
+                    throw Http2Exception.stream(streamId, Http2ErrorCode.FLOW_CONTROL_ERROR, "Переполнение окна");
+                }
+            }
+
+            flushData();
+        }
+    }
+
+    /**
+     * Метод передает поток с полученным запросом в executor.
+     * @param stream поток.
+     */
+    private void dispatch(@NotNull Http2Stream stream) {
+        stream.remoteClosed = true;
+        if (stream.dispatched) return;
+        stream.dispatched = true;
+        stream.dispatchNanos = System.nanoTime();
+
+        final List<String> fields = requestFields(stream);
+        final byte[] body = stream.body.toByteArray();
+
+        try {
+            executor.execute(() -> respond(stream, fields, body));
+        } catch (RejectedExecutionException exc) {
+            resetStream(stream.id, Http2ErrorCode.REFUSED_STREAM, "Executor отклонил поток");
+        }
+    }
+
+    /**
+     * Метод собирает заголовки запроса: Host из :authority, cookie объединяются через "; ",
+     * октеты значений декодируются как UTF-8.
+     * @param stream поток.
+     * @return заголовки: имя, значение, имя, значение...
+     */
+    private static @NotNull List<String> requestFields(@NotNull Http2Stream stream) {
+        final ArrayList<String> fields = new ArrayList<>(stream.headers.size() + 2);
+        StringBuilder cookie = null;
+
+        if (stream.authority != null) {
+            fields.add("host");
+            fields.add(fromOctets(stream.authority));
+        }
+
+        for (int i = 0; i < stream.headers.size(); i += 2) {
+            final String name = stream.headers.get(i);
+            final String value = fromOctets(stream.headers.get(i + 1));
+
+            if (name.equals("cookie")) {
+                if (cookie == null) {
+                    cookie = new StringBuilder(value);
+                } else {
+                    cookie.append("; ").append(value);
+                }
+            } else if (!(name.equals("host") && stream.authority != null)) {
+                fields.add(name);
+                fields.add(value);
+            }
+        }
+
+        if (cookie != null) {
+            fields.add("cookie");
+            fields.add(cookie.toString());
+        }
+
+        return fields;
+    }
+
+    /**
+     * Метод выполняет обработчик и отправляет ответ. Вызывается в executor.
+     * Переключение протокола (WebSocket, SSE) в HTTP/2 не поддерживается: поток сбрасывается
+     * с HTTP_1_1_REQUIRED, и клиент повторяет запрос по HTTP/1.1 (RFC 9113, 8.6).
+     * @param stream поток.
+     * @param fields заголовки запроса.
+     * @param body тело запроса.
+     */
+    private void respond(@NotNull Http2Stream stream, @NotNull List<String> fields, byte @NotNull [] body) {
+        final IHttpCattyResponse response = exchangePool == null ? new Response(logger) : exchangePool.response(logger);
+        final long start = System.nanoTime();
+        final RequestTrace trace = tracing == null ? null : tracing.start(stream.startNanos);
+        final String target = fromOctets(stream.path);
+        final Request request = exchangePool == null
+            ? new Request(stream.method, target, "HTTP/2.0", fields, body, logger)
+            : exchangePool.request(stream.method, target, "HTTP/2.0", fields, body, logger);
+
+        if (trace != null) {
+            trace.span("body-read", stream.startNanos, stream.dispatchNanos);
+            trace.span("queue", stream.dispatchNanos, start);
+        }
+
+        try {
+            request.setClientInfo(clientInfo);
+            if (trace != null) tracing.attach(request, trace, start);
+            handler.exec(request, response);
+        } catch (Throwable exc) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка обработки потока " + stream + ": " + exc);
+            response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
+        }
+
+        final long writeStart = trace == null ? 0 : System.nanoTime();
+
+        if (response.getUpgrade() != null) {
+            response.setUpgrade(null); // переключение не выполняется, запрос и ответ возвращаются в пул
+            resetStream(stream.id, Http2ErrorCode.HTTP_1_1_REQUIRED, "Маршрут требует HTTP/1.1: " + stream.path);
+        } else {
+            try {
+                sendResponse(stream, response, "HEAD".equals(stream.method));
+            } catch (Throwable exc) {
+                if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка отправки потока " + stream + ": " + exc);
+                resetStream(stream.id, Http2ErrorCode.INTERNAL_ERROR, exc.getMessage());
+            }
+        }
+
+        if (trace != null) {
+            trace.span("write", writeStart);
+            tracing.finish(trace);
+        }
+
+        if (accessLog != null) accessLog.log(request, response, stream.startNanos);
+        if (exchangePool != null) exchangePool.release(request, response);
+    }
+
+    /**
+     * Метод отправляет ответ фреймами HEADERS (CONTINUATION) и DATA.
+     * Если у ответа установлены готовые байты HTTP/1, статус, заголовки и тело берутся из них.
+     * @param stream поток.
+     * @param response ответ.
+     * @param headOnly не отправлять тело (запрос HEAD).
+     */
+    private void sendResponse(@NotNull Http2Stream stream, @NotNull IHttpCattyResponse response, boolean headOnly) {
+        final ArrayList<String> fields = new ArrayList<>();
+        final byte[] prepared = response.getPreparedBytes();
+        int status;
+        byte[] body;
+        int bodyOffset = 0;
+
+        if (prepared != null) {
+            bodyOffset = parsePrepared(prepared, fields);
+            status = fields.isEmpty() ? 0 : Integer.parseInt(fields.remove(0));
+            body = prepared;
+        } else {
+            final IHttpHeaders headers = response.getHeaders();
+
+            for (int i = 0; i < headers.size(); i++) {
+                fields.add(headers.getName(i).toLowerCase(Locale.ROOT));
+                fields.add(toOctets(headers.getValue(i)));
+            }
+
+            status = response.getResponseCode();
+            body = response.getBody();
+        }
+
+        if (status < 100 || status > 599) status = ResponseCode.INTERNAL_SERVER_ERROR.getCode();
+
+        final int bodyEnd = body == null || headOnly ? bodyOffset : body.length;
+        final ByteArrayOutputStream block = new ByteArrayOutputStream(256);
+        boolean hasDate = false;
+
+        synchronized (this) {
+            if (closed || closing || stream.reset) return;
+
+            encoder.encodeStatus(status, block);
+
+            for (int i = 0; i < fields.size(); i += 2) {
+                final String name = fields.get(i);
+
+                if (connectionHeaders.contains(name)) continue;
+                if (name.equals("date")) hasDate = true;
+
+                encoder.encode(name, fields.get(i + 1), block);
+            }
+
+            if (!hasDate) encoder.encode("date", HttpDate.getValue(), block);
+
+            final boolean endStream = bodyEnd == bodyOffset;
+            writeHeaders(stream.id, block.toByteArray(), endStream);
+
+            if (endStream) {
+                finishStream(stream);
+            } else {
+                stream.pendingData = body;
+                stream.pendingOffset = bodyOffset;
+                stream.pendingEnd = bodyEnd;
+                dataStreams.add(stream);
+                flushData();
+            }
+        }
+    }
+
+    /**
+     * Метод разбирает готовый ответ HTTP/1: в fields первым элементом кладется код статуса,
+     * затем пары имя (в нижнем регистре) - значение.
+     * @param bytes ответ HTTP/1.
+     * @param fields список для заполнения.
+     * @return начало тела.
+     */
+    private static int parsePrepared(byte @NotNull [] bytes, @NotNull ArrayList<String> fields) {
+        int lineStart = 0;
+        boolean isStatusLine = true;
+
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') lineEnd++;
+
+            final int nextLine = Math.min(lineEnd + 1, bytes.length);
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') lineEnd--;
+
+            if (lineEnd == lineStart) return nextLine;
+
+            final String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.ISO_8859_1);
+
+            if (isStatusLine) {
+                final int space = line.indexOf(' ');
+                fields.add(line.substring(space + 1, Math.min(space + 4, line.length())));
+                isStatusLine = false;
+            } else {
+                final int colon = line.indexOf(':');
+
+                if (colon > 0) {
+                    fields.add(line.substring(0, colon).trim().toLowerCase(Locale.ROOT));
+                    fields.add(line.substring(colon + 1).trim());
+                }
+            }
+
+            lineStart = nextLine;
+        }
+
+        return bytes.length;
+    }
+
+    /**
+     * Метод переводит значение в строку октетов UTF-8 для HPACK, ASCII возвращается без копирования.
+     * @param value значение заголовка.
+     * @return строка, в которой каждый символ - один байт.
+     */
+    private static @NotNull String toOctets(@NotNull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Метод переводит строку октетов HPACK в строку UTF-8, ASCII возвращается без копирования.
+     * @param octets строка, в которой каждый символ - один байт.
+     * @return значение.
+     */
+    private static @NotNull String fromOctets(@NotNull String octets) {
+        for (int i = 0; i < octets.length(); i++) {
+            if (octets.charAt(i) >= 0x80) {
+                return new String(octets.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+            }
+        }
+
+        return octets;
+    }
+
+    /**
+     * Метод разбивает блок заголовков на HEADERS и CONTINUATION по размеру фрейма клиента.
+     * Вызывается под монитором, поэтому фреймы блока идут в канал подряд.
+     */
+    private void writeHeaders(int streamId, byte @NotNull [] block, boolean endStream) {
+        int offset = 0;
+        boolean first = true;
+
+        do {
+            final int chunk = Math.min(block.length - offset, peerMaxFrameSize);
+            final boolean last = offset + chunk == block.length;
+            final int flags = (last ? FLAG_END_HEADERS : 0) | (first && endStream ? FLAG_END_STREAM : 0);
+
+            enqueue(frame(first ? HEADERS : CONTINUATION, flags, streamId, block, offset, chunk));
+
+            offset += chunk;
+            first = false;
+        } while (offset < block.length);
+    }
+
+    /**
+     * Метод отправляет тела ответов в пределах окон соединения и потоков. Вызывается под монитором.
+     */
+    private void flushData() {
+        final Iterator<Http2Stream> iterator = dataStreams.iterator();
+
+        while (iterator.hasNext() && sendWindow > 0) {
+            final Http2Stream stream = iterator.next();
+
+            while (stream.hasPendingData() && sendWindow > 0 && stream.sendWindow > 0) {
+                final int chunk = (int) Math.min(
+                    Math.min(stream.pendingEnd - stream.pendingOffset, peerMaxFrameSize),
+                    Math.min(sendWindow, stream.sendWindow)
+                );
+                final boolean last = stream.pendingOffset + chunk == stream.pendingEnd;
+
+                enqueue(frame(DATA, last ? FLAG_END_STREAM : 0, stream.id, stream.pendingData, stream.pendingOffset, chunk));
+
+                stream.pendingOffset += chunk;
+                stream.sendWindow -= chunk;
+                sendWindow -= chunk;
+            }
+
+            if (!stream.hasPendingData()) {
+                iterator.remove();
+                stream.pendingData = null;
+                finishStream(stream);
+            }
+        }
+    }
+
+    private void finishStream(@NotNull Http2Stream stream) {
+        streams.remove(stream.id);
+        closeIfIdle();
+    }
+
+    /**
+     * Метод закрывает соединение после GOAWAY, когда активных потоков не осталось. Вызывается под монитором.
+     */
+    private void closeIfIdle() {
+        if (goAway && streams.isEmpty() && !closing) {
+            closing = true;
+            if (!writing) closeChannel();
+        }
+    }
+
+    /**
+     * Метод сбрасывает поток фреймом RST_STREAM.
+     * @param streamId идентификатор потока.
+     * @param errorCode код ошибки.
+     * @param msg причина.
+     */
+    private synchronized void resetStream(int streamId, @NotNull Http2ErrorCode errorCode, String msg) {
+        if (logger.isLoggable(Level.FINE)) logger.fine("RST_STREAM " + streamId + " " + errorCode + ": " + msg);
+
+        final Http2Stream stream = streams.remove(streamId);
+
+        if (stream != null) {
+            stream.reset = true;
+            dataStreams.remove(stream);
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate(4).putInt(errorCode.getCode());
+        enqueue(frame(RST_STREAM, 0, streamId, payload.array(), 0, 4));
+        closeIfIdle();
+    }
+
+    /**
+     * Метод отправляет GOAWAY и закрывает соединение после записи очереди.
+     * @param exc ошибка соединения.
+     */
+    private synchronized void connectionError(@NotNull Http2Exception exc) {
+        if (logger.isLoggable(Level.FINE)) logger.fine("GOAWAY " + exc.getErrorCode() + ": " + exc.getMessage());
+
+        goAway(exc.getErrorCode(), exc.getMessage());
+
+        for (Http2Stream stream : streams.values()) stream.reset = true;
+        streams.clear();
+        dataStreams.clear();
+
+        closing = true;
+        if (!writing) closeChannel();
+    }
+
+    private void goAway(@NotNull Http2ErrorCode errorCode, String msg) {
+        final byte[] debug = msg == null ? new byte[0] : msg.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer payload = ByteBuffer.allocate(8 + debug.length);
+
+        payload.putInt(lastStreamId).putInt(errorCode.getCode()).put(debug);
+        enqueue(frame(GOAWAY, 0, 0, payload.array(), 0, payload.capacity()));
+        goAway = true;
+    }
+
+    private static @NotNull ByteBuffer windowUpdate(int streamId, int increment) {
+        final ByteBuffer payload = ByteBuffer.allocate(4).putInt(increment);
+        return frame(WINDOW_UPDATE, 0, streamId, payload.array(), 0, 4);
+    }
+
+    private static @NotNull ByteBuffer frame(
+        int type,
+        int flags,
+        int streamId,
+        byte @NotNull [] payload,
+        int offset,
+        int length
+    ) {
+        final ByteBuffer frame = ByteBuffer.allocate(frameHeaderLength + length);
+
+        frame.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length);
+        frame.put((byte) type).put((byte) flags).putInt(streamId);
+        frame.put(payload, offset, length);
+
+        return frame.flip();
+    }
+
+    private static long readUnsignedInt(byte @NotNull [] data, int offset) {
+        return ((long) (data[offset] & 0xFF) << 24)
+            | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8)
+            | (data[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Метод ставит фрейм в очередь записи. Вызывается под монитором.
+     * @param frame фрейм.
+     */
+    private void enqueue(@NotNull ByteBuffer frame) {
+        if (closed) return;
+
+        writeQueue.add(frame);
+        if (!writing) startWrite();
+    }
+
+    /**
+     * Метод запускает запись следующей части очереди, объединяя мелкие фреймы в один буфер.
+     * Вызывается под монитором.
+     */
+    private void startWrite() {
+        ByteBuffer next = writeQueue.poll();
+
+        if (next == null) {
+            writing = false;
+            if (closing) closeChannel();
+            return;
+        }
+
+        if (!writeQueue.isEmpty() && next.remaining() < maxWriteChunk) {
+            int total = next.remaining();
+            for (ByteBuffer buffer : writeQueue) {
+                if (total + buffer.remaining() > maxWriteChunk) break;
+                total += buffer.remaining();
+            }
+
+            final ByteBuffer merged = ByteBuffer.allocate(total).put(next);
+            while (!writeQueue.isEmpty() && merged.remaining() >= writeQueue.peek().remaining()) {
+                merged.put(writeQueue.poll());
+            }
+
+            next = merged.flip();
+        }
+
+        writing = true;
+
+        try {
+            client.write(next, next, writeHandler);
+        } catch (Throwable exc) {
+            closeChannel();
+        }
+    }
+
+    private synchronized void closeChannel() {
+        if (closed) return;
+
+        closed = true;
+        writing = false;
+        writeQueue.clear();
+        dataStreams.clear();
+        streams.clear();
+
+        try {
+            client.close();
+            if (logger.isLoggable(Level.FINEST)) logger.finest("HTTP/2 соединение закрыто");
+        } catch (IOException exc) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка закрытия HTTP/2 соединения: " + exc);
+        }
+    }
+
+    private final class ReadHandler implements CompletionHandler<Integer, Void> {
+        @Override
+        public void completed(Integer result, Void attachment) {
+            if (result < 0) {
+                closeChannel();
+                return;
+            }
+
+            process();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            if (exc instanceof InterruptedByTimeoutException) { // после таймаута чтение из канала невозможно
+                synchronized (Http2Connection.this) {
+                    if (!closed) {
+                        goAway(Http2ErrorCode.NO_ERROR, "idle");
+                        closeIfIdle();
+                    }
+                }
+                return;
+            }
+
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка чтения HTTP/2: " + exc);
+            closeChannel();
+        }
+    }
+
+    private final class WriteHandler implements CompletionHandler<Integer, ByteBuffer> {
+        @Override
+        public void completed(Integer result, ByteBuffer buffer) {
+            synchronized (Http2Connection.this) {
+                if (closed) return;
+
+                if (buffer.hasRemaining()) {
+                    try {
+                        client.write(buffer, buffer, this);
+                    } catch (Throwable exc) {
+                        closeChannel();
+                    }
+                } else {
+                    startWrite();
+                }
+            }
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer buffer) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка записи HTTP/2: " + exc);
+            closeChannel();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.axel.catty.engine.http2;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ошибка протокола HTTP/2.
+ * Если streamId равен 0 - ошибка соединения (GOAWAY), иначе ошибка потока (RST_STREAM).
+ */
+public final class Http2Exception extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final Http2ErrorCode errorCode;
+    private final int streamId;
+
+    public Http2Exception(@NotNull Http2ErrorCode errorCode, int streamId, String msg) {
+        super(msg);
+
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    public Http2ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public boolean isConnectionError() {
+        return streamId == 0;
+    }
+
+    static @NotNull Http2Exception connection(@NotNull Http2ErrorCode errorCode, String msg) {
+        return new Http2Exception(errorCode, 0, msg);
+    }
+
+    static @NotNull Http2Exception stream(int streamId, @NotNull Http2ErrorCode errorCode, String msg) {
+        return new Http2Exception(errorCode, streamId, msg);
+    }
+
+    static @NotNull Http2Exception compression(String msg) {
+        return new Http2Exception(Http2ErrorCode.COMPRESSION_ERROR, 0, msg);
+    }
+}
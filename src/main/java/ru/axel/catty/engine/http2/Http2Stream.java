@@ -0,0 +1,51 @@
+package ru.axel.catty.engine.http2;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+/**
+ * Поток HTTP/2: заголовки и тело запроса, окно отправки и неотправленная часть тела ответа.
+ * Поля чтения меняет только поток чтения соединения, поля отправки - под монитором соединения.
+ */
+final class Http2Stream {
+    final int id;
+    final long startNanos = System.nanoTime();
+
+    /* запрос */
+    String method;
+    String path;
+    String authority;
+    final ArrayList<String> headers = new ArrayList<>(); // имя, значение, имя, значение...
+    final ByteArrayOutputStream body = new ByteArrayOutputStream(0);
+    boolean remoteClosed = false;
+    boolean dispatched = false;
+    long dispatchNanos;
+
+    /* ответ */
+    long sendWindow;
+    byte[] pendingData;
+    int pendingOffset;
+    int pendingEnd;
+    boolean reset = false;
+
+    Http2Stream(int id, long sendWindow) {
+        this.id = id;
+        this.sendWindow = sendWindow;
+    }
+
+    void addHeader(@NotNull String name, @NotNull String value) {
+        headers.add(name);
+        headers.add(value);
+    }
+
+    boolean hasPendingData() {
+        return pendingData != null && pendingOffset < pendingEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Stream{id=" + id + ", method=" + method + ", path=" + path + '}';
+    }
+}
@@ -0,0 +1,487 @@
+package ru.axel.catty.engine.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IClientInfo;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Журнал доступа с записью в фоновом потоке.
+ * Поток запроса только заполняет заранее выделенную ячейку кольцевого буфера: ячейка занимается через CAS
+ * счетчика производителей, после заполнения публикуется номером последовательности. Форматирование строк,
+ * запись и сброс на диск выполняет один фоновый поток пакетами до batchSize событий.
+ * При переполнении буфера событие отбрасывается или поток запроса ждет, см. {@link OverflowPolicy}.
+ */
+public class AccessLog implements AutoCloseable {
+    private static final DateTimeFormatter clfFormatter = DateTimeFormatter
+        .ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US)
+        .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter isoFormatter = DateTimeFormatter
+        .ofPattern("yyyy-MM-dd'T'HH:mm:ss", Locale.US)
+        .withZone(ZoneOffset.UTC);
+    private static final char[] hex = "0123456789abcdef".toCharArray();
+    private final Logger logger;
+    private final AccessLogOptions options;
+    private final Writer out;
+    private final boolean closeOut;
+    private final Event[] ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // следующая ячейка для производителей
+    private long head = 0;                            // следующая ячейка для фонового потока
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /* кэш форматированного времени, используется только фоновым потоком */
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedClf;
+    private String cachedIso;
+
+    public AccessLog(@NotNull Path file, Logger loggerInstance) throws IOException {
+        this(file, new AccessLogOptions(), loggerInstance);
+    }
+    public AccessLog(@NotNull Path file, @NotNull AccessLogOptions accessLogOptions, Logger loggerInstance) throws IOException {
+        this(
+            Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+            true,
+            accessLogOptions,
+            loggerInstance
+        );
+    }
+
+    /**
+     * Создание журнала, пишущего в поток, например System.out. Поток не закрывается в {@link #close()}.
+     * @param outputStream поток вывода.
+     * @param accessLogOptions настройки журнала.
+     * @param loggerInstance логгер для ошибок записи.
+     */
+    public AccessLog(@NotNull OutputStream outputStream, @NotNull AccessLogOptions accessLogOptions, Logger loggerInstance) {
+        this(outputStream, false, accessLogOptions, loggerInstance);
+    }
+
+    private AccessLog(
+        @NotNull OutputStream outputStream,
+        boolean ownStream,
+        @NotNull AccessLogOptions accessLogOptions,
+        Logger loggerInstance
+    ) {
+        logger = loggerInstance;
+        options = accessLogOptions;
+        out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+        closeOut = ownStream;
+        ring = new Event[options.getCapacity()];
+        mask = ring.length - 1;
+
+        for (int i = 0; i < ring.length; i++) ring[i] = new Event(i);
+
+        writer = new Thread(this::run, "catty-access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Метод записывает в журнал завершенный запрос.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @param startNanos время начала обработки запроса System.nanoTime().
+     * @return false, если событие отброшено из-за переполнения буфера.
+     */
+    public boolean log(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response, long startNanos) {
+        final IClientInfo client = request.getClientInfo();
+        final boolean withAgent = options.getFormat() != AccessLogFormat.COMMON;
+
+        return log(
+            client == null ? null : client.getRemoteAddress(),
+            request.getMethod(),
+            request.getPath().orElse(null),
+            request.getVersion(),
+            response.getResponseCode(),
+            bodyLength(response),
+            System.nanoTime() - startNanos,
+            withAgent ? request.getHeaders(Headers.REFERER) : null,
+            withAgent ? request.getHeaders(Headers.USER_AGENT) : null
+        );
+    }
+
+    /**
+     * Метод записывает в журнал произвольное событие.
+     * @param remote адрес клиента.
+     * @param method метод запроса.
+     * @param target путь запроса.
+     * @param protocol версия протокола.
+     * @param status код ответа.
+     * @param bytes размер тела ответа.
+     * @param durationNanos время обработки в наносекундах.
+     * @param referer заголовок Referer.
+     * @param userAgent заголовок User-Agent.
+     * @return false, если событие отброшено из-за переполнения буфера.
+     */
+    public boolean log(
+        @Nullable String remote,
+        @Nullable String method,
+        @Nullable String target,
+        @Nullable String protocol,
+        int status,
+        long bytes,
+        long durationNanos,
+        @Nullable String referer,
+        @Nullable String userAgent
+    ) {
+        final Event event = claim();
+        if (event == null) return false;
+
+        event.timeMillis = System.currentTimeMillis();
+        event.remote = remote;
+        event.method = method;
+        event.target = target;
+        event.protocol = protocol;
+        event.status = status;
+        event.bytes = bytes;
+        event.durationNanos = durationNanos;
+        event.referer = referer;
+        event.userAgent = userAgent;
+        event.sequence.set(event.claimed + 1); // публикация для фонового потока
+
+        return true;
+    }
+
+    public @NotNull AccessLogOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Метод возвращает количество записанных событий.
+     * @return количество событий.
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * Метод возвращает количество событий, отброшенных из-за переполнения буфера.
+     * @return количество событий.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Метод записывает оставшиеся события, останавливает фоновый поток и закрывает файл журнала.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            if (closeOut) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка закрытия журнала доступа: " + e.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AccessLog{" +
+            "written=" + getWritten() +
+            ", dropped=" + getDropped() +
+            ", options=" + options +
+            '}';
+    }
+
+    private static long bodyLength(@NotNull IHttpCattyResponse response) {
+        final byte[] body = response.getBody();
+        if (body != null) return body.length;
+
+        final byte[] prepared = response.getPreparedBytes(); // для готовых ответов - полный размер
+        return prepared == null ? 0 : prepared.length;
+    }
+
+    /**
+     * Метод занимает свободную ячейку буфера.
+     * @return ячейка или null, если буфер переполнен и политика DROP_NEWEST.
+     */
+    private @Nullable Event claim() {
+        int spins = 0;
+
+        while (true) {
+            final long position = tail.get();
+            final Event event = ring[(int) position & mask];
+            final long difference = event.sequence.get() - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    event.claimed = position;
+                    return event;
+                }
+            } else if (difference < 0) { // ячейка еще не записана фоновым потоком - буфер полон
+                if (options.getOverflowPolicy() == OverflowPolicy.DROP_NEWEST || !running) {
+                    dropped.increment();
+                    return null;
+                }
+
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(50_000L);
+                }
+            }
+        }
+    }
+
+    /**
+     * Цикл фонового потока: пакетная запись событий и сброс на диск, когда буфер пуст или истек интервал сброса.
+     */
+    private void run() {
+        final StringBuilder batch = new StringBuilder(options.getBatchSize() * 192);
+        final long flushNanos = options.getFlushIntervalMillis() * 1_000_000L;
+        long lastFlush = System.nanoTime();
+        boolean dirty = false;
+        int idle = 0;
+
+        while (true) {
+            final boolean stopping = !running; // до разбора: события, опубликованные до close, будут записаны
+            final int drained = drain(batch);
+
+            if (drained > 0) {
+                idle = 0;
+                dirty = true;
+                write(batch);
+                batch.setLength(0);
+
+                if (System.nanoTime() - lastFlush < flushNanos) continue;
+            }
+
+            if (dirty) {
+                flush();
+                dirty = false;
+                lastFlush = System.nanoTime();
+            }
+
+            if (drained == 0) {
+                if (stopping) break;
+
+                LockSupport.parkNanos(idle < 100 ? 100_000L : 2_000_000L); // запросов давно нет - реже проверяем буфер
+                idle++;
+            }
+        }
+    }
+
+    /**
+     * Метод форматирует опубликованные события в пакет и освобождает их ячейки.
+     * @param batch пакет строк.
+     * @return количество событий.
+     */
+    private int drain(@NotNull StringBuilder batch) {
+        final int limit = options.getBatchSize();
+        int count = 0;
+
+        while (count < limit) {
+            final Event event = ring[(int) head & mask];
+            if (event.sequence.get() != head + 1) break;
+
+            format(event, batch);
+            event.clear();
+            event.sequence.set(head + ring.length);
+            head++;
+            count++;
+        }
+
+        if (count > 0) written.add(count);
+        return count;
+    }
+
+    private void write(@NotNull StringBuilder batch) {
+        try {
+            out.append(batch);
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка записи журнала доступа: " + e.getLocalizedMessage());
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка записи журнала доступа: " + e.getLocalizedMessage());
+        }
+    }
+
+    private void format(@NotNull Event event, @NotNull StringBuilder line) {
+        updateTime(event.timeMillis);
+
+        if (options.getFormat() == AccessLogFormat.JSON) {
+            final long millis = Math.floorMod(event.timeMillis, 1000L);
+
+            line.append("{\"time\":\"").append(cachedIso).append('.');
+            if (millis < 100) line.append('0');
+            if (millis < 10) line.append('0');
+            line.append(millis).append("Z\"");
+            appendJson(line, "remote", event.remote);
+            appendJson(line, "method", event.method);
+            appendJson(line, "path", event.target);
+            appendJson(line, "protocol", event.protocol);
+            line.append(",\"status\":").append(event.status);
+            line.append(",\"bytes\":").append(event.bytes);
+            line.append(",\"durationMicros\":").append(event.durationNanos / 1000);
+            appendJson(line, "referer", event.referer);
+            appendJson(line, "userAgent", event.userAgent);
+            line.append("}\n");
+
+            return;
+        }
+
+        line.append(event.remote == null ? "-" : event.remote).append(" - - [").append(cachedClf).append("] \"");
+        appendEscaped(line, event.method);
+        line.append(' ');
+        appendEscaped(line, event.target);
+        line.append(' ');
+        appendEscaped(line, event.protocol);
+        line.append("\" ").append(event.status).append(' ');
+
+        if (event.bytes > 0) {
+            line.append(event.bytes);
+        } else {
+            line.append('-');
+        }
+
+        if (options.getFormat() == AccessLogFormat.COMBINED) {
+            line.append(" \"");
+            appendEscaped(line, event.referer);
+            line.append("\" \"");
+            appendEscaped(line, event.userAgent);
+            line.append('"');
+        }
+
+        line.append('\n');
+    }
+
+    private void updateTime(long timeMillis) {
+        final long second = Math.floorDiv(timeMillis, 1000L);
+        if (second == cachedSecond) return;
+
+        final Instant instant = Instant.ofEpochSecond(second);
+        cachedClf = clfFormatter.format(instant);
+        cachedIso = isoFormatter.format(instant);
+        cachedSecond = second;
+    }
+
+    /**
+     * Метод добавляет значение в строку формата CLF: кавычки, обратная косая черта
+     * и управляющие символы экранируются, чтобы значение из запроса не могло подделать строку журнала.
+     * @param line строка журнала.
+     * @param value значение или null.
+     */
+    private static void appendEscaped(@NotNull StringBuilder line, @Nullable String value) {
+        if (value == null || value.isEmpty()) {
+            line.append('-');
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7f) {
+                line.append("\\x").append(hex[c >> 4]).append(hex[c & 0xf]);
+            } else {
+                line.append(c);
+            }
+        }
+    }
+
+    private static void appendJson(@NotNull StringBuilder line, @NotNull String name, @Nullable String value) {
+        line.append(",\"").append(name).append("\":");
+
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append("\\u00").append(hex[c >> 4]).append(hex[c & 0xf]);
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Ячейка кольцевого буфера. Поля записываются производителем после захвата ячейки
+     * и читаются фоновым потоком после публикации через sequence.
+     */
+    private static final class Event {
+        private final AtomicLong sequence;
+        private long claimed;
+        private long timeMillis;
+        private String remote;
+        private String method;
+        private String target;
+        private String protocol;
+        private int status;
+        private long bytes;
+        private long durationNanos;
+        private String referer;
+        private String userAgent;
+
+        Event(long initialSequence) {
+            sequence = new AtomicLong(initialSequence);
+        }
+
+        void clear() {
+            remote = null;
+            method = null;
+            target = null;
+            protocol = null;
+            referer = null;
+            userAgent = null;
+        }
+    }
+}
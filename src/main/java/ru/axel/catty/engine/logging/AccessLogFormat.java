@@ -0,0 +1,19 @@
+package ru.axel.catty.engine.logging;
+
+/**
+ * Формат строки журнала доступа.
+ */
+public enum AccessLogFormat {
+    /**
+     * Common Log Format: адрес, время, строка запроса, код ответа и размер тела.
+     */
+    COMMON,
+    /**
+     * Combined Log Format: COMMON с заголовками Referer и User-Agent.
+     */
+    COMBINED,
+    /**
+     * Одна строка JSON на запрос, дополнительно содержит время обработки в микросекундах.
+     */
+    JSON
+}
@@ -0,0 +1,98 @@
+package ru.axel.catty.engine.logging;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Настройки журнала доступа.
+ */
+public final class AccessLogOptions {
+    private AccessLogFormat format = AccessLogFormat.COMBINED;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private int capacity = 8192;
+    private int batchSize = 256;
+    private long flushIntervalMillis = 1000L;
+
+    /**
+     * Формат строк журнала.
+     * @param logFormat формат.
+     * @return объект настроек.
+     */
+    public AccessLogOptions setFormat(@NotNull AccessLogFormat logFormat) {
+        format = logFormat;
+        return this;
+    }
+
+    /**
+     * Поведение при переполнении буфера.
+     * @param policy политика переполнения.
+     * @return объект настроек.
+     */
+    public AccessLogOptions setOverflowPolicy(@NotNull OverflowPolicy policy) {
+        overflowPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Емкость кольцевого буфера событий, округляется вверх до степени двойки.
+     * @param events количество событий.
+     * @return объект настроек.
+     */
+    public AccessLogOptions setCapacity(int events) {
+        if (events <= 0 || events > 1 << 24) {
+            throw new IllegalArgumentException("Емкость буфера должна быть от 1 до " + (1 << 24));
+        }
+
+        capacity = events == 1 ? 1 : Integer.highestOneBit(events - 1) << 1;
+        return this;
+    }
+
+    /**
+     * Максимальное количество событий, которые форматируются и пишутся за один вызов записи.
+     * @param events количество событий.
+     * @return объект настроек.
+     */
+    public AccessLogOptions setBatchSize(int events) {
+        if (events <= 0) throw new IllegalArgumentException("Размер пакета должен быть больше 0");
+
+        batchSize = events;
+        return this;
+    }
+
+    /**
+     * Максимальное время между сбросом записанных строк на диск, если поток событий не прерывается.
+     * При опустевшем буфере данные сбрасываются сразу.
+     * @param millis время в миллисекундах.
+     * @return объект настроек.
+     */
+    public AccessLogOptions setFlushIntervalMillis(long millis) {
+        if (millis <= 0) throw new IllegalArgumentException("Интервал сброса должен быть больше 0");
+
+        flushIntervalMillis = millis;
+        return this;
+    }
+
+    public AccessLogFormat getFormat() {
+        return format;
+    }
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    public int getCapacity() {
+        return capacity;
+    }
+    public int getBatchSize() {
+        return batchSize;
+    }
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "{ format: " + format +
+            ", overflowPolicy: " + overflowPolicy +
+            ", capacity: " + capacity +
+            ", batchSize: " + batchSize +
+            ", flushIntervalMillis: " + flushIntervalMillis + " }";
+    }
+}
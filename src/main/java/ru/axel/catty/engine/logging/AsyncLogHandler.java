@@ -0,0 +1,114 @@
+package ru.axel.catty.engine.logging;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Обработчик java.util.logging, который передает записи другому обработчику в фоновом потоке.
+ * Поток, вызвавший логгер (например, поток ввода-вывода), только ставит запись в очередь и не ждет
+ * записи на диск или в консоль. При переполнении очереди записи отбрасываются.
+ * Подключение: logger.addHandler(new AsyncLogHandler(new FileHandler("catty.log"))).
+ */
+public class AsyncLogHandler extends Handler {
+    private final Handler target;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<LogRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(); // записи в очереди и выполняемая запись
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncLogHandler(@NotNull Handler targetHandler) {
+        this(targetHandler, 8192);
+    }
+    public AsyncLogHandler(@NotNull Handler targetHandler, int queueCapacity) {
+        if (queueCapacity <= 0) throw new IllegalArgumentException("Размер очереди должен быть больше 0");
+
+        target = targetHandler;
+        capacity = queueCapacity;
+        setLevel(targetHandler.getLevel());
+
+        worker = new Thread(this::run, "catty-async-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (record == null || !running || !isLoggable(record)) return;
+
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+
+        record.getSourceClassName(); // источник вычисляется по стеку вызывающего потока, позже он будет неверным
+        queue.offer(record);
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Метод ждет записи всех принятых записей целевым обработчиком и сбрасывает его.
+     */
+    @Override
+    public void flush() {
+        while (running && size.get() > 0) LockSupport.parkNanos(100_000L);
+        target.flush();
+    }
+
+    /**
+     * Метод записывает оставшиеся записи, останавливает фоновый поток и закрывает целевой обработчик.
+     */
+    @Override
+    public void close() throws SecurityException {
+        running = false;
+        LockSupport.unpark(worker);
+
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        target.close();
+    }
+
+    /**
+     * Метод возвращает количество записей, отброшенных из-за переполнения очереди.
+     * @return количество записей.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        while (true) {
+            final boolean stopping = !running; // до опроса очереди: записи, принятые до close, будут записаны
+            final LogRecord record = queue.poll();
+
+            if (record == null) {
+                if (stopping) break;
+
+                target.flush();
+                LockSupport.park(this);
+                continue;
+            }
+
+            try {
+                target.publish(record);
+            } catch (RuntimeException e) {
+                reportError("Ошибка записи журнала", e, ErrorManager.WRITE_FAILURE);
+            } finally {
+                size.decrementAndGet(); // после записи: flush ждет и запись, которая сейчас выполняется
+            }
+        }
+    }
+}
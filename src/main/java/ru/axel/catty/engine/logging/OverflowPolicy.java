@@ -0,0 +1,16 @@
+package ru.axel.catty.engine.logging;
+
+/**
+ * Поведение при переполнении кольцевого буфера журнала, когда запись на диск не успевает за запросами.
+ */
+public enum OverflowPolicy {
+    /**
+     * Новое событие отбрасывается и учитывается в счетчике потерянных, поток запроса не ждет.
+     */
+    DROP_NEWEST,
+    /**
+     * Поток запроса ждет освобождения места в буфере. События не теряются,
+     * но медленный диск замедляет обработку запросов.
+     */
+    BLOCK
+}
@@ -15,6 +15,14 @@ public class ParametersFromRoute implements RouteExecute {
         @NotNull IHttpCattyRequest request,
         IHttpCattyResponse response
     ) {
+        setParameters(request);
+    }
+
+    /**
+     * Метод переносит параметры вида /{id}/ из пути запроса в параметры запроса.
+     * @param request объект запроса.
+     */
+    static void setParameters(@NotNull IHttpCattyRequest request) {
         final ICattyRoute route = request.getRoute().orElseThrow();
         final String[] splitRoute = route.getPath().split("/");
         final Matcher matcherAllRouteString = RegexPatterns.getParametersFromRoutePath(route.getPath());
@@ -0,0 +1,47 @@
+package ru.axel.catty.engine.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.function.Predicate;
+
+/**
+ * Плагин с областью действия.
+ * Хранится в конвейере как обычный {@link RouteExecute}, область действия проверяется при сборке цепочки маршрута.
+ */
+final class Plugin implements RouteExecute {
+    private final PluginExecute execute;
+    private final Predicate<ICattyRoute> scope;
+
+    Plugin(@NotNull PluginExecute pluginExecute, @Nullable Predicate<ICattyRoute> routeScope) {
+        execute = pluginExecute;
+        scope = routeScope;
+    }
+
+    /**
+     * Метод проверяет, относится ли плагин к маршруту.
+     * @param route маршрут или null, если маршрут не найден.
+     * @return true, если плагин должен выполняться для маршрута.
+     */
+    boolean isApplicable(@Nullable ICattyRoute route) {
+        return scope == null || (route != null && scope.test(route));
+    }
+
+    PluginExecute getExecute() {
+        return execute;
+    }
+
+    @Override
+    public void exec(
+        IHttpCattyRequest request,
+        IHttpCattyResponse response
+    ) throws IOException, URISyntaxException {
+        execute.exec(request, response);
+    }
+}
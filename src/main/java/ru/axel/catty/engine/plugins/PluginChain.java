@@ -0,0 +1,67 @@
+package ru.axel.catty.engine.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.tracing.RequestTrace;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.logging.Logger;
+
+/**
+ * Цепочка плагинов, собранная для конкретного маршрута.
+ * Содержит только применимые к маршруту плагины в порядке конвейера.
+ */
+public final class PluginChain {
+    private final Logger logger;
+    private final String[] names;
+    private final String[] spanNames; // имена интервалов трассы, чтобы не собирать строки на каждый запрос
+    private final PluginExecute[] stages;
+
+    PluginChain(Logger loggerInstance, String @NotNull [] stageNames, PluginExecute @NotNull [] chainStages) {
+        logger = loggerInstance;
+        names = stageNames;
+        stages = chainStages;
+        spanNames = new String[stageNames.length];
+        for (int i = 0; i < stageNames.length; i++) spanNames[i] = "plugin " + stageNames[i];
+    }
+
+    /**
+     * Метод последовательно выполняет плагины цепочки.
+     * Ошибка ввода-вывода в плагине добавляется в запрос и не прерывает цепочку.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @return false, если один из плагинов прервал цепочку.
+     */
+    public boolean exec(
+        IHttpCattyRequest request,
+        IHttpCattyResponse response
+    ) {
+        final RequestTrace trace = request.getTrace();
+
+        for (int i = 0; i < stages.length; i++) {
+            final long start = trace == null ? 0 : System.nanoTime();
+
+            try {
+                if (!stages[i].exec(request, response)) return false;
+            } catch (IOException | URISyntaxException e) {
+                logger.severe("Ошибка в плагине " + names[i] + ": " + e.getLocalizedMessage());
+                logger.throwing(PluginChain.class.getName(), "exec", e);
+                request.addException(e);
+            } finally {
+                if (trace != null) trace.span(spanNames[i], start);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Метод возвращает количество плагинов в цепочке.
+     * @return количество плагинов.
+     */
+    public int size() {
+        return stages.length;
+    }
+}
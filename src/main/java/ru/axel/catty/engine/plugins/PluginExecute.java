@@ -0,0 +1,25 @@
+package ru.axel.catty.engine.plugins;
+
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * Исполняющий код плагина, который может прервать цепочку плагинов.
+ */
+@FunctionalInterface
+public interface PluginExecute {
+    /**
+     * Обработка запроса плагином.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @return true - продолжить цепочку, false - ответ уже сформирован,
+     * оставшиеся плагины и обработчик маршрута не выполняются.
+     */
+    boolean exec(
+        IHttpCattyRequest request,
+        IHttpCattyResponse response
+    ) throws IOException, URISyntaxException;
+}
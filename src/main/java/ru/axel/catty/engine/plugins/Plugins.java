@@ -1,24 +1,163 @@
 package ru.axel.catty.engine.plugins;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.axel.catty.engine.request.IHttpCattyRequest;
 import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.routing.ICattyRoute;
 import ru.axel.catty.engine.routing.RouteExecute;
+import ru.axel.catty.engine.routing.RouteForget;
 import ru.axel.conveyor.Conveyor;
+import ru.axel.conveyor.PipelinesException;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Хранилище исполняющего кода плагинов.
+ * Для каждого маршрута плагины собираются в отдельную цепочку {@link PluginChain}, в которую попадают
+ * только плагины с подходящей областью действия. Цепочка собирается при первом запросе к маршруту
+ * (или заранее через {@link #compile(ICattyRoute)}) и пересобирается после изменения состава плагинов.
+ * Изменение состава заменяет кэш цепочек новым пустым: цепочка, сборка которой началась до изменения,
+ * попадает в старый кэш и не возвращается в работу. Цепочка собирается из копии конвейера, снятой под блокировкой,
+ * поэтому изменение состава во время сборки не ломает обход.
  */
-public class Plugins extends Conveyor<String, RouteExecute> implements RouteExecute {
+public class Plugins extends Conveyor<String, RouteExecute> implements RouteExecute, RouteForget {
     private final Logger logger;
+    private volatile ChainCache cache = new ChainCache();
+
+    /**
+     * Собранные цепочки одного состава плагинов.
+     */
+    private static final class ChainCache {
+        private final Map<ICattyRoute, PluginChain> chains = new ConcurrentHashMap<>();
+        private volatile PluginChain withoutRouteChain;
+    }
+
     public Plugins(Logger loggerInstance) {
         super(loggerInstance);
 
         logger = loggerInstance;
-        this.addPipelines("parameters", new ParametersFromRoute());
+        this.addPlugin("parameters", route -> route.getPath().contains("{"), (request, response) -> {
+            ParametersFromRoute.setParameters(request);
+            return true;
+        });
+    }
+
+    /**
+     * Метод добавляет плагин, который выполняется для всех маршрутов и может прервать цепочку.
+     * @param name имя плагина.
+     * @param plugin исполняющий код плагина.
+     */
+    public void addPlugin(String name, @NotNull PluginExecute plugin) {
+        addPipelines(name, new Plugin(plugin, null));
+    }
+
+    /**
+     * Метод добавляет плагин, который выполняется только для маршрутов, начинающихся с префикса.
+     * @param name имя плагина.
+     * @param pathPrefix префикс пути маршрута.
+     * @param plugin исполняющий код плагина.
+     */
+    public void addPlugin(String name, @NotNull String pathPrefix, @NotNull PluginExecute plugin) {
+        addPlugin(name, route -> route.getPath().startsWith(pathPrefix), plugin);
+    }
+
+    /**
+     * Метод добавляет плагин с произвольной областью действия.
+     * @param name имя плагина.
+     * @param scope условие применения плагина к маршруту.
+     * @param plugin исполняющий код плагина.
+     */
+    public void addPlugin(String name, @NotNull Predicate<ICattyRoute> scope, @NotNull PluginExecute plugin) {
+        addPipelines(name, new Plugin(plugin, scope));
+    }
+
+    @Override
+    public synchronized void addPipelines(String name, RouteExecute executor) {
+        super.addPipelines(name, executor);
+        invalidate();
+    }
+
+    @Override
+    public synchronized void addPipelinesAfter(String after, String name, RouteExecute executor) throws PipelinesException {
+        super.addPipelinesAfter(after, name, executor);
+        invalidate();
+    }
+
+    @Override
+    public synchronized void addPipelinesBefore(String before, String name, RouteExecute executor) throws PipelinesException {
+        super.addPipelinesBefore(before, name, executor);
+        invalidate();
+    }
+
+    /**
+     * Метод собирает цепочку плагинов для маршрута.
+     * @param route маршрут или null для запросов без маршрута.
+     * @return цепочка плагинов.
+     */
+    public @NotNull PluginChain compile(@Nullable ICattyRoute route) {
+        final List<String> names = new ArrayList<>();
+        final List<PluginExecute> stages = new ArrayList<>();
+
+        snapshot().forEach((name, executor) -> {
+            if (executor instanceof Plugin plugin) {
+                if (!plugin.isApplicable(route)) return;
+                stages.add(plugin.getExecute());
+            } else {
+                stages.add((request, response) -> {
+                    executor.exec(request, response);
+                    return true;
+                });
+            }
+            names.add(name);
+        });
+
+        if (logger.isLoggable(Level.CONFIG)) {
+            logger.config(
+                "Собрана цепочка плагинов для " + (route == null ? "запросов без маршрута" : route.getPath()) + ": " + names
+            );
+        }
+
+        return new PluginChain(logger, names.toArray(String[]::new), stages.toArray(PluginExecute[]::new));
+    }
+
+    /**
+     * Метод возвращает цепочку плагинов маршрута, собирая ее при первом обращении.
+     * @param route маршрут или null для запросов без маршрута.
+     * @return цепочка плагинов.
+     */
+    public @NotNull PluginChain getChain(@Nullable ICattyRoute route) {
+        final ChainCache current = cache;
+
+        if (route == null) {
+            PluginChain chain = current.withoutRouteChain;
+            if (chain == null) current.withoutRouteChain = chain = compile(null);
+
+            return chain;
+        }
+
+        return current.chains.computeIfAbsent(route, this::compile);
+    }
+
+    /**
+     * Метод выполняет цепочку плагинов маршрута запроса.
+     * @param request объект запроса.
+     * @param response объект ответа.
+     * @return false, если один из плагинов прервал цепочку и обработчик маршрута выполнять не нужно.
+     */
+    public boolean execute(
+        @NotNull IHttpCattyRequest request,
+        IHttpCattyResponse response
+    ) {
+        return getChain(request.getRoute().orElse(null)).exec(request, response);
     }
 
     /**
@@ -31,15 +170,36 @@ public class Plugins extends Conveyor<String, RouteExecute> implements RouteExec
         IHttpCattyRequest request,
         IHttpCattyResponse response
     ) {
-        getPipelines().values().forEach(executor -> {
-            try {
-                executor.exec(request, response);
-            } catch (IOException | URISyntaxException e) {
-                logger.throwing(Plugins.class.getName(), "exec", e);
-                request.addException(e);
-
-                e.printStackTrace();
+        execute(request, response);
+    }
+
+    /**
+     * Метод удаляет собранные цепочки маршрутов, например удаленных из таблицы маршрутов при замене набора.
+     * Плагины, которые сами хранят данные маршрутов ({@link RouteForget}, например ETagPlugin), тоже их удаляют.
+     * Подключение: routing.addRouteForget(plugins).
+     * @param routes маршруты.
+     */
+    @Override
+    public void forget(@NotNull Collection<? extends ICattyRoute> routes) {
+        final ChainCache current = cache;
+        for (ICattyRoute route : routes) current.chains.remove(route);
+
+        snapshot().forEach((name, executor) -> {
+            if (executor instanceof Plugin plugin && plugin.getExecute() instanceof RouteForget forget) {
+                forget.forget(routes);
             }
         });
     }
+
+    /**
+     * Метод возвращает копию конвейера плагинов.
+     * @return плагины в порядке выполнения.
+     */
+    private synchronized @NotNull Map<String, RouteExecute> snapshot() {
+        return new LinkedHashMap<>(getPipelines());
+    }
+
+    private void invalidate() {
+        cache = new ChainCache();
+    }
 }
@@ -0,0 +1,16 @@
+package ru.axel.catty.engine.proxy;
+
+/**
+ * Способ выбора сервера для очередного запроса прокси.
+ */
+public enum Balancing {
+    /**
+     * Серверы выбираются по кругу.
+     */
+    ROUND_ROBIN,
+    /**
+     * Выбирается сервер с наименьшим количеством незавершенных запросов,
+     * при равенстве - следующий по кругу.
+     */
+    LEAST_OUTSTANDING
+}
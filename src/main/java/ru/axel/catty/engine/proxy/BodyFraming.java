@@ -0,0 +1,159 @@
+package ru.axel.catty.engine.proxy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Определение конца тела ответа сервера по Content-Length, chunked или закрытию соединения.
+ * Байты тела проходят через разбор без изменений: разбор только считает, сколько байт относится к ответу,
+ * и при необходимости собирает данные chunked тела без разметки.
+ */
+final class BodyFraming {
+    private static final int LENGTH = 0;
+    private static final int UNTIL_CLOSE = 1;
+    private static final int CHUNK_SIZE = 2;
+    private static final int CHUNK_EXTENSION = 3;
+    private static final int CHUNK_DATA = 4;
+    private static final int CHUNK_DATA_END = 5;
+    private static final int TRAILER = 6;
+    private static final int DONE = 7;
+    private static final int maxChunkSizeDigits = 15;
+
+    private int state;
+    private long remaining;
+    private int digits;
+    private int lineLength;
+
+    private BodyFraming(int initialState, long length) {
+        state = initialState;
+        remaining = length;
+        if (state == LENGTH && remaining == 0) state = DONE;
+    }
+
+    /**
+     * Ответ без тела (HEAD, 204, 304).
+     * @return разбор тела.
+     */
+    static @NotNull BodyFraming none() {
+        return new BodyFraming(LENGTH, 0);
+    }
+    static @NotNull BodyFraming length(long contentLength) {
+        return new BodyFraming(LENGTH, contentLength);
+    }
+    static @NotNull BodyFraming chunked() {
+        return new BodyFraming(CHUNK_SIZE, 0);
+    }
+    static @NotNull BodyFraming untilClose() {
+        return new BodyFraming(UNTIL_CLOSE, 0);
+    }
+
+    /**
+     * Метод разбирает очередную часть данных ответа.
+     * @param data массив данных.
+     * @param offset начало данных.
+     * @param length длина данных.
+     * @param decoded приемник данных тела без разметки chunked или null.
+     * @return количество байт, относящихся к ответу; остальные байты ответу не принадлежат.
+     * @throws IOException некорректная разметка chunked.
+     */
+    int consume(byte @NotNull [] data, int offset, int length, @Nullable ByteArrayOutputStream decoded) throws IOException {
+        final int end = offset + length;
+        int position = offset;
+
+        while (position < end && state != DONE) {
+            switch (state) {
+                case LENGTH -> {
+                    final int count = (int) Math.min(remaining, end - position);
+
+                    if (decoded != null) decoded.write(data, position, count);
+                    position += count;
+                    remaining -= count;
+                    if (remaining == 0) state = DONE;
+                }
+                case UNTIL_CLOSE -> {
+                    if (decoded != null) decoded.write(data, position, end - position);
+                    position = end;
+                }
+                case CHUNK_SIZE -> {
+                    final byte symbol = data[position++];
+                    final int digit = Character.digit(symbol, 16);
+
+                    if (digit >= 0) {
+                        if (++digits > maxChunkSizeDigits) throw new IOException("Слишком большой размер chunk");
+                        remaining = remaining * 16 + digit;
+                    } else if (symbol == ';' || symbol == ' ' || symbol == '\t' || symbol == '\r') {
+                        state = CHUNK_EXTENSION;
+                    } else if (symbol == '\n') {
+                        endOfSize();
+                    } else {
+                        throw new IOException("Некорректный размер chunk");
+                    }
+                }
+                case CHUNK_EXTENSION -> {
+                    if (data[position++] == '\n') endOfSize();
+                }
+                case CHUNK_DATA -> {
+                    final int count = (int) Math.min(remaining, end - position);
+
+                    if (decoded != null) decoded.write(data, position, count);
+                    position += count;
+                    remaining -= count;
+                    if (remaining == 0) state = CHUNK_DATA_END;
+                }
+                case CHUNK_DATA_END -> {
+                    final byte symbol = data[position++];
+
+                    if (symbol == '\n') {
+                        state = CHUNK_SIZE;
+                    } else if (symbol != '\r') {
+                        throw new IOException("Нет перевода строки после данных chunk");
+                    }
+                }
+                case TRAILER -> {
+                    final byte symbol = data[position++];
+
+                    if (symbol == '\n') {
+                        if (lineLength == 0) state = DONE;
+                        lineLength = 0;
+                    } else if (symbol != '\r') {
+                        lineLength++;
+                    }
+                }
+                default -> throw new IllegalStateException("Неизвестное состояние разбора: " + state);
+            }
+        }
+
+        return position - offset;
+    }
+
+    private void endOfSize() throws IOException {
+        if (digits == 0) throw new IOException("Пустой размер chunk");
+
+        digits = 0;
+        if (remaining == 0) {
+            state = TRAILER;
+            lineLength = 0;
+        } else {
+            state = CHUNK_DATA;
+        }
+    }
+
+    /**
+     * Метод проверяет, получен ли ответ целиком.
+     * @return true, если тело закончилось.
+     */
+    boolean isComplete() {
+        return state == DONE;
+    }
+
+    /**
+     * Метод проверяет, может ли закрытие соединения сервером завершить тело.
+     * @return true, если тело ограничено закрытием соединения.
+     */
+    boolean isUntilClose() {
+        return state == UNTIL_CLOSE;
+    }
+}
@@ -0,0 +1,216 @@
+package ru.axel.catty.engine.proxy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Настройки обратного прокси: таймауты, пул соединений, балансировка и пассивная проверка доступности.
+ */
+public final class ProxyOptions {
+    private long connectTimeoutMillis = 2_000;
+    private long readTimeoutMillis = 30_000;
+    private int maxIdlePerUpstream = 32;
+    private long idleTimeoutSeconds = 60;
+    private Balancing balancing = Balancing.ROUND_ROBIN;
+    private int maxFails = 3;
+    private long failTimeoutSeconds = 10;
+    private int bufferSize = 16 * 1024;
+    private int maxBufferedBody = 16 * 1024 * 1024;
+    private String stripPrefix = null;
+    private boolean preserveHost = false;
+    private boolean forwardedHeaders = true;
+
+    /**
+     * Время установки соединения с сервером.
+     * @param millis время в миллисекундах.
+     * @return объект настроек.
+     */
+    public ProxyOptions setConnectTimeoutMillis(long millis) {
+        if (millis <= 0) throw new IllegalArgumentException("Время установки соединения должно быть больше 0");
+
+        connectTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Время ожидания данных от сервера: заголовков ответа и каждой следующей части тела.
+     * @param millis время в миллисекундах.
+     * @return объект настроек.
+     */
+    public ProxyOptions setReadTimeoutMillis(long millis) {
+        if (millis <= 0) throw new IllegalArgumentException("Время ожидания ответа должно быть больше 0");
+
+        readTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Максимальное количество свободных соединений, хранимых в пуле для каждого сервера.
+     * @param count количество соединений, 0 - соединения не переиспользуются.
+     * @return объект настроек.
+     */
+    public ProxyOptions setMaxIdlePerUpstream(int count) {
+        if (count < 0) throw new IllegalArgumentException("Размер пула не может быть отрицательным");
+
+        maxIdlePerUpstream = count;
+        return this;
+    }
+
+    /**
+     * Время, после которого свободное соединение закрывается вместо повторного использования.
+     * Должно быть меньше таймаута keep-alive сервера.
+     * @param seconds время в секундах.
+     * @return объект настроек.
+     */
+    public ProxyOptions setIdleTimeoutSeconds(long seconds) {
+        if (seconds <= 0) throw new IllegalArgumentException("Время простоя должно быть больше 0");
+
+        idleTimeoutSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Способ выбора сервера.
+     * @param method способ балансировки.
+     * @return объект настроек.
+     */
+    public ProxyOptions setBalancing(@NotNull Balancing method) {
+        balancing = method;
+        return this;
+    }
+
+    /**
+     * Пассивная проверка доступности: после указанного количества ошибок подряд (соединение, запись, таймаут,
+     * некорректный ответ) сервер исключается из балансировки на {@link #setFailTimeoutSeconds}.
+     * @param count количество ошибок.
+     * @return объект настроек.
+     */
+    public ProxyOptions setMaxFails(int count) {
+        if (count < 1) throw new IllegalArgumentException("Количество ошибок должно быть больше 0");
+
+        maxFails = count;
+        return this;
+    }
+
+    /**
+     * Время, на которое недоступный сервер исключается из балансировки.
+     * После него сервер снова получает запросы, первая же ошибка исключает его повторно.
+     * @param seconds время в секундах.
+     * @return объект настроек.
+     */
+    public ProxyOptions setFailTimeoutSeconds(long seconds) {
+        if (seconds <= 0) throw new IllegalArgumentException("Время исключения должно быть больше 0");
+
+        failTimeoutSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Размер буфера соединения с сервером. Заголовки ответа должны помещаться в буфер целиком,
+     * тело ответа передается клиенту частями этого размера.
+     * @param bytes размер в байтах.
+     * @return объект настроек.
+     */
+    public ProxyOptions setBufferSize(int bytes) {
+        if (bytes < 1024) throw new IllegalArgumentException("Размер буфера должен быть не меньше 1024 байт");
+
+        bufferSize = bytes;
+        return this;
+    }
+
+    /**
+     * Максимальный размер тела ответа, которое собирается целиком, если клиенту нельзя передавать тело
+     * по частям (HTTP/2). Ответ с большим телом заменяется ответом 502.
+     * @param bytes размер в байтах.
+     * @return объект настроек.
+     */
+    public ProxyOptions setMaxBufferedBody(int bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Размер тела не может быть отрицательным");
+
+        maxBufferedBody = bytes;
+        return this;
+    }
+
+    /**
+     * Префикс пути, который удаляется перед отправкой запроса серверу, например "/legacy".
+     * @param prefix префикс или null - путь передается без изменений.
+     * @return объект настроек.
+     */
+    public ProxyOptions setStripPrefix(@Nullable String prefix) {
+        stripPrefix = prefix == null || prefix.isEmpty() ? null : prefix;
+        return this;
+    }
+
+    /**
+     * Передавать серверу заголовок Host клиента вместо адреса сервера.
+     * @param preserve передавать Host клиента.
+     * @return объект настроек.
+     */
+    public ProxyOptions setPreserveHost(boolean preserve) {
+        preserveHost = preserve;
+        return this;
+    }
+
+    /**
+     * Добавлять заголовки X-Forwarded-For и X-Forwarded-Host.
+     * @param enabled добавлять заголовки.
+     * @return объект настроек.
+     */
+    public ProxyOptions setForwardedHeaders(boolean enabled) {
+        forwardedHeaders = enabled;
+        return this;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+    public int getMaxIdlePerUpstream() {
+        return maxIdlePerUpstream;
+    }
+    public long getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+    public @NotNull Balancing getBalancing() {
+        return balancing;
+    }
+    public int getMaxFails() {
+        return maxFails;
+    }
+    public long getFailTimeoutSeconds() {
+        return failTimeoutSeconds;
+    }
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    public int getMaxBufferedBody() {
+        return maxBufferedBody;
+    }
+    public @Nullable String getStripPrefix() {
+        return stripPrefix;
+    }
+    public boolean isPreserveHost() {
+        return preserveHost;
+    }
+    public boolean isForwardedHeaders() {
+        return forwardedHeaders;
+    }
+
+    @Override
+    public String toString() {
+        return "{ connectTimeoutMillis: " + connectTimeoutMillis +
+            ", readTimeoutMillis: " + readTimeoutMillis +
+            ", maxIdlePerUpstream: " + maxIdlePerUpstream +
+            ", idleTimeoutSeconds: " + idleTimeoutSeconds +
+            ", balancing: " + balancing +
+            ", maxFails: " + maxFails +
+            ", failTimeoutSeconds: " + failTimeoutSeconds +
+            ", bufferSize: " + bufferSize +
+            ", maxBufferedBody: " + maxBufferedBody +
+            ", stripPrefix: " + stripPrefix +
+            ", preserveHost: " + preserveHost +
+            ", forwardedHeaders: " + forwardedHeaders + " }";
+    }
+}
@@ -0,0 +1,181 @@
+package ru.axel.catty.engine.proxy;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.handler.IConnectionUpgrade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Передача тела ответа сервера клиенту по частям размером с буфер соединения.
+ * Запускается после отправки клиенту заголовков ответа: чтение следующей части начинается только после записи
+ * предыдущей, поэтому медленный клиент не приводит к накоплению тела в памяти.
+ * После окончания тела соединение с сервером возвращается в пул, а соединение с клиентом закрывается.
+ * Байты тела, оставшиеся в буфере соединения при создании, уже учтены разбором тела и отправляются без разбора.
+ */
+final class ProxyStream implements IConnectionUpgrade {
+    private final UpstreamConnection connection;
+    private final BodyFraming framing;
+    private final boolean keepAlive;
+    private final ProxyOptions options;
+    private final ByteBuffer buffer;
+    private final WriteHandler writeHandler = new WriteHandler();
+    private final ReadHandler readHandler = new ReadHandler();
+    private AsynchronousSocketChannel client;
+    private Logger logger;
+    private boolean extraBytes = false;
+    private boolean counted = true;
+
+    ProxyStream(
+        @NotNull UpstreamConnection upstreamConnection,
+        @NotNull BodyFraming bodyFraming,
+        boolean upstreamKeepAlive,
+        @NotNull ProxyOptions proxyOptions
+    ) {
+        connection = upstreamConnection;
+        framing = bodyFraming;
+        keepAlive = upstreamKeepAlive;
+        options = proxyOptions;
+        buffer = connection.getBuffer();
+    }
+
+    @Override
+    public void upgrade(@NotNull AsynchronousSocketChannel clientChannel, @NotNull Logger loggerInstance) {
+        client = clientChannel;
+        logger = loggerInstance;
+        pump();
+    }
+
+    /**
+     * Метод отправляет клиенту прочитанную часть тела или читает следующую часть.
+     */
+    private void pump() {
+        if (buffer.hasRemaining()) {
+            int count = buffer.remaining();
+
+            if (!counted) {
+                try {
+                    count = framing.consume(buffer.array(), buffer.position(), buffer.remaining(), null);
+                } catch (IOException e) {
+                    finish(false, e);
+                    return;
+                }
+            }
+            counted = false;
+
+            if (count < buffer.remaining()) extraBytes = true; // лишние данные после ответа: соединение не переиспользуется
+
+            final ByteBuffer part = buffer.duplicate();
+            part.limit(buffer.position() + count);
+            buffer.position(buffer.position() + count);
+
+            try {
+                client.write(part, part, writeHandler);
+            } catch (Throwable exc) {
+                clientGone(exc);
+            }
+            return;
+        }
+
+        if (framing.isComplete()) {
+            finish(true, null);
+            return;
+        }
+
+        counted = false;
+        buffer.clear();
+        try {
+            connection.getChannel().read(buffer, options.getReadTimeoutMillis(), TimeUnit.MILLISECONDS, null, readHandler);
+        } catch (Throwable exc) {
+            finish(false, exc);
+        }
+    }
+
+    /**
+     * Завершение передачи тела.
+     * @param success тело получено от сервера без ошибок.
+     * @param exc ошибка сервера или null.
+     */
+    private void finish(boolean success, Throwable exc) {
+        final Upstream upstream = connection.getUpstream();
+
+        closeClient();
+        upstream.release(connection, success && keepAlive && framing.isComplete() && !extraBytes, options);
+
+        if (success) {
+            upstream.succeeded();
+        } else {
+            upstream.failed(options);
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.warning("Ошибка передачи ответа " + upstream.getHostHeader() + ": " + exc);
+            }
+        }
+
+        upstream.finished();
+    }
+
+    /**
+     * Клиент отключился: остаток ответа не читается, поэтому соединение с сервером закрывается.
+     * Ошибкой сервера это не считается.
+     * @param exc ошибка записи.
+     */
+    private void clientGone(@NotNull Throwable exc) {
+        if (logger.isLoggable(Level.FINE)) logger.fine("Клиент прокси отключился: " + exc);
+
+        closeClient();
+        connection.getUpstream().release(connection, false, options);
+        connection.getUpstream().finished();
+    }
+
+    private void closeClient() {
+        try {
+            client.close();
+        } catch (IOException exc) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка закрытия соединения клиента: " + exc);
+        }
+    }
+
+    private final class WriteHandler implements CompletionHandler<Integer, ByteBuffer> {
+        @Override
+        public void completed(Integer result, ByteBuffer part) {
+            if (part.hasRemaining()) {
+                client.write(part, part, this);
+                return;
+            }
+
+            pump();
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer part) {
+            clientGone(exc);
+        }
+    }
+
+    private final class ReadHandler implements CompletionHandler<Integer, Void> {
+        @Override
+        public void completed(Integer result, Void attachment) {
+            if (result < 0) {
+                if (framing.isUntilClose()) {
+                    finish(true, null);
+                } else {
+                    finish(false, new IOException("Сервер закрыл соединение до конца ответа"));
+                }
+                return;
+            }
+
+            buffer.flip();
+            pump();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            finish(false, exc);
+        }
+    }
+}
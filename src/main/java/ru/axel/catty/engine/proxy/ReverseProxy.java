@@ -0,0 +1,524 @@
+package ru.axel.catty.engine.proxy;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.IHttpHeaders;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Обработчик маршрута, передающий запрос одному из серверов (reverse proxy) по HTTP/1.1.
+ * Соединения с серверами держатся в пуле keep-alive ({@link Upstream}), сервер выбирается по {@link Balancing},
+ * серверы с ошибками подряд временно исключаются из выбора (пассивная проверка доступности).
+ * Тело запроса передается из буфера полученного запроса без копирования. Тело ответа клиенту HTTP/1.1
+ * передается по частям через {@link ru.axel.catty.engine.handler.IConnectionUpgrade}, клиенту HTTP/2 -
+ * целиком, но не более maxBufferedBody.
+ * Недоступный сервер дает ответ 502, таймаут сервера - 504.
+ * Запрос повторяется на новом соединении, только если метод идемпотентный (GET, HEAD, OPTIONS, PUT, DELETE),
+ * соединение взято из пула и сервер не прислал ни одного байта ответа: так сервер, закрывший простаивающее
+ * соединение, не приводит к ошибке, а запрос с побочными эффектами не выполняется дважды.
+ * Обмен с сервером блокирующий: поток обработчика ждет запись, заголовок ответа и тело небольшого ответа
+ * (до connectTimeout и readTimeout на каждую операцию), поэтому маршруты прокси стоит выполнять
+ * в отдельной группе {@link ru.axel.catty.engine.bulkhead.Bulkhead} с пулом, рассчитанным на задержку серверов.
+ */
+public final class ReverseProxy implements RouteExecute {
+    private static final byte[] headEnd = { '\r', '\n', '\r', '\n' };
+    private static final int maxSmallBody = 8 * 1024;
+    private static final Set<String> idempotent = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+    private static final Set<String> hopByHop = Set.of(
+        "connection", "keep-alive", "proxy-connection", "te", "trailer", "upgrade", "expect", "transfer-encoding"
+    );
+
+    private final List<Upstream> upstreams;
+    private final ProxyOptions options;
+    private final Logger logger;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder badGateway = new LongAdder();
+
+    public ReverseProxy(
+        @NotNull List<InetSocketAddress> addresses,
+        @NotNull ProxyOptions proxyOptions,
+        @NotNull Logger loggerInstance
+    ) {
+        if (addresses.isEmpty()) throw new IllegalArgumentException("Не задан ни один сервер прокси");
+
+        final List<Upstream> list = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) list.add(new Upstream(address));
+
+        upstreams = Collections.unmodifiableList(list);
+        options = proxyOptions;
+        logger = loggerInstance;
+    }
+
+    @Override
+    public void exec(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final Upstream upstream = choose();
+        final byte[] head = requestHead(request, upstream);
+        final ByteBuffer body = request.getBodyBuffer();
+        boolean handedOff = false;
+
+        upstream.started();
+        try {
+            UpstreamConnection connection = upstream.acquire(options);
+            int headLength;
+
+            try {
+                send(connection, head, body);
+                headLength = readHead(connection);
+            } catch (IOException e) {
+                // сервер мог закрыть простаивающее соединение: повтор на новом соединении, если ответ еще не начат
+                if (!isRetryable(request, connection, e)) {
+                    connection.close();
+                    throw e;
+                }
+
+                connection.close();
+                retries.increment();
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine("Повтор запроса к " + upstream.getHostHeader() + " на новом соединении: " + e);
+                }
+
+                connection = upstream.connect(options);
+                send(connection, head, body);
+                headLength = readHead(connection);
+            }
+
+            try {
+                handedOff = respond(connection, headLength, request, response);
+            } catch (IOException e) {
+                connection.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            upstream.failed(options);
+            badGateway.increment();
+
+            final ResponseCode code = e instanceof InterruptedByTimeoutException
+                ? ResponseCode.GATEWAY_TIMEOUT
+                : ResponseCode.BAD_GATEWAY;
+
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.warning("Ошибка прокси " + request.getMethod() + " " + request.getPath().orElse("")
+                    + " -> " + upstream.getHostHeader() + ": " + e);
+            }
+
+            response.getHeaders().clear();
+            response.setUpgrade(null);
+            response.respond(code, code.getReason());
+        } finally {
+            if (!handedOff) upstream.finished();
+        }
+    }
+
+    /**
+     * Метод проверяет, можно ли повторить запрос после ошибки обмена с сервером.
+     * Сервер, приславший хотя бы один байт ответа, получил и начал обрабатывать запрос; таймаут означает,
+     * что сервер мог получить запрос и еще обрабатывать его.
+     * @param request запрос клиента.
+     * @param connection соединение, на котором произошла ошибка.
+     * @param error ошибка.
+     * @return true, если метод идемпотентный, соединение взято из пула и ответ не начат.
+     */
+    private static boolean isRetryable(
+        @NotNull IHttpCattyRequest request,
+        @NotNull UpstreamConnection connection,
+        @NotNull IOException error
+    ) {
+        return idempotent.contains(request.getMethod())
+            && connection.isReused()
+            && connection.getBuffer().position() == 0
+            && !(error instanceof InterruptedByTimeoutException);
+    }
+
+    /**
+     * Метод выбирает сервер для запроса, пропуская исключенные серверы.
+     * Если исключены все серверы, выбирается очередной по кругу.
+     * @return сервер.
+     */
+    private @NotNull Upstream choose() {
+        final int size = upstreams.size();
+        final int start = Math.floorMod(next.getAndIncrement(), size);
+        final long now = System.nanoTime();
+        Upstream chosen = null;
+
+        for (int i = 0; i < size; i++) {
+            final Upstream upstream = upstreams.get((start + i) % size);
+
+            if (!upstream.isAvailable(now)) continue;
+            if (options.getBalancing() == Balancing.ROUND_ROBIN) return upstream;
+            if (upstream.lessLoadedThan(chosen)) chosen = upstream;
+        }
+
+        return chosen != null ? chosen : upstreams.get(start);
+    }
+
+    /**
+     * Метод формирует стартовую строку и заголовки запроса к серверу.
+     * Заголовки hop-by-hop и перечисленные в Connection не передаются.
+     * @param request запрос клиента.
+     * @param upstream сервер.
+     * @return заголовок запроса в кодировке UTF-8.
+     */
+    private byte @NotNull [] requestHead(@NotNull IHttpCattyRequest request, @NotNull Upstream upstream) {
+        final IHttpHeaders headers = request.getAllHeaders();
+        final StringBuilder head = new StringBuilder(256 + headers.size() * 48);
+        final Set<String> connectionTokens = connectionTokens(headers);
+        final String rawQuery = request.getRawQuery();
+        String path = request.getPath().orElse("/");
+
+        final String stripPrefix = options.getStripPrefix();
+        if (stripPrefix != null && path.startsWith(stripPrefix)) {
+            path = path.substring(stripPrefix.length());
+            if (path.isEmpty() || path.charAt(0) != '/') path = "/" + path;
+        }
+
+        head.append(request.getMethod()).append(' ').append(path);
+        if (rawQuery != null) head.append('?').append(rawQuery);
+        head.append(" HTTP/1.1\r\n");
+
+        String clientHost = null;
+        String forwardedFor = null;
+        boolean hasLength = false;
+
+        for (int i = 0; i < headers.size(); i++) {
+            final String name = headers.getName(i);
+            final String lower = name.toLowerCase(Locale.ROOT);
+
+            if (name.startsWith(":") || hopByHop.contains(lower) || connectionTokens.contains(lower)) continue;
+            if (lower.equals("content-length")) {
+                hasLength = true; // длина задается по телу, полученному движком
+                continue;
+            }
+            if (lower.equals("host")) {
+                clientHost = headers.getValue(i);
+                if (!options.isPreserveHost()) continue;
+            }
+            if (lower.equals("traceparent") && request.getTrace() != null) continue;
+            if (options.isForwardedHeaders() && lower.equals("x-forwarded-for")) {
+                forwardedFor = forwardedFor == null ? headers.getValue(i) : forwardedFor + ", " + headers.getValue(i);
+                continue;
+            }
+
+            head.append(name).append(": ").append(headers.getValue(i)).append("\r\n");
+        }
+
+        if (clientHost == null) clientHost = headers.get(":authority");
+        if (!options.isPreserveHost() || clientHost == null) {
+            head.append("Host: ").append(upstream.getHostHeader()).append("\r\n");
+        } else if (headers.get(Headers.HOST) == null) {
+            head.append("Host: ").append(clientHost).append("\r\n");
+        }
+
+        if (options.isForwardedHeaders()) {
+            final String remote = request.getClientInfo() != null ? request.getClientInfo().getRemoteAddress() : "";
+
+            head.append("X-Forwarded-For: ").append(forwardedFor == null ? remote : forwardedFor + ", " + remote).append("\r\n");
+            if (clientHost != null) head.append("X-Forwarded-Host: ").append(clientHost).append("\r\n");
+        }
+        if (request.getTrace() != null) {
+            head.append(Headers.TRACEPARENT.getHeaderName()).append(": ").append(request.getTrace().getTraceparent()).append("\r\n");
+        }
+
+        final int bodyLength = request.getBodyBuffer().remaining();
+        if (bodyLength > 0 || hasLength) {
+            head.append("Content-Length: ").append(bodyLength).append("\r\n");
+        }
+
+        return head.append("\r\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static @NotNull Set<String> connectionTokens(@NotNull IHttpHeaders headers) {
+        final List<String> values = headers.getAll(Headers.CONNECTION);
+        if (values.isEmpty()) return Set.of();
+
+        final Set<String> tokens = new HashSet<>();
+        for (String value : values) {
+            for (String token : value.split(",")) tokens.add(token.trim().toLowerCase(Locale.ROOT));
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Метод отправляет запрос серверу. Небольшое тело отправляется одной записью с заголовком.
+     * @param connection соединение.
+     * @param head заголовок запроса.
+     * @param body тело запроса.
+     * @throws IOException ошибка или таймаут записи.
+     */
+    private void send(
+        @NotNull UpstreamConnection connection,
+        byte @NotNull [] head,
+        @NotNull ByteBuffer body
+    ) throws IOException {
+        connection.getBuffer().clear();
+
+        if (body.hasRemaining() && body.remaining() <= maxSmallBody) {
+            final ByteBuffer whole = ByteBuffer.allocate(head.length + body.remaining());
+
+            whole.put(head).put(body.duplicate()).flip();
+            connection.write(whole, options.getReadTimeoutMillis());
+            return;
+        }
+
+        connection.write(ByteBuffer.wrap(head), options.getReadTimeoutMillis());
+        if (body.hasRemaining()) connection.write(body.duplicate(), options.getReadTimeoutMillis());
+    }
+
+    /**
+     * Метод читает заголовок ответа сервера в буфер соединения, пропуская промежуточные ответы 1xx.
+     * Буфер содержит заголовок ответа с начала массива, за ним - уже прочитанные байты тела до position.
+     * @param connection соединение.
+     * @return длина заголовка без завершающей пустой строки.
+     * @throws IOException ошибка, таймаут, закрытие соединения или слишком большой заголовок.
+     */
+    private int readHead(@NotNull UpstreamConnection connection) throws IOException {
+        final ByteBuffer buffer = connection.getBuffer();
+
+        while (true) {
+            final int end = indexOfHeadEnd(buffer);
+
+            if (end < 0) {
+                if (!buffer.hasRemaining()) throw new IOException("Слишком большой заголовок ответа сервера");
+                if (connection.read(options.getReadTimeoutMillis()) < 0) {
+                    throw new IOException("Сервер закрыл соединение без ответа");
+                }
+                continue;
+            }
+
+            final int status = statusOf(buffer.array(), end);
+            if (status == 101) throw new IOException("Сервер переключает протокол, проксирование не поддерживается");
+            if (status >= 100 && status < 200) {
+                // промежуточный ответ: удаляем его из буфера и читаем дальше
+                buffer.flip().position(end + headEnd.length);
+                buffer.compact();
+                continue;
+            }
+
+            return end;
+        }
+    }
+
+    private static int indexOfHeadEnd(@NotNull ByteBuffer buffer) {
+        final byte[] data = buffer.array();
+
+        for (int i = 0; i + headEnd.length <= buffer.position(); i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') return i;
+        }
+
+        return -1;
+    }
+
+    private static int statusOf(byte @NotNull [] data, int end) throws IOException {
+        int position = 0;
+        while (position < end && data[position] != ' ') position++;
+
+        if (end - position < 4) throw new IOException("Некорректная строка ответа сервера");
+
+        int status = 0;
+        for (int i = position + 1; i < position + 4; i++) {
+            final int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) throw new IOException("Некорректный код ответа сервера");
+            status = status * 10 + digit;
+        }
+
+        return status;
+    }
+
+    /**
+     * Метод переносит ответ сервера в ответ клиенту.
+     * @param connection соединение с прочитанным заголовком ответа.
+     * @param headLength длина заголовка ответа.
+     * @param request запрос клиента.
+     * @param response ответ клиенту.
+     * @return true, если передача тела продолжится после отправки заголовка и соединение передано ProxyStream.
+     * @throws IOException некорректный ответ или ошибка чтения тела.
+     */
+    private boolean respond(
+        @NotNull UpstreamConnection connection,
+        int headLength,
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException {
+        final ByteBuffer buffer = connection.getBuffer().flip();
+        final String[] lines = new String(buffer.array(), 0, headLength, StandardCharsets.ISO_8859_1).split("\r\n");
+        final int status = statusOf(buffer.array(), headLength);
+        final boolean http10 = lines[0].startsWith("HTTP/1.0");
+        final boolean noBody = request.getMethod().equals("HEAD") || status == 204 || status == 304;
+
+        String contentLength = null;
+        String transferEncoding = null;
+        String connectionHeader = null;
+        final Set<String> replaced = new HashSet<>();
+
+        response.setResponseCode(status);
+        for (int i = 1; i < lines.length; i++) {
+            final int colon = lines[i].indexOf(':');
+            if (colon <= 0) continue;
+
+            final String name = lines[i].substring(0, colon).trim();
+            final String value = lines[i].substring(colon + 1).trim();
+            final String lower = name.toLowerCase(Locale.ROOT);
+
+            switch (lower) {
+                case "content-length" -> contentLength = value;
+                case "transfer-encoding" -> transferEncoding = value;
+                case "connection" -> connectionHeader = connectionHeader == null ? value : connectionHeader + ", " + value;
+                default -> {
+                    if (hopByHop.contains(lower)) continue;
+                    // заголовки сервера заменяют заголовки, уже добавленные плагинами (Server, Date)
+                    if (!lower.equals("set-cookie") && replaced.add(lower)) response.getHeaders().remove(name);
+                    response.appendHeader(name, value);
+                }
+            }
+        }
+
+        final String connectionValue = connectionHeader == null ? "" : connectionHeader.toLowerCase(Locale.ROOT);
+        final boolean keepAlive = http10 ? connectionValue.contains("keep-alive") : !connectionValue.contains("close");
+        final BodyFraming framing;
+
+        if (noBody) {
+            framing = BodyFraming.none();
+        } else if (transferEncoding != null) {
+            framing = transferEncoding.toLowerCase(Locale.ROOT).trim().endsWith("chunked")
+                ? BodyFraming.chunked()
+                : BodyFraming.untilClose();
+        } else if (contentLength != null) {
+            try {
+                final long length = Long.parseLong(contentLength);
+                if (length < 0) throw new NumberFormatException(contentLength);
+                framing = BodyFraming.length(length);
+            } catch (NumberFormatException e) {
+                throw new IOException("Некорректный Content-Length ответа сервера: " + contentLength);
+            }
+        } else {
+            framing = BodyFraming.untilClose();
+        }
+
+        buffer.position(headLength + headEnd.length);
+
+        final ByteArrayOutputStream decoded = new ByteArrayOutputStream(Math.max(32, buffer.remaining()));
+        buffer.position(buffer.position() + framing.consume(buffer.array(), buffer.position(), buffer.remaining(), decoded));
+
+        if (framing.isComplete()) {
+            if (noBody) {
+                if (contentLength != null) response.addHeader(Headers.CONTENT_LENGTH, contentLength);
+            } else {
+                response.setBody(decoded.toByteArray());
+            }
+
+            connection.getUpstream().release(connection, keepAlive && !buffer.hasRemaining(), options);
+            connection.getUpstream().succeeded();
+            return false;
+        }
+
+        if (request.getVersion().equals("HTTP/2.0")) {
+            readBody(connection, framing, decoded);
+            response.setBody(decoded.toByteArray());
+            connection.getUpstream().release(connection, keepAlive && framing.isComplete() && !buffer.hasRemaining(), options);
+            connection.getUpstream().succeeded();
+            return false;
+        }
+
+        // тело передается по частям: заголовки разметки тела остаются как у сервера,
+        // прочитанное начало тела уже учтено разбором и будет отправлено первым
+        buffer.position(headLength + headEnd.length);
+        if (transferEncoding != null) response.addHeader(Headers.TRANSFER_ENCODING, transferEncoding);
+        if (contentLength != null && transferEncoding == null) response.addHeader(Headers.CONTENT_LENGTH, contentLength);
+        response.addHeader(Headers.CONNECTION, "close");
+        response.setUpgrade(new ProxyStream(connection, framing, keepAlive, options));
+
+        return true;
+    }
+
+    /**
+     * Метод дочитывает тело ответа целиком для клиентов, которым тело не передается по частям.
+     * @param connection соединение.
+     * @param framing разбор тела, уже получивший данные из буфера.
+     * @param decoded приемник тела.
+     * @throws IOException ошибка, таймаут, обрыв ответа или превышение maxBufferedBody.
+     */
+    private void readBody(
+        @NotNull UpstreamConnection connection,
+        @NotNull BodyFraming framing,
+        @NotNull ByteArrayOutputStream decoded
+    ) throws IOException {
+        final ByteBuffer buffer = connection.getBuffer();
+
+        while (!framing.isComplete()) {
+            if (decoded.size() > options.getMaxBufferedBody()) {
+                throw new IOException("Тело ответа сервера больше " + options.getMaxBufferedBody() + " байт");
+            }
+
+            buffer.clear();
+            if (connection.read(options.getReadTimeoutMillis()) < 0) {
+                if (framing.isUntilClose()) return;
+                throw new IOException("Сервер закрыл соединение до конца ответа");
+            }
+
+            buffer.flip();
+            buffer.position(framing.consume(buffer.array(), 0, buffer.limit(), decoded));
+        }
+    }
+
+    /**
+     * Метод возвращает серверы прокси.
+     * @return неизменяемый список серверов.
+     */
+    public @NotNull List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+    /**
+     * Метод возвращает количество запросов, повторенных на новом соединении после закрытия соединения сервером.
+     * @return количество повторов.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Метод возвращает количество ответов 502 и 504.
+     * @return количество ошибок прокси.
+     */
+    public long getBadGateway() {
+        return badGateway.sum();
+    }
+
+    /**
+     * Метод закрывает свободные соединения со всеми серверами.
+     */
+    public void close() {
+        for (Upstream upstream : upstreams) upstream.closeIdle();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "ReverseProxy{" +
+            "upstreams=" + upstreams +
+            ", options=" + options +
+            ", retries=" + getRetries() +
+            ", badGateway=" + getBadGateway() +
+            '}';
+    }
+}
@@ -0,0 +1,219 @@
+package ru.axel.catty.engine.proxy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сервер, на который прокси передает запросы: пул свободных соединений keep-alive,
+ * количество незавершенных запросов и состояние пассивной проверки доступности.
+ */
+public final class Upstream {
+    private final InetSocketAddress address;
+    private final String hostHeader;
+    private final ConcurrentLinkedDeque<UpstreamConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger fails = new AtomicInteger();
+    private volatile long downUntilNanos = 0;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    Upstream(@NotNull InetSocketAddress upstreamAddress) {
+        address = upstreamAddress;
+        hostHeader = upstreamAddress.getHostString() + ":" + upstreamAddress.getPort();
+    }
+
+    /**
+     * Метод выдает свободное соединение из пула или открывает новое.
+     * Соединения, простаивавшие дольше idleTimeout, и закрытые сервером соединения закрываются.
+     * @param options настройки прокси.
+     * @return соединение с сервером.
+     * @throws IOException ошибка или таймаут установки соединения.
+     */
+    @NotNull UpstreamConnection acquire(@NotNull ProxyOptions options) throws IOException {
+        final long expired = System.nanoTime() - TimeUnit.SECONDS.toNanos(options.getIdleTimeoutSeconds());
+        UpstreamConnection connection;
+
+        while ((connection = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+
+            if (connection.isOpen() && connection.getLastUsedNanos() - expired > 0) {
+                reuses.increment();
+                connection.markReused();
+                return connection;
+            }
+
+            connection.close();
+        }
+
+        return connect(options);
+    }
+
+    /**
+     * Метод возвращает соединение в пул или закрывает его.
+     * @param connection соединение.
+     * @param reusable ответ прочитан полностью и сервер не закрывает соединение.
+     * @param options настройки прокси.
+     */
+    void release(@NotNull UpstreamConnection connection, boolean reusable, @NotNull ProxyOptions options) {
+        if (!reusable || !connection.isOpen()) {
+            connection.close();
+            return;
+        }
+        if (idleCount.incrementAndGet() > options.getMaxIdlePerUpstream()) {
+            idleCount.decrementAndGet();
+            connection.close();
+            return;
+        }
+
+        connection.touch();
+        idle.offerFirst(connection); // последним освобожденным соединением пользуемся первым, остальные остывают
+    }
+
+    /**
+     * Метод открывает новое соединение с сервером.
+     * @param options настройки прокси.
+     * @return соединение с сервером.
+     * @throws IOException ошибка или таймаут установки соединения.
+     */
+    @NotNull UpstreamConnection connect(@NotNull ProxyOptions options) throws IOException {
+        final AsynchronousSocketChannel channel = AsynchronousSocketChannel.open();
+
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            channel.connect(address).get(options.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            channel.close();
+            throw new IOException("Ошибка соединения с " + hostHeader, e.getCause());
+        } catch (TimeoutException e) {
+            channel.close();
+            throw new InterruptedByTimeoutException();
+        } catch (InterruptedException e) {
+            channel.close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Соединение с " + hostHeader + " прервано");
+        }
+
+        connects.increment();
+        return new UpstreamConnection(this, channel, options.getBufferSize());
+    }
+
+    /**
+     * Метод проверяет, участвует ли сервер в балансировке.
+     * @param now текущее время System.nanoTime().
+     * @return false, если сервер исключен после ошибок.
+     */
+    boolean isAvailable(long now) {
+        return now - downUntilNanos >= 0;
+    }
+
+    void started() {
+        requests.increment();
+        outstanding.incrementAndGet();
+    }
+
+    void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    void succeeded() {
+        fails.set(0);
+        downUntilNanos = 0;
+    }
+
+    /**
+     * Учет ошибки сервера: после maxFails ошибок подряд сервер исключается на failTimeout,
+     * свободные соединения с ним закрываются.
+     * @param options настройки прокси.
+     * @return true, если сервер исключен этой ошибкой.
+     */
+    boolean failed(@NotNull ProxyOptions options) {
+        failures.increment();
+        if (fails.incrementAndGet() < options.getMaxFails()) return false;
+
+        fails.set(0);
+        downUntilNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getFailTimeoutSeconds());
+        closeIdle();
+
+        return true;
+    }
+
+    /**
+     * Метод закрывает свободные соединения пула.
+     */
+    void closeIdle() {
+        UpstreamConnection connection;
+
+        while ((connection = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            connection.close();
+        }
+    }
+
+    @NotNull String getHostHeader() {
+        return hostHeader;
+    }
+
+    public @NotNull InetSocketAddress getAddress() {
+        return address;
+    }
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+    public int getIdle() {
+        return idleCount.get();
+    }
+    public boolean isDown() {
+        return !isAvailable(System.nanoTime());
+    }
+    public long getRequests() {
+        return requests.sum();
+    }
+    public long getFailures() {
+        return failures.sum();
+    }
+    public long getConnects() {
+        return connects.sum();
+    }
+    public long getReuses() {
+        return reuses.sum();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "Upstream{" +
+            "address=" + hostHeader +
+            ", outstanding=" + getOutstanding() +
+            ", idle=" + getIdle() +
+            ", down=" + isDown() +
+            ", requests=" + getRequests() +
+            ", failures=" + getFailures() +
+            ", connects=" + getConnects() +
+            ", reuses=" + getReuses() +
+            '}';
+    }
+
+    /**
+     * Метод сравнивает серверы по количеству незавершенных запросов.
+     * @param other другой сервер или null.
+     * @return true, если у этого сервера меньше незавершенных запросов.
+     */
+    boolean lessLoadedThan(@Nullable Upstream other) {
+        return other == null || outstanding.get() < other.outstanding.get();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.axel.catty.engine.proxy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Соединение keep-alive с сервером и его буфер чтения. Соединение принадлежит одному запросу
+ * от выдачи из пула до возврата в пул.
+ * Операции асинхронного канала ожидаются через {@link Future#get}: вызывающий поток обработчика
+ * блокируется на время каждой записи и чтения, но не дольше заданного таймаута.
+ */
+final class UpstreamConnection {
+    private final Upstream upstream;
+    private final AsynchronousSocketChannel channel;
+    private final ByteBuffer buffer;
+    private long lastUsedNanos = System.nanoTime();
+    private boolean reused = false;
+
+    UpstreamConnection(@NotNull Upstream owner, @NotNull AsynchronousSocketChannel upstreamChannel, int bufferSize) {
+        upstream = owner;
+        channel = upstreamChannel;
+        buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Метод записывает буфер целиком, ожидая завершения записи.
+     * @param source данные.
+     * @param timeoutMillis время ожидания каждой записи.
+     * @throws IOException ошибка или таймаут записи.
+     */
+    void write(@NotNull ByteBuffer source, long timeoutMillis) throws IOException {
+        while (source.hasRemaining()) await(channel.write(source), timeoutMillis);
+    }
+
+    /**
+     * Метод читает данные в буфер соединения, ожидая завершения чтения.
+     * @param timeoutMillis время ожидания.
+     * @return количество прочитанных байт, -1 - сервер закрыл соединение.
+     * @throws IOException ошибка или таймаут чтения.
+     */
+    int read(long timeoutMillis) throws IOException {
+        return await(channel.read(buffer), timeoutMillis);
+    }
+
+    private int await(@NotNull Future<Integer> operation, long timeoutMillis) throws IOException {
+        try {
+            return operation.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            operation.cancel(true);
+            throw new InterruptedByTimeoutException();
+        } catch (InterruptedException e) {
+            operation.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Ожидание ответа " + upstream.getHostHeader() + " прервано");
+        }
+    }
+
+    @NotNull Upstream getUpstream() {
+        return upstream;
+    }
+    @NotNull AsynchronousSocketChannel getChannel() {
+        return channel;
+    }
+    @NotNull ByteBuffer getBuffer() {
+        return buffer;
+    }
+    long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+    boolean isReused() {
+        return reused;
+    }
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    void markReused() {
+        reused = true;
+    }
+
+    void touch() {
+        lastUsedNanos = System.nanoTime();
+        buffer.clear();
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // соединение уже не используется
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.axel.catty.engine.ratelimit;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.request.IClientInfo;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+/**
+ * Ключ, по которому запросы делятся между корзинами токенов.
+ */
+@FunctionalInterface
+public interface IRateLimitKey {
+    /**
+     * Метод вычисляет ключ запроса.
+     * @param request объект запроса.
+     * @return ключ или null, если запрос не ограничивается.
+     */
+    @Nullable String resolve(@NotNull IHttpCattyRequest request);
+
+    /**
+     * Ключ - IP адрес клиента.
+     * @return ключ ограничения.
+     */
+    @Contract(pure = true)
+    static @NotNull IRateLimitKey remoteAddress() {
+        return request -> {
+            final IClientInfo client = request.getClientInfo();
+            return client == null ? null : client.getRemoteAddress();
+        };
+    }
+
+    /**
+     * Ключ - значение заголовка запроса, например токен API.
+     * @param name имя заголовка.
+     * @return ключ ограничения.
+     */
+    @Contract(pure = true)
+    static @NotNull IRateLimitKey header(@NotNull String name) {
+        return request -> request.getHeaders(name);
+    }
+
+    /**
+     * Ключ - значение куки, например идентификатор сессии.
+     * @param name имя куки.
+     * @return ключ ограничения.
+     */
+    @Contract(pure = true)
+    static @NotNull IRateLimitKey cookie(@NotNull String name) {
+        return request -> request.getCookie(name);
+    }
+}
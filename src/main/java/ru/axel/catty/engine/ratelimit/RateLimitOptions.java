@@ -0,0 +1,100 @@
+package ru.axel.catty.engine.ratelimit;
+
+/**
+ * Настройки ограничения частоты запросов.
+ * Каждому ключу (адресу клиента, заголовку или куки) соответствует корзина токенов:
+ * корзина вмещает burst запросов и пополняется со скоростью permitsPerSecond.
+ */
+public final class RateLimitOptions {
+    private double permitsPerSecond = 10.0;
+    private int burst = 20;
+    private int maxKeys = 65_536;
+    private int stripes = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    private long idleSeconds = 60L;
+
+    /**
+     * Скорость пополнения корзины.
+     * @param permits количество запросов в секунду.
+     * @return объект настроек.
+     */
+    public RateLimitOptions setPermitsPerSecond(double permits) {
+        if (!(permits > 0)) throw new IllegalArgumentException("Скорость пополнения должна быть больше 0");
+
+        permitsPerSecond = permits;
+        return this;
+    }
+
+    /**
+     * Емкость корзины: сколько запросов подряд допускается без ожидания.
+     * @param permits емкость корзины.
+     * @return объект настроек.
+     */
+    public RateLimitOptions setBurst(int permits) {
+        if (permits <= 0) throw new IllegalArgumentException("Емкость корзины должна быть больше 0");
+
+        burst = permits;
+        return this;
+    }
+
+    /**
+     * Максимальное количество отслеживаемых ключей. Ключи сверх лимита делят общую корзину своего сегмента.
+     * @param keys количество ключей.
+     * @return объект настроек.
+     */
+    public RateLimitOptions setMaxKeys(int keys) {
+        if (keys <= 0) throw new IllegalArgumentException("Количество ключей должно быть больше 0");
+
+        maxKeys = keys;
+        return this;
+    }
+
+    /**
+     * Количество сегментов таблицы корзин. Лимит ключей делится между сегментами поровну.
+     * @param count количество сегментов.
+     * @return объект настроек.
+     */
+    public RateLimitOptions setStripes(int count) {
+        if (count <= 0) throw new IllegalArgumentException("Количество сегментов должно быть больше 0");
+
+        stripes = count;
+        return this;
+    }
+
+    /**
+     * Время, через которое полная корзина без запросов удаляется из таблицы.
+     * С той же периодичностью выполняется фоновая очистка.
+     * @param seconds время в секундах.
+     * @return объект настроек.
+     */
+    public RateLimitOptions setIdleSeconds(long seconds) {
+        if (seconds <= 0) throw new IllegalArgumentException("Время простоя должно быть больше 0");
+
+        idleSeconds = seconds;
+        return this;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+    public int getBurst() {
+        return burst;
+    }
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+    public int getStripes() {
+        return stripes;
+    }
+    public long getIdleSeconds() {
+        return idleSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "{ permitsPerSecond: " + permitsPerSecond +
+            ", burst: " + burst +
+            ", maxKeys: " + maxKeys +
+            ", stripes: " + stripes +
+            ", idleSeconds: " + idleSeconds + " }";
+    }
+}
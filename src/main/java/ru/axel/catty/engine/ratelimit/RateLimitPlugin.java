@@ -0,0 +1,107 @@
+package ru.axel.catty.engine.ratelimit;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.HttpDate;
+import ru.axel.catty.engine.plugins.PluginExecute;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Плагин ограничения частоты запросов.
+ * Если в корзине ключа нет токена, цепочка прерывается ответом 429 с заголовком Retry-After.
+ * Ответы 429 собираются заранее для каждого значения Retry-After до {@link #maxPreparedSeconds} секунд
+ * и пересобираются только при смене значения заголовка Date.
+ * Подключение: plugins.addPlugin("rateLimit", new RateLimitPlugin(limiter)).
+ */
+public class RateLimitPlugin implements PluginExecute {
+    private static final int maxPreparedSeconds = 60;
+    private static final String body = "Too Many Requests";
+    private final RateLimiter limiter;
+    private final IRateLimitKey key;
+    private final AtomicReferenceArray<Prepared> prepared = new AtomicReferenceArray<>(maxPreparedSeconds + 1);
+
+    public RateLimitPlugin(@NotNull RateLimiter rateLimiter) {
+        this(rateLimiter, IRateLimitKey.remoteAddress());
+    }
+    public RateLimitPlugin(@NotNull RateLimiter rateLimiter, @NotNull IRateLimitKey rateLimitKey) {
+        limiter = rateLimiter;
+        key = rateLimitKey;
+    }
+
+    @Override
+    public boolean exec(
+        @NotNull IHttpCattyRequest request,
+        @NotNull IHttpCattyResponse response
+    ) throws IOException {
+        final String requestKey = key.resolve(request);
+        if (requestKey == null) return true;
+
+        final long waitNanos = limiter.acquire(requestKey);
+        if (waitNanos == 0) return true;
+
+        final long retryAfter = Math.max(1L, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        final Logger logger = response.getLogger();
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Превышена частота запросов для " + requestKey + ", Retry-After: " + retryAfter);
+        }
+
+        response.setResponseCode(ResponseCode.TOO_MANY_REQUESTS);
+        response.setPreparedBytes(rejection(retryAfter, logger));
+
+        return false;
+    }
+
+    /**
+     * Метод возвращает готовый ответ 429.
+     * @param retryAfter значение Retry-After в секундах.
+     * @param logger логгер для сборки ответа.
+     * @return сериализованный ответ, массив общий и не должен изменяться.
+     * @throws IOException ошибка сериализации ответа.
+     */
+    private byte @NotNull [] rejection(long retryAfter, Logger logger) throws IOException {
+        if (retryAfter > maxPreparedSeconds) return build(retryAfter, logger);
+
+        final int index = (int) retryAfter;
+        final byte[] dateLine = HttpDate.getHeaderLine();
+        final Prepared current = prepared.get(index);
+
+        if (current != null && current.dateLine == dateLine) return current.bytes;
+
+        final byte[] bytes = build(retryAfter, logger);
+        prepared.set(index, new Prepared(dateLine, bytes));
+
+        return bytes;
+    }
+
+    private static byte @NotNull [] build(long retryAfter, Logger logger) throws IOException {
+        final Response response = new Response(logger);
+
+        response.addHeader(Headers.CONTENT_TYPE, "text/plain; charset=utf-8");
+        response.addHeader(Headers.RETRY_AFTER, String.valueOf(retryAfter));
+        response.respond(ResponseCode.TOO_MANY_REQUESTS, body);
+
+        return response.getBytes();
+    }
+
+    /**
+     * Готовый ответ и строка заголовка Date, с которой он собран.
+     */
+    private static final class Prepared {
+        private final byte[] dateLine;
+        private final byte[] bytes;
+
+        Prepared(byte[] dateLine, byte[] bytes) {
+            this.dateLine = dateLine;
+            this.bytes = bytes;
+        }
+    }
+}
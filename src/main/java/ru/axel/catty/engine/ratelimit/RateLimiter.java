@@ -0,0 +1,183 @@
+package ru.axel.catty.engine.ratelimit;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Корзины токенов для ограничения частоты запросов по ключу.
+ * Состояние корзины - одно число, момент времени, когда корзина снова станет полной
+ * (theoretical arrival time): взятие токена - сдвиг этого момента на интервал пополнения через CAS,
+ * поэтому проверка не берет блокировок. Таблица корзин разбита на сегменты с собственным лимитом ключей,
+ * ключи сверх лимита делят общую корзину сегмента. Корзины, простоявшие полными дольше idleSeconds,
+ * удаляются фоновой очисткой и при переполнении сегмента.
+ */
+public class RateLimiter implements AutoCloseable {
+    private final RateLimitOptions options;
+    private final long intervalNanos;           // время пополнения одного токена
+    private final long toleranceNanos;          // емкость корзины во времени: burst * intervalNanos
+    private final long idleNanos;
+    private final Stripe[] stripes;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Timer timer;
+
+    public RateLimiter() {
+        this(new RateLimitOptions());
+    }
+    public RateLimiter(@NotNull RateLimitOptions rateLimitOptions) {
+        options = rateLimitOptions;
+        intervalNanos = Math.max(1L, (long) (1_000_000_000L / options.getPermitsPerSecond()));
+        toleranceNanos = intervalNanos * options.getBurst();
+        idleNanos = options.getIdleSeconds() * 1_000_000_000L;
+
+        final int maxKeysPerStripe = Math.max(1, options.getMaxKeys() / options.getStripes());
+        stripes = new Stripe[options.getStripes()];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe(maxKeysPerStripe);
+
+        final long period = options.getIdleSeconds() * 1000;
+        timer = new Timer("catty-rate-limit-sweep", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                final long now = System.nanoTime();
+                for (Stripe stripe : stripes) stripe.sweep(now);
+            }
+        }, period, period);
+    }
+
+    /**
+     * Метод берет токен из корзины ключа.
+     * @param key ключ запроса.
+     * @return 0, если запрос разрешен, иначе время в наносекундах, через которое появится токен.
+     */
+    public long acquire(@NotNull String key) {
+        final long now = System.nanoTime();
+        final AtomicLong bucket = stripeFor(key).bucket(key, now);
+
+        while (true) {
+            final long tat = bucket.get();
+            final long next = Math.max(tat, now) + intervalNanos;
+            final long excess = next - now - toleranceNanos;
+
+            if (excess > 0) {
+                rejected.increment();
+                return excess;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Метод проверяет и берет токен из корзины ключа.
+     * @param key ключ запроса.
+     * @return true, если запрос разрешен.
+     */
+    public boolean tryAcquire(@NotNull String key) {
+        return acquire(key) == 0;
+    }
+
+    public @NotNull RateLimitOptions getOptions() {
+        return options;
+    }
+    public long getAllowed() {
+        return allowed.sum();
+    }
+    public long getRejected() {
+        return rejected.sum();
+    }
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Метод возвращает количество отслеживаемых ключей.
+     * @return количество ключей.
+     */
+    public long getKeyCount() {
+        long keys = 0;
+        for (Stripe stripe : stripes) keys += stripe.buckets.mappingCount();
+
+        return keys;
+    }
+
+    /**
+     * Метод останавливает фоновую очистку.
+     */
+    @Override
+    public void close() {
+        timer.cancel();
+    }
+
+    private @NotNull Stripe stripeFor(@NotNull String key) {
+        final int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter{" +
+            "keys=" + getKeyCount() +
+            ", allowed=" + getAllowed() +
+            ", rejected=" + getRejected() +
+            ", evictions=" + getEvictions() +
+            '}';
+    }
+
+    /**
+     * Сегмент таблицы корзин с собственным лимитом ключей.
+     */
+    private final class Stripe {
+        private final int maxKeys;
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong overflow = new AtomicLong(System.nanoTime()); // общая корзина ключей сверх лимита
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+
+        Stripe(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        @NotNull AtomicLong bucket(@NotNull String key, long now) {
+            final AtomicLong bucket = buckets.get(key);
+            if (bucket != null) return bucket;
+
+            if (buckets.size() >= maxKeys) {
+                sweep(now);
+                if (buckets.size() >= maxKeys) return overflow;
+            }
+
+            return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        /**
+         * Метод удаляет корзины, которые полны дольше idleNanos. Одновременно очистку выполняет один поток.
+         * @param now текущее время System.nanoTime().
+         */
+        void sweep(long now) {
+            if (!sweeping.compareAndSet(false, true)) return;
+
+            try {
+                final Iterator<Map.Entry<String, AtomicLong>> iterator = buckets.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    if (now - iterator.next().getValue().get() >= idleNanos) {
+                        iterator.remove();
+                        evictions.increment();
+                    }
+                }
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+}
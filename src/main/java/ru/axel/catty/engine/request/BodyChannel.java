@@ -0,0 +1,45 @@
+package ru.axel.catty.engine.request;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Канал чтения тела запроса: байты копируются из буфера запроса сразу в буфер читателя,
+ * без промежуточного массива, как у Channels.newChannel(InputStream).
+ */
+final class BodyChannel implements ReadableByteChannel {
+    private final ByteBuffer body;
+    private boolean open = true;
+
+    BodyChannel(@NotNull ByteBuffer bodyBuffer) {
+        body = bodyBuffer;
+    }
+
+    @Override
+    public int read(@NotNull ByteBuffer destination) throws ClosedChannelException {
+        if (!open) throw new ClosedChannelException();
+        if (!body.hasRemaining()) return -1;
+
+        final int count = Math.min(body.remaining(), destination.remaining());
+        final int limit = body.limit();
+
+        body.limit(body.position() + count);
+        destination.put(body);
+        body.limit(limit);
+
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
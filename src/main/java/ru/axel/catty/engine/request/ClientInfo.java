@@ -1,65 +1,71 @@
 package ru.axel.catty.engine.request;
 
-import ru.axel.catty.engine.utilites.RegexPatterns;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.Serializable;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.util.regex.Matcher;
-
-import static java.lang.Integer.parseInt;
-
+import java.net.UnixDomainSocketAddress;
+
+/**
+ * Данные о подключении клиента.
+ * Адреса берутся из полей {@link InetSocketAddress}, строковое представление адреса создается
+ * при первом обращении и запоминается. Адрес Unix domain socket представляется как "unix:путь",
+ * у безымянного сокета клиента - "unix:", порт такого адреса -1.
+ */
 public class ClientInfo implements IClientInfo, Serializable {
+    private static final long serialVersionUID = 1L;
+
     private final SocketAddress local;
     private final SocketAddress remote;
+    private String localHost;
+    private String remoteHost;
 
     public ClientInfo(SocketAddress localAddress, SocketAddress remoteAddress) {
         local = localAddress;
         remote = remoteAddress;
     }
 
-
     @Override
     public String getLocalAddress() {
-        final Matcher matcher = RegexPatterns.getAddressFromSocketAddress(local);
-
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-
-        return "";
+        if (localHost == null) localHost = hostOf(local);
+        return localHost;
     }
 
     @Override
     public int getLocalPort() {
-        final Matcher matcher = RegexPatterns.getAddressFromSocketAddress(local);
-
-        if (matcher.find()) {
-            return parseInt(matcher.group(2));
-        }
-
-        return -1;
+        return portOf(local);
     }
 
     @Override
     public String getRemoteAddress() {
-        final Matcher matcher = RegexPatterns.getAddressFromSocketAddress(remote);
-
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-
-        return "";
+        if (remoteHost == null) remoteHost = hostOf(remote);
+        return remoteHost;
     }
 
     @Override
     public int getRemotePort() {
-        final Matcher matcher = RegexPatterns.getAddressFromSocketAddress(remote);
+        return portOf(remote);
+    }
 
-        if (matcher.find()) {
-            return parseInt(matcher.group(2));
+    /**
+     * Метод возвращает IP адрес без обращения к DNS.
+     * @param address адрес сокета.
+     * @return IP адрес, "unix:путь" для Unix domain socket или пустая строка, если адрес неизвестен.
+     */
+    private static @NotNull String hostOf(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet) {
+            return inet.getAddress() != null ? inet.getAddress().getHostAddress() : inet.getHostString();
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            return "unix:" + unix.getPath();
         }
 
-        return -1;
+        return "";
+    }
+
+    private static int portOf(SocketAddress address) {
+        return address instanceof InetSocketAddress inet ? inet.getPort() : -1;
     }
 
     @Override
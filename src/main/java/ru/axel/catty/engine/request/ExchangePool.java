@@ -0,0 +1,207 @@
+package ru.axel.catty.engine.request;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Пул объектов запроса и ответа, у каждого потока свой небольшой стек объектов.
+ * <p>
+ * Экспериментальный, включается только явно: движок сам пул не создает, HTTP/1.1 использует его, только если
+ * обработчик переопределяет {@link ru.axel.catty.engine.handler.HttpCattyQueryHandler#exchangePool()} и сам берет
+ * объекты в responseBuffer, HTTP/2 - если тот же метод возвращает пул. Цель - снижение выделения памяти на запрос
+ * на порядок - не достигнута (см. ниже), поэтому API пула может измениться.
+ * <p>
+ * Правила владения:
+ * <ul>
+ *     <li>запрос и ответ, полученные из пула, принадлежат коду, который их получил, до вызова release;</li>
+ *     <li>release вызывается после отправки ответа и записи в журнал доступа, после этого ни запрос,
+ *     ни ответ, ни их заголовки использовать нельзя;</li>
+ *     <li>обработчик, которому запрос нужен после ответа (WebSocket, SSE, отложенная обработка),
+ *     вызывает {@link IHttpCattyRequest#retain()}, такой запрос в пул не возвращается;
+ *     запрос ответа с переключением протокола тоже не возвращается.</li>
+ * </ul>
+ * В режиме отладки объекты после release не переиспользуются, а помечаются возвращенными:
+ * обращение к ним из обработчика, сохранившего ссылку, завершается IllegalStateException,
+ * причина которого указывает место вызова release.
+ * <p>
+ * Пул не включен по умолчанию: обработчик, сохранивший ссылку без retain, после переиспользования объекта
+ * молча получит данные чужого запроса. Пул убирает выделение памяти под сами объекты запроса и ответа
+ * (около 1,3 КБ на простой GET), но не под строки, отданные обработчику, байты ответа и буфер чтения
+ * соединения (16 КБ), поэтому общий объем памяти на запрос с новым соединением снижается лишь на несколько
+ * процентов, см. EngineBenchmark с -Dcatty.pool=true.
+ */
+@ApiStatus.Experimental
+public final class ExchangePool {
+    private final int maxPerThread;
+    private final boolean debug;
+    private final ThreadLocal<ArrayDeque<Request>> requests;
+    private final ThreadLocal<ArrayDeque<Response>> responses;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder retained = new LongAdder();
+
+    /**
+     * Пул по умолчанию: до 8 объектов каждого вида на поток,
+     * режим отладки включается свойством -Dcatty.pool.debug=true.
+     */
+    public ExchangePool() {
+        this(8, Boolean.getBoolean("catty.pool.debug"));
+    }
+
+    /**
+     * Создание пула.
+     * @param maxObjectsPerThread максимальное количество объектов каждого вида, хранимых потоком.
+     * @param debugMode режим отладки: объекты не переиспользуются, обращение после release обнаруживается.
+     */
+    public ExchangePool(int maxObjectsPerThread, boolean debugMode) {
+        if (maxObjectsPerThread < 1) throw new IllegalArgumentException("Размер пула должен быть больше 0");
+
+        maxPerThread = maxObjectsPerThread;
+        debug = debugMode;
+        requests = ThreadLocal.withInitial(() -> new ArrayDeque<>(maxPerThread));
+        responses = ThreadLocal.withInitial(() -> new ArrayDeque<>(maxPerThread));
+    }
+
+    /**
+     * Метод выдает запрос из пула и разбирает в нем запрос из буфера.
+     * @param buffer буфер запроса, массив не копируется и не должен изменяться до release.
+     * @param logger логгер.
+     * @return запрос.
+     * @throws RequestBuildException ошибка разбора запроса, запрос при этом возвращается в пул.
+     */
+    public @NotNull Request request(@NotNull ByteBuffer buffer, Logger logger) throws RequestBuildException {
+        Request request = requests.get().poll();
+
+        if (request == null) {
+            request = new Request(logger);
+            created.increment();
+        } else {
+            reused.increment();
+        }
+
+        try {
+            request.reset(buffer, logger);
+        } catch (RequestBuildException exc) {
+            release(request, null);
+            throw exc;
+        }
+
+        return request;
+    }
+
+    /**
+     * Метод выдает запрос из пула и заполняет его разобранными полями (HTTP/2).
+     * @param method метод запроса.
+     * @param target путь вместе со строкой запроса.
+     * @param version версия протокола.
+     * @param fields заголовки: имя, значение, имя, значение...
+     * @param body тело запроса, массив не копируется.
+     * @param logger логгер.
+     * @return запрос.
+     */
+    public @NotNull Request request(
+        @NotNull String method,
+        @NotNull String target,
+        @NotNull String version,
+        @NotNull List<String> fields,
+        byte @NotNull [] body,
+        Logger logger
+    ) {
+        Request request = requests.get().poll();
+
+        if (request == null) {
+            request = new Request(logger);
+            created.increment();
+        } else {
+            reused.increment();
+        }
+
+        request.reset(method, target, version, fields, body, logger);
+        return request;
+    }
+
+    /**
+     * Метод выдает очищенный ответ из пула.
+     * @param logger логгер.
+     * @return ответ.
+     */
+    public @NotNull Response response(Logger logger) {
+        final Response response = responses.get().poll();
+
+        if (response == null) {
+            created.increment();
+            return new Response(logger);
+        }
+
+        reused.increment();
+        response.reset(logger);
+        return response;
+    }
+
+    /**
+     * Метод возвращает запрос и ответ в пул текущего потока.
+     * Объекты, созданные не пулом, наследники Response и удерживаемый запрос пропускаются.
+     * @param request запрос или null.
+     * @param response ответ или null.
+     */
+    public void release(@Nullable IHttpCattyRequest request, @Nullable IHttpCattyResponse response) {
+        final Throwable releaseSite = debug ? new Throwable("Место возврата в пул") : null;
+
+        if (request instanceof Request pooled) {
+            if (pooled.isRetained() || (response != null && response.getUpgrade() != null)) {
+                retained.increment();
+            } else if (debug) {
+                pooled.poison(releaseSite);
+            } else {
+                pooled.recycle();
+
+                final ArrayDeque<Request> stack = requests.get();
+                if (stack.size() < maxPerThread && !stack.contains(pooled)) stack.push(pooled); // повторный release не дублирует объект
+            }
+        }
+
+        if (response instanceof Response pooled && pooled.getClass() == Response.class) {
+            if (debug) {
+                pooled.poison(releaseSite);
+            } else {
+                pooled.reset(pooled.getLogger());
+
+                final ArrayDeque<Response> stack = responses.get();
+                if (stack.size() < maxPerThread && !stack.contains(pooled)) stack.push(pooled); // повторный release не дублирует объект
+            }
+        }
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+    public long getCreated() {
+        return created.sum();
+    }
+    public long getReused() {
+        return reused.sum();
+    }
+    public long getRetained() {
+        return retained.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ExchangePool{" +
+            "created=" + getCreated() +
+            ", reused=" + getReused() +
+            ", retained=" + getRetained() +
+            ", maxPerThread=" + maxPerThread +
+            ", debug=" + debug +
+            '}';
+    }
+}
@@ -1,13 +1,20 @@
 package ru.axel.catty.engine.request;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.IHttpHeaders;
 import ru.axel.catty.engine.response.IHttpCattyResponse;
 import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.tracing.RequestTrace;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
 
@@ -46,6 +53,20 @@ public interface IHttpCattyRequest {
     @Nullable String getHeaders(String name);
     @Nullable String getHeaders(Headers header);
 
+    /**
+     * Метод возвращает все значения заголовка запроса, имя сравнивается без учета регистра.
+     * @param name имя заголовка.
+     * @return список значений, пустой если заголовка нет.
+     */
+    @NotNull List<String> getHeaderValues(@NotNull String name);
+    @NotNull List<String> getHeaderValues(@NotNull Headers header);
+
+    /**
+     * Метод возвращает все заголовки запроса.
+     * @return заголовки запроса.
+     */
+    @NotNull IHttpHeaders getAllHeaders();
+
     /**
      * Метод вернет параметр запроса, которым наполняется запрос по мере похождения через конвейер.
      * @param name имя параметра.
@@ -53,8 +74,47 @@ public interface IHttpCattyRequest {
      */
     @Nullable <T> T getParams(String name);
     String getOriginalRequest();
+
+    /**
+     * Метод возвращает тело запроса строкой в кодировке UTF-8 без изменений.
+     * Для двоичных данных используйте getBodyBuffer, getBodyStream или getBodyChannel.
+     * @return тело запроса, пустая строка - тела нет.
+     */
     String getBody();
     String getQueryParam(String name);
+
+    /**
+     * Метод возвращает строку запроса после "?" без декодирования.
+     * @return строка запроса или null, если ее нет.
+     */
+    @Nullable String getRawQuery();
+
+    /**
+     * Метод возвращает тело запроса как есть, без копирования: буфер только для чтения
+     * над полученными байтами запроса. Буфер действителен, пока запрос не возвращен в пул.
+     * @return тело запроса, пустой буфер - тела нет.
+     */
+    @NotNull ByteBuffer getBodyBuffer();
+
+    /**
+     * Метод возвращает копию тела запроса. Копия не зависит от возврата запроса в пул.
+     * @return тело запроса, пустой массив - тела нет.
+     */
+    byte @NotNull [] getBodyBytes();
+
+    /**
+     * Метод возвращает поток чтения тела запроса над полученными байтами без копирования.
+     * Поток действителен, пока запрос не возвращен в пул.
+     * @return поток тела запроса.
+     */
+    @NotNull InputStream getBodyStream();
+
+    /**
+     * Метод возвращает канал чтения тела запроса над полученными байтами без копирования.
+     * Канал действителен, пока запрос не возвращен в пул.
+     * @return канал тела запроса.
+     */
+    @NotNull ReadableByteChannel getBodyChannel();
     Optional<ICattyRoute> getRoute();
 
     /**
@@ -63,8 +123,33 @@ public interface IHttpCattyRequest {
      */
     IClientInfo getClientInfo();
 
+    /**
+     * Метод связывает с запросом трассу. Если трасса есть, маршрутизация, плагины и обработчик
+     * добавляют в нее свои интервалы.
+     * @param trace трасса или null.
+     */
+    void setTrace(@Nullable RequestTrace trace);
+
+    /**
+     * Метод возвращает трассу запроса с интервалами обработки.
+     * @return трасса или null, если трассировка выключена.
+     */
+    @Nullable RequestTrace getTrace();
+
     Logger getLogger();
 
+    /**
+     * Метод сообщает, что запрос остается у обработчика после отправки ответа (сессия WebSocket, SSE,
+     * отложенная обработка). Такой запрос не возвращается в пул {@link ExchangePool} и не очищается.
+     */
+    void retain();
+
+    /**
+     * Метод возвращает признак удержания запроса обработчиком.
+     * @return true, если запрос нельзя возвращать в пул.
+     */
+    boolean isRetained();
+
     /**
      * Получить все ошибки запроса, возникшие в ходе его обработки.
      * @return список ошибок
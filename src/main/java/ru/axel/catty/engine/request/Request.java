@@ -4,137 +4,428 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.HttpHeaders;
+import ru.axel.catty.engine.headers.IHttpHeaders;
 import ru.axel.catty.engine.response.IHttpCattyResponse;
 import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.tracing.RequestTrace;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Класс содержит данные запроса.
+ * Запрос может повторно использоваться через {@link ExchangePool}: после возврата в пул все поля очищаются,
+ * коллекции и массивы заголовков сохраняются для следующего запроса.
  */
 public final class Request implements IHttpCattyRequest {
-    private final Logger logger;
-    private final HashMap<String, String> headers = new HashMap<>();
-    private final HashMap<String, String> cookie = new HashMap<>();
+    private static final String[] methods = { "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH" };
+    private static final String[] versions = { "HTTP/1.1", "HTTP/1.0", "HTTP/2.0" };
+    private static final byte[] emptyBytes = new byte[0];
+    private Logger logger;
+    private final HttpHeaders headers;
     private final HashMap<String, Object> params = new HashMap<>();         // параметры из пути маршрута
+    private byte[] requestBytes;
+    private int requestLength;
+    private int bodyStart = -1;                                             // -1 - в запросе нет тела
+    private boolean fromFields = false;                                     // в буфере только тело, заголовки - строки
+    private String rawQuery;                                                // строка запроса после "?"
+    /* разбираются при первом обращении */
+    private final HashMap<String, String> cookie = new HashMap<>();
+    private boolean cookieParsed = false;
     private final HashMap<String, String> queryParams = new HashMap<>();    // параметры запроса
-    private final String originalRequest;
+    private boolean queryParsed = false;
+    private String originalRequest;
     private String body;
     private String method;
     private String path;
     private String version;
     private ICattyRoute route;
     private IClientInfo client;
+    private RequestTrace trace;
     private final ArrayList<Exception> exceptions = new ArrayList<>();
+    private boolean retained = false;
+    private Throwable releasedAt;                                           // место возврата в пул в режиме отладки
 
     /**
      * Создание экземпляра.
      * @param request строка переданная клиентом.
      */
     public Request(@NotNull String request, Logger loggerInstance) throws RequestBuildException {
+        final byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+
         logger = loggerInstance;
         originalRequest = request;
-        rawRequest(originalRequest);
+        requestBytes = bytes;
+        requestLength = bytes.length;
+        headers = new HttpHeaders(bytes);
+        rawRequest(bytes, bytes.length);
     }
     public Request(@NotNull ByteBuffer request, Logger loggerInstance) throws RequestBuildException {
+        final byte[] bytes = request.array();
+        final int length = dataLength(request);
+
+        logger = loggerInstance;
+        requestBytes = bytes;
+        requestLength = length;
+        headers = new HttpHeaders(bytes);
+        rawRequest(bytes, length);
+    }
+
+    /**
+     * Создание запроса из уже разобранных полей (HTTP/2): метод, цель, заголовки и тело сохраняются
+     * без промежуточного текста HTTP/1, поэтому значения полей не разбираются повторно.
+     * @param method метод запроса.
+     * @param target путь вместе со строкой запроса.
+     * @param version версия протокола.
+     * @param fields заголовки: имя, значение, имя, значение...
+     * @param body тело запроса, массив не копируется.
+     * @param loggerInstance логгер.
+     */
+    public Request(
+        @NotNull String method,
+        @NotNull String target,
+        @NotNull String version,
+        @NotNull List<String> fields,
+        byte @NotNull [] body,
+        Logger loggerInstance
+    ) {
+        this(loggerInstance);
+        fill(method, target, version, fields, body);
+    }
+
+    /**
+     * Создание пустого запроса для пула, заполняется методом reset.
+     * @param loggerInstance логгер.
+     */
+    Request(Logger loggerInstance) {
         logger = loggerInstance;
-        originalRequest = new String(request.array()).trim();
-        rawRequest(originalRequest);
+        requestBytes = emptyBytes;
+        requestLength = 0;
+        headers = new HttpHeaders(emptyBytes);
     }
 
     /**
-     * Устанавливает заголовки запроса и передает данные в cookie.
-     * Устанавливает тело запроса.
-     * @param request строка запроса.
+     * Метод очищает запрос и разбирает в нем новый запрос из буфера.
+     * @param request буфер запроса, массив не копируется.
+     * @param loggerInstance логгер.
+     * @throws RequestBuildException ошибка разбора запроса.
+     */
+    void reset(@NotNull ByteBuffer request, Logger loggerInstance) throws RequestBuildException {
+        recycle();
+
+        logger = loggerInstance;
+        requestBytes = request.array();
+        requestLength = dataLength(request);
+        headers.reset(requestBytes);
+        rawRequest(requestBytes, requestLength);
+    }
+
+    /**
+     * Метод очищает запрос и заполняет его разобранными полями.
+     * @param method метод запроса.
+     * @param target путь вместе со строкой запроса.
+     * @param version версия протокола.
+     * @param fields заголовки: имя, значение, имя, значение...
+     * @param body тело запроса, массив не копируется.
+     * @param loggerInstance логгер.
+     */
+    void reset(
+        @NotNull String method,
+        @NotNull String target,
+        @NotNull String version,
+        @NotNull List<String> fields,
+        byte @NotNull [] body,
+        Logger loggerInstance
+    ) {
+        recycle();
+
+        logger = loggerInstance;
+        fill(method, target, version, fields, body);
+    }
+
+    private void fill(
+        @NotNull String requestMethod,
+        @NotNull String target,
+        @NotNull String requestVersion,
+        @NotNull List<String> fields,
+        byte @NotNull [] body
+    ) {
+        final int separator = target.indexOf('?');
+
+        method = requestMethod;
+        path = separator < 0 ? target : target.substring(0, separator);
+        if (separator >= 0) rawQuery = target.substring(separator + 1);
+        version = requestVersion;
+        requestBytes = body;
+        requestLength = body.length;
+        bodyStart = 0;
+        fromFields = true;
+
+        for (int i = 0; i + 1 < fields.size(); i += 2) headers.add(fields.get(i), fields.get(i + 1));
+
+        if (logger.isLoggable(Level.CONFIG)) {
+            logger.config("Запрос создан. StartLine: " + method + ", " + path + ", " + version);
+        }
+    }
+
+    /**
+     * Метод очищает запрос и освобождает ссылки на буфер и объекты обработки.
+     */
+    void recycle() {
+        headers.reset(emptyBytes);
+        params.clear();
+        cookie.clear();
+        cookieParsed = false;
+        queryParams.clear();
+        queryParsed = false;
+        exceptions.clear();
+        requestBytes = emptyBytes;
+        requestLength = 0;
+        bodyStart = -1;
+        fromFields = false;
+        rawQuery = null;
+        originalRequest = null;
+        body = null;
+        method = null;
+        path = null;
+        version = null;
+        route = null;
+        client = null;
+        trace = null;
+        retained = false;
+    }
+
+    /**
+     * Метод помечает запрос возвращенным в пул (режим отладки): любое следующее обращение к запросу
+     * завершится ошибкой с местом возврата в причине.
+     * @param releaseSite место возврата в пул.
+     */
+    void poison(@NotNull Throwable releaseSite) {
+        recycle();
+        releasedAt = releaseSite;
+    }
+
+    /**
+     * Метод проверяет, что запрос не возвращен в пул.
+     */
+    private void live() {
+        if (releasedAt != null) {
+            throw new IllegalStateException("Запрос используется после возврата в пул", releasedAt);
+        }
+    }
+
+    /**
+     * Метод определяет длину данных запроса в буфере, данные всегда начинаются с начала массива.
+     * Буфер после чтения из канала содержит данные до позиции; буфер с нулевой позицией
+     * (после flip или ByteBuffer.wrap) - до границы. Нулевые байты в конце тела - тоже данные.
+     * @param request буфер запроса.
+     * @return длина данных запроса.
+     */
+    private static int dataLength(@NotNull ByteBuffer request) {
+        return request.position() > 0 ? request.position() : request.limit();
+    }
+
+    /**
+     * Разбирает start line и заголовки запроса прямо в буфере, без построчного разбиения на строки.
+     * Заголовки сохраняются как смещения в буфере, для тела запоминается только его начало.
+     * @param bytes буфер запроса.
+     * @param end конец данных запроса.
      * @throws RequestBuildException ошибка создания запроса.
      */
-    private void rawRequest(@NotNull String request) throws RequestBuildException {
-        final var lines = request.lines().toList();
-        int index = -1;
+    private void rawRequest(byte @NotNull [] bytes, int end) throws RequestBuildException {
+        int lineStart = 0;
+        boolean isStartLine = true;
 
-        for (String line: lines) {
-            index++;
+        while (lineStart < end && (bytes[lineStart] & 0xFF) <= ' ') lineStart++; // пропускаем пустые строки
 
-            if (index == 0) {
-                setStartLine(line);
-                continue;
-            }
-            if (line.isEmpty()) {
-                setBody(lines.stream().skip(index));
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && bytes[lineEnd] != '\n') lineEnd++;
+
+            final int nextLine = lineEnd + 1;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') lineEnd--;
+
+            if (isStartLine) {
+                setStartLine(bytes, lineStart, lineEnd);
+                isStartLine = false;
+            } else if (lineEnd == lineStart) {
+                bodyStart = nextLine;
                 break;
+            } else {
+                addHeader(bytes, lineStart, lineEnd);
             }
 
-            final var lineSplit = line.split(":");
-            headers.put(lineSplit[0].trim(), lineSplit[1].trim());
+            lineStart = nextLine;
+        }
+    }
 
-            if (lineSplit[0].toLowerCase(Locale.ROOT).equals("cookie")) setCookie(lineSplit[1]);
+    /**
+     * Добавляет строку заголовка "Name: value" как смещения в буфере запроса.
+     * @param bytes буфер запроса.
+     * @param lineStart начало строки.
+     * @param lineEnd конец строки без перевода строки.
+     * @throws RequestBuildException если в строке нет разделителя ":".
+     */
+    private void addHeader(byte @NotNull [] bytes, int lineStart, int lineEnd) throws RequestBuildException {
+        int colon = lineStart;
+        while (colon < lineEnd && bytes[colon] != ':') colon++;
+
+        if (colon == lineEnd) {
+            throw new RequestBuildException(
+                "Bad header line: " + new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8)
+            );
         }
+
+        int nameStart = lineStart;
+        int nameEnd = colon;
+        int valueStart = colon + 1;
+        int valueEnd = lineEnd;
+
+        while (nameStart < nameEnd && isWhitespace(bytes[nameStart])) nameStart++;
+        while (nameEnd > nameStart && isWhitespace(bytes[nameEnd - 1])) nameEnd--;
+        while (valueStart < valueEnd && isWhitespace(bytes[valueStart])) valueStart++;
+        while (valueEnd > valueStart && isWhitespace(bytes[valueEnd - 1])) valueEnd--;
+
+        headers.addRaw(nameStart, nameEnd - nameStart, valueStart, valueEnd - valueStart);
+    }
+
+    private static boolean isWhitespace(byte symbol) {
+        return symbol == ' ' || symbol == '\t';
     }
 
     /**
-     * Разбор start line запроса.
-     * @param line первая строка запроса.
+     * Разбор start line запроса прямо в буфере. Известные методы и версии протокола
+     * берутся из констант, строка создается только для пути.
+     * @param bytes буфер запроса.
+     * @param start начало строки.
+     * @param end конец строки без перевода строки.
      * @throws RequestBuildException если запрос не соответствует шаблону "Method Path Version".
      */
-    private void setStartLine(@NotNull String line) throws RequestBuildException {
-//        if (logger.isLoggable(Level.FINEST)) logger.finest("StartLine: " + line);
+    private void setStartLine(byte @NotNull [] bytes, int start, int end) throws RequestBuildException {
+        while (end > start && bytes[end - 1] == ' ') end--; // пробелы в конце строки допускаются
 
-        final String[] starts = line.split(" ");
-        if (starts.length != 3) throw new RequestBuildException("Bad start line: " + line);
+        final int first = indexOfSpace(bytes, start, end);
+        final int second = first < 0 ? -1 : indexOfSpace(bytes, first + 1, end);
+
+        if (first <= start || second <= first + 1 || indexOfSpace(bytes, second + 1, end) >= 0) {
+            throw new RequestBuildException(
+                "Bad start line: " + new String(bytes, start, end - start, StandardCharsets.UTF_8)
+            );
+        }
 
-        method = starts[0];
-        setPath(starts[1]);
-        version = starts[2];
+        method = token(bytes, start, first, methods);
+        setPath(bytes, first + 1, second);
+        version = token(bytes, second + 1, end, versions);
 
         if (logger.isLoggable(Level.CONFIG)) {
-            logger.config("Запрос создан. StartLine: " + String.join(", ", starts));
+            logger.config("Запрос создан. StartLine: " + method + ", " + path + ", " + version);
         }
     }
 
+    private static int indexOfSpace(byte @NotNull [] bytes, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] == ' ') return i;
+        }
+
+        return -1;
+    }
+
     /**
-     * Метод устанавливает тело запроса.
-     * @param lines стрим со строками тела запроса.
+     * Метод возвращает строку из буфера, для известных значений - готовую константу.
+     * @param bytes буфер запроса.
+     * @param start начало значения.
+     * @param end конец значения.
+     * @param known известные значения.
+     * @return строка значения.
      */
-    private void setBody(@NotNull Stream<String> lines) {
-        body = lines.collect(Collectors.joining());
+    private static @NotNull String token(byte @NotNull [] bytes, int start, int end, String @NotNull [] known) {
+        final int length = end - start;
+
+        search:
+        for (String value : known) {
+            if (value.length() != length) continue;
+
+            for (int i = 0; i < length; i++) {
+                if (bytes[start + i] != value.charAt(i)) continue search;
+            }
+
+            return value;
+        }
+
+        return new String(bytes, start, length, StandardCharsets.UTF_8);
     }
 
     /**
-     * Создает список cookie.
-     * @param cookieRaw запрос из заголовка cookie.
+     * Метод разбирает тело запроса.
+     * @return тело запроса.
      */
-    private void setCookie(@NotNull String cookieRaw) {
-        if (logger.isLoggable(Level.FINEST)) logger.finest("CookieRaw: " + cookieRaw);
+    private @NotNull String parseBody() {
+        final int length = bodyLength();
+        return length > 0 ? new String(requestBytes, bodyStart, length, StandardCharsets.UTF_8) : "";
+    }
 
-        final var cookieSplit = cookieRaw.split(";");
+    /**
+     * Метод возвращает длину тела запроса в буфере.
+     * @return длина тела, 0 - тела нет.
+     */
+    private int bodyLength() {
+        return bodyStart >= 0 && bodyStart < requestLength ? requestLength - bodyStart : 0;
+    }
 
-        Arrays.stream(cookieSplit).forEach(line -> {
-            final var splitLine = line.split("=");
-            cookie.put(splitLine[0].trim(), splitLine.length == 1 ? "" : splitLine[1]);
-        });
+    /**
+     * Заполняет cookie из всех заголовков Cookie.
+     * @param result cookie запроса.
+     */
+    private void parseCookie(@NotNull HashMap<String, String> result) {
+        for (String cookieRaw : headers.getAll(Headers.COOKIE)) {
+            if (logger.isLoggable(Level.FINEST)) logger.finest("CookieRaw: " + cookieRaw);
+
+            for (String line : cookieRaw.split(";")) {
+                final int separator = line.indexOf('=');
+
+                if (separator < 0) {
+                    result.put(line.trim(), "");
+                } else {
+                    result.put(line.substring(0, separator).trim(), line.substring(separator + 1));
+                }
+            }
+        }
     }
 
+    /**
+     * Путь и строка запроса создаются из буфера по отдельности, без промежуточной строки целиком.
+     * @param bytes буфер запроса.
+     * @param start начало пути.
+     * @param end конец пути вместе со строкой запроса.
+     */
     @Contract(mutates = "this")
-    private void setPath(@NotNull String pathRequest) {
-        final var queryParam = pathRequest.split("\\?");
-        path = queryParam[0];
+    private void setPath(byte @NotNull [] bytes, int start, int end) {
+        int separator = start;
+        while (separator < end && bytes[separator] != '?') separator++;
 
-        if (queryParam.length > 1) setQueryParams(queryParam[1]);
+        path = new String(bytes, start, separator - start, StandardCharsets.UTF_8);
+        if (separator < end) rawQuery = new String(bytes, separator + 1, end - separator - 1, StandardCharsets.UTF_8);
     }
 
-    private void setQueryParams(@NotNull String params) {
-        final var paramsString = params.split("&");
+    /**
+     * Разбирает параметры строки запроса.
+     * @param result параметры запроса.
+     */
+    private void parseQueryParams(@NotNull HashMap<String, String> result) {
+        if (rawQuery == null || rawQuery.isEmpty()) return;
 
-        for(String param : paramsString) {
+        for (String param : rawQuery.split("&")) {
             final var pairParam = param.split("=");
-            queryParams.put(pairParam[0], pairParam.length > 1 ? pairParam[1] : null);
+            result.put(pairParam[0], pairParam.length > 1 ? pairParam[1] : null);
         }
     }
 
@@ -145,6 +436,7 @@ public final class Request implements IHttpCattyRequest {
      */
     @Override
     public void setParams(String name, Object value) {
+        live();
         params.put(name, value);
     }
 
@@ -154,11 +446,13 @@ public final class Request implements IHttpCattyRequest {
      */
     @Override
     public void setRoute(ICattyRoute originalRoute) {
+        live();
         route = originalRoute;
     }
 
     @Override
     public void setClientInfo(IClientInfo clientInfo) {
+        live();
         client = clientInfo;
     }
 
@@ -168,6 +462,7 @@ public final class Request implements IHttpCattyRequest {
      */
     @Override
     public void addException(Exception exception) {
+        live();
         exceptions.add(exception);
     }
 
@@ -177,6 +472,9 @@ public final class Request implements IHttpCattyRequest {
      */
     @Override
     public void handle(IHttpCattyResponse response) throws IOException, URISyntaxException {
+        live();
+        final long start = trace == null ? 0 : System.nanoTime();
+
         try {
             getRoute().orElseThrow().handle(this, response);
         } catch (Exception ex) {
@@ -184,37 +482,77 @@ public final class Request implements IHttpCattyRequest {
             logger.severe("Ошибка в обработке маршрута(метод handle): " + ex.getLocalizedMessage());
 
             throw ex;
+        } finally {
+            if (trace != null) trace.span("handler", start);
         }
     }
 
     @Override
     public Optional<String> getPath() {
+        live();
         return Optional.ofNullable(path);
     }
 
     @Override
     public String getMethod() {
+        live();
         return method;
     }
 
     @Override
     public String getVersion() {
+        live();
         return version;
     }
 
     @Override
     public @Nullable String getCookie(String name) {
+        live();
+        if (!cookieParsed) {
+            parseCookie(cookie);
+            cookieParsed = true;
+        }
+
         return cookie.getOrDefault(name, null);
     }
 
     @Override
     public @Nullable String getHeaders(String name) {
-        return headers.getOrDefault(name, null);
+        live();
+        return headers.get(name);
     }
     @Contract(pure = true)
     @Override
     public @Nullable String getHeaders(@NotNull Headers header) {
-        return headers.getOrDefault(header.getHeaderName(), "");
+        live();
+        final String value = headers.get(header);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Метод возвращает все значения заголовка запроса, имя сравнивается без учета регистра.
+     * @param name имя заголовка.
+     * @return список значений, пустой если заголовка нет.
+     */
+    @Override
+    public @NotNull List<String> getHeaderValues(@NotNull String name) {
+        live();
+        return headers.getAll(name);
+    }
+    @Override
+    public @NotNull List<String> getHeaderValues(@NotNull Headers header) {
+        live();
+        return headers.getAll(header);
+    }
+
+    /**
+     * Метод возвращает все заголовки запроса.
+     * @return заголовки запроса.
+     */
+    @Override
+    public @NotNull IHttpHeaders getAllHeaders() {
+        live();
+        return headers;
     }
 
     /**
@@ -225,26 +563,88 @@ public final class Request implements IHttpCattyRequest {
     @SuppressWarnings("unchecked")
     @Override
     public @Nullable <T> T getParams(String name) {
+        live();
         return (T) params.getOrDefault(name, null);
     }
 
     @Override
     public String getOriginalRequest() {
+        live();
+        if (originalRequest == null && fromFields) {
+            final StringBuilder text = new StringBuilder(256);
+
+            text.append(method).append(' ').append(path);
+            if (rawQuery != null) text.append('?').append(rawQuery);
+            text.append(' ').append(version).append("\r\n");
+            for (int i = 0; i < headers.size(); i++) {
+                text.append(headers.getName(i)).append(": ").append(headers.getValue(i)).append("\r\n");
+            }
+            text.append("\r\n").append(new String(requestBytes, 0, requestLength, StandardCharsets.UTF_8));
+
+            originalRequest = text.toString().trim();
+        } else if (originalRequest == null) {
+            originalRequest = new String(requestBytes, 0, requestLength, StandardCharsets.UTF_8).trim();
+        }
+
         return originalRequest;
     }
 
     @Override
     public String getBody() {
+        live();
+        if (body == null) body = parseBody();
         return body;
     }
 
+    @Override
+    public @Nullable String getRawQuery() {
+        live();
+        return rawQuery;
+    }
+
+    @Override
+    public @NotNull ByteBuffer getBodyBuffer() {
+        live();
+        final int length = bodyLength();
+
+        return ByteBuffer.wrap(requestBytes, length == 0 ? 0 : bodyStart, length).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public byte @NotNull [] getBodyBytes() {
+        live();
+        final int length = bodyLength();
+
+        return length == 0 ? new byte[0] : Arrays.copyOfRange(requestBytes, bodyStart, bodyStart + length);
+    }
+
+    @Override
+    public @NotNull InputStream getBodyStream() {
+        live();
+        final int length = bodyLength();
+
+        return new ByteArrayInputStream(requestBytes, length == 0 ? 0 : bodyStart, length);
+    }
+
+    @Override
+    public @NotNull ReadableByteChannel getBodyChannel() {
+        return new BodyChannel(getBodyBuffer());
+    }
+
     @Override
     public String getQueryParam(String name) {
+        live();
+        if (!queryParsed) {
+            parseQueryParams(queryParams);
+            queryParsed = true;
+        }
+
         return queryParams.get(name);
     }
 
     @Override
     public Optional<ICattyRoute> getRoute() {
+        live();
         return Optional.ofNullable(route);
     }
 
@@ -254,14 +654,45 @@ public final class Request implements IHttpCattyRequest {
      */
     @Override
     public IClientInfo getClientInfo() {
+        live();
         return client;
     }
 
+    @Override
+    public void setTrace(@Nullable RequestTrace requestTrace) {
+        live();
+        trace = requestTrace;
+    }
+
+    /**
+     * Метод возвращает трассу запроса с интервалами обработки.
+     * @return трасса или null, если трассировка выключена.
+     */
+    @Override
+    public @Nullable RequestTrace getTrace() {
+        live();
+        return trace;
+    }
+
     @Override
     public Logger getLogger() {
         return logger;
     }
 
+    /**
+     * Метод сообщает, что запрос остается у обработчика после отправки ответа и не возвращается в пул.
+     */
+    @Override
+    public void retain() {
+        live();
+        retained = true;
+    }
+
+    @Override
+    public boolean isRetained() {
+        return retained;
+    }
+
     /**
      * Получить все ошибки запроса, возникшие в ходе его обработки.
      * @return список ошибок
@@ -269,6 +700,7 @@ public final class Request implements IHttpCattyRequest {
     @SuppressWarnings("unchecked")
     @Override
     public ArrayList<Exception> getExceptionList() {
+        live();
         return (ArrayList<Exception>) exceptions.clone();
     }
 }
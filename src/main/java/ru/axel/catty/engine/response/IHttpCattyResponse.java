@@ -1,7 +1,10 @@
 package ru.axel.catty.engine.response;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.handler.IConnectionUpgrade;
 import ru.axel.catty.engine.headers.IHeaders;
+import ru.axel.catty.engine.headers.IHttpHeaders;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -17,6 +20,20 @@ public interface IHttpCattyResponse {
     void addHeader(@NotNull IHeaders header, String value);
     void addHeader(@NotNull String header, String value);
 
+    /**
+     * Метод добавляет еще одно значение заголовка, не заменяя существующие.
+     * @param header имя заголовка
+     * @param value значение заголовка
+     */
+    void appendHeader(@NotNull IHeaders header, String value);
+    void appendHeader(@NotNull String header, String value);
+
+    /**
+     * Метод возвращает заголовки ответа.
+     * @return заголовки ответа.
+     */
+    @NotNull IHttpHeaders getHeaders();
+
     /**
      * Метод добавляет тело ответа
      * @param bodyString тело ответа
@@ -29,6 +46,12 @@ public interface IHttpCattyResponse {
      */
     void setBody(byte @NotNull [] bodyBytes);
 
+    /**
+     * Метод возвращает тело ответа.
+     * @return тело ответа или null, если тело не устанавливалось.
+     */
+    byte @Nullable [] getBody();
+
     /**
      * Метод устанавливает код ответа
      * @param code код ответа
@@ -57,6 +80,20 @@ public interface IHttpCattyResponse {
      */
     byte @NotNull [] getBytes() throws IOException;
 
+    /**
+     * Метод устанавливает готовые байты ответа (строка статуса, заголовки и тело),
+     * после чего getBytes и getByteBuffer возвращают их без повторной сериализации.
+     * Массив может быть общим для нескольких ответов и не должен изменяться.
+     * @param bytes сериализованный ответ.
+     */
+    void setPreparedBytes(byte @NotNull [] bytes);
+
+    /**
+     * Метод возвращает готовые байты ответа, установленные через setPreparedBytes.
+     * @return сериализованный ответ или null.
+     */
+    byte @Nullable [] getPreparedBytes();
+
     /**
      * Метод возвращает буффер байтов ответа
      * @throws IOException ошибка записи байт в поток.
@@ -89,5 +126,18 @@ public interface IHttpCattyResponse {
     void setCookie(ISetCookie cookie);
     void setTransformMethod(TransformResponse method);
 
+    /**
+     * Метод устанавливает переключение протокола: после отправки ответа канал клиента
+     * передается upgrade вместо закрытия.
+     * @param upgrade обработчик переключения или null.
+     */
+    void setUpgrade(@Nullable IConnectionUpgrade upgrade);
+
+    /**
+     * Метод возвращает обработчик переключения протокола.
+     * @return обработчик или null.
+     */
+    @Nullable IConnectionUpgrade getUpgrade();
+
     Logger getLogger();
 }
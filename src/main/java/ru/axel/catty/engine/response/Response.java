@@ -1,69 +1,110 @@
 package ru.axel.catty.engine.response;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.handler.IConnectionUpgrade;
 import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.headers.HttpDate;
+import ru.axel.catty.engine.headers.HttpHeaders;
 import ru.axel.catty.engine.headers.IHeaders;
+import ru.axel.catty.engine.headers.IHttpHeaders;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Класс содержит данные ответа клиенту.
+ * Ответ может повторно использоваться через {@link ru.axel.catty.engine.request.ExchangePool}:
+ * метод reset очищает ответ, сохраняя хранилище заголовков и буфер записи заголовка.
  */
 public class Response implements IHttpCattyResponse {
-    private final Logger logger;
-    private final HashMap<String, String> headers = new HashMap<>();
-    private final List<String> cookies = new ArrayList<>();
+    private Logger logger;
+    private static final byte[] COLON = { ':', ' ' };
+    private static final byte[] CRLF = { '\r', '\n' };
+    private final HttpHeaders headers = new HttpHeaders();
     private byte[] body;
+    private byte[] preparedBytes;                   // готовый ответ, например из кэша
     private int responseCode;
-    private final String httpVersion = "HTTP/1.1";
     private TransformResponse transformResponse;
+    private IConnectionUpgrade upgrade;
+    private HeadWriter writer;
+    private Throwable releasedAt;                   // место возврата в пул в режиме отладки
 
     public Response(Logger loggerInstance) {
         logger = loggerInstance;
     }
 
     /**
-     * Метод формирует строку ответа
-     * @return строка ответа
+     * Метод очищает ответ для повторного использования и освобождает ссылки на тело и готовые байты.
+     * @param loggerInstance логгер.
      */
-    private @NotNull String getHeadResponse() {
-        final StringBuilder responseLines = new StringBuilder();
+    public void reset(Logger loggerInstance) {
+        logger = loggerInstance;
+        headers.clear();
+        body = null;
+        preparedBytes = null;
+        responseCode = 0;
+        transformResponse = null;
+        upgrade = null;
+    }
+
+    /**
+     * Метод помечает ответ возвращенным в пул (режим отладки): любое следующее обращение к ответу
+     * завершится ошибкой с местом возврата в причине.
+     * @param releaseSite место возврата в пул.
+     */
+    public void poison(@NotNull Throwable releaseSite) {
+        reset(logger);
+        writer = null;
+        releasedAt = releaseSite;
+    }
+
+    /**
+     * Метод проверяет, что ответ не возвращен в пул.
+     */
+    private void live() {
+        if (releasedAt != null) {
+            throw new IllegalStateException("Ответ используется после возврата в пул", releasedAt);
+        }
+    }
+
+    /**
+     * Метод формирует заголовок ответа: строку статуса и заголовки, включая Set-Cookie.
+     * Строка статуса, имена известных заголовков и заголовок Date берутся в готовом виде,
+     * поэтому запись в основном сводится к копированию массивов. Буфер записи принадлежит ответу
+     * и переиспользуется при повторном использовании ответа.
+     * @param charset кодировка значений заголовков.
+     * @return буфер с заголовком ответа.
+     */
+    private @NotNull HeadWriter writeHead(Charset charset) {
+        if (writer == null) writer = new HeadWriter();
+        writer.reset(charset);
 
         /* start line */
-        responseLines
-            .append(httpVersion)
-            .append(" ")
-            .append(responseCode)
-            .append("\r\n");
+        writer.write(ResponseCode.statusLine(responseCode));
 
         /* headers */
-        headers
-            .forEach((key, value) -> responseLines
-                .append(key)
-                .append(": ")
-                .append(value)
-                .append("\r\n"));
+        if (!headers.contains(Headers.DATE)) writer.write(HttpDate.getHeaderLine());
+        for (int i = 0; i < headers.size(); i++) {
+            final Headers known = headers.getKnown(i);
 
-        /* cookies */
-        cookies
-            .forEach(cookie -> responseLines
-                .append(Headers.SET_COOKIE)
-                .append(": ")
-                .append(cookie)
-                .append("\r\n"));
+            if (known != null) {
+                writer.write(known.getPrefixBytes());
+            } else {
+                writer.writeString(headers.getName(i));
+                writer.write(COLON);
+            }
+            writer.writeLine(headers.getValue(i));
+        }
 
-        responseLines.append("\r\n");
+        writer.write(CRLF);
 
-        return responseLines.toString();
+        return writer;
     }
 
     /**
@@ -73,11 +114,39 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public void addHeader(@NotNull IHeaders header, String value) {
-        headers.put(header.getHeaderName(), value);
+        live();
+        headers.set(header, value);
     }
     @Override
     public void addHeader(@NotNull String header, String value) {
-        headers.put(header, value);
+        live();
+        headers.set(header, value);
+    }
+
+    /**
+     * Метод добавляет еще одно значение заголовка, не заменяя существующие.
+     * @param header имя заголовка
+     * @param value значение заголовка
+     */
+    @Override
+    public void appendHeader(@NotNull IHeaders header, String value) {
+        live();
+        headers.add(header, value);
+    }
+    @Override
+    public void appendHeader(@NotNull String header, String value) {
+        live();
+        headers.add(header, value);
+    }
+
+    /**
+     * Метод возвращает заголовки ответа.
+     * @return заголовки ответа.
+     */
+    @Override
+    public @NotNull IHttpHeaders getHeaders() {
+        live();
+        return headers;
     }
 
     /**
@@ -86,6 +155,7 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public void setBody(@NotNull String bodyString) {
+        live();
         final byte[] bytes = transformResponse == null
             ? bodyString.getBytes(StandardCharsets.UTF_8)
             : transformResponse.transform(bodyString.getBytes(StandardCharsets.UTF_8));
@@ -100,18 +170,30 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public void setBody(byte @NotNull [] bodyBytes) {
+        live();
         addHeader(Headers.CONTENT_LENGTH, String.valueOf(bodyBytes.length));
         body = transformResponse == null
             ? bodyBytes
             : transformResponse.transform(bodyBytes);
     }
 
+    /**
+     * Метод возвращает тело ответа.
+     * @return тело ответа или null, если тело не устанавливалось.
+     */
+    @Override
+    public byte @Nullable [] getBody() {
+        live();
+        return body;
+    }
+
     /**
      * Метод устанавливает код ответа
      * @param code код ответа
      */
     @Override
     public void setResponseCode(@NotNull ResponseCode code) {
+        live();
         responseCode = code.getCode();
         if (logger.isLoggable(Level.FINEST)) {
             logger.finest("Установлен код ответа: " + code);
@@ -119,6 +201,7 @@ public class Response implements IHttpCattyResponse {
     }
     @Override
     public void setResponseCode(int code) {
+        live();
         responseCode = code;
         if (logger.isLoggable(Level.FINEST)) {
             logger.finest("Установлен код ответа: " + code);
@@ -131,6 +214,7 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public int getResponseCode() {
+        live();
         return responseCode;
     }
 
@@ -142,21 +226,17 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public byte @NotNull [] getBytes(Charset charset) throws IOException {
-        final byte[] arrByte = getHeadResponse().getBytes(charset);
-
-        // ByteArrayOutputStream выбран как более элегантный способ с заделом на будущее, вместо например arraycopy.
-        try(final ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            outputStream.write(arrByte);
+        live();
+        if (preparedBytes != null) return preparedBytes;
 
-            if (body != null && body.length > 0) outputStream.write(body);
+        final HeadWriter head = writeHead(charset);
+        final int bodyLength = body == null ? 0 : body.length;
+        final byte[] bytes = new byte[head.position + bodyLength];
 
-//            System.out.println(new String(outputStream.toByteArray()));
+        System.arraycopy(head.buffer, 0, bytes, 0, head.position);
+        if (bodyLength > 0) System.arraycopy(body, 0, bytes, head.position, bodyLength);
 
-            return outputStream.toByteArray();
-        } catch (Throwable exc) {
-            exc.printStackTrace();
-            throw exc;
-        }
+        return bytes;
     }
 
     /**
@@ -169,6 +249,28 @@ public class Response implements IHttpCattyResponse {
         return getBytes(StandardCharsets.UTF_8);
     }
 
+    /**
+     * Метод устанавливает готовые байты ответа (строка статуса, заголовки и тело),
+     * после чего getBytes и getByteBuffer возвращают их без повторной сериализации.
+     * Массив может быть общим для нескольких ответов и не должен изменяться.
+     * @param bytes сериализованный ответ.
+     */
+    @Override
+    public void setPreparedBytes(byte @NotNull [] bytes) {
+        live();
+        preparedBytes = bytes;
+    }
+
+    /**
+     * Метод возвращает готовые байты ответа, установленные через setPreparedBytes.
+     * @return сериализованный ответ или null.
+     */
+    @Override
+    public byte @Nullable [] getPreparedBytes() {
+        live();
+        return preparedBytes;
+    }
+
     /**
      * Метод возвращает буффер байтов ответа
      * @throws IOException ошибка записи байт в поток.
@@ -176,6 +278,7 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public ByteBuffer getByteBuffer() throws IOException {
+        live();
         return ByteBuffer.wrap(getBytes());
     }
 
@@ -216,12 +319,12 @@ public class Response implements IHttpCattyResponse {
     @Override
     public void redirect(String path, boolean isPermanently) {
         setResponseCode(isPermanently ? ResponseCode.MOVED_PERMANENTLY : ResponseCode.FOUND);
-        addHeader(Headers.LOCATION.getHeaderName(), path);
+        addHeader(Headers.LOCATION, path);
     }
     @Override
     public void redirect(String path, boolean isPermanently, byte[] body) {
         setResponseCode(isPermanently ? ResponseCode.MOVED_PERMANENTLY : ResponseCode.FOUND);
-        addHeader(Headers.LOCATION.getHeaderName(), path);
+        addHeader(Headers.LOCATION, path);
         setBody(body);
     }
 
@@ -231,16 +334,88 @@ public class Response implements IHttpCattyResponse {
      */
     @Override
     public void setCookie(@NotNull ISetCookie cookie) {
-        cookies.add(cookie.toString());
+        live();
+        headers.add(Headers.SET_COOKIE, cookie.toString());
     }
 
     @Override
     public void setTransformMethod(TransformResponse method) {
+        live();
         transformResponse = method;
     }
 
+    /**
+     * Метод устанавливает переключение протокола: после отправки ответа канал клиента
+     * передается upgrade вместо закрытия.
+     * @param connectionUpgrade обработчик переключения или null.
+     */
+    @Override
+    public void setUpgrade(@Nullable IConnectionUpgrade connectionUpgrade) {
+        live();
+        upgrade = connectionUpgrade;
+    }
+
+    /**
+     * Метод возвращает обработчик переключения протокола.
+     * @return обработчик или null.
+     */
+    @Override
+    public @Nullable IConnectionUpgrade getUpgrade() {
+        live();
+        return upgrade;
+    }
+
     @Override
     public Logger getLogger() {
         return logger;
     }
+
+    /**
+     * Буфер записи заголовка ответа.
+     * Строки из символов ASCII пишутся напрямую, без промежуточного массива.
+     */
+    private static final class HeadWriter {
+        private Charset charset;
+        private byte[] buffer = new byte[512];
+        private int position = 0;
+
+        void reset(Charset headCharset) {
+            charset = headCharset;
+            position = 0;
+        }
+
+        void write(byte @NotNull [] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(@NotNull String value) {
+            final int length = value.length();
+            ensureCapacity(length);
+
+            for (int i = 0; i < length; i++) {
+                final char symbol = value.charAt(i);
+
+                if (symbol >= 0x80) { // не ASCII - откатываемся и кодируем строку целиком
+                    position -= i;
+                    write(value.getBytes(charset));
+                    return;
+                }
+
+                buffer[position++] = (byte) symbol;
+            }
+        }
+
+        void writeLine(@NotNull String value) {
+            writeString(value);
+            write(CRLF);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
 }
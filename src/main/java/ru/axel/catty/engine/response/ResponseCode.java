@@ -2,30 +2,103 @@ package ru.axel.catty.engine.response;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
 
 /**
  * Код ответа сервера.
  */
 public enum ResponseCode {
-    OK                      (200),
-    MOVED_PERMANENTLY       (301),
-    FOUND                   (302),
-    BAD_REQUEST             (400),
-    FORBIDDEN               (403),
-    NOT_FOUND               (404),
-    INTERNAL_SERVER_ERROR   (500),
+    CONTINUE                (100, "Continue"),
+    SWITCHING_PROTOCOLS     (101, "Switching Protocols"),
+    OK                      (200, "OK"),
+    MOVED_PERMANENTLY       (301, "Moved Permanently"),
+    FOUND                   (302, "Found"),
+    NOT_MODIFIED            (304, "Not Modified"),
+    BAD_REQUEST             (400, "Bad Request"),
+    FORBIDDEN               (403, "Forbidden"),
+    NOT_FOUND               (404, "Not Found"),
+    PAYLOAD_TOO_LARGE       (413, "Payload Too Large"),
+    EXPECTATION_FAILED      (417, "Expectation Failed"),
+    UPGRADE_REQUIRED        (426, "Upgrade Required"),
+    TOO_MANY_REQUESTS       (429, "Too Many Requests"),
+    INTERNAL_SERVER_ERROR   (500, "Internal Server Error"),
+    BAD_GATEWAY             (502, "Bad Gateway"),
+    SERVICE_UNAVAILABLE     (503, "Service Unavailable"),
+    GATEWAY_TIMEOUT         (504, "Gateway Timeout"),
     ;
 
+    private static final int minCode = 100;
+    private static final int maxCode = 599;
+    private static final byte[][] statusLines = new byte[maxCode - minCode + 1][];
+
+    static {
+        for (int code = minCode; code <= maxCode; code++) {
+            final ResponseCode known = of(code);
+            statusLines[code - minCode] = buildStatusLine(code, known == null ? "" : known.reason);
+        }
+    }
+
     final int code;
+    private final String reason;
 
-    ResponseCode(int code) {
+    ResponseCode(int code, String reason) {
         this.code = code;
+        this.reason = reason;
     }
 
     final public int getCode() {
         return code;
     }
 
+    /**
+     * Метод возвращает текстовое описание кода ответа.
+     * @return описание кода ответа.
+     */
+    final public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Метод возвращает строку статуса ответа в кодировке ASCII, например "HTTP/1.1 200 OK\r\n".
+     * Массив общий для всех вызовов и не должен изменяться.
+     * @return байты строки статуса.
+     */
+    final public byte[] getStatusLine() {
+        return statusLines[code - minCode];
+    }
+
+    /**
+     * Метод ищет код ответа по числовому значению.
+     * @param code числовой код.
+     * @return код ответа или null, если код не известен.
+     */
+    public static @Nullable ResponseCode of(int code) {
+        for (ResponseCode responseCode : values()) {
+            if (responseCode.code == code) return responseCode;
+        }
+
+        return null;
+    }
+
+    /**
+     * Метод возвращает строку статуса ответа для произвольного кода.
+     * Для кодов вне диапазона 100-599 строка формируется заново.
+     * @param code числовой код.
+     * @return байты строки статуса.
+     */
+    public static byte @NotNull [] statusLine(int code) {
+        if (code >= minCode && code <= maxCode) return statusLines[code - minCode];
+
+        return buildStatusLine(code, "");
+    }
+
+    @Contract(pure = true)
+    private static byte @NotNull [] buildStatusLine(int code, String reason) {
+        return ("HTTP/1.1 " + code + " " + reason + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
     @Contract(pure = true)
     @Override
     final public @NotNull String toString() {
@@ -1,12 +1,16 @@
 package ru.axel.catty.engine.routing;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.assets.AssetBundle;
+import ru.axel.catty.engine.bulkhead.Bulkhead;
+import ru.axel.catty.engine.cache.CachePolicy;
+import ru.axel.catty.engine.proxy.ReverseProxy;
 import ru.axel.catty.engine.request.IHttpCattyRequest;
 
-import java.io.IOException;
-import java.net.URL;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 public interface IRouting {
     /**
@@ -15,6 +19,46 @@ public interface IRouting {
      */
     void addRoute(ICattyRoute route);
 
+    /**
+     * Метод добавляет маршруты одной публикацией таблицы маршрутов.
+     * @param routes маршруты.
+     */
+    void addRoutes(@NotNull Collection<? extends ICattyRoute> routes);
+
+    /**
+     * Метод удаляет маршрут.
+     * @param route объект маршрута.
+     * @return true, если маршрут был в таблице.
+     */
+    boolean removeRoute(@NotNull ICattyRoute route);
+
+    /**
+     * Метод удаляет маршруты, подходящие под условие.
+     * @param filter условие удаления.
+     * @return удаленные маршруты.
+     */
+    @NotNull List<ICattyRoute> removeRoutes(@NotNull Predicate<ICattyRoute> filter);
+
+    /**
+     * Метод заменяет все маршруты новым набором без остановки обработки запросов.
+     * @param routes новый набор маршрутов.
+     * @return маршруты прежней таблицы.
+     */
+    @NotNull List<ICattyRoute> replaceRoutes(@NotNull Collection<? extends ICattyRoute> routes);
+
+    /**
+     * Метод подписывает хранилище, привязанное к маршрутам, на удаление маршрутов: после удаления или замены
+     * маршрутов оно получает маршруты, выпавшие из таблицы. Например, routing.addRouteForget(plugins).
+     * @param forget хранилище.
+     */
+    void addRouteForget(@NotNull RouteForget forget);
+
+    /**
+     * Метод возвращает маршруты в порядке добавления.
+     * @return неизменяемый снимок списка маршрутов.
+     */
+    @NotNull List<ICattyRoute> getRoutes();
+
     /**
      * Метод добавляет в коллекцию маршрут.
      * @param path путь запроса.
@@ -23,6 +67,20 @@ public interface IRouting {
      */
     void addRoute(String path, String method, RouteExecute handler);
 
+    /**
+     * Метод добавляет в коллекцию маршрут с кэшированием ответов.
+     * @param route объект маршрута.
+     * @param policy настройки кэширования.
+     */
+    void addRoute(ICattyRoute route, CachePolicy policy);
+
+    /**
+     * Метод добавляет маршрут, обработчик которого выполняется в изолированной группе маршрутов.
+     * @param route маршрут.
+     * @param bulkhead группа маршрутов.
+     */
+    void addRoute(@NotNull ICattyRoute route, @NotNull Bulkhead bulkhead);
+
     /**
      * Метод создает GET маршрут.
      * @param path маршрут.
@@ -30,6 +88,14 @@ public interface IRouting {
      */
     void get(String path, RouteExecute handler);
 
+    /**
+     * Метод создает GET маршрут с кэшированием ответов.
+     * @param path маршрут.
+     * @param handler обработчик маршрута.
+     * @param policy настройки кэширования.
+     */
+    void get(String path, RouteExecute handler, CachePolicy policy);
+
     /**
      * Метод создает POST маршрут.
      * @param path маршрут.
@@ -50,6 +116,19 @@ public interface IRouting {
      */
     void staticResourceFiles(String path);
 
+    /**
+     * Метод создает GET маршрут для набора статических файлов, собранного при запуске.
+     * @param bundle набор статических файлов.
+     */
+    void staticAssets(@NotNull AssetBundle bundle);
+
+    /**
+     * Метод создает маршруты всех методов, кроме CONNECT и TRACE, передающие запросы под путем серверам прокси.
+     * @param path путь запроса, запросы вложенных путей тоже передаются.
+     * @param proxy прокси.
+     */
+    void proxy(@NotNull String path, @NotNull ReverseProxy proxy);
+
     /**
      * Метод возвращает маршрут подходящий под запрос и присваивает его объекту запроса.
      * @param request запрос.
@@ -0,0 +1,18 @@
+package ru.axel.catty.engine.routing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Хранилище данных, привязанных к маршрутам (цепочки плагинов, обертки маршрутов), которое нужно очищать
+ * при удалении маршрутов из таблицы. Подписывается через {@link IRouting#addRouteForget(RouteForget)}.
+ */
+@FunctionalInterface
+public interface RouteForget {
+    /**
+     * Метод удаляет данные маршрутов, выпавших из таблицы маршрутов.
+     * @param routes маршруты.
+     */
+    void forget(@NotNull Collection<? extends ICattyRoute> routes);
+}
@@ -0,0 +1,91 @@
+package ru.axel.catty.engine.routing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Неизменяемая скомпилированная таблица маршрутов.
+ * Маршруты сгруппированы по методу и заранее упорядочены по приоритету, поэтому поиск - проход
+ * по массиву до первого совпадения без блокировок и без сортировки на каждый запрос.
+ * Приоритет: длиннее часть пути без подстановок "(.*)", затем короче паттерн, затем позже добавленный маршрут.
+ */
+final class RouteTable {
+    static final RouteTable EMPTY = new RouteTable(List.of());
+    private static final Pattern wildcard = Pattern.compile("\\(\\.\\*\\)");
+    private final List<ICattyRoute> routes;
+    private final Map<String, Entry[]> byMethod = new HashMap<>();
+
+    /**
+     * Компиляция таблицы.
+     * @param routeList маршруты в порядке добавления.
+     */
+    RouteTable(@NotNull List<ICattyRoute> routeList) {
+        routes = List.copyOf(routeList);
+
+        final Map<String, List<Entry>> groups = new HashMap<>();
+        for (int i = 0; i < routes.size(); i++) {
+            final ICattyRoute route = routes.get(i);
+            groups.computeIfAbsent(route.getMethod(), method -> new ArrayList<>()).add(new Entry(route, i));
+        }
+
+        final Comparator<Entry> priority = Comparator
+            .comparingInt((Entry entry) -> entry.literalLength).reversed()
+            .thenComparingInt(entry -> entry.pattern.pattern().length())
+            .thenComparing(Comparator.comparingInt((Entry entry) -> entry.order).reversed());
+
+        groups.forEach((method, entries) -> {
+            entries.sort(priority);
+            byMethod.put(method, entries.toArray(Entry[]::new));
+        });
+    }
+
+    /**
+     * Метод ищет маршрут с наибольшим приоритетом.
+     * @param path путь запроса.
+     * @param method метод запроса.
+     * @return маршрут или null.
+     */
+    @Nullable ICattyRoute find(@NotNull String path, @Nullable String method) {
+        final Entry[] entries = byMethod.get(method);
+        if (entries == null) return null;
+
+        for (Entry entry : entries) {
+            if (entry.pattern.matcher(path).matches()) return entry.route;
+        }
+
+        return null;
+    }
+
+    /**
+     * Метод возвращает маршруты в порядке добавления.
+     * @return неизменяемый список маршрутов.
+     */
+    @NotNull List<ICattyRoute> routes() {
+        return routes;
+    }
+
+    int size() {
+        return routes.size();
+    }
+
+    private static final class Entry {
+        private final ICattyRoute route;
+        private final Pattern pattern;
+        private final int literalLength;
+        private final int order;
+
+        Entry(@NotNull ICattyRoute route, int order) {
+            this.route = route;
+            this.order = order;
+            pattern = route.getPattern();
+            literalLength = wildcard.matcher(pattern.pattern()).replaceAll("").length();
+        }
+    }
+}
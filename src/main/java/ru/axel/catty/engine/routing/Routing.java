@@ -2,34 +2,191 @@ package ru.axel.catty.engine.routing;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.assets.AssetBundle;
+import ru.axel.catty.engine.assets.AssetOptions;
+import ru.axel.catty.engine.bulkhead.Bulkhead;
+import ru.axel.catty.engine.bulkhead.BulkheadRoute;
+import ru.axel.catty.engine.cache.CachePolicy;
+import ru.axel.catty.engine.cache.CachedRoute;
+import ru.axel.catty.engine.cache.CoalescingRoute;
+import ru.axel.catty.engine.cache.ResponseCache;
 import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.proxy.ReverseProxy;
 import ru.axel.catty.engine.request.IHttpCattyRequest;
 import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.tracing.RequestTrace;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Routing implements IRouting {
     private final Logger logger;
-    private final List<ICattyRoute> routes = new ArrayList<>();
+    private final Object writeLock = new Object();
+    private volatile RouteTable table = RouteTable.EMPTY; // заменяется целиком при каждом изменении
+    private ResponseCache responseCache;
+    private final List<RouteForget> forgets = new CopyOnWriteArrayList<>();
 
     public Routing(Logger loggerInstance) {
         logger = loggerInstance;
     }
 
+    /**
+     * Метод устанавливает кэш ответов для маршрутов с кэшированием.
+     * Если кэш не установлен, при добавлении первого такого маршрута создается кэш на 64 Мб.
+     * @param cache кэш ответов.
+     */
+    public void setResponseCache(@NotNull ResponseCache cache) {
+        responseCache = cache;
+    }
+
+    /**
+     * Метод возвращает кэш ответов.
+     * @return кэш ответов.
+     */
+    public @NotNull ResponseCache getResponseCache() {
+        if (responseCache == null) responseCache = new ResponseCache(64L * 1024 * 1024);
+        return responseCache;
+    }
+
     /**
      * Метод добавляет в коллекцию маршрут.
      * @param route объект маршрута.
      */
     @Override
     public void addRoute(ICattyRoute route) {
-        routes.add(route);
+        addRoutes(List.of(route));
+    }
+
+    /**
+     * Метод добавляет маршруты одной публикацией таблицы: запросы видят либо все маршруты, либо ни одного.
+     * @param added маршруты.
+     */
+    @Override
+    public void addRoutes(@NotNull Collection<? extends ICattyRoute> added) {
+        synchronized (writeLock) {
+            final List<ICattyRoute> routes = new ArrayList<>(table.routes());
+
+            routes.addAll(added);
+            table = new RouteTable(routes);
+        }
+
+        if (logger.isLoggable(Level.CONFIG)) {
+            for (ICattyRoute route : added) {
+                logger.config("Добавлен маршрут. " + route.getMethod() + ":" + route.getPath());
+            }
+        }
+    }
+
+    /**
+     * Метод удаляет маршрут.
+     * @param route объект маршрута.
+     * @return true, если маршрут был в таблице.
+     */
+    @Override
+    public boolean removeRoute(@NotNull ICattyRoute route) {
+        return !removeRoutes(candidate -> candidate == route).isEmpty();
+    }
+
+    /**
+     * Метод удаляет маршруты, подходящие под условие, одной публикацией таблицы.
+     * @param filter условие удаления.
+     * @return удаленные маршруты.
+     */
+    @Override
+    public @NotNull List<ICattyRoute> removeRoutes(@NotNull Predicate<ICattyRoute> filter) {
+        final List<ICattyRoute> removed = new ArrayList<>();
+
+        synchronized (writeLock) {
+            final List<ICattyRoute> routes = new ArrayList<>(table.size());
+
+            for (ICattyRoute route : table.routes()) {
+                if (filter.test(route)) {
+                    removed.add(route);
+                } else {
+                    routes.add(route);
+                }
+            }
+
+            if (!removed.isEmpty()) table = new RouteTable(routes);
+        }
+
         if (logger.isLoggable(Level.CONFIG)) {
-            logger.config("Добавлен маршрут. " + route.getMethod() + ":" + route.getPath());
+            for (ICattyRoute route : removed) {
+                logger.config("Удален маршрут. " + route.getMethod() + ":" + route.getPath());
+            }
         }
+        forget(removed);
+
+        return removed;
+    }
+
+    /**
+     * Метод заменяет все маршруты новым набором одной публикацией таблицы. Запросы, которые уже нашли маршрут,
+     * дорабатывают со старым маршрутом, новые запросы ищут маршрут в новой таблице.
+     * @param replacement новый набор маршрутов.
+     * @return маршруты прежней таблицы.
+     */
+    @Override
+    public @NotNull List<ICattyRoute> replaceRoutes(@NotNull Collection<? extends ICattyRoute> replacement) {
+        final RouteTable previous;
+
+        synchronized (writeLock) {
+            previous = table;
+            table = new RouteTable(new ArrayList<>(replacement));
+        }
+
+        if (logger.isLoggable(Level.CONFIG)) {
+            logger.config("Маршруты заменены, было: " + previous.size() + ", стало: " + replacement.size());
+        }
+
+        // маршруты, перешедшие в новую таблицу, сохраняют цепочки плагинов и обертки
+        final Set<ICattyRoute> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(replacement);
+
+        final List<ICattyRoute> dropped = new ArrayList<>();
+        for (ICattyRoute route : previous.routes()) {
+            if (!kept.contains(route)) dropped.add(route);
+        }
+        forget(dropped);
+
+        return previous.routes();
+    }
+
+    /**
+     * Метод подписывает хранилище, привязанное к маршрутам, на удаление маршрутов.
+     * @param forget хранилище, например {@link ru.axel.catty.engine.plugins.Plugins}.
+     */
+    @Override
+    public void addRouteForget(@NotNull RouteForget forget) {
+        forgets.add(forget);
+    }
+
+    /**
+     * Метод передает подписанным хранилищам маршруты, выпавшие из опубликованной таблицы.
+     * Вызывается после публикации: запрос, который еще выполняется со старым маршрутом, может снова
+     * создать его данные, они будут удалены при следующем удалении этого маршрута или вместе с хранилищем.
+     * @param dropped маршруты.
+     */
+    private void forget(@NotNull List<ICattyRoute> dropped) {
+        if (dropped.isEmpty()) return;
+
+        for (RouteForget forget : forgets) forget.forget(dropped);
+    }
+
+    /**
+     * Метод возвращает маршруты в порядке добавления.
+     * @return неизменяемый снимок списка маршрутов.
+     */
+    @Override
+    public @NotNull List<ICattyRoute> getRoutes() {
+        return table.routes();
     }
     /**
      * Метод добавляет в коллекцию маршрут.
@@ -43,6 +200,34 @@ public class Routing implements IRouting {
         addRoute(route);
     }
 
+    /**
+     * Метод добавляет в коллекцию маршрут с кэшированием ответов.
+     * @param route объект маршрута.
+     * @param policy настройки кэширования.
+     */
+    @Override
+    public void addRoute(ICattyRoute route, CachePolicy policy) {
+        final ICattyRoute coalesced = policy.isSingleFlight() ? new CoalescingRoute(route, policy) : route;
+
+        addRoute(new CachedRoute(coalesced, getResponseCache(), policy));
+        if (logger.isLoggable(Level.CONFIG)) {
+            logger.config("Кэширование маршрута " + route.getMethod() + ":" + route.getPath() + ": " + policy);
+        }
+    }
+
+    /**
+     * Метод добавляет маршрут, обработчик которого выполняется в изолированной группе маршрутов.
+     * @param route маршрут.
+     * @param bulkhead группа маршрутов.
+     */
+    @Override
+    public void addRoute(@NotNull ICattyRoute route, @NotNull Bulkhead bulkhead) {
+        addRoute(new BulkheadRoute(route, bulkhead));
+        if (logger.isLoggable(Level.CONFIG)) {
+            logger.config("Маршрут " + route.getMethod() + ":" + route.getPath() + " в группе " + bulkhead.getName());
+        }
+    }
+
     /**
      * Метод создает GET маршрут.
      * @param path маршрут.
@@ -53,6 +238,17 @@ public class Routing implements IRouting {
         addRoute(path, "GET", handler);
     }
 
+    /**
+     * Метод создает GET маршрут с кэшированием ответов.
+     * @param path маршрут.
+     * @param handler обработчик маршрута.
+     * @param policy настройки кэширования.
+     */
+    @Override
+    public void get(String path, RouteExecute handler, CachePolicy policy) {
+        addRoute(new Route(path, "GET", handler), policy);
+    }
+
     /**
      * Метод создает POST маршрут.
      * @param path маршрут.
@@ -88,77 +284,64 @@ public class Routing implements IRouting {
     }
 
     /**
-     * Метод создает обработчик для статики из каталога ресурсов
+     * Метод создает обработчик для статики из каталога ресурсов.
+     * Ресурсы индексируются при вызове метода в набор {@link AssetBundle} с настройками по умолчанию,
+     * поэтому работают и из JAR, а запрос файла не обращается к файловой системе.
      * @param path путь запроса, он же будет использоваться для поиска ресурсов
      */
     @Override
     public void staticResourceFiles(String path) {
-        addRoute(path + "/*", "GET", (request, response) -> {
-            final String pathRoute = request.getPath().orElseThrow();
-
-            final Path pathToFile = Path.of(
-                Objects.requireNonNull(
-                    Routing.class.getResource(
-                        pathRoute
-                    )
-                ).toURI()
-            );
-            final String mime = Files.probeContentType(pathToFile);
-
-            response.setResponseCode(ResponseCode.OK);
-            response.addHeader(Headers.CONTENT_TYPE, mime + "; charset=utf-8");
-            response.setBody(Files.readAllBytes(pathToFile));
-
-            if (logger.isLoggable(Level.FINEST)) {
-                logger.finest("Отдан статический файл: " + pathRoute);
-            }
-        });
+        try {
+            staticAssets(AssetBundle.fromClasspath(Routing.class.getClassLoader(), path, path, new AssetOptions()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Метод возвращает маршрут подходящий под запрос.
-     * @param request запрос.
-     * @return маршрут подходящий под запрос или null.
+     * Метод создает GET маршрут для набора статических файлов по его пути запроса.
+     * @param bundle набор статических файлов.
      */
     @Override
-    public Optional<ICattyRoute> takeRoute(@NotNull IHttpCattyRequest request) {
-        return request.getPath().isPresent()
-            ? Optional.ofNullable(priorityRoute(getRoutesByPath(request.getPath().get(), request.getMethod())))
-            : Optional.empty();
+    public void staticAssets(@NotNull AssetBundle bundle) {
+        addRoute(bundle.getUrlPrefix() + "/*", "GET", bundle::serve);
+
+        if (logger.isLoggable(Level.CONFIG)) logger.config("Статические файлы: " + bundle);
     }
 
     /**
-     * Метод берет из массива routes паттерны и находит все подходящие маршруты к запрошенному в path
-     * @param path маршрут из request
-     * @return маршруты из массива routes соответствующие path
+     * Метод создает маршруты всех методов, кроме CONNECT и TRACE, передающие запросы под путем серверам прокси.
+     * @param path путь запроса, запросы вложенных путей тоже передаются.
+     * @param proxy прокси.
      */
-    private @NotNull HashMap<String, ICattyRoute> getRoutesByPath(String path, String method) {
-        final HashMap<String, ICattyRoute> findUrl = new HashMap<>(); // храним результаты поиска
+    @Override
+    public void proxy(@NotNull String path, @NotNull ReverseProxy proxy) {
+        final String base = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        final List<ICattyRoute> routes = new ArrayList<>();
 
-        for (ICattyRoute route: routes) {
-            // бывает ошибка NPE
-            if (route.getPattern().matcher(path).matches() && Objects.equals(route.getMethod(), method)) {
-                findUrl.put(route.getPattern().pattern(), route);
-            }
+        for (String method : List.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")) {
+            if (!base.isEmpty()) routes.add(new Route(base, method, proxy));
+            routes.add(new Route(base + "/*", method, proxy));
         }
+        addRoutes(routes);
 
-        return findUrl;
+        if (logger.isLoggable(Level.CONFIG)) logger.config("Прокси " + path + ": " + proxy);
     }
 
     /**
-     * Метод возвращает приоритетный url
-     * @param findUrl найденные маршруты для отбора
-     * @return приоритетный url
+     * Метод возвращает маршрут подходящий под запрос.
+     * @param request запрос.
+     * @return маршрут подходящий под запрос или null.
      */
-    private @Nullable ICattyRoute priorityRoute(@NotNull HashMap<String, ICattyRoute> findUrl) {
-        if (findUrl.size() == 0) return null;
-
-        final String pattern = findUrl.keySet().stream()
-            .sorted(Comparator.comparingInt(String::length))
-            .max(Comparator.comparingInt(
-                a -> a.replaceAll("\\(\\.\\*\\)", "").length()
-            )).orElseThrow();
+    @Override
+    public Optional<ICattyRoute> takeRoute(@NotNull IHttpCattyRequest request) {
+        final RequestTrace trace = request.getTrace();
+        final long start = trace == null ? 0 : System.nanoTime();
+        final Optional<ICattyRoute> route = request.getPath().isPresent()
+            ? Optional.ofNullable(table.find(request.getPath().get(), request.getMethod()))
+            : Optional.empty();
 
-        return findUrl.get(pattern);
+        if (trace != null) trace.span("route", start);
+        return route;
     }
 }
@@ -0,0 +1,250 @@
+package ru.axel.catty.engine.selector;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Цикл обработки событий на одном {@link Selector}.
+ * Все операции с каналами цикла выполняются в его потоке, задачи из других потоков ставятся в очередь.
+ */
+public final class EventLoop implements Runnable {
+    private static final long timeoutCheckMillis = 250L; // период проверки таймаутов чтения и записи
+    private final Logger logger;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    /**
+     * Обработчик принятого соединения.
+     */
+    @FunctionalInterface
+    public interface AcceptHandler {
+        void accept(@NotNull SocketChannel channel) throws IOException;
+    }
+
+    public EventLoop(Logger loggerInstance) throws IOException {
+        logger = loggerInstance;
+        selector = Selector.open();
+    }
+
+    /**
+     * Метод проверяет, выполняется ли вызов в потоке цикла.
+     * @return true, если вызов из потока цикла.
+     */
+    public boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Метод выполняет задачу в потоке цикла.
+     * @param task задача.
+     */
+    public void execute(@NotNull Runnable task) {
+        tasks.add(task);
+
+        if (!inLoop() && wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    /**
+     * Метод регистрирует слушающий сокет. Вызывается до запуска цикла или из его потока.
+     * @param server слушающий сокет в неблокирующем режиме.
+     * @param handler обработчик принятых соединений.
+     * @throws IOException ошибка регистрации.
+     */
+    public void registerServer(@NotNull ServerSocketChannel server, @NotNull AcceptHandler handler) throws IOException {
+        server.register(selector, SelectionKey.OP_ACCEPT, handler);
+    }
+
+    /**
+     * Метод регистрирует соединение клиента. Вызывается из потока цикла.
+     * Канал может быть еще не подключен: тогда подключение выполняется через {@link SelectorSocketChannel#connect}.
+     * @param channel канал клиента в неблокирующем режиме.
+     * @return асинхронный канал клиента, обслуживаемый этим циклом.
+     * @throws IOException ошибка регистрации.
+     */
+    public @NotNull SelectorSocketChannel register(@NotNull SocketChannel channel) throws IOException {
+        return register(channel, null);
+    }
+
+    /**
+     * Метод регистрирует соединение клиента, обработчики завершения операций которого выполняются в executor.
+     * Вызывается из потока цикла.
+     * @param channel канал клиента в неблокирующем режиме.
+     * @param executor пул обработчиков, null - поток цикла.
+     * @return асинхронный канал клиента, обслуживаемый этим циклом.
+     * @throws IOException ошибка регистрации.
+     */
+    public @NotNull SelectorSocketChannel register(
+        @NotNull SocketChannel channel,
+        @Nullable Executor executor
+    ) throws IOException {
+        final SelectorSocketChannel client = new SelectorSocketChannel(this, channel, executor);
+        client.setKey(channel.register(selector, 0, client));
+
+        return client;
+    }
+
+    /**
+     * Метод останавливает цикл, все каналы цикла закрываются.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        long lastTimeoutCheck = System.nanoTime();
+
+        try {
+            while (running) {
+                wakeupPending.set(false);
+                runTasks();
+
+                if (tasks.isEmpty()) {
+                    selector.select(timeoutCheckMillis);
+                } else {
+                    selector.selectNow();
+                }
+
+                processSelectedKeys();
+
+                final long now = System.nanoTime();
+                if (now - lastTimeoutCheck >= timeoutCheckMillis * 1_000_000L) {
+                    checkTimeouts(now);
+                    lastTimeoutCheck = now;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe("Ошибка цикла обработки событий: " + e.getLocalizedMessage());
+            logger.throwing(EventLoop.class.getName(), "run", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.severe("Ошибка задачи цикла обработки событий: " + e.getLocalizedMessage());
+                logger.throwing(EventLoop.class.getName(), "runTasks", e);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+        while (iterator.hasNext()) {
+            final SelectionKey key = iterator.next();
+            iterator.remove();
+
+            try {
+                if (!key.isValid()) continue;
+
+                if (key.attachment() instanceof SelectorSocketChannel client) {
+                    final int ready = key.readyOps();
+
+                    if ((ready & SelectionKey.OP_CONNECT) != 0) client.onConnectable();
+                    if ((ready & SelectionKey.OP_READ) != 0 && key.isValid()) client.onReadable();
+                    if ((ready & SelectionKey.OP_WRITE) != 0 && key.isValid()) client.onWritable();
+                } else if (key.isAcceptable()) {
+                    accept((ServerSocketChannel) key.channel(), (AcceptHandler) key.attachment());
+                }
+            } catch (CancelledKeyException ignored) {
+                // канал закрыт обработчиком во время разбора событий
+            }
+        }
+    }
+
+    /**
+     * Метод принимает все ожидающие соединения. Ошибка настройки или обработки одного соединения
+     * закрывает только это соединение, остальные продолжают приниматься.
+     * @param server слушающий сокет.
+     * @param handler обработчик принятых соединений.
+     */
+    private void accept(@NotNull ServerSocketChannel server, @NotNull AcceptHandler handler) {
+        while (true) {
+            final SocketChannel channel;
+
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                logger.severe("Ошибка принятия соединения от клиента: " + e.getLocalizedMessage());
+                logger.throwing(EventLoop.class.getName(), "accept", e);
+                return;
+            }
+            if (channel == null) return;
+
+            try {
+                channel.configureBlocking(false);
+                if (logger.isLoggable(Level.FINEST)) logger.finest("Server accept client: " + channel);
+
+                handler.accept(channel);
+            } catch (IOException | RuntimeException e) {
+                logger.warning("Ошибка обработки принятого соединения " + channel + ": " + e.getLocalizedMessage());
+                logger.throwing(EventLoop.class.getName(), "accept", e);
+                close(channel);
+            }
+        }
+    }
+
+    private void close(@NotNull SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // канал уже закрыт
+        }
+    }
+
+    private void checkTimeouts(long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof SelectorSocketChannel client) client.checkTimeout(now);
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                final SelectableChannel channel = key.channel();
+
+                try {
+                    if (key.attachment() instanceof SelectorSocketChannel client) {
+                        client.close();
+                    } else {
+                        channel.close();
+                    }
+                } catch (IOException ignored) {
+                    // канал уже закрыт
+                }
+            }
+
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            logger.warning("Ошибка закрытия цикла обработки событий: " + e.getLocalizedMessage());
+        }
+    }
+}
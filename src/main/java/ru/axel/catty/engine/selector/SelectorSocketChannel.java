@@ -0,0 +1,590 @@
+package ru.axel.catty.engine.selector;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.channels.ReadPendingException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritePendingException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронный канал клиента поверх неблокирующего {@link SocketChannel} и цикла {@link EventLoop}.
+ * Позволяет использовать обработчики {@link ru.axel.catty.engine.handler.IQueryHandler} без изменений.
+ * Операция сначала выполняется сразу, интерес к событию селектора устанавливается только если данных нет
+ * или буфер сокета заполнен, и снимается после завершения операции.
+ * Обработчики завершения вызываются в потоке цикла или, если канал зарегистрирован с executor,
+ * в executor: тогда цикл только выполняет ввод-вывод, а обработка запросов идет в пуле движка.
+ * Чтение и запись в несколько буферов выполняются одним системным вызовом readv/writev.
+ * Таймауты чтения и записи проверяет цикл: ожидающая операция завершается {@link InterruptedByTimeoutException}.
+ * Канал, зарегистрированный в цикле до подключения, подключается через connect.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class SelectorSocketChannel extends AsynchronousSocketChannel {
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private final Executor callbackExecutor;   // null - обработчики в потоке цикла
+    private SelectionKey key;
+
+    private ByteBuffer readBuffer;
+    private ByteBuffer[] readBuffers;           // не null - чтение в несколько буферов, результат Long
+    private int readOffset;
+    private int readLength;
+    private Object readAttachment;
+    private CompletionHandler readHandler;
+    private long readDeadline;                  // 0 - без таймаута
+
+    private ByteBuffer writeBuffer;
+    private ByteBuffer[] writeBuffers;          // не null - запись нескольких буферов, результат Long
+    private int writeOffset;
+    private int writeLength;
+    private Object writeAttachment;
+    private CompletionHandler writeHandler;
+    private long written;
+    private long writeDeadline;                 // 0 - без таймаута
+
+    private Object connectAttachment;
+    private CompletionHandler connectHandler;
+
+    SelectorSocketChannel(@NotNull EventLoop eventLoop, @NotNull SocketChannel socketChannel, @Nullable Executor executor) {
+        super(null);
+        loop = eventLoop;
+        channel = socketChannel;
+        callbackExecutor = executor;
+    }
+
+    void setKey(SelectionKey selectionKey) {
+        key = selectionKey;
+    }
+
+    @Override
+    public <A> void read(
+        ByteBuffer dst,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Integer, ? super A> handler
+    ) {
+        if (loop.inLoop()) {
+            startRead(dst, null, 0, 0, timeout, unit, attachment, handler);
+        } else {
+            loop.execute(() -> startRead(dst, null, 0, 0, timeout, unit, attachment, handler));
+        }
+    }
+
+    @Override
+    public Future<Integer> read(ByteBuffer dst) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        read(dst, 0L, TimeUnit.MILLISECONDS, future, futureHandler());
+
+        return future;
+    }
+
+    @Override
+    public <A> void read(
+        ByteBuffer[] dsts,
+        int offset,
+        int length,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Long, ? super A> handler
+    ) {
+        Objects.checkFromIndexSize(offset, length, dsts.length);
+
+        if (loop.inLoop()) {
+            startRead(null, dsts, offset, length, timeout, unit, attachment, handler);
+        } else {
+            loop.execute(() -> startRead(null, dsts, offset, length, timeout, unit, attachment, handler));
+        }
+    }
+
+    @Override
+    public <A> void write(
+        ByteBuffer src,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Integer, ? super A> handler
+    ) {
+        if (loop.inLoop()) {
+            startWrite(src, null, 0, 0, timeout, unit, attachment, handler);
+        } else {
+            loop.execute(() -> startWrite(src, null, 0, 0, timeout, unit, attachment, handler));
+        }
+    }
+
+    @Override
+    public Future<Integer> write(ByteBuffer src) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        write(src, 0L, TimeUnit.MILLISECONDS, future, futureHandler());
+
+        return future;
+    }
+
+    @Override
+    public <A> void write(
+        ByteBuffer[] srcs,
+        int offset,
+        int length,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Long, ? super A> handler
+    ) {
+        Objects.checkFromIndexSize(offset, length, srcs.length);
+
+        if (loop.inLoop()) {
+            startWrite(null, srcs, offset, length, timeout, unit, attachment, handler);
+        } else {
+            loop.execute(() -> startWrite(null, srcs, offset, length, timeout, unit, attachment, handler));
+        }
+    }
+
+    private void startRead(
+        ByteBuffer dst,
+        ByteBuffer[] dsts,
+        int offset,
+        int length,
+        long timeout,
+        TimeUnit unit,
+        Object attachment,
+        CompletionHandler handler
+    ) {
+        if (readHandler != null) throw new ReadPendingException();
+
+        try {
+            final long count = dsts == null ? channel.read(dst) : channel.read(dsts, offset, length);
+
+            if (count != 0) { // данные уже есть - завершаем через очередь, чтобы не наращивать стек вызовов
+                final Object result = result(count, dsts != null);
+                later(() -> handler.completed(result, attachment));
+                return;
+            }
+        } catch (IOException e) {
+            later(() -> handler.failed(e, attachment));
+            return;
+        }
+
+        readBuffer = dst;
+        readBuffers = dsts;
+        readOffset = offset;
+        readLength = length;
+        readAttachment = attachment;
+        readHandler = handler;
+        readDeadline = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0L;
+        interest(SelectionKey.OP_READ, true);
+    }
+
+    private void startWrite(
+        ByteBuffer src,
+        ByteBuffer[] srcs,
+        int offset,
+        int length,
+        long timeout,
+        TimeUnit unit,
+        Object attachment,
+        CompletionHandler handler
+    ) {
+        if (writeHandler != null) throw new WritePendingException();
+
+        writeBuffer = src;
+        writeBuffers = srcs;
+        writeOffset = offset;
+        writeLength = length;
+
+        try {
+            final long count = writeAvailable();
+
+            if (!writeRemaining()) {
+                final Object result = result(count, srcs != null);
+                clearWrite();
+                later(() -> handler.completed(result, attachment));
+                return;
+            }
+
+            writeAttachment = attachment;
+            writeHandler = handler;
+            written = count;
+            writeDeadline = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0L;
+            interest(SelectionKey.OP_WRITE, true);
+        } catch (IOException e) {
+            clearWrite();
+            later(() -> handler.failed(e, attachment));
+        }
+    }
+
+    private void startConnect(SocketAddress remote, Object attachment, CompletionHandler handler) {
+        if (connectHandler != null) throw new ConnectionPendingException();
+
+        try {
+            if (channel.connect(remote)) {
+                later(() -> handler.completed(null, attachment));
+                return;
+            }
+        } catch (IOException e) {
+            later(() -> handler.failed(e, attachment));
+            return;
+        }
+
+        connectAttachment = attachment;
+        connectHandler = handler;
+        interest(SelectionKey.OP_CONNECT, true);
+    }
+
+    /**
+     * Событие завершения подключения.
+     */
+    void onConnectable() {
+        if (connectHandler == null) {
+            interest(SelectionKey.OP_CONNECT, false);
+            return;
+        }
+
+        final CompletionHandler handler = connectHandler;
+        final Object attachment = connectAttachment;
+
+        try {
+            if (!channel.finishConnect()) return;
+
+            clearConnect();
+            now(() -> handler.completed(null, attachment));
+        } catch (IOException e) {
+            clearConnect();
+            now(() -> handler.failed(e, attachment));
+        }
+    }
+
+    /**
+     * Событие готовности к чтению.
+     */
+    void onReadable() {
+        if (readHandler == null) {
+            interest(SelectionKey.OP_READ, false);
+            return;
+        }
+
+        final CompletionHandler handler = readHandler;
+        final Object attachment = readAttachment;
+
+        try {
+            final long count = readBuffers == null
+                ? channel.read(readBuffer)
+                : channel.read(readBuffers, readOffset, readLength);
+            if (count == 0) return;
+
+            final Object result = result(count, readBuffers != null);
+            clearRead();
+            now(() -> handler.completed(result, attachment));
+        } catch (IOException e) {
+            clearRead();
+            now(() -> handler.failed(e, attachment));
+        }
+    }
+
+    /**
+     * Событие готовности к записи.
+     */
+    void onWritable() {
+        if (writeHandler == null) {
+            interest(SelectionKey.OP_WRITE, false);
+            return;
+        }
+
+        final CompletionHandler handler = writeHandler;
+        final Object attachment = writeAttachment;
+
+        try {
+            written += writeAvailable();
+            if (writeRemaining()) return;
+
+            final Object result = result(written, writeBuffers != null);
+            clearWrite();
+            now(() -> handler.completed(result, attachment));
+        } catch (IOException e) {
+            clearWrite();
+            now(() -> handler.failed(e, attachment));
+        }
+    }
+
+    /**
+     * Проверка таймаутов ожидающих чтения и записи.
+     * Клиент, который не читает ответ, иначе держал бы запись открытой бесконечно.
+     * @param now текущее время System.nanoTime().
+     */
+    void checkTimeout(long now) {
+        if (readHandler != null && readDeadline != 0L && now - readDeadline >= 0) {
+            final CompletionHandler handler = readHandler;
+            final Object attachment = readAttachment;
+
+            clearRead();
+            now(() -> handler.failed(new InterruptedByTimeoutException(), attachment));
+        }
+        if (writeHandler != null && writeDeadline != 0L && now - writeDeadline >= 0) {
+            final CompletionHandler handler = writeHandler;
+            final Object attachment = writeAttachment;
+
+            clearWrite();
+            now(() -> handler.failed(new InterruptedByTimeoutException(), attachment));
+        }
+    }
+
+    /**
+     * Метод записывает в сокет текущие буферы записи, пока сокет принимает данные.
+     * @return количество записанных байт.
+     */
+    private long writeAvailable() throws IOException {
+        long total = 0;
+        long count;
+
+        while (writeRemaining()) {
+            count = writeBuffers == null
+                ? channel.write(writeBuffer)
+                : channel.write(writeBuffers, writeOffset, writeLength);
+            if (count <= 0) break;
+
+            total += count;
+        }
+
+        return total;
+    }
+
+    private boolean writeRemaining() {
+        if (writeBuffers == null) return writeBuffer.hasRemaining();
+
+        for (int i = writeOffset; i < writeOffset + writeLength; i++) {
+            if (writeBuffers[i].hasRemaining()) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Результат операции для обработчика: Integer для одного буфера, Long для нескольких.
+     */
+    private static @NotNull Object result(long count, boolean vectored) {
+        return vectored ? (Object) count : (Object) (int) count;
+    }
+
+    /**
+     * Вызов обработчика для операции, завершенной сразу при запуске: через очередь цикла, чтобы не наращивать
+     * стек вызовов, или в executor канала.
+     * @param call вызов обработчика.
+     */
+    private void later(@NotNull Runnable call) {
+        if (callbackExecutor == null) {
+            loop.execute(call);
+        } else {
+            now(call);
+        }
+    }
+
+    /**
+     * Вызов обработчика по событию селектора: в потоке цикла или в executor канала.
+     * Если executor остановлен, обработчик выполняется в потоке цикла.
+     * @param call вызов обработчика.
+     */
+    private void now(@NotNull Runnable call) {
+        if (callbackExecutor != null) {
+            try {
+                callbackExecutor.execute(call);
+                return;
+            } catch (RejectedExecutionException ignored) {
+                // пул движка остановлен
+            }
+        }
+
+        call.run();
+    }
+
+    private void clearRead() {
+        readBuffer = null;
+        readBuffers = null;
+        readAttachment = null;
+        readHandler = null;
+        interest(SelectionKey.OP_READ, false);
+    }
+
+    private void clearWrite() {
+        writeBuffer = null;
+        writeBuffers = null;
+        writeAttachment = null;
+        writeHandler = null;
+        written = 0;
+        interest(SelectionKey.OP_WRITE, false);
+    }
+
+    private void clearConnect() {
+        connectAttachment = null;
+        connectHandler = null;
+        interest(SelectionKey.OP_CONNECT, false);
+    }
+
+    private void interest(int operation, boolean enable) {
+        if (key == null || !key.isValid()) return;
+
+        final int ops = key.interestOps();
+        key.interestOps(enable ? ops | operation : ops & ~operation);
+    }
+
+    private static @NotNull CompletionHandler<Integer, CompletableFuture<Integer>> futureHandler() {
+        return new CompletionHandler<>() {
+            @Override
+            public void completed(Integer result, CompletableFuture<Integer> future) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Throwable exc, CompletableFuture<Integer> future) {
+                future.completeExceptionally(exc);
+            }
+        };
+    }
+
+    @Override
+    public AsynchronousSocketChannel bind(SocketAddress local) throws IOException {
+        channel.bind(local);
+        return this;
+    }
+
+    @Override
+    public <T> AsynchronousSocketChannel setOption(SocketOption<T> name, T value) throws IOException {
+        channel.setOption(name, value);
+        return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) throws IOException {
+        return channel.getOption(name);
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+        return channel.supportedOptions();
+    }
+
+    @Override
+    public AsynchronousSocketChannel shutdownInput() throws IOException {
+        channel.shutdownInput();
+        return this;
+    }
+
+    @Override
+    public AsynchronousSocketChannel shutdownOutput() throws IOException {
+        channel.shutdownOutput();
+        return this;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() throws IOException {
+        return channel.getRemoteAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    /**
+     * Подключение канала, зарегистрированного в цикле до подключения ({@link EventLoop#register}).
+     * Обработчик вызывается в потоке цикла после завершения подключения.
+     * @param remote адрес сервера.
+     * @param attachment объект для обработчика.
+     * @param handler обработчик завершения.
+     */
+    @Override
+    public <A> void connect(SocketAddress remote, A attachment, CompletionHandler<Void, ? super A> handler) {
+        if (loop.inLoop()) {
+            startConnect(remote, attachment, handler);
+        } else {
+            loop.execute(() -> startConnect(remote, attachment, handler));
+        }
+    }
+
+    @Override
+    public Future<Void> connect(SocketAddress remote) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        connect(remote, future, new CompletionHandler<Void, CompletableFuture<Void>>() {
+            @Override
+            public void completed(Void result, CompletableFuture<Void> connected) {
+                connected.complete(null);
+            }
+
+            @Override
+            public void failed(Throwable exc, CompletableFuture<Void> connected) {
+                connected.completeExceptionally(exc);
+            }
+        });
+
+        return future;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Закрытие канала. Ожидающие операции завершаются с {@link AsynchronousCloseException}.
+     * @throws IOException ошибка закрытия канала.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) return;
+
+        if (key != null) key.cancel();
+        channel.close();
+
+        if (loop.inLoop()) {
+            failPending();
+        } else {
+            loop.execute(this::failPending);
+        }
+    }
+
+    private void failPending() {
+        if (connectHandler != null) {
+            final CompletionHandler handler = connectHandler;
+            final Object attachment = connectAttachment;
+
+            clearConnect();
+            now(() -> handler.failed(new AsynchronousCloseException(), attachment));
+        }
+        if (readHandler != null) {
+            final CompletionHandler handler = readHandler;
+            final Object attachment = readAttachment;
+
+            clearRead();
+            now(() -> handler.failed(new AsynchronousCloseException(), attachment));
+        }
+        if (writeHandler != null) {
+            final CompletionHandler handler = writeHandler;
+            final Object attachment = writeAttachment;
+
+            clearWrite();
+            now(() -> handler.failed(new AsynchronousCloseException(), attachment));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SelectorSocketChannel" + channel;
+    }
+}
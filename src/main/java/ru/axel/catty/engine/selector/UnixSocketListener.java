@@ -0,0 +1,152 @@
+package ru.axel.catty.engine.selector;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Слушающий сокет Unix domain socket для соединений с той же машины (sidecar прокси).
+ * Асинхронные каналы JDK не поддерживают Unix domain socket, поэтому соединения обслуживаются циклом
+ * {@link EventLoop} и передаются обработчикам как {@link SelectorSocketChannel}.
+ * Файл сокета, оставшийся от предыдущего запуска, удаляется перед bind, если это сокет и его никто не слушает;
+ * другой файл по этому пути или занятый сокет - ошибка запуска. После закрытия файл сокета удаляется.
+ */
+public final class UnixSocketListener implements AutoCloseable {
+    private static final int fileTypeMask = 0170000; // S_IFMT
+    private static final int socketType = 0140000;   // S_IFSOCK
+    private final Path path;
+    private final ServerSocketChannel server;
+    private final Logger logger;
+
+    private UnixSocketListener(@NotNull Path socketPath, @NotNull ServerSocketChannel serverChannel, Logger loggerInstance) {
+        path = socketPath;
+        server = serverChannel;
+        logger = loggerInstance;
+    }
+
+    /**
+     * Метод открывает слушающий сокет в неблокирующем режиме.
+     * @param address адрес сокета.
+     * @param backlog очередь соединений, 0 - значение ОС.
+     * @param receiveBufferSize размер буфера приема, 0 - значение ОС.
+     * @param loggerInstance логгер.
+     * @return слушающий сокет.
+     * @throws IOException ошибка создания файла сокета или bind.
+     */
+    public static @NotNull UnixSocketListener open(
+        @NotNull UnixDomainSocketAddress address,
+        int backlog,
+        int receiveBufferSize,
+        Logger loggerInstance
+    ) throws IOException {
+        final Path socketPath = address.getPath();
+        final ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+
+        try {
+            removeStale(address);
+            if (receiveBufferSize > 0 && server.supportedOptions().contains(StandardSocketOptions.SO_RCVBUF)) {
+                server.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+
+            server.bind(address, backlog);
+            server.configureBlocking(false);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+
+        return new UnixSocketListener(socketPath, server, loggerInstance);
+    }
+
+    /**
+     * Метод удаляет файл сокета, оставшийся от предыдущего запуска.
+     * @param address адрес сокета.
+     * @throws FileAlreadyExistsException по пути находится файл, который не является сокетом.
+     * @throws BindException сокет слушает другой процесс.
+     * @throws IOException ошибка чтения атрибутов или удаления файла.
+     */
+    private static void removeStale(@NotNull UnixDomainSocketAddress address) throws IOException {
+        final Path socketPath = address.getPath();
+        final BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+
+        if (!isSocket(socketPath, attributes)) {
+            throw new FileAlreadyExistsException(socketPath.toString(), null, "Файл не является сокетом");
+        }
+
+        boolean listening;
+        try (SocketChannel probe = SocketChannel.open(address)) {
+            listening = probe.isConnected();
+        } catch (IOException e) { // ECONNREFUSED: файл остался от завершенного процесса
+            listening = false;
+        }
+        if (listening) throw new BindException("Сокет " + socketPath + " уже слушает другой процесс");
+
+        Files.delete(socketPath);
+    }
+
+    private static boolean isSocket(@NotNull Path path, @NotNull BasicFileAttributes attributes) throws IOException {
+        try {
+            final int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & fileTypeMask) == socketType;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) { // нет представления атрибутов unix
+            return attributes.isOther();
+        }
+    }
+
+    /**
+     * Метод регистрирует сокет в цикле обработки событий.
+     * @param loop цикл обработки событий.
+     * @param handler обработчик принятых соединений.
+     * @throws IOException ошибка регистрации.
+     */
+    public void register(@NotNull EventLoop loop, @NotNull EventLoop.AcceptHandler handler) throws IOException {
+        loop.registerServer(server, handler);
+    }
+
+    public @NotNull Path getPath() {
+        return path;
+    }
+    public @NotNull ServerSocketChannel getServer() {
+        return server;
+    }
+
+    /**
+     * Метод закрывает сокет и удаляет его файл.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.warning("Ошибка закрытия сокета " + path + ": " + e.getLocalizedMessage());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "unix:" + path;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Обработчик подключения и отключения подписчиков маршрута событий.
+ */
+public interface ISseHandler {
+    /**
+     * Подписчик подключен. Здесь можно отправить начальное состояние или пропущенные события.
+     * @param session подписчик.
+     */
+    default void onOpen(@NotNull ISseSession session) {}
+
+    /**
+     * Подписчик отключен.
+     * @param session подписчик.
+     */
+    default void onClose(@NotNull ISseSession session) {}
+}
@@ -0,0 +1,37 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+/**
+ * Подписчик потока событий.
+ */
+public interface ISseSession {
+    /**
+     * Метод возвращает запрос подписки.
+     * @return запрос.
+     */
+    @NotNull IHttpCattyRequest getRequest();
+
+    /**
+     * Метод возвращает идентификатор последнего полученного события из заголовка Last-Event-ID
+     * при переподключении клиента.
+     * @return идентификатор или null.
+     */
+    @Nullable String getLastEventId();
+
+    /**
+     * Метод отправляет событие только этому подписчику.
+     * @param event событие.
+     * @return false, если подписчик отключен.
+     */
+    boolean send(@NotNull SseEvent event);
+
+    /**
+     * Метод отключает подписчика.
+     */
+    void close();
+
+    boolean isOpen();
+}
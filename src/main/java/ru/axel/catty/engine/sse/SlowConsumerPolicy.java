@@ -0,0 +1,19 @@
+package ru.axel.catty.engine.sse;
+
+/**
+ * Поведение при переполнении очереди подписчика, который не успевает принимать события.
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * Новое событие не ставится в очередь подписчика.
+     */
+    DROP_NEWEST,
+    /**
+     * Из очереди удаляется самое старое неотправленное событие.
+     */
+    DROP_OLDEST,
+    /**
+     * Подписчик отключается.
+     */
+    DISCONNECT
+}
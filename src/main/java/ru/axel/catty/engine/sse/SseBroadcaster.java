@@ -0,0 +1,136 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылка событий подписчикам одного или нескольких маршрутов SseRoute.
+ * Событие кодируется один раз, всем подписчикам пишется один и тот же буфер.
+ * Подписчик, который не успевает принимать события, обрабатывается по SlowConsumerPolicy.
+ */
+public class SseBroadcaster implements AutoCloseable {
+    private static final ByteBuffer heartbeat = ByteBuffer.wrap(":\n\n".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    private final SseOptions options;
+    private final Set<SseConnection> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    private final Timer timer;
+
+    public SseBroadcaster() {
+        this(new SseOptions());
+    }
+    public SseBroadcaster(@NotNull SseOptions sseOptions) {
+        options = sseOptions;
+
+        if (options.getHeartbeatSeconds() > 0) {
+            final long period = options.getHeartbeatSeconds() * 1000;
+
+            timer = new Timer("catty-sse-heartbeat", true);
+            timer.scheduleAtFixedRate(new TimerTask() {
+                @Override
+                public void run() {
+                    for (SseConnection subscriber : subscribers) subscriber.offer(heartbeat, true);
+                }
+            }, period, period);
+        } else {
+            timer = null;
+        }
+    }
+
+    /**
+     * Метод рассылает событие всем подписчикам.
+     * @param event событие.
+     * @return количество подписчиков, которым событие поставлено в очередь.
+     */
+    public int broadcast(@NotNull SseEvent event) {
+        final ByteBuffer encoded = event.encode();
+        int queued = 0;
+
+        for (SseConnection subscriber : subscribers) {
+            if (subscriber.offer(encoded, true)) queued++;
+        }
+
+        broadcasts.incrementAndGet();
+        return queued;
+    }
+
+    /**
+     * Метод возвращает текущих подписчиков.
+     * @return подписчики.
+     */
+    public @NotNull List<ISseSession> getSubscribers() {
+        return new ArrayList<>(subscribers);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return количество вызовов broadcast.
+     */
+    public long getBroadcasts() {
+        return broadcasts.get();
+    }
+
+    /**
+     * @return количество событий, не доставленных медленным подписчикам.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return количество подписчиков, отключенных из-за переполнения очереди.
+     */
+    public long getDisconnected() {
+        return disconnected.get();
+    }
+
+    public @NotNull SseOptions getOptions() {
+        return options;
+    }
+
+    void subscribe(@NotNull SseConnection connection) {
+        subscribers.add(connection);
+    }
+
+    void unsubscribe(@NotNull SseConnection connection) {
+        subscribers.remove(connection);
+    }
+
+    void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    void disconnected() {
+        disconnected.incrementAndGet();
+    }
+
+    /**
+     * Метод останавливает пульс и отключает всех подписчиков.
+     */
+    @Override
+    public void close() {
+        if (timer != null) timer.cancel();
+        for (SseConnection subscriber : subscribers) subscriber.close();
+    }
+
+    @Override
+    public String toString() {
+        return "SseBroadcaster{subscribers=" + subscribers.size() +
+            ", broadcasts=" + broadcasts.get() +
+            ", dropped=" + dropped.get() +
+            ", disconnected=" + disconnected.get() + '}';
+    }
+}
@@ -0,0 +1,242 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Подписчик на канале клиента. События ставятся в ограниченную очередь и пишутся по одному,
+ * буфер события общий для всех подписчиков (каждому передается duplicate()).
+ * Чтение из канала используется только для обнаружения отключения клиента.
+ */
+final class SseConnection implements ISseSession {
+    private final AsynchronousSocketChannel client;
+    private final SseBroadcaster broadcaster;
+    private final ISseHandler handler;
+    private final IHttpCattyRequest request;
+    private final Logger logger;
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+    private final WriteHandler writeHandler = new WriteHandler();
+    private boolean writing = false;
+    private boolean closed = false;
+
+    SseConnection(
+        @NotNull AsynchronousSocketChannel clientChannel,
+        @NotNull SseBroadcaster sseBroadcaster,
+        @NotNull ISseHandler sseHandler,
+        @NotNull IHttpCattyRequest subscribeRequest,
+        @NotNull Logger loggerInstance
+    ) {
+        client = clientChannel;
+        broadcaster = sseBroadcaster;
+        handler = sseHandler;
+        request = subscribeRequest;
+        logger = loggerInstance;
+    }
+
+    /**
+     * Метод подписывает соединение на рассылку и запускает ожидание отключения клиента.
+     */
+    void start() {
+        final long retry = broadcaster.getOptions().getRetryMillis();
+        if (retry >= 0) offer(new SseEvent().setRetry(retry).encode(), false);
+
+        broadcaster.subscribe(this);
+
+        try {
+            handler.onOpen(this);
+        } catch (Throwable exc) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка обработчика SSE: " + exc);
+        }
+
+        final ByteBuffer probe = ByteBuffer.allocate(64);
+
+        try {
+            client.read(probe, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer result, Void attachment) {
+                    if (result < 0) {
+                        close();
+                        return;
+                    }
+
+                    probe.clear(); // клиент ничего не должен присылать, данные игнорируются
+                    client.read(probe, null, this);
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    close();
+                }
+            });
+        } catch (Throwable exc) {
+            close();
+        }
+    }
+
+    @Override
+    public @NotNull IHttpCattyRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public @Nullable String getLastEventId() {
+        final String value = request.getHeaders("Last-Event-ID");
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public boolean send(@NotNull SseEvent event) {
+        return offer(event.encode(), true);
+    }
+
+    /**
+     * Метод ставит событие в очередь с учетом политики медленного подписчика.
+     * @param event общий буфер события.
+     * @param limited применять ли ограничение очереди.
+     * @return false, если подписчик отключен.
+     */
+    boolean offer(@NotNull ByteBuffer event, boolean limited) {
+        final SseOptions options = broadcaster.getOptions();
+
+        synchronized (this) {
+            if (closed) return false;
+
+            if (limited && writing && queue.size() >= options.getMaxQueuedEvents()) {
+                switch (options.getSlowConsumerPolicy()) {
+                    case DROP_NEWEST -> {
+                        broadcaster.dropped();
+                        return true;
+                    }
+                    case DROP_OLDEST -> {
+                        queue.poll();
+                        broadcaster.dropped();
+                    }
+                    case DISCONNECT -> {
+                        broadcaster.disconnected();
+                        markClosed();
+                    }
+                }
+            }
+
+            if (!closed) {
+                queue.add(event.duplicate());
+                if (writing || startWrite()) return true;
+
+                markClosed();
+            }
+        }
+
+        closeChannel();
+        return false;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!markClosed()) return;
+        }
+
+        closeChannel();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Метод запускает запись следующего события. Вызывается под монитором.
+     * @return false, если запись не удалось начать и соединение нужно закрыть.
+     */
+    private boolean startWrite() {
+        final ByteBuffer next = queue.poll();
+
+        if (next == null) {
+            writing = false;
+            return true;
+        }
+
+        writing = true;
+        return write(next);
+    }
+
+    /**
+     * Метод начинает запись буфера в канал. Вызывается под монитором.
+     * @return false, если запись не удалось начать.
+     */
+    private boolean write(@NotNull ByteBuffer buffer) {
+        try {
+            client.write(buffer, buffer, writeHandler);
+            return true;
+        } catch (Throwable exc) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка записи SSE: " + exc);
+            return false;
+        }
+    }
+
+    /**
+     * Метод помечает соединение закрытым и очищает очередь. Вызывается под монитором,
+     * после выхода из монитора вызывающий выполняет {@link #closeChannel()}.
+     * @return false, если соединение уже было закрыто.
+     */
+    private boolean markClosed() {
+        if (closed) return false;
+
+        closed = true;
+        writing = false;
+        queue.clear();
+
+        return true;
+    }
+
+    /**
+     * Метод закрывает канал, отписывает соединение и вызывает обработчик закрытия.
+     * Вызывается один раз после {@link #markClosed()} без монитора соединения, поэтому обработчик
+     * и рассыльщик могут обращаться к другим соединениям без риска взаимной блокировки.
+     */
+    private void closeChannel() {
+        broadcaster.unsubscribe(this);
+
+        try {
+            client.close();
+            if (logger.isLoggable(Level.FINEST)) logger.finest("SSE соединение закрыто");
+        } catch (IOException exc) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка закрытия SSE соединения: " + exc);
+        }
+
+        try {
+            handler.onClose(this);
+        } catch (Throwable exc) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка обработчика SSE: " + exc);
+        }
+    }
+
+    private final class WriteHandler implements CompletionHandler<Integer, ByteBuffer> {
+        @Override
+        public void completed(Integer result, ByteBuffer buffer) {
+            synchronized (SseConnection.this) {
+                if (closed) return;
+                if (buffer.hasRemaining() ? write(buffer) : startWrite()) return;
+
+                markClosed();
+            }
+
+            closeChannel();
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer buffer) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка записи SSE: " + exc);
+            close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Событие text/event-stream. Кодируется один раз, результат общий для всех подписчиков.
+ */
+public final class SseEvent {
+    private String id;
+    private String event;
+    private String data;
+    private long retry = -1;
+    private ByteBuffer encoded;
+
+    public SseEvent(@NotNull String eventData) {
+        data = eventData;
+    }
+    public SseEvent() {}
+
+    /**
+     * Метод устанавливает идентификатор события (поле id).
+     * @param eventId идентификатор.
+     * @return текущий экземпляр.
+     */
+    public SseEvent setId(@NotNull String eventId) {
+        id = eventId;
+        encoded = null;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает тип события (поле event).
+     * @param eventName тип события.
+     * @return текущий экземпляр.
+     */
+    public SseEvent setEvent(@NotNull String eventName) {
+        event = eventName;
+        encoded = null;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает данные события, многострочные данные передаются несколькими полями data.
+     * Событие без данных клиент не передает обработчикам (например, только retry).
+     * @param eventData данные.
+     * @return текущий экземпляр.
+     */
+    public SseEvent setData(@NotNull String eventData) {
+        data = eventData;
+        encoded = null;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает задержку переподключения клиента (поле retry).
+     * @param millis задержка в миллисекундах.
+     * @return текущий экземпляр.
+     */
+    public SseEvent setRetry(long millis) {
+        retry = millis;
+        encoded = null;
+        return this;
+    }
+
+    /**
+     * Метод возвращает закодированное событие. Буфер только для чтения,
+     * каждому подписчику передается его duplicate().
+     * @return байты события.
+     */
+    public synchronized @NotNull ByteBuffer encode() {
+        if (encoded == null) {
+            final StringBuilder builder = new StringBuilder(data == null ? 32 : data.length() + 32);
+
+            if (id != null) field(builder, "id", id);
+            if (event != null) field(builder, "event", event);
+            if (retry >= 0) field(builder, "retry", String.valueOf(retry));
+
+            int lineStart = 0;
+            for (int i = 0; data != null && i <= data.length(); i++) {
+                if (i == data.length() || data.charAt(i) == '\n') {
+                    int lineEnd = i;
+                    if (lineEnd > lineStart && data.charAt(lineEnd - 1) == '\r') lineEnd--;
+
+                    field(builder, "data", data.substring(lineStart, lineEnd));
+                    lineStart = i + 1;
+                }
+            }
+
+            builder.append('\n');
+            encoded = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        }
+
+        return encoded;
+    }
+
+    private static void field(@NotNull StringBuilder builder, @NotNull String name, @NotNull String value) {
+        builder.append(name).append(": ").append(value.replace('\n', ' ').replace('\r', ' ')).append('\n');
+    }
+
+    @Override
+    public String toString() {
+        return "SseEvent{id=" + id + ", event=" + event + ", data=" + data + '}';
+    }
+}
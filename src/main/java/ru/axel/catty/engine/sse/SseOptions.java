@@ -0,0 +1,77 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Настройки рассылки событий.
+ */
+public final class SseOptions {
+    private int maxQueuedEvents = 64;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP_OLDEST;
+    private long heartbeatSeconds = 15;
+    private long retryMillis = -1;
+
+    /**
+     * Метод устанавливает предельное количество неотправленных событий подписчика.
+     * @param events количество событий.
+     * @return текущий экземпляр.
+     */
+    public SseOptions setMaxQueuedEvents(int events) {
+        maxQueuedEvents = events;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает поведение при переполнении очереди подписчика.
+     * @param policy поведение.
+     * @return текущий экземпляр.
+     */
+    public SseOptions setSlowConsumerPolicy(@NotNull SlowConsumerPolicy policy) {
+        slowConsumerPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает интервал комментария-пульса, который не дает посредникам закрыть соединение.
+     * @param seconds интервал в секундах, 0 - без пульса.
+     * @return текущий экземпляр.
+     */
+    public SseOptions setHeartbeatSeconds(long seconds) {
+        heartbeatSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает задержку переподключения, которая отправляется клиенту при подписке.
+     * @param millis задержка в миллисекундах, отрицательное значение - не отправлять.
+     * @return текущий экземпляр.
+     */
+    public SseOptions setRetryMillis(long millis) {
+        retryMillis = millis;
+        return this;
+    }
+
+    public int getMaxQueuedEvents() {
+        return maxQueuedEvents;
+    }
+
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    public long getHeartbeatSeconds() {
+        return heartbeatSeconds;
+    }
+
+    public long getRetryMillis() {
+        return retryMillis;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "{ maxQueuedEvents: " + maxQueuedEvents +
+            ", slowConsumerPolicy: " + slowConsumerPolicy +
+            ", heartbeatSeconds: " + heartbeatSeconds +
+            ", retryMillis: " + retryMillis + " }";
+    }
+}
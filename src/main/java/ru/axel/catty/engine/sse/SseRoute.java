@@ -0,0 +1,77 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.Route;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * Маршрут потока событий (text/event-stream).
+ * Отвечает заголовком без Content-Length и оставляет соединение открытым: после отправки заголовка
+ * канал подписывается на SseBroadcaster. Тело ответа ограничено закрытием соединения.
+ */
+public class SseRoute implements ICattyRoute {
+    private static final ISseHandler noHandler = new ISseHandler() {};
+    private final ICattyRoute route;
+    private final SseBroadcaster broadcaster;
+    private final ISseHandler handler;
+
+    public SseRoute(@NotNull String path, @NotNull SseBroadcaster sseBroadcaster) {
+        this(path, sseBroadcaster, noHandler);
+    }
+    public SseRoute(@NotNull String path, @NotNull SseBroadcaster sseBroadcaster, @NotNull ISseHandler sseHandler) {
+        broadcaster = sseBroadcaster;
+        handler = sseHandler;
+        route = new Route(path, "GET", this::handle);
+    }
+
+    @Override
+    public String getPath() {
+        return route.getPath();
+    }
+
+    /**
+     * Метод возвращает паттерн для поиска подходящего маршрута.
+     * @return паттерн для поиска подходящего маршрута.
+     */
+    @Override
+    public Pattern getPattern() {
+        return route.getPattern();
+    }
+    @Override
+    public String getMethod() {
+        return route.getMethod();
+    }
+    @Override
+    public RouteExecute getHandler() {
+        return this::handle;
+    }
+
+    /**
+     * Выполнить подписку.
+     * @param request объект запроса
+     * @param response объект ответа
+     */
+    @Override
+    public void handle(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        response.setResponseCode(ResponseCode.OK);
+        response.addHeader(Headers.CONTENT_TYPE, "text/event-stream; charset=utf-8");
+        response.addHeader(Headers.CACHE_CONTROL, "no-cache");
+        response.addHeader(Headers.CONNECTION, "keep-alive");
+
+        // запрос ответа с переключением протокола не возвращается в пул; в HTTP/2 переключение
+        // отменяется соединением, и запрос возвращается в пул как обычный
+        response.setUpgrade((client, logger) -> {
+            if (logger.isLoggable(Level.FINEST)) logger.finest("SSE подписка: " + request.getPath().orElse(""));
+
+            new SseConnection(client, broadcaster, handler, request, logger).start();
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package ru.axel.catty.engine.tls;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул прямых буферов одного размера.
+ * Прямые буферы дорого создавать и освобождает их только сборщик мусора, поэтому буферы соединений
+ * возвращаются в пул и переиспользуются. Буферы сверх лимита пула после возврата не хранятся.
+ */
+public final class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    /**
+     * Создание пула.
+     * @param size размер буфера в байтах.
+     * @param maxBuffers максимальное количество буферов, хранимых в пуле.
+     */
+    public BufferPool(int size, int maxBuffers) {
+        if (size <= 0) throw new IllegalArgumentException("Размер буфера должен быть больше 0");
+        if (maxBuffers < 0) throw new IllegalArgumentException("Размер пула не может быть отрицательным");
+
+        bufferSize = size;
+        maxPooled = maxBuffers;
+    }
+
+    /**
+     * Метод выдает очищенный буфер из пула или создает новый.
+     * @return прямой буфер в режиме записи.
+     */
+    public @NotNull ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+
+        if (buffer == null) {
+            allocated.increment();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        pooled.decrementAndGet();
+        reused.increment();
+        return buffer.clear();
+    }
+
+    /**
+     * Метод возвращает буфер в пул. После возврата буфер нельзя использовать.
+     * @param buffer буфер, полученный из этого пула.
+     */
+    public void release(@NotNull ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) return;
+
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+
+        buffers.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    public int getPooled() {
+        return pooled.get();
+    }
+    public long getAllocated() {
+        return allocated.sum();
+    }
+    public long getReused() {
+        return reused.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool{" +
+            "bufferSize=" + bufferSize +
+            ", pooled=" + getPooled() +
+            ", allocated=" + getAllocated() +
+            ", reused=" + getReused() +
+            '}';
+    }
+}
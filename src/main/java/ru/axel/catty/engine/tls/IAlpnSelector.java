@@ -0,0 +1,39 @@
+package ru.axel.catty.engine.tls;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.SSLEngine;
+import java.util.List;
+
+/**
+ * Выбор прикладного протокола при согласовании ALPN.
+ */
+@FunctionalInterface
+public interface IAlpnSelector {
+    /**
+     * Метод выбирает протокол из предложенных клиентом. Вызывается во время рукопожатия.
+     * @param engine SSLEngine соединения.
+     * @param offered протоколы, предложенные клиентом, в порядке его предпочтения.
+     * @return выбранный протокол, пустая строка - продолжить без ALPN,
+     * null или протокол не из списка клиента - прервать рукопожатие.
+     */
+    String select(@NotNull SSLEngine engine, @NotNull List<String> offered);
+
+    /**
+     * Выбор по предпочтению сервера: первый протокол сервера, который предложил клиент.
+     * Если общих протоколов нет, соединение продолжается без ALPN.
+     * @param protocols протоколы сервера в порядке предпочтения.
+     * @return селектор.
+     */
+    @Contract(pure = true)
+    static @NotNull IAlpnSelector serverPreference(@NotNull List<String> protocols) {
+        return (engine, offered) -> {
+            for (String protocol : protocols) {
+                if (offered.contains(protocol)) return protocol;
+            }
+
+            return "";
+        };
+    }
+}
@@ -0,0 +1,215 @@
+package ru.axel.catty.engine.tls;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Серверный контекст TLS: SSLContext с настроенным кешем сессий, создание SSLEngine для соединений
+ * и общий пул прямых буферов. Один контекст разделяется всеми соединениями движка,
+ * поэтому сессии, выданные одному соединению, возобновляются на любом другом.
+ * Рукопожатие состоит из нескольких обменов мелкими сообщениями, поэтому для TLS рекомендуется
+ * {@link ru.axel.catty.engine.ListenerOptions#setTcpNoDelay}: без него задержка подтверждений TCP
+ * добавляет к каждому рукопожатию десятки миллисекунд.
+ */
+public class TlsContext {
+    private static final String ticketsProperty = "jdk.tls.server.enableSessionTicketExtension";
+    private final SSLContext sslContext;
+    private final TlsOptions options;
+    private final IAlpnSelector alpnSelector;
+    private final BufferPool bufferPool;
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Создание контекста из готового SSLContext.
+     * Настройка билетов сессий в этом случае не применяется, ее определяет SSLContext.
+     * @param context инициализированный SSLContext.
+     * @param tlsOptions настройки TLS.
+     */
+    public TlsContext(@NotNull SSLContext context, @NotNull TlsOptions tlsOptions) {
+        sslContext = context;
+        options = tlsOptions;
+        alpnSelector = options.getAlpnSelector();
+
+        final SSLSessionContext sessions = sslContext.getServerSessionContext();
+        sessions.setSessionCacheSize(options.getSessionCacheSize());
+        sessions.setSessionTimeout(options.getSessionTimeoutSeconds());
+
+        final SSLEngine probe = sslContext.createSSLEngine();
+        probe.setUseClientMode(false);
+        bufferPool = new BufferPool(
+            Math.max(probe.getSession().getPacketBufferSize(), probe.getSession().getApplicationBufferSize()),
+            options.getMaxPooledBuffers()
+        );
+    }
+
+    /**
+     * Создание контекста из хранилища ключей PKCS12 или JKS с сертификатом сервера.
+     * @param keyStore путь к хранилищу ключей.
+     * @param password пароль хранилища и ключа.
+     * @param tlsOptions настройки TLS.
+     * @return контекст TLS.
+     * @throws IOException ошибка чтения хранилища.
+     * @throws GeneralSecurityException ошибка загрузки ключей или инициализации SSLContext.
+     */
+    public static @NotNull TlsContext fromKeyStore(
+        @NotNull Path keyStore,
+        char @NotNull [] password,
+        @NotNull TlsOptions tlsOptions
+    ) throws IOException, GeneralSecurityException {
+        final KeyStore store = KeyStore.getInstance(KeyStore.getDefaultType());
+        try (InputStream input = Files.newInputStream(keyStore)) {
+            store.load(input, password);
+        }
+
+        final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(store, password);
+
+        final SSLContext context;
+        synchronized (TlsContext.class) { // JSSE читает настройку билетов при создании кеша сессий в getInstance
+            final String previous = System.getProperty(ticketsProperty);
+
+            System.setProperty(ticketsProperty, String.valueOf(tlsOptions.isSessionTickets()));
+            try {
+                context = SSLContext.getInstance("TLS");
+                context.init(keyManagers.getKeyManagers(), null, null);
+            } finally {
+                if (previous == null) {
+                    System.clearProperty(ticketsProperty);
+                } else {
+                    System.setProperty(ticketsProperty, previous);
+                }
+            }
+        }
+
+        return new TlsContext(context, tlsOptions);
+    }
+
+    /**
+     * Метод оборачивает принятое соединение в канал TLS. Рукопожатие выполняется при первом чтении,
+     * задачи SSLEngine выполняются в общем пуле ForkJoinPool.
+     * @param channel канал клиента.
+     * @return канал TLS, совместимый с обработчиками запросов.
+     */
+    public @NotNull TlsSocketChannel wrap(@NotNull AsynchronousSocketChannel channel) {
+        return wrap(channel, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Метод оборачивает принятое соединение в канал TLS. Рукопожатие выполняется при первом чтении.
+     * @param channel канал клиента.
+     * @param executor исполнитель задач SSLEngine (подпись, проверка ключей).
+     * @return канал TLS, совместимый с обработчиками запросов.
+     */
+    public @NotNull TlsSocketChannel wrap(@NotNull AsynchronousSocketChannel channel, @NotNull Executor executor) {
+        return new TlsSocketChannel(this, createEngine(), channel, executor);
+    }
+
+    /**
+     * Метод создает канал TLS клиентского режима для неподключенного канала. Рукопожатие выполняется
+     * в {@link TlsSocketChannel#connect}, имя сервера проверяется по сертификату.
+     * @param channel неподключенный канал.
+     * @param host имя сервера для SNI и проверки сертификата.
+     * @param port порт сервера.
+     * @param executor исполнитель задач SSLEngine.
+     * @return канал TLS.
+     */
+    public @NotNull TlsSocketChannel wrapClient(
+        @NotNull AsynchronousSocketChannel channel,
+        @NotNull String host,
+        int port,
+        @NotNull Executor executor
+    ) {
+        final SSLEngine engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+
+        final SSLParameters parameters = engine.getSSLParameters();
+        parameters.setProtocols(options.getProtocols());
+        if (options.getCipherSuites() != null) parameters.setCipherSuites(options.getCipherSuites());
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        if (!options.getApplicationProtocols().isEmpty()) {
+            parameters.setApplicationProtocols(options.getApplicationProtocols().toArray(new String[0]));
+        }
+        engine.setSSLParameters(parameters);
+
+        return new TlsSocketChannel(this, engine, channel, executor);
+    }
+
+    /**
+     * Метод создает SSLEngine серверного режима с настройками протоколов и ALPN.
+     * @return SSLEngine.
+     */
+    protected @NotNull SSLEngine createEngine() {
+        final SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+
+        final SSLParameters parameters = engine.getSSLParameters();
+        parameters.setProtocols(options.getProtocols());
+        if (options.getCipherSuites() != null) parameters.setCipherSuites(options.getCipherSuites());
+        parameters.setUseCipherSuitesOrder(true);
+        engine.setSSLParameters(parameters);
+
+        if (alpnSelector != null) engine.setHandshakeApplicationProtocolSelector(alpnSelector::select);
+
+        return engine;
+    }
+
+    /**
+     * Учет завершенного рукопожатия.
+     * @param resumption рукопожатие возобновило ранее созданную сессию.
+     */
+    void handshakeCompleted(boolean resumption) {
+        handshakes.increment();
+        if (resumption) resumed.increment();
+    }
+
+    void handshakeFailed() {
+        failed.increment();
+    }
+
+    public @NotNull SSLContext getSslContext() {
+        return sslContext;
+    }
+    public @NotNull TlsOptions getOptions() {
+        return options;
+    }
+    public @NotNull BufferPool getBufferPool() {
+        return bufferPool;
+    }
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+    public long getResumedHandshakes() {
+        return resumed.sum();
+    }
+    public long getFailedHandshakes() {
+        return failed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TlsContext{" +
+            "handshakes=" + getHandshakes() +
+            ", resumed=" + getResumedHandshakes() +
+            ", failed=" + getFailedHandshakes() +
+            ", bufferPool=" + bufferPool +
+            ", options=" + options +
+            '}';
+    }
+}
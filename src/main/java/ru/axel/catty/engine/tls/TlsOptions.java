@@ -0,0 +1,160 @@
+package ru.axel.catty.engine.tls;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Настройки TLS: протоколы, кеш сессий для возобновления рукопожатий, ALPN и пул буферов.
+ */
+public final class TlsOptions {
+    private String[] protocols = { "TLSv1.3", "TLSv1.2" };
+    private String[] cipherSuites = null;
+    private int sessionCacheSize = 20_480;
+    private int sessionTimeoutSeconds = 86_400;
+    private boolean sessionTickets = true;
+    private List<String> applicationProtocols = List.of();
+    private IAlpnSelector alpnSelector = null;
+    private int maxPooledBuffers = 1024;
+
+    /**
+     * Разрешенные версии протокола.
+     * @param enabledProtocols версии, например "TLSv1.3", "TLSv1.2".
+     * @return объект настроек.
+     */
+    public TlsOptions setProtocols(@NotNull String... enabledProtocols) {
+        if (enabledProtocols.length == 0) throw new IllegalArgumentException("Не указаны версии протокола");
+
+        protocols = enabledProtocols.clone();
+        return this;
+    }
+
+    /**
+     * Разрешенные наборы шифров.
+     * @param suites наборы шифров, null - наборы SSLContext по умолчанию.
+     * @return объект настроек.
+     */
+    public TlsOptions setCipherSuites(@Nullable String... suites) {
+        cipherSuites = suites == null ? null : suites.clone();
+        return this;
+    }
+
+    /**
+     * Размер кеша сессий сервера. Кеш хранит сессии TLS 1.2 по идентификатору,
+     * если билеты сессий выключены.
+     * @param size количество сессий, 0 - без ограничения.
+     * @return объект настроек.
+     */
+    public TlsOptions setSessionCacheSize(int size) {
+        if (size < 0) throw new IllegalArgumentException("Размер кеша сессий не может быть отрицательным");
+
+        sessionCacheSize = size;
+        return this;
+    }
+
+    /**
+     * Время жизни сессии и билета сессии, в течение которого клиент может возобновить рукопожатие
+     * без обмена сертификатом и подписи.
+     * @param seconds время в секундах, 0 - без ограничения.
+     * @return объект настроек.
+     */
+    public TlsOptions setSessionTimeoutSeconds(int seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("Время жизни сессии не может быть отрицательным");
+
+        sessionTimeoutSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Билеты сессий (RFC 5077, TLS 1.3 PSK): состояние сессии шифруется и хранится у клиента,
+     * поэтому возобновление не требует кеша на сервере. Если выключено, сервер хранит сессии в кеше.
+     * Действует только для SSLContext, созданного через {@link TlsContext#fromKeyStore},
+     * так как JSSE читает настройку при инициализации контекста.
+     * @param enabled использовать билеты.
+     * @return объект настроек.
+     */
+    public TlsOptions setSessionTickets(boolean enabled) {
+        sessionTickets = enabled;
+        return this;
+    }
+
+    /**
+     * Протоколы ALPN в порядке предпочтения сервера, например "h2", "http/1.1".
+     * "h2" имеет смысл, только если обработчик поддерживает HTTP/2.
+     * @param protocols протоколы, без аргументов - ALPN не используется.
+     * @return объект настроек.
+     */
+    public TlsOptions setApplicationProtocols(@NotNull String... protocols) {
+        applicationProtocols = List.of(protocols);
+        return this;
+    }
+
+    /**
+     * Собственный выбор протокола ALPN вместо выбора по предпочтению сервера.
+     * @param selector селектор, null - выбор по списку {@link #setApplicationProtocols}.
+     * @return объект настроек.
+     */
+    public TlsOptions setAlpnSelector(@Nullable IAlpnSelector selector) {
+        alpnSelector = selector;
+        return this;
+    }
+
+    /**
+     * Максимальное количество прямых буферов, хранимых в пуле между соединениями.
+     * Каждое открытое соединение использует три буфера размером с пакет TLS.
+     * @param count количество буферов.
+     * @return объект настроек.
+     */
+    public TlsOptions setMaxPooledBuffers(int count) {
+        if (count < 0) throw new IllegalArgumentException("Размер пула не может быть отрицательным");
+
+        maxPooledBuffers = count;
+        return this;
+    }
+
+    public String[] getProtocols() {
+        return protocols.clone();
+    }
+    public @Nullable String[] getCipherSuites() {
+        return cipherSuites == null ? null : cipherSuites.clone();
+    }
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+    public int getSessionTimeoutSeconds() {
+        return sessionTimeoutSeconds;
+    }
+    public boolean isSessionTickets() {
+        return sessionTickets;
+    }
+    public @NotNull List<String> getApplicationProtocols() {
+        return applicationProtocols;
+    }
+
+    /**
+     * Метод возвращает селектор ALPN с учетом списка протоколов.
+     * @return селектор или null, если ALPN не используется.
+     */
+    public @Nullable IAlpnSelector getAlpnSelector() {
+        if (alpnSelector != null) return alpnSelector;
+        if (applicationProtocols.isEmpty()) return null;
+
+        return IAlpnSelector.serverPreference(applicationProtocols);
+    }
+    public int getMaxPooledBuffers() {
+        return maxPooledBuffers;
+    }
+
+    @Override
+    public String toString() {
+        return "{ protocols: " + Arrays.toString(protocols) +
+            ", cipherSuites: " + (cipherSuites == null ? "default" : Arrays.toString(cipherSuites)) +
+            ", sessionCacheSize: " + sessionCacheSize +
+            ", sessionTimeoutSeconds: " + sessionTimeoutSeconds +
+            ", sessionTickets: " + sessionTickets +
+            ", applicationProtocols: " + applicationProtocols +
+            ", maxPooledBuffers: " + maxPooledBuffers + " }";
+    }
+}
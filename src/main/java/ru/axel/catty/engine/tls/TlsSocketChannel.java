@@ -0,0 +1,950 @@
+package ru.axel.catty.engine.tls;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadPendingException;
+import java.nio.channels.WritePendingException;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Асинхронный канал TLS поверх канала клиента и {@link SSLEngine}.
+ * Позволяет использовать обработчики {@link ru.axel.catty.engine.handler.IQueryHandler}, HTTP/2, WebSocket
+ * и SSE без изменений: чтение возвращает расшифрованные данные, запись шифрует данные перед отправкой.
+ * Рукопожатие выполняется при первом чтении. Буферы сетевых и прикладных данных прямые и берутся
+ * из пула контекста на время жизни соединения.
+ * Запись в канал клиента выполняет один владелец: записи приложения, сообщения рукопожатия и close_notify
+ * не пересекаются. Задачи SSLEngine (подпись, проверка ключей) выполняются в executor движка,
+ * а не в потоке ввода-вывода.
+ * Канал с SSLEngine клиентского режима ({@link TlsContext#wrapClient}) выполняет рукопожатие в connect.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class TlsSocketChannel extends AsynchronousSocketChannel {
+    private static final ByteBuffer empty = ByteBuffer.allocate(0);
+    private static final int maxDirectCalls = 16; // глубина синхронных вызовов обработчиков в одном потоке
+    private static final ThreadLocal<int[]> directCalls = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final TlsContext context;
+    private final SSLEngine engine;
+    private final AsynchronousSocketChannel channel;
+    private final BufferPool pool;
+    private final Executor taskExecutor;
+    private final ByteBuffer netIn;     // зашифрованные данные от клиента, режим записи
+    private final ByteBuffer appIn;     // расшифрованные данные, еще не отданные приложению, режим записи
+    private final ByteBuffer netOut;    // зашифрованные данные для отправки
+    private final long createdMillis = System.currentTimeMillis();
+    private final AtomicBoolean handshaking = new AtomicBoolean(true);
+    private final Object lock = new Object();
+    private boolean inboundDone = false;
+    private boolean handshakeRead = false; // чтение connect завершается вместе с рукопожатием
+
+    private ByteBuffer readBuffer;
+    private Object readAttachment;
+    private CompletionHandler readHandler;
+    private long readTimeout;
+    private TimeUnit readUnit;
+
+    private ByteBuffer writeBuffer;
+    private Object writeAttachment;
+    private CompletionHandler writeHandler;
+    private int consumed;
+
+    /* владение записью в канал клиента, защищено lock */
+    private boolean outBusy = false;
+    private final ArrayDeque<Runnable> outWaiters = new ArrayDeque<>(2);
+    private boolean closed = false;
+    private boolean released = false;
+    private Runnable netWriteDone;
+    private boolean netWriteForRead;
+    private final CompletionHandler<Integer, Void> netReadHandler = new NetReadHandler();
+    private final CompletionHandler<Integer, Void> netWriteHandler = new NetWriteHandler();
+
+    TlsSocketChannel(
+        @NotNull TlsContext tlsContext,
+        @NotNull SSLEngine sslEngine,
+        @NotNull AsynchronousSocketChannel clientChannel,
+        @NotNull Executor executor
+    ) {
+        super(clientChannel.provider());
+        context = tlsContext;
+        engine = sslEngine;
+        channel = clientChannel;
+        taskExecutor = executor;
+        pool = context.getBufferPool();
+        netIn = pool.acquire();
+        appIn = pool.acquire();
+        netOut = pool.acquire();
+    }
+
+    /**
+     * Метод возвращает сессию TLS соединения.
+     * @return сессия, до завершения рукопожатия - сессия без параметров.
+     */
+    public @NotNull SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    /**
+     * Метод возвращает протокол, согласованный через ALPN.
+     * @return протокол, пустая строка - ALPN не использовался, null - рукопожатие не завершено.
+     */
+    public @Nullable String getApplicationProtocol() {
+        return engine.getApplicationProtocol();
+    }
+
+    public boolean isHandshakeComplete() {
+        return !handshaking.get() && engine.getSession().isValid();
+    }
+
+    @Override
+    public <A> void read(
+        ByteBuffer dst,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Integer, ? super A> handler
+    ) {
+        final boolean open;
+
+        synchronized (lock) {
+            if (readHandler != null) throw new ReadPendingException();
+
+            open = !closed;
+            if (open) {
+                readBuffer = dst;
+                readAttachment = attachment;
+                readHandler = handler;
+                readTimeout = timeout;
+                readUnit = unit;
+            }
+        }
+
+        if (!open) {
+            direct(() -> handler.failed(new ClosedChannelException(), attachment));
+            return;
+        }
+
+        doRead();
+    }
+
+    @Override
+    public Future<Integer> read(ByteBuffer dst) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        read(dst, 0L, TimeUnit.MILLISECONDS, future, futureHandler());
+
+        return future;
+    }
+
+    @Override
+    public <A> void read(
+        ByteBuffer[] dsts,
+        int offset,
+        int length,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Long, ? super A> handler
+    ) {
+        new ScatterRead<>(dsts, offset, offset + length, timeout, unit, attachment, handler).next(0L);
+    }
+
+    @Override
+    public <A> void write(
+        ByteBuffer src,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Integer, ? super A> handler
+    ) {
+        final boolean open;
+
+        synchronized (lock) {
+            if (writeHandler != null) throw new WritePendingException();
+
+            open = !closed;
+            if (open) {
+                writeBuffer = src;
+                writeAttachment = attachment;
+                writeHandler = handler;
+                consumed = 0;
+            }
+        }
+
+        if (!open) {
+            direct(() -> handler.failed(new ClosedChannelException(), attachment));
+            return;
+        }
+
+        withOut(this::doWrite);
+    }
+
+    @Override
+    public Future<Integer> write(ByteBuffer src) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        write(src, 0L, TimeUnit.MILLISECONDS, future, futureHandler());
+
+        return future;
+    }
+
+    @Override
+    public <A> void write(
+        ByteBuffer[] srcs,
+        int offset,
+        int length,
+        long timeout,
+        TimeUnit unit,
+        A attachment,
+        CompletionHandler<Long, ? super A> handler
+    ) {
+        new GatherWrite<>(srcs, offset, offset + length, timeout, unit, attachment, handler).next(0L);
+    }
+
+    /**
+     * Шаг чтения: отдает расшифрованные данные, продолжает рукопожатие или читает следующую запись TLS.
+     */
+    private void doRead() {
+        try {
+            while (true) {
+                if (appIn.position() > 0 && !handshakeRead) {
+                    completeRead(deliver());
+                    return;
+                }
+
+                final SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+                if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                    runTasks(this::doRead);
+                    return;
+                }
+                if (handshakeRead && !handshaking.get()) {
+                    completeRead(0);
+                    return;
+                }
+                if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP && !engine.isOutboundDone()) {
+                    withOut(this::flushHandshake);
+                    return;
+                }
+
+                if (inboundDone) {
+                    completeRead(-1);
+                    return;
+                }
+
+                if (netIn.position() == 0) {
+                    readNet();
+                    return;
+                }
+
+                netIn.flip();
+                final SSLEngineResult result;
+                try {
+                    result = engine.unwrap(netIn, appIn);
+                } finally {
+                    netIn.compact();
+                }
+                checkHandshake(result);
+
+                switch (result.getStatus()) {
+                    case BUFFER_UNDERFLOW -> {
+                        if (!netIn.hasRemaining()) throw new SSLException("Запись TLS больше буфера соединения");
+
+                        readNet();
+                        return;
+                    }
+                    case BUFFER_OVERFLOW -> throw new SSLException("Недостаточно места для расшифрованной записи TLS");
+                    case CLOSED -> inboundDone = true;
+                    default -> {}
+                }
+            }
+        } catch (SSLException e) {
+            failRead(e);
+        }
+    }
+
+    private void readNet() {
+        channel.read(netIn, readTimeout, readUnit, null, netReadHandler);
+    }
+
+    /**
+     * Метод копирует расшифрованные данные в буфер приложения.
+     * @return количество скопированных байт.
+     */
+    private int deliver() {
+        appIn.flip();
+
+        final int count = Math.min(appIn.remaining(), readBuffer.remaining());
+        final int limit = appIn.limit();
+
+        appIn.limit(appIn.position() + count);
+        readBuffer.put(appIn);
+        appIn.limit(limit);
+        appIn.compact();
+
+        return count;
+    }
+
+    /**
+     * Отправка сообщений рукопожатия, которые SSLEngine требует во время чтения. Выполняется владельцем записи.
+     * Все сообщения одной стороны рукопожатия собираются в один буфер и отправляются одной записью,
+     * иначе мелкие записи задерживаются алгоритмом Нейгла до подтверждения предыдущих.
+     */
+    private void flushHandshake() {
+        try {
+            netOut.clear();
+
+            SSLEngineResult result;
+            do {
+                result = engine.wrap(empty, netOut);
+                checkHandshake(result); // NEED_TASK завершает цикл, задачи запускает следующий шаг чтения
+            } while (
+                result.getStatus() == SSLEngineResult.Status.OK
+                && result.bytesProduced() > 0
+                && engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP
+            );
+
+            netOut.flip();
+        } catch (SSLException e) {
+            releaseOut();
+            failRead(e);
+            return;
+        }
+
+        writeNet(() -> {
+            releaseOut();
+            doRead();
+        }, true);
+    }
+
+    /**
+     * Шаг записи: шифрует очередную запись TLS из буфера приложения и отправляет ее. Выполняется владельцем записи.
+     */
+    private void doWrite() {
+        try {
+            while (true) {
+                if (isClosed()) {
+                    releaseOut();
+                    failWrite(new AsynchronousCloseException());
+                    return;
+                }
+
+                netOut.clear();
+                final SSLEngineResult result = engine.wrap(writeBuffer, netOut);
+                checkHandshake(result);
+                consumed += result.bytesConsumed();
+
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    releaseOut();
+                    failWrite(new ClosedChannelException());
+                    return;
+                }
+                netOut.flip();
+                if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                    runTasks(netOut.hasRemaining() ? () -> writeNet(this::doWrite, false) : this::doWrite);
+                    return;
+                }
+                if (netOut.hasRemaining()) {
+                    writeNet(this::doWrite, false);
+                    return;
+                }
+
+                if (!writeBuffer.hasRemaining()) {
+                    releaseOut();
+                    completeWrite();
+                    return;
+                }
+                if (result.bytesConsumed() == 0) { // данные приложения нельзя зашифровать до завершения рукопожатия
+                    releaseOut();
+                    failWrite(new SSLException("Запись до завершения рукопожатия TLS"));
+                    return;
+                }
+            }
+        } catch (SSLException e) {
+            releaseOut();
+            failWrite(e);
+        }
+    }
+
+    /**
+     * Отправка netOut в канал клиента целиком.
+     * @param done продолжение после отправки, выполняется владельцем записи.
+     * @param forRead отправка выполняется для чтения, ошибка завершает чтение, иначе - запись приложения.
+     */
+    private void writeNet(@NotNull Runnable done, boolean forRead) {
+        netWriteDone = done;
+        netWriteForRead = forRead;
+        channel.write(netOut, null, netWriteHandler);
+    }
+
+    private void checkHandshake(@NotNull SSLEngineResult result) {
+        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED && handshaking.compareAndSet(true, false)) {
+            // возобновленная сессия создана при одном из прошлых рукопожатий
+            context.handshakeCompleted(engine.getSession().getCreationTime() < createdMillis);
+        }
+    }
+
+    /**
+     * Метод выполняет задачи SSLEngine в executor и продолжает работу канала после них.
+     * @param then продолжение, выполняется в потоке executor.
+     */
+    private void runTasks(@NotNull Runnable then) {
+        try {
+            taskExecutor.execute(() -> {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) task.run();
+
+                then.run();
+            });
+        } catch (RuntimeException e) { // executor остановлен
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) task.run();
+
+            then.run();
+        }
+    }
+
+    /**
+     * Метод передает владение записью в канал клиента или ставит задачу в очередь, если запись занята.
+     * @param task задача владельца записи.
+     */
+    private void withOut(@NotNull Runnable task) {
+        synchronized (lock) {
+            if (outBusy) {
+                outWaiters.add(task);
+                return;
+            }
+
+            outBusy = true;
+        }
+
+        task.run();
+    }
+
+    /**
+     * Метод передает владение записью следующей задаче или освобождает его.
+     */
+    private void releaseOut() {
+        final Runnable next;
+
+        synchronized (lock) {
+            next = outWaiters.poll();
+            if (next == null) outBusy = false;
+        }
+
+        if (next != null) {
+            next.run();
+        } else {
+            releaseBuffers();
+        }
+    }
+
+    private void completeRead(int count) {
+        if (count < 0 && handshaking.compareAndSet(true, false)) context.handshakeFailed();
+
+        final CompletionHandler handler;
+        final Object attachment;
+
+        synchronized (lock) {
+            handler = readHandler;
+            attachment = readAttachment;
+            clearRead();
+        }
+
+        direct(() -> handler.completed(count, attachment));
+        releaseBuffers();
+    }
+
+    private void failRead(@NotNull Throwable exc) {
+        if (handshaking.compareAndSet(true, false)) context.handshakeFailed();
+
+        final CompletionHandler handler;
+        final Object attachment;
+
+        synchronized (lock) {
+            handler = readHandler;
+            attachment = readAttachment;
+            clearRead();
+        }
+
+        if (handler != null) direct(() -> handler.failed(exc, attachment));
+        releaseBuffers();
+    }
+
+    private void completeWrite() {
+        final CompletionHandler handler;
+        final Object attachment;
+        final int count;
+
+        synchronized (lock) {
+            handler = writeHandler;
+            attachment = writeAttachment;
+            count = consumed;
+            clearWrite();
+        }
+
+        direct(() -> handler.completed(count, attachment));
+    }
+
+    private void failWrite(@NotNull Throwable exc) {
+        final CompletionHandler handler;
+        final Object attachment;
+
+        synchronized (lock) {
+            handler = writeHandler;
+            attachment = writeAttachment;
+            clearWrite();
+        }
+
+        if (handler != null) direct(() -> handler.failed(exc, attachment));
+    }
+
+    private void clearRead() {
+        readBuffer = null;
+        readAttachment = null;
+        readHandler = null;
+        readUnit = null;
+    }
+
+    private void clearWrite() {
+        writeBuffer = null;
+        writeAttachment = null;
+        writeHandler = null;
+        consumed = 0;
+    }
+
+    /**
+     * Вызов обработчика завершения в текущем потоке. Если данные уже расшифрованы, чтение завершается
+     * внутри вызова read, поэтому глубина таких вызовов ограничена, дальше обработчик выполняется в общем пуле.
+     * @param call вызов обработчика.
+     */
+    private static void direct(@NotNull Runnable call) {
+        final int[] depth = directCalls.get();
+
+        if (depth[0] >= maxDirectCalls) {
+            ForkJoinPool.commonPool().execute(call);
+            return;
+        }
+
+        depth[0]++;
+        try {
+            call.run();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    private boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
+    }
+
+    /**
+     * Метод возвращает буферы в пул, когда канал закрыт и ни одна операция их больше не использует.
+     */
+    private void releaseBuffers() {
+        synchronized (lock) {
+            if (!closed || released || readHandler != null || outBusy) return;
+            released = true;
+        }
+
+        pool.release(netIn);
+        pool.release(appIn);
+        pool.release(netOut);
+    }
+
+    private final class NetReadHandler implements CompletionHandler<Integer, Void> {
+        @Override
+        public void completed(Integer count, Void attachment) {
+            if (isClosed()) {
+                failRead(new AsynchronousCloseException());
+                return;
+            }
+
+            if (count < 0) {
+                try {
+                    engine.closeInbound();
+                } catch (SSLException ignored) {
+                    // соединение закрыто без close_notify
+                }
+
+                inboundDone = true;
+            }
+
+            doRead();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            failRead(exc);
+        }
+    }
+
+    private final class NetWriteHandler implements CompletionHandler<Integer, Void> {
+        @Override
+        public void completed(Integer count, Void attachment) {
+            if (netOut.hasRemaining()) {
+                channel.write(netOut, null, this);
+                return;
+            }
+
+            final Runnable done = netWriteDone;
+            netWriteDone = null;
+            done.run();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            netWriteDone = null;
+            releaseOut();
+
+            if (netWriteForRead) {
+                failRead(exc);
+            } else {
+                failWrite(exc);
+            }
+        }
+    }
+
+    /**
+     * Чтение в несколько буферов: буферы заполняются по очереди одиночными чтениями, следующий буфер
+     * читается, только пока уже расшифрованные данные есть в канале, поэтому операция не ждет новых записей TLS.
+     */
+    private final class ScatterRead<A> implements CompletionHandler<Integer, Void> {
+        private final ByteBuffer[] buffers;
+        private final int end;
+        private final long timeout;
+        private final TimeUnit unit;
+        private final A attachment;
+        private final CompletionHandler<Long, ? super A> handler;
+        private int index;
+        private long total;
+
+        ScatterRead(
+            ByteBuffer[] dsts,
+            int offset,
+            int end,
+            long timeout,
+            TimeUnit unit,
+            A attachment,
+            CompletionHandler<Long, ? super A> handler
+        ) {
+            if (offset < 0 || end < offset || end > dsts.length) throw new IndexOutOfBoundsException();
+
+            buffers = dsts;
+            index = offset;
+            this.end = end;
+            this.timeout = timeout;
+            this.unit = unit;
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        void next(long count) {
+            total += count;
+
+            while (index < end && !buffers[index].hasRemaining()) index++;
+
+            if (index == end || (total > 0 && appIn.position() == 0)) {
+                final long result = total;
+                direct(() -> handler.completed(result, attachment));
+                return;
+            }
+
+            read(buffers[index], timeout, unit, null, this);
+        }
+
+        @Override
+        public void completed(Integer count, Void ignored) {
+            if (count < 0) {
+                final long result = total > 0 ? total : -1L;
+                handler.completed(result, attachment);
+                return;
+            }
+
+            next(count);
+        }
+
+        @Override
+        public void failed(Throwable exc, Void ignored) {
+            handler.failed(exc, attachment);
+        }
+    }
+
+    /**
+     * Запись нескольких буферов одиночными записями по очереди.
+     */
+    private final class GatherWrite<A> implements CompletionHandler<Integer, Void> {
+        private final ByteBuffer[] buffers;
+        private final int end;
+        private final long timeout;
+        private final TimeUnit unit;
+        private final A attachment;
+        private final CompletionHandler<Long, ? super A> handler;
+        private int index;
+        private long total;
+
+        GatherWrite(
+            ByteBuffer[] srcs,
+            int offset,
+            int end,
+            long timeout,
+            TimeUnit unit,
+            A attachment,
+            CompletionHandler<Long, ? super A> handler
+        ) {
+            if (offset < 0 || end < offset || end > srcs.length) throw new IndexOutOfBoundsException();
+
+            buffers = srcs;
+            index = offset;
+            this.end = end;
+            this.timeout = timeout;
+            this.unit = unit;
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        void next(long count) {
+            total += count;
+
+            while (index < end && !buffers[index].hasRemaining()) index++;
+
+            if (index == end) {
+                final long result = total;
+                direct(() -> handler.completed(result, attachment));
+                return;
+            }
+
+            write(buffers[index], timeout, unit, null, this);
+        }
+
+        @Override
+        public void completed(Integer count, Void ignored) {
+            next(count);
+        }
+
+        @Override
+        public void failed(Throwable exc, Void ignored) {
+            handler.failed(exc, attachment);
+        }
+    }
+
+    private static @NotNull CompletionHandler<Integer, CompletableFuture<Integer>> futureHandler() {
+        return new CompletionHandler<>() {
+            @Override
+            public void completed(Integer result, CompletableFuture<Integer> future) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Throwable exc, CompletableFuture<Integer> future) {
+                future.completeExceptionally(exc);
+            }
+        };
+    }
+
+    @Override
+    public AsynchronousSocketChannel bind(SocketAddress local) throws IOException {
+        channel.bind(local);
+        return this;
+    }
+
+    @Override
+    public <T> AsynchronousSocketChannel setOption(SocketOption<T> name, T value) throws IOException {
+        channel.setOption(name, value);
+        return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) throws IOException {
+        return channel.getOption(name);
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+        return channel.supportedOptions();
+    }
+
+    @Override
+    public AsynchronousSocketChannel shutdownInput() throws IOException {
+        channel.shutdownInput();
+        return this;
+    }
+
+    @Override
+    public AsynchronousSocketChannel shutdownOutput() throws IOException {
+        channel.shutdownOutput();
+        return this;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() throws IOException {
+        return channel.getRemoteAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    /**
+     * Подключение канала клиента. Для SSLEngine клиентского режима после подключения выполняется
+     * рукопожатие, обработчик вызывается после его завершения.
+     * @param remote адрес сервера.
+     * @param attachment объект для обработчика.
+     * @param handler обработчик завершения.
+     */
+    @Override
+    public <A> void connect(SocketAddress remote, A attachment, CompletionHandler<Void, ? super A> handler) {
+        channel.connect(remote, null, new CompletionHandler<Void, Void>() {
+            @Override
+            public void completed(Void result, Void ignored) {
+                if (!engine.getUseClientMode()) {
+                    handler.completed(null, attachment);
+                    return;
+                }
+
+                try {
+                    engine.beginHandshake();
+                } catch (SSLException e) {
+                    handler.failed(e, attachment);
+                    return;
+                }
+
+                handshakeRead = true;
+                read(empty, 0L, TimeUnit.MILLISECONDS, null, new CompletionHandler<Integer, Void>() {
+                    @Override
+                    public void completed(Integer count, Void ignored) {
+                        handshakeRead = false;
+
+                        if (count < 0) {
+                            handler.failed(new SSLException("Соединение закрыто во время рукопожатия TLS"), attachment);
+                        } else {
+                            handler.completed(null, attachment);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Throwable exc, Void ignored) {
+                        handshakeRead = false;
+                        handler.failed(exc, attachment);
+                    }
+                });
+            }
+
+            @Override
+            public void failed(Throwable exc, Void ignored) {
+                handler.failed(exc, attachment);
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> connect(SocketAddress remote) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        connect(remote, future, new CompletionHandler<Void, CompletableFuture<Void>>() {
+            @Override
+            public void completed(Void result, CompletableFuture<Void> connected) {
+                connected.complete(null);
+            }
+
+            @Override
+            public void failed(Throwable exc, CompletableFuture<Void> connected) {
+                connected.completeExceptionally(exc);
+            }
+        });
+
+        return future;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !isClosed() && channel.isOpen();
+    }
+
+    /**
+     * Закрытие канала. Если запись свободна, клиенту отправляется close_notify, затем закрывается канал клиента,
+     * ожидающие операции завершаются с ошибкой, буферы возвращаются в пул.
+     * @throws IOException ошибка закрытия канала.
+     */
+    @Override
+    public void close() throws IOException {
+        final boolean notify;
+
+        synchronized (lock) {
+            if (closed) return;
+
+            closed = true;
+            notify = !outBusy;
+            if (notify) outBusy = true;
+        }
+
+        engine.closeOutbound();
+
+        if (notify) {
+            try {
+                netOut.clear();
+                engine.wrap(empty, netOut);
+                netOut.flip();
+            } catch (SSLException e) {
+                netOut.clear().flip();
+            }
+
+            if (netOut.hasRemaining()) {
+                channel.write(netOut, 1L, TimeUnit.SECONDS, null, new CompletionHandler<Integer, Void>() {
+                    @Override
+                    public void completed(Integer count, Void attachment) {
+                        closeChannel();
+                    }
+
+                    @Override
+                    public void failed(Throwable exc, Void attachment) {
+                        closeChannel();
+                    }
+                });
+                return;
+            }
+
+            closeChannel();
+            return;
+        }
+
+        channel.close();
+    }
+
+    /**
+     * Закрытие канала клиента после отправки close_notify.
+     */
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // канал уже закрыт
+        }
+
+        releaseOut();
+    }
+
+    @Override
+    public String toString() {
+        return "TlsSocketChannel" + channel;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.axel.catty.engine.tracing;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Получатель трасс медленных запросов.
+ */
+@FunctionalInterface
+public interface ISlowRequestSink {
+    /**
+     * Метод принимает завершенную трассу запроса, время обработки которого превысило порог.
+     * Вызывается в потоке обработки запроса, поэтому не должен блокироваться надолго.
+     * @param trace трасса запроса.
+     */
+    void accept(@NotNull RequestTrace trace);
+
+    /**
+     * Получатель, который пишет трассу в логгер с уровнем WARNING.
+     * @param logger логгер.
+     * @return получатель трасс.
+     */
+    @Contract(pure = true)
+    static @NotNull ISlowRequestSink logger(@NotNull Logger logger) {
+        return trace -> {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Медленный запрос: " + trace);
+        };
+    }
+}
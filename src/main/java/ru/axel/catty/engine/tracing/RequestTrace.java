@@ -0,0 +1,238 @@
+package ru.axel.catty.engine.tracing;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Трасса одного запроса: интервалы обработки (чтение, разбор, маршрут, плагины, обработчик, запись)
+ * с монотонными отметками System.nanoTime() и идентификаторы W3C Trace Context.
+ * Интервалы хранятся в массивах без создания объектов на каждую отметку.
+ * Трасса заполняется последовательно потоками, которые обрабатывают запрос, и не рассчитана
+ * на одновременную запись из нескольких потоков.
+ */
+public final class RequestTrace {
+    private static final char[] hex = "0123456789abcdef".toCharArray();
+    private final long startNanos;
+    private long endNanos = 0;
+    private String[] names = new String[16];
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];
+    private int count = 0;
+    private String description;
+    /* W3C Trace Context, идентификаторы создаются при первом обращении */
+    private String traceId;
+    private String parentId;
+    private String spanId;
+    private int flags = 0;
+    private String traceState;
+
+    /**
+     * Создание трассы.
+     * @param traceStartNanos время начала обработки запроса System.nanoTime().
+     */
+    public RequestTrace(long traceStartNanos) {
+        startNanos = traceStartNanos;
+    }
+
+    /**
+     * Метод добавляет интервал, который заканчивается сейчас.
+     * @param name имя интервала.
+     * @param spanStartNanos начало интервала System.nanoTime().
+     */
+    public void span(@NotNull String name, long spanStartNanos) {
+        span(name, spanStartNanos, System.nanoTime());
+    }
+
+    /**
+     * Метод добавляет интервал.
+     * @param name имя интервала.
+     * @param spanStartNanos начало интервала System.nanoTime().
+     * @param spanEndNanos конец интервала System.nanoTime().
+     */
+    public void span(@NotNull String name, long spanStartNanos, long spanEndNanos) {
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+
+        names[count] = name;
+        starts[count] = spanStartNanos;
+        ends[count] = spanEndNanos;
+        count++;
+    }
+
+    /**
+     * Метод возвращает интервалы в порядке добавления.
+     * @return список интервалов.
+     */
+    public @NotNull List<TraceSpan> getSpans() {
+        final List<TraceSpan> spans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) spans.add(new TraceSpan(names[i], starts[i], ends[i]));
+
+        return spans;
+    }
+
+    /**
+     * Метод завершает трассу.
+     * @param traceEndNanos время окончания обработки запроса System.nanoTime().
+     */
+    public void finish(long traceEndNanos) {
+        endNanos = traceEndNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Метод возвращает общее время обработки запроса.
+     * @return время в наносекундах, для незавершенной трассы - до текущего момента.
+     */
+    public long getTotalNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    /**
+     * Описание запроса для отчета, например "GET /path".
+     * @param requestDescription описание.
+     */
+    public void setDescription(@Nullable String requestDescription) {
+        description = requestDescription;
+    }
+    public @Nullable String getDescription() {
+        return description;
+    }
+
+    /**
+     * Метод принимает родительский контекст из заголовка traceparent.
+     * Некорректное значение игнорируется, тогда трасса начинает новый trace-id.
+     * @param traceparent значение заголовка traceparent.
+     * @param tracestate значение заголовка tracestate, передается дальше без изменений, пустое значение не принимается.
+     * @return true, если контекст принят.
+     */
+    public boolean setParent(@Nullable String traceparent, @Nullable String tracestate) {
+        if (traceparent == null) return false;
+
+        final String value = traceparent.trim();
+        if (value.length() < 55 || (value.length() > 55 && value.charAt(55) != '-')) return false;
+        if (value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') return false;
+
+        final String version = value.substring(0, 2);
+        final String trace = value.substring(3, 35);
+        final String parent = value.substring(36, 52);
+        final String traceFlags = value.substring(53, 55);
+
+        if (!isHex(version) || version.equals("ff") || (version.equals("00") && value.length() != 55)) return false;
+        if (!isHex(trace) || isZero(trace) || !isHex(parent) || isZero(parent) || !isHex(traceFlags)) return false;
+
+        traceId = trace;
+        parentId = parent;
+        flags = Integer.parseInt(traceFlags, 16);
+        traceState = tracestate == null || tracestate.isBlank() ? null : tracestate;
+
+        return true;
+    }
+
+    /**
+     * Метод возвращает идентификатор трассы (32 шестнадцатеричных символа).
+     * @return trace-id родителя или новый.
+     */
+    public @NotNull String getTraceId() {
+        if (traceId == null) traceId = randomHex(2);
+        return traceId;
+    }
+
+    /**
+     * Метод возвращает идентификатор span родителя из заголовка traceparent.
+     * @return parent-id или null, если запрос пришел без контекста.
+     */
+    public @Nullable String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Метод возвращает идентификатор span обработки запроса на этом сервере (16 шестнадцатеричных символов).
+     * @return span-id.
+     */
+    public @NotNull String getSpanId() {
+        if (spanId == null) spanId = randomHex(1);
+        return spanId;
+    }
+
+    public @Nullable String getTraceState() {
+        return traceState;
+    }
+
+    /**
+     * Метод возвращает заголовок traceparent для исходящих запросов, в котором родителем указан span этого запроса.
+     * @return значение заголовка traceparent.
+     */
+    public @NotNull String getTraceparent() {
+        return "00-" + getTraceId() + "-" + getSpanId() + "-" + hex[(flags >> 4) & 0xf] + hex[flags & 0xf];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder(64 + count * 32);
+
+        if (description != null) text.append(description).append(' ');
+        text.append(millis(getTotalNanos())).append(" ms, trace ").append(getTraceId());
+
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? ": " : "; ")
+                .append(names[i])
+                .append(" +").append(millis(starts[i] - startNanos))
+                .append(' ').append(millis(ends[i] - starts[i])).append(" ms");
+        }
+
+        return text.toString();
+    }
+
+    @Contract(pure = true)
+    static @NotNull String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static @NotNull String randomHex(int longs) {
+        final char[] chars = new char[longs * 16];
+        long value = 0;
+
+        for (int i = 0; i < chars.length; i++) {
+            if (i % 16 == 0) {
+                do {
+                    value = ThreadLocalRandom.current().nextLong();
+                } while (value == 0);
+            }
+
+            chars[i] = hex[(int) (value >>> 60)];
+            value <<= 4;
+        }
+
+        return new String(chars);
+    }
+
+    private static boolean isHex(@NotNull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+
+        return true;
+    }
+
+    private static boolean isZero(@NotNull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != '0') return false;
+        }
+
+        return true;
+    }
+}
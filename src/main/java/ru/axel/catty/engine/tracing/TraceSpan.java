@@ -0,0 +1,36 @@
+package ru.axel.catty.engine.tracing;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Интервал обработки запроса. Время - монотонные отметки System.nanoTime().
+ */
+public final class TraceSpan {
+    private final String name;
+    private final long startNanos;
+    private final long endNanos;
+
+    TraceSpan(@NotNull String name, long startNanos, long endNanos) {
+        this.name = name;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+    public long getStartNanos() {
+        return startNanos;
+    }
+    public long getEndNanos() {
+        return endNanos;
+    }
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + RequestTrace.millis(getDurationNanos()) + " ms";
+    }
+}
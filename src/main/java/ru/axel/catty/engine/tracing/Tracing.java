@@ -0,0 +1,128 @@
+package ru.axel.catty.engine.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Трассировка запросов: создает трассы, связывает их с запросами и передает трассы медленных запросов
+ * получателю с ограничением количества в секунду.
+ * Подключается через HttpCattyQueryHandler.tracing(), интервалы маршрутизации, плагинов и обработчика
+ * добавляются автоматически, если у запроса есть трасса.
+ */
+public class Tracing {
+    private final TracingOptions options;
+    private final ISlowRequestSink sink;
+    private final long thresholdNanos;
+    private final long originNanos = System.nanoTime();
+    private final AtomicLong samples = new AtomicLong(); // секунда << 20 | количество трасс в этой секунде
+    private final LongAdder traced = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+
+    public Tracing(@NotNull ISlowRequestSink slowRequestSink) {
+        this(new TracingOptions(), slowRequestSink);
+    }
+    public Tracing(@NotNull TracingOptions tracingOptions, @NotNull ISlowRequestSink slowRequestSink) {
+        options = tracingOptions;
+        sink = slowRequestSink;
+        thresholdNanos = options.getSlowThresholdMillis() * 1_000_000L;
+    }
+
+    /**
+     * Метод создает трассу запроса.
+     * @param startNanos время начала обработки запроса System.nanoTime().
+     * @return трасса.
+     */
+    public @NotNull RequestTrace start(long startNanos) {
+        traced.increment();
+        return new RequestTrace(startNanos);
+    }
+
+    /**
+     * Метод связывает трассу с разобранным запросом: добавляет интервал разбора,
+     * описание запроса и родительский контекст из traceparent.
+     * @param request объект запроса.
+     * @param trace трасса.
+     * @param parseStartNanos начало разбора запроса System.nanoTime().
+     */
+    public void attach(@NotNull IHttpCattyRequest request, @NotNull RequestTrace trace, long parseStartNanos) {
+        trace.span("parse", parseStartNanos);
+        trace.setDescription(request.getMethod() + " " + request.getPath().orElse(""));
+        if (options.isPropagate()) {
+            final String traceState = request.getHeaders(Headers.TRACESTATE); // без заголовка - пустая строка
+
+            trace.setParent(
+                request.getHeaders(Headers.TRACEPARENT),
+                traceState == null || traceState.isEmpty() ? null : traceState
+            );
+        }
+
+        request.setTrace(trace);
+    }
+
+    /**
+     * Метод завершает трассу и, если запрос медленный, передает ее получателю.
+     * @param trace трасса.
+     */
+    public void finish(@NotNull RequestTrace trace) {
+        final long now = System.nanoTime();
+
+        trace.finish(now);
+        if (trace.getTotalNanos() < thresholdNanos) return;
+
+        slow.increment();
+        if (!sample(now)) return;
+
+        sampled.increment();
+        sink.accept(trace);
+    }
+
+    public @NotNull TracingOptions getOptions() {
+        return options;
+    }
+    public long getTraced() {
+        return traced.sum();
+    }
+    public long getSlow() {
+        return slow.sum();
+    }
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    /**
+     * Метод проверяет лимит трасс в текущей секунде.
+     * @param now текущее время System.nanoTime().
+     * @return true, если трассу можно передать получателю.
+     */
+    private boolean sample(long now) {
+        final long second = (now - originNanos) / 1_000_000_000L;
+
+        while (true) {
+            final long state = samples.get();
+            final long count = state & 0xFFFFF;
+
+            if (state >>> 20 != second) {
+                if (samples.compareAndSet(state, second << 20 | 1)) return true;
+            } else if (count >= options.getMaxSamplesPerSecond()) {
+                return false;
+            } else if (samples.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Tracing{" +
+            "traced=" + getTraced() +
+            ", slow=" + getSlow() +
+            ", sampled=" + getSampled() +
+            ", options=" + options +
+            '}';
+    }
+}
@@ -0,0 +1,65 @@
+package ru.axel.catty.engine.tracing;
+
+/**
+ * Настройки трассировки запросов.
+ */
+public final class TracingOptions {
+    private long slowThresholdMillis = 500L;
+    private int maxSamplesPerSecond = 10;
+    private boolean propagate = true;
+
+    /**
+     * Порог времени обработки, начиная с которого трасса запроса передается получателю.
+     * @param millis порог в миллисекундах, 0 - передавать все запросы.
+     * @return объект настроек.
+     */
+    public TracingOptions setSlowThresholdMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Порог не может быть отрицательным");
+
+        slowThresholdMillis = millis;
+        return this;
+    }
+
+    /**
+     * Максимальное количество трасс, передаваемых получателю за секунду. Остальные медленные запросы
+     * только учитываются в счетчике, чтобы при общей деградации получатель не стал новым узким местом.
+     * @param samples количество трасс в секунду.
+     * @return объект настроек.
+     */
+    public TracingOptions setMaxSamplesPerSecond(int samples) {
+        if (samples <= 0 || samples >= 1 << 20) {
+            throw new IllegalArgumentException("Количество трасс должно быть от 1 до " + ((1 << 20) - 1));
+        }
+
+        maxSamplesPerSecond = samples;
+        return this;
+    }
+
+    /**
+     * Принимать родительский контекст из заголовков traceparent и tracestate запроса.
+     * Если выключено, каждый запрос начинает новую трассу.
+     * @param enabled принимать контекст.
+     * @return объект настроек.
+     */
+    public TracingOptions setPropagate(boolean enabled) {
+        propagate = enabled;
+        return this;
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+    public int getMaxSamplesPerSecond() {
+        return maxSamplesPerSecond;
+    }
+    public boolean isPropagate() {
+        return propagate;
+    }
+
+    @Override
+    public String toString() {
+        return "{ slowThresholdMillis: " + slowThresholdMillis +
+            ", maxSamplesPerSecond: " + maxSamplesPerSecond +
+            ", propagate: " + propagate + " }";
+    }
+}
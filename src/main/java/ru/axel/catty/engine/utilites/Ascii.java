@@ -0,0 +1,54 @@
+package ru.axel.catty.engine.utilites;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Вспомогательный класс для работы с ASCII строками, записанными в массивах байт.
+ */
+public final class Ascii {
+    private Ascii() {}
+
+    @Contract(pure = true)
+    public static int toLower(int symbol) {
+        return symbol >= 'A' && symbol <= 'Z' ? symbol + ('a' - 'A') : symbol;
+    }
+
+    /**
+     * Сравнение части массива байт с массивом байт без учета регистра.
+     * @param source массив байт.
+     * @param offset начало сравниваемой части.
+     * @param length длина сравниваемой части.
+     * @param other массив для сравнения.
+     * @return true, если строки совпадают.
+     */
+    @Contract(pure = true)
+    public static boolean equalsIgnoreCase(byte @NotNull [] source, int offset, int length, byte @NotNull [] other) {
+        if (length != other.length) return false;
+
+        for (int i = 0; i < length; i++) {
+            if (toLower(source[offset + i]) != toLower(other[i])) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Сравнение части массива байт со строкой без учета регистра.
+     * @param source массив байт.
+     * @param offset начало сравниваемой части.
+     * @param length длина сравниваемой части.
+     * @param other строка для сравнения.
+     * @return true, если строки совпадают.
+     */
+    @Contract(pure = true)
+    public static boolean equalsIgnoreCase(byte @NotNull [] source, int offset, int length, @NotNull String other) {
+        if (length != other.length()) return false;
+
+        for (int i = 0; i < length; i++) {
+            if (toLower(source[offset + i] & 0xFF) != toLower(other.charAt(i))) return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.axel.catty.engine.websocket;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Обработчик событий WebSocket соединения.
+ * Методы вызываются в потоке ввода-вывода канала по одному на соединение,
+ * поэтому блокировка внутри метода задерживает чтение всех сообщений этого соединения.
+ */
+public interface IWebSocketHandler {
+    /**
+     * Соединение установлено.
+     * @param session сессия.
+     */
+    default void onOpen(@NotNull IWebSocketSession session) {}
+
+    /**
+     * Получено текстовое сообщение.
+     * @param session сессия.
+     * @param message сообщение.
+     */
+    void onText(@NotNull IWebSocketSession session, @NotNull String message);
+
+    /**
+     * Получено двоичное сообщение. Буфер действителен только во время вызова:
+     * для сообщения из одного фрейма это область буфера чтения без копирования.
+     * @param session сессия.
+     * @param message сообщение.
+     */
+    default void onBinary(@NotNull IWebSocketSession session, @NotNull ByteBuffer message) {}
+
+    /**
+     * Соединение закрыто.
+     * @param session сессия.
+     * @param code код закрытия.
+     * @param reason причина.
+     */
+    default void onClose(@NotNull IWebSocketSession session, int code, @NotNull String reason) {}
+
+    /**
+     * Ошибка обработки соединения.
+     * @param session сессия.
+     * @param exc ошибка.
+     */
+    default void onError(@NotNull IWebSocketSession session, @NotNull Throwable exc) {}
+}
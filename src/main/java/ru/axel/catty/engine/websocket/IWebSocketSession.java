@@ -0,0 +1,53 @@
+package ru.axel.catty.engine.websocket;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+/**
+ * Сессия WebSocket. Методы отправки потокобезопасны и не блокируют: сообщения ставятся в очередь записи.
+ */
+public interface IWebSocketSession {
+    int CLOSE_NORMAL = 1000;
+    int CLOSE_GOING_AWAY = 1001;
+    int CLOSE_PROTOCOL_ERROR = 1002;
+    int CLOSE_UNSUPPORTED_DATA = 1003;
+    int CLOSE_NO_STATUS = 1005;
+    int CLOSE_ABNORMAL = 1006;
+    int CLOSE_INVALID_PAYLOAD = 1007;
+    int CLOSE_POLICY_VIOLATION = 1008;
+    int CLOSE_MESSAGE_TOO_BIG = 1009;
+    int CLOSE_INTERNAL_ERROR = 1011;
+
+    /**
+     * Метод возвращает запрос, на который было установлено соединение.
+     * @return запрос рукопожатия.
+     */
+    @NotNull IHttpCattyRequest getRequest();
+
+    /**
+     * Метод отправляет текстовое сообщение.
+     * @param message сообщение.
+     */
+    void sendText(@NotNull String message);
+
+    /**
+     * Метод отправляет двоичное сообщение.
+     * @param message сообщение.
+     */
+    void sendBinary(byte @NotNull [] message);
+
+    /**
+     * Метод отправляет ping.
+     * @param payload данные, не более 125 байт.
+     */
+    void ping(byte @NotNull [] payload);
+
+    /**
+     * Метод начинает закрытие соединения.
+     * @param code код закрытия.
+     * @param reason причина.
+     */
+    void close(int code, @NotNull String reason);
+
+    boolean isOpen();
+}
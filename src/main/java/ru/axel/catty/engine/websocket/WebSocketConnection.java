@@ -0,0 +1,682 @@
+package ru.axel.catty.engine.websocket;
+
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Соединение WebSocket (RFC 6455) на канале клиента после рукопожатия.
+ * Фреймы разбираются прямо в буфере чтения: маска снимается на месте, сообщение из одного фрейма
+ * передается обработчику без копирования. Поэтому буфер двоичного сообщения в
+ * {@link IWebSocketHandler#onBinary} - срез буфера чтения только для чтения, действительный только во время
+ * вызова: следующее чтение перезаписывает его, для сохранения данные нужно скопировать.
+ * Фрагментированные и сжатые (permessage-deflate, RFC 7692) сообщения собираются в отдельный буфер.
+ * Отправка идет через очередь записи с одной активной операцией.
+ * Inflater освобождается потоком чтения, когда чтение прекращается, Deflater - при закрытии канала.
+ */
+final class WebSocketConnection implements IWebSocketSession {
+    /* коды операций */
+    private static final int CONTINUATION = 0x0;
+    private static final int TEXT = 0x1;
+    private static final int BINARY = 0x2;
+    private static final int CLOSE = 0x8;
+    private static final int PING = 0x9;
+    private static final int PONG = 0xA;
+
+    private static final int FIN = 0x80;
+    private static final int RSV1 = 0x40;
+    private static final int maxControlPayload = 125;
+    private static final byte[] deflateTail = { 0, 0, (byte) 0xFF, (byte) 0xFF };
+
+    private final AsynchronousSocketChannel client;
+    private final IWebSocketHandler handler;
+    private final WebSocketOptions options;
+    private final IHttpCattyRequest request;
+    private final boolean deflate;
+    private final Logger logger;
+
+    /* состояние чтения, меняется только потоком чтения */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(16384);
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private int messageOpcode = -1;
+    private boolean messageCompressed = false;
+    private ByteArrayOutputStream message;
+    private Inflater inflater;
+
+    /* состояние отправки, под монитором соединения */
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private final WriteHandler writeHandler = new WriteHandler();
+    private Deflater deflater;
+    private byte[] deflateBuffer;
+    private boolean writing = false;
+    private boolean closeSent = false;
+    private boolean closing = false;
+    private boolean closed = false;
+    private boolean closeNotified = false;
+
+    WebSocketConnection(
+        @NotNull AsynchronousSocketChannel clientChannel,
+        @NotNull IWebSocketHandler socketHandler,
+        @NotNull WebSocketOptions socketOptions,
+        @NotNull IHttpCattyRequest handshakeRequest,
+        boolean perMessageDeflate,
+        @NotNull Logger loggerInstance
+    ) {
+        client = clientChannel;
+        handler = socketHandler;
+        options = socketOptions;
+        request = handshakeRequest;
+        deflate = perMessageDeflate;
+        logger = loggerInstance;
+    }
+
+    /**
+     * Метод уведомляет обработчик об открытии и запускает чтение фреймов.
+     * @param received байты, прочитанные вместе с запросом рукопожатия после его конца, копируются.
+     */
+    void start(@NotNull ByteBuffer received) {
+        if (received.remaining() > readBuffer.capacity()) readBuffer = ByteBuffer.allocate(received.remaining());
+        readBuffer.put(received);
+
+        try {
+            handler.onOpen(this);
+        } catch (Throwable exc) {
+            handlerError(exc);
+        }
+
+        if (readBuffer.position() > 0) {
+            process(); // клиент отправил фреймы, не дожидаясь ответа 101
+        } else {
+            read();
+        }
+    }
+
+    @Override
+    public @NotNull IHttpCattyRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public void sendText(@NotNull String message) {
+        sendMessage(TEXT, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void sendBinary(byte @NotNull [] message) {
+        sendMessage(BINARY, message);
+    }
+
+    @Override
+    public synchronized void ping(byte @NotNull [] payload) {
+        if (payload.length > maxControlPayload) throw new IllegalArgumentException("Ping больше 125 байт");
+        if (closeSent || closed) return;
+
+        enqueue(frame(FIN | PING, payload, 0, payload.length));
+    }
+
+    @Override
+    public synchronized void close(int code, @NotNull String reason) {
+        if (closeSent || closed) return;
+
+        sendClose(code, reason); // соединение закрывается после ответного CLOSE клиента
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !closeSent && !closed;
+    }
+
+    private synchronized void sendMessage(int opcode, byte @NotNull [] payload) {
+        if (closeSent || closed) return;
+
+        if (deflate && payload.length >= options.getCompressThreshold()) {
+            final byte[] compressed = compress(payload);
+            enqueue(frame(FIN | RSV1 | opcode, compressed, 0, compressed.length));
+        } else {
+            enqueue(frame(FIN | opcode, payload, 0, payload.length));
+        }
+    }
+
+    /**
+     * Метод сжимает сообщение без сохранения контекста (server_no_context_takeover).
+     * Вызывается под монитором.
+     * @param payload сообщение.
+     * @return сжатые данные без завершающих 00 00 FF FF.
+     */
+    private byte @NotNull [] compress(byte @NotNull [] payload) {
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflateBuffer = new byte[8192];
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + 16);
+        int length;
+
+        deflater.reset();
+        deflater.setInput(payload);
+
+        do {
+            length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+            out.write(deflateBuffer, 0, length);
+        } while (length == deflateBuffer.length || !deflater.needsInput());
+
+        final byte[] compressed = out.toByteArray();
+        final byte[] result = new byte[compressed.length - deflateTail.length];
+        System.arraycopy(compressed, 0, result, 0, result.length);
+
+        return result;
+    }
+
+    private void read() {
+        try {
+            client.read(readBuffer, options.getIdleTimeout(), TimeUnit.SECONDS, null, new ReadHandler());
+        } catch (Throwable exc) {
+            terminate(exc);
+        }
+    }
+
+    /**
+     * Метод разбирает накопленные фреймы и запускает следующее чтение.
+     * Если чтение прекращается, Inflater освобождается.
+     */
+    private void process() {
+        if (frames()) {
+            read();
+        } else {
+            endInflater();
+        }
+    }
+
+    /**
+     * Метод разбирает накопленные фреймы.
+     * @return true, если нужно продолжить чтение.
+     */
+    private boolean frames() {
+        readBuffer.flip();
+        int required = 0;
+
+        while (readBuffer.remaining() >= 2) {
+            final int start = readBuffer.position();
+            final int first = readBuffer.get(start) & 0xFF;
+            final int second = readBuffer.get(start + 1) & 0xFF;
+            long length = second & 0x7F;
+            int headerLength = 2;
+
+            if (length == 126) {
+                if (readBuffer.remaining() < 4) break;
+
+                length = readBuffer.getShort(start + 2) & 0xFFFF;
+                headerLength = 4;
+            } else if (length == 127) {
+                if (readBuffer.remaining() < 10) break;
+
+                length = readBuffer.getLong(start + 2);
+                headerLength = 10;
+            }
+
+            if ((second & 0x80) == 0) {
+                return fail(CLOSE_PROTOCOL_ERROR, "Фрейм клиента без маски");
+            }
+            if (length < 0 || length > options.getMaxMessageSize()) {
+                return fail(CLOSE_MESSAGE_TOO_BIG, "Сообщение больше " + options.getMaxMessageSize());
+            }
+
+            headerLength += 4;
+
+            if (readBuffer.remaining() < headerLength + length) {
+                required = headerLength + (int) length;
+                break;
+            }
+
+            final byte[] array = readBuffer.array();
+            final int payload = start + headerLength;
+
+            unmask(array, payload - 4, payload, (int) length);
+            readBuffer.position(payload + (int) length);
+
+            if (!onFrame(first, array, payload, (int) length)) return false;
+        }
+
+        if (required > readBuffer.capacity()) { // фрейм не помещается в буфер - расширяем
+            final ByteBuffer grown = ByteBuffer.allocate(required);
+            grown.put(readBuffer);
+            readBuffer = grown;
+        } else {
+            readBuffer.compact();
+        }
+
+        synchronized (this) {
+            return !closed && !closing;
+        }
+    }
+
+    private static void unmask(byte @NotNull [] array, int keyOffset, int offset, int length) {
+        final byte k0 = array[keyOffset];
+        final byte k1 = array[keyOffset + 1];
+        final byte k2 = array[keyOffset + 2];
+        final byte k3 = array[keyOffset + 3];
+        final int end = offset + length;
+        int i = offset;
+
+        for (; i + 3 < end; i += 4) {
+            array[i] ^= k0;
+            array[i + 1] ^= k1;
+            array[i + 2] ^= k2;
+            array[i + 3] ^= k3;
+        }
+        for (int k = 0; i < end; i++, k++) {
+            array[i] ^= array[keyOffset + k];
+        }
+    }
+
+    /**
+     * Метод обрабатывает фрейм.
+     * @return false, если чтение нужно прекратить.
+     */
+    private boolean onFrame(int first, byte @NotNull [] array, int offset, int length) {
+        final boolean fin = (first & FIN) != 0;
+        final boolean compressed = (first & RSV1) != 0;
+        final int opcode = first & 0x0F;
+
+        if ((first & 0x30) != 0 || (compressed && (!deflate || opcode == CONTINUATION || opcode >= CLOSE))) {
+            return fail(CLOSE_PROTOCOL_ERROR, "Неверные биты RSV");
+        }
+
+        if (opcode >= CLOSE) {
+            if (!fin || length > maxControlPayload) return fail(CLOSE_PROTOCOL_ERROR, "Неверный управляющий фрейм");
+
+            switch (opcode) {
+                case CLOSE -> {
+                    return onCloseFrame(array, offset, length);
+                }
+                case PING -> {
+                    synchronized (this) {
+                        if (!closeSent && !closed) enqueue(frame(FIN | PONG, array, offset, length));
+                    }
+                    return true;
+                }
+                case PONG -> {
+                    return true;
+                }
+                default -> {
+                    return fail(CLOSE_PROTOCOL_ERROR, "Неизвестный код операции: " + opcode);
+                }
+            }
+        }
+
+        if (opcode == CONTINUATION) {
+            if (messageOpcode == -1) return fail(CLOSE_PROTOCOL_ERROR, "CONTINUATION без начала сообщения");
+            if (!append(array, offset, length)) return false;
+
+            return !fin || deliverAssembled();
+        }
+
+        if (opcode != TEXT && opcode != BINARY) return fail(CLOSE_PROTOCOL_ERROR, "Неизвестный код операции: " + opcode);
+        if (messageOpcode != -1) return fail(CLOSE_PROTOCOL_ERROR, "Новое сообщение до конца предыдущего");
+
+        if (fin) { // сообщение из одного фрейма
+            if (compressed) {
+                final byte[] inflated = inflate(array, offset, length);
+                return inflated != null && deliver(opcode, inflated, 0, inflated.length);
+            }
+
+            return deliver(opcode, array, offset, length);
+        }
+
+        messageOpcode = opcode;
+        messageCompressed = compressed;
+        message = new ByteArrayOutputStream(Math.max(length * 2, 256));
+
+        return append(array, offset, length);
+    }
+
+    private boolean append(byte @NotNull [] array, int offset, int length) {
+        if (message.size() + length > options.getMaxMessageSize()) {
+            return fail(CLOSE_MESSAGE_TOO_BIG, "Сообщение больше " + options.getMaxMessageSize());
+        }
+
+        message.write(array, offset, length);
+        return true;
+    }
+
+    private boolean deliverAssembled() {
+        final byte[] bytes = message.toByteArray();
+        final int opcode = messageOpcode;
+        final boolean compressed = messageCompressed;
+
+        messageOpcode = -1;
+        message = null;
+
+        if (compressed) {
+            final byte[] inflated = inflate(bytes, 0, bytes.length);
+            return inflated != null && deliver(opcode, inflated, 0, inflated.length);
+        }
+
+        return deliver(opcode, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Метод распаковывает сообщение без сохранения контекста (client_no_context_takeover).
+     * @return распакованные данные или null, если соединение закрыто с ошибкой.
+     */
+    private byte[] inflate(byte @NotNull [] array, int offset, int length) {
+        if (inflater == null) inflater = new Inflater(true);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(length * 3 + 16);
+        final byte[] chunk = new byte[8192];
+        boolean tailAdded = false;
+
+        inflater.reset();
+        inflater.setInput(array, offset, length);
+
+        try {
+            while (true) {
+                final int inflated = inflater.inflate(chunk);
+                out.write(chunk, 0, inflated);
+
+                if (out.size() > options.getMaxMessageSize()) {
+                    fail(CLOSE_MESSAGE_TOO_BIG, "Сообщение больше " + options.getMaxMessageSize());
+                    return null;
+                }
+                if (inflated == 0 && inflater.needsInput()) {
+                    if (tailAdded) break;
+
+                    inflater.setInput(deflateTail);
+                    tailAdded = true;
+                } else if (inflater.finished()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException exc) {
+            fail(CLOSE_INVALID_PAYLOAD, "Ошибка распаковки: " + exc.getMessage());
+            return null;
+        }
+
+        return out.toByteArray();
+    }
+
+    private boolean deliver(int opcode, byte @NotNull [] array, int offset, int length) {
+        try {
+            if (opcode == TEXT) {
+                final String text;
+
+                try {
+                    text = utf8.reset().decode(ByteBuffer.wrap(array, offset, length)).toString();
+                } catch (CharacterCodingException exc) {
+                    return fail(CLOSE_INVALID_PAYLOAD, "Текст не в UTF-8");
+                }
+
+                handler.onText(this, text);
+            } else {
+                handler.onBinary(this, ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer());
+            }
+        } catch (Throwable exc) {
+            handlerError(exc);
+        }
+
+        synchronized (this) {
+            return !closed;
+        }
+    }
+
+    private boolean onCloseFrame(byte @NotNull [] array, int offset, int length) {
+        if (length == 1) return fail(CLOSE_PROTOCOL_ERROR, "Неверный размер CLOSE");
+
+        int code = CLOSE_NO_STATUS;
+        String reason = "";
+
+        if (length >= 2) {
+            code = ((array[offset] & 0xFF) << 8) | (array[offset + 1] & 0xFF);
+
+            if (!validCloseCode(code)) return fail(CLOSE_PROTOCOL_ERROR, "Неверный код закрытия: " + code);
+
+            try {
+                reason = utf8.reset().decode(ByteBuffer.wrap(array, offset + 2, length - 2)).toString();
+            } catch (CharacterCodingException exc) {
+                return fail(CLOSE_INVALID_PAYLOAD, "Причина закрытия не в UTF-8");
+            }
+        }
+
+        synchronized (this) {
+            if (!closeSent) {
+                if (code == CLOSE_NO_STATUS) {
+                    enqueue(frame(FIN | CLOSE, array, offset, 0));
+                    closeSent = true;
+                } else {
+                    sendClose(code, "");
+                }
+            }
+
+            closing = true;
+            if (!writing) closeChannel();
+        }
+
+        notifyClose(code, reason);
+        return false;
+    }
+
+    private static boolean validCloseCode(int code) {
+        return (code >= 1000 && code <= 1003) || (code >= 1007 && code <= 1011) || (code >= 3000 && code <= 4999);
+    }
+
+    /**
+     * Метод закрывает соединение из-за ошибки клиента.
+     * @return всегда false, чтение прекращается.
+     */
+    private boolean fail(int code, @NotNull String reason) {
+        if (logger.isLoggable(Level.FINE)) logger.fine("WebSocket закрыт " + code + ": " + reason);
+
+        synchronized (this) {
+            if (!closeSent) sendClose(code, reason);
+
+            closing = true;
+            if (!writing) closeChannel();
+        }
+
+        notifyClose(code, reason);
+        return false;
+    }
+
+    /**
+     * Метод освобождает память zlib распаковщика. Вызывается потоком чтения, когда чтение прекращается.
+     */
+    private void endInflater() {
+        if (inflater == null) return;
+
+        inflater.end();
+        inflater = null;
+    }
+
+    private void handlerError(@NotNull Throwable exc) {
+        if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка обработчика WebSocket: " + exc);
+
+        try {
+            handler.onError(this, exc);
+        } catch (Throwable ignored) {
+            // ошибка в onError не должна прерывать чтение
+        }
+
+        close(CLOSE_INTERNAL_ERROR, "");
+    }
+
+    /**
+     * Метод закрывает канал без обмена CLOSE (обрыв соединения).
+     * @param exc причина или null при закрытии канала клиентом.
+     */
+    private void terminate(Throwable exc) {
+        if (exc != null && logger.isLoggable(Level.FINE)) logger.fine("Ошибка чтения WebSocket: " + exc);
+
+        endInflater();
+        closeChannel();
+        notifyClose(CLOSE_ABNORMAL, "");
+    }
+
+    private void notifyClose(int code, @NotNull String reason) {
+        synchronized (this) {
+            if (closeNotified) return;
+            closeNotified = true;
+        }
+
+        try {
+            handler.onClose(this, code, reason);
+        } catch (Throwable exc) {
+            if (logger.isLoggable(Level.WARNING)) logger.warning("Ошибка обработчика WebSocket: " + exc);
+        }
+    }
+
+    /**
+     * Метод ставит в очередь фрейм CLOSE. Вызывается под монитором.
+     */
+    private void sendClose(int code, @NotNull String reason) {
+        final byte[] reasonBytes = reason.getBytes(StandardCharsets.UTF_8);
+        final int reasonLength = Math.min(reasonBytes.length, maxControlPayload - 2);
+        final byte[] payload = new byte[2 + reasonLength];
+
+        payload[0] = (byte) (code >>> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(reasonBytes, 0, payload, 2, reasonLength);
+
+        enqueue(frame(FIN | CLOSE, payload, 0, payload.length));
+        closeSent = true;
+    }
+
+    /**
+     * Метод формирует фрейм сервера (без маски).
+     * @param first первый байт: FIN, RSV и код операции.
+     */
+    private static @NotNull ByteBuffer frame(int first, byte @NotNull [] payload, int offset, int length) {
+        final int headerLength = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        final ByteBuffer frame = ByteBuffer.allocate(headerLength + length);
+
+        frame.put((byte) first);
+
+        if (length < 126) {
+            frame.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            frame.put((byte) 126).putShort((short) length);
+        } else {
+            frame.put((byte) 127).putLong(length);
+        }
+
+        frame.put(payload, offset, length);
+
+        return frame.flip();
+    }
+
+    /**
+     * Метод ставит фрейм в очередь записи. Вызывается под монитором.
+     */
+    private void enqueue(@NotNull ByteBuffer frame) {
+        if (closed) return;
+
+        writeQueue.add(frame);
+        if (!writing) startWrite();
+    }
+
+    /**
+     * Метод запускает запись следующего фрейма. Вызывается под монитором.
+     */
+    private void startWrite() {
+        final ByteBuffer next = writeQueue.poll();
+
+        if (next == null) {
+            writing = false;
+            if (closing) closeChannel();
+            return;
+        }
+
+        writing = true;
+
+        try {
+            client.write(next, next, writeHandler);
+        } catch (Throwable exc) {
+            closeChannel();
+        }
+    }
+
+    private synchronized void closeChannel() {
+        if (closed) return;
+
+        closed = true;
+        writing = false;
+        writeQueue.clear();
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+
+        try {
+            client.close();
+            if (logger.isLoggable(Level.FINEST)) logger.finest("WebSocket соединение закрыто");
+        } catch (IOException exc) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка закрытия WebSocket соединения: " + exc);
+        }
+    }
+
+    private final class ReadHandler implements CompletionHandler<Integer, Void> {
+        @Override
+        public void completed(Integer result, Void attachment) {
+            if (result < 0) {
+                terminate(null);
+                return;
+            }
+
+            process();
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            if (exc instanceof InterruptedByTimeoutException) { // после таймаута чтение из канала невозможно
+                endInflater();
+                fail(CLOSE_GOING_AWAY, "idle");
+                return;
+            }
+
+            terminate(exc);
+        }
+    }
+
+    private final class WriteHandler implements CompletionHandler<Integer, ByteBuffer> {
+        @Override
+        public void completed(Integer result, ByteBuffer buffer) {
+            synchronized (WebSocketConnection.this) {
+                if (closed) return;
+
+                if (buffer.hasRemaining()) {
+                    try {
+                        client.write(buffer, buffer, this);
+                    } catch (Throwable exc) {
+                        closeChannel();
+                    }
+                } else {
+                    startWrite();
+                }
+            }
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer buffer) {
+            if (logger.isLoggable(Level.FINE)) logger.fine("Ошибка записи WebSocket: " + exc);
+            closeChannel();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.axel.catty.engine.websocket;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Настройки соединений WebSocket маршрута.
+ */
+public final class WebSocketOptions {
+    private int maxMessageSize = 1 << 20;
+    private boolean perMessageDeflate = false;
+    private int compressThreshold = 256;
+    private long idleTimeout = 0;
+
+    /**
+     * Метод устанавливает предельный размер сообщения (после распаковки).
+     * Сообщение большего размера закрывает соединение с кодом 1009.
+     * @param bytes размер в байтах.
+     * @return текущий экземпляр.
+     */
+    public WebSocketOptions setMaxMessageSize(int bytes) {
+        maxMessageSize = bytes;
+        return this;
+    }
+
+    /**
+     * Метод включает расширение permessage-deflate (RFC 7692), если клиент его предлагает.
+     * Контекст сжатия не сохраняется между сообщениями ни на одной из сторон.
+     * @param enable включить сжатие.
+     * @return текущий экземпляр.
+     */
+    public WebSocketOptions setPerMessageDeflate(boolean enable) {
+        perMessageDeflate = enable;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает минимальный размер исходящего сообщения, которое сжимается.
+     * @param bytes размер в байтах.
+     * @return текущий экземпляр.
+     */
+    public WebSocketOptions setCompressThreshold(int bytes) {
+        compressThreshold = bytes;
+        return this;
+    }
+
+    /**
+     * Метод устанавливает время ожидания данных от клиента, после которого соединение закрывается.
+     * @param seconds время в секундах, 0 - без ограничения.
+     * @return текущий экземпляр.
+     */
+    public WebSocketOptions setIdleTimeout(long seconds) {
+        idleTimeout = seconds;
+        return this;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public boolean isPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "{ maxMessageSize: " + maxMessageSize +
+            ", perMessageDeflate: " + perMessageDeflate +
+            ", compressThreshold: " + compressThreshold +
+            ", idleTimeout: " + idleTimeout + " }";
+    }
+}
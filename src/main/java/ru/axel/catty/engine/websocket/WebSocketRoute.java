@@ -0,0 +1,174 @@
+package ru.axel.catty.engine.websocket;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.axel.catty.engine.handler.IConnectionUpgrade;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.Route;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Маршрут рукопожатия WebSocket (RFC 6455, 4.2).
+ * На корректный запрос отвечает 101 Switching Protocols и передает канал WebSocketConnection,
+ * которое дальше обрабатывает фреймы на том же канале без выделенного потока.
+ */
+public class WebSocketRoute implements ICattyRoute {
+    private static final String acceptGuid = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final String deflateResponse =
+        "permessage-deflate; server_no_context_takeover; client_no_context_takeover";
+    private final ICattyRoute route;
+    private final IWebSocketHandler handler;
+    private final WebSocketOptions options;
+
+    public WebSocketRoute(@NotNull String path, @NotNull IWebSocketHandler socketHandler) {
+        this(path, socketHandler, new WebSocketOptions());
+    }
+    public WebSocketRoute(
+        @NotNull String path,
+        @NotNull IWebSocketHandler socketHandler,
+        @NotNull WebSocketOptions socketOptions
+    ) {
+        handler = socketHandler;
+        options = socketOptions;
+        route = new Route(path, "GET", this::handle);
+    }
+
+    @Override
+    public String getPath() {
+        return route.getPath();
+    }
+
+    /**
+     * Метод возвращает паттерн для поиска подходящего маршрута.
+     * @return паттерн для поиска подходящего маршрута.
+     */
+    @Override
+    public Pattern getPattern() {
+        return route.getPattern();
+    }
+    @Override
+    public String getMethod() {
+        return route.getMethod();
+    }
+    @Override
+    public RouteExecute getHandler() {
+        return this::handle;
+    }
+
+    /**
+     * Выполнить рукопожатие.
+     * @param request объект запроса
+     * @param response объект ответа
+     */
+    @Override
+    public void handle(@NotNull IHttpCattyRequest request, @NotNull IHttpCattyResponse response) {
+        final String upgrade = header(request, Headers.UPGRADE);
+        final String connection = header(request, Headers.CONNECTION);
+        final String key = header(request, Headers.SEC_WEBSOCKET_KEY);
+
+        if (
+            !"websocket".equalsIgnoreCase(upgrade)
+            || !connection.toLowerCase(Locale.ROOT).contains("upgrade")
+            || key.isEmpty()
+        ) {
+            response.respond(ResponseCode.BAD_REQUEST, "WebSocket handshake expected");
+            return;
+        }
+
+        if (!"13".equals(header(request, Headers.SEC_WEBSOCKET_VERSION))) {
+            response.addHeader(Headers.SEC_WEBSOCKET_VERSION, "13");
+            response.respond(ResponseCode.UPGRADE_REQUIRED, "Unsupported WebSocket version");
+            return;
+        }
+
+        final boolean deflate = options.isPerMessageDeflate()
+            && acceptDeflate(String.join(",", request.getHeaderValues(Headers.SEC_WEBSOCKET_EXTENSIONS)));
+
+        response.setResponseCode(ResponseCode.SWITCHING_PROTOCOLS);
+        response.addHeader(Headers.UPGRADE, "websocket");
+        response.addHeader(Headers.CONNECTION, "Upgrade");
+        response.addHeader(Headers.SEC_WEBSOCKET_ACCEPT, acceptKey(key));
+        if (deflate) response.addHeader(Headers.SEC_WEBSOCKET_EXTENSIONS, deflateResponse);
+
+        // запрос ответа с переключением протокола не возвращается в пул, см. ExchangePool
+        response.setUpgrade(new IConnectionUpgrade() {
+            @Override
+            public void upgrade(@NotNull AsynchronousSocketChannel client, @NotNull Logger logger) {
+                upgrade(client, ByteBuffer.allocate(0), logger);
+            }
+
+            @Override
+            public void upgrade(
+                @NotNull AsynchronousSocketChannel client,
+                @NotNull ByteBuffer received,
+                @NotNull Logger logger
+            ) {
+                if (logger.isLoggable(Level.FINEST)) logger.finest("WebSocket соединение: " + request.getPath().orElse(""));
+
+                // фреймы, отправленные клиентом вместе с рукопожатием, разбираются до первого чтения
+                new WebSocketConnection(client, handler, options, request, deflate, logger).start(received);
+            }
+        });
+    }
+
+    private static @NotNull String header(@NotNull IHttpCattyRequest request, @NotNull Headers header) {
+        final String value = request.getHeaders(header);
+        return value == null ? "" : value.trim();
+    }
+
+    /**
+     * Метод вычисляет Sec-WebSocket-Accept.
+     * @param key Sec-WebSocket-Key клиента.
+     * @return значение заголовка.
+     */
+    static @NotNull String acceptKey(@NotNull String key) {
+        try {
+            final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            final byte[] digest = sha1.digest((key + acceptGuid).getBytes(StandardCharsets.US_ASCII));
+
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Метод проверяет предложения клиента: permessage-deflate принимается, если клиент не требует
+     * окно сервера меньше 15 бит (Deflater всегда использует окно 32 КБ).
+     * @param extensions значение Sec-WebSocket-Extensions.
+     * @return true, если сжатие можно включить.
+     */
+    private static boolean acceptDeflate(@Nullable String extensions) {
+        if (extensions == null || extensions.isEmpty()) return false;
+
+        for (String offer : extensions.split(",")) {
+            final String[] params = offer.split(";");
+            if (!params[0].trim().equalsIgnoreCase("permessage-deflate")) continue;
+
+            boolean acceptable = true;
+            for (int i = 1; i < params.length; i++) {
+                final String param = params[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("server_max_window_bits=") && !param.endsWith("=15")) acceptable = false;
+            }
+
+            if (acceptable) return true;
+        }
+
+        return false;
+    }
+}
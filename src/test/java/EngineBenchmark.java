@@ -0,0 +1,233 @@
+import org.jetbrains.annotations.NotNull;
+import ru.axel.catty.engine.CattyEngine;
+import ru.axel.catty.engine.ICattyEngine;
+import ru.axel.catty.engine.ListenerOptions;
+import ru.axel.catty.engine.SelectorCattyEngine;
+import ru.axel.catty.engine.handler.HttpCattyQueryHandler;
+import ru.axel.catty.engine.request.ExchangePool;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Нагрузочное сравнение движков: статический ответ 200, новое соединение на каждый запрос.
+ * Клиент блокирующий, потоки клиента делят запросы поровну, замеряется время от подключения до закрытия
+ * соединения сервером.
+ * Запуск: java -cp build/classes/java/main:build/classes/java/test:... EngineBenchmark [async|selector] [потоки] [запросы]
+ * Порт задается -Dcatty.port (по умолчанию 18080), потоки движка -Dcatty.threads (по умолчанию ядра),
+ * слушающие сокеты с SO_REUSEPORT -Dcatty.acceptors (по умолчанию 1).
+ * С -Dcatty.unix=/tmp/bench.sock движок и клиент работают через Unix domain socket вместо loopback TCP.
+ * С -Dcatty.pool=true обработчик берет запрос и ответ из ExchangePool. Выводится память, выделенная
+ * на запрос всеми потоками, кроме потоков клиента.
+ */
+public class EngineBenchmark {
+    private static final Logger logger = Logger.getLogger(EngineBenchmark.class.getName());
+    private static final ExchangePool exchanges = Boolean.getBoolean("catty.pool") ? new ExchangePool() : null;
+    private static final String clientPrefix = "benchmark-client-";
+    private static final byte[] request = (
+        "GET /bench HTTP/1.1\r\n" +
+        "Host: localhost\r\n" +
+        "Connection: close\r\n" +
+        "\r\n"
+    ).getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        final String engineName = args.length > 0 ? args[0] : "async";
+        final int clientThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        final int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        final int engineThreads = Integer.getInteger("catty.threads", Runtime.getRuntime().availableProcessors());
+        final String unixSocket = System.getProperty("catty.unix");
+        final SocketAddress address = unixSocket == null
+            ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.getInteger("catty.port", 18080))
+            : UnixDomainSocketAddress.of(unixSocket);
+
+        logger.setLevel(Level.WARNING);
+
+        final ICattyEngine engine = engineName.equals("selector")
+            ? new SelectorCattyEngine(address, engineThreads, 1_000_000L, Handler::new)
+            : new CattyEngine(address, engineThreads, 1_000_000L, Handler::new);
+        engine.setLogger(logger);
+        engine.setListenerOptions(new ListenerOptions().setAcceptors(Integer.getInteger("catty.acceptors", 1)));
+
+        final Thread server = new Thread(() -> {
+            try {
+                engine.startServer();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "benchmark-server");
+        server.setDaemon(true);
+        server.start();
+        awaitServer(address);
+
+        run(address, clientThreads, Math.max(requests / 10, clientThreads)); // прогрев
+        final long allocatedBefore = serverAllocatedBytes();
+        final long[] latencies = run(address, clientThreads, requests);
+        final long allocated = serverAllocatedBytes() - allocatedBefore;
+        final double seconds = latencies[latencies.length - 1] / 1e9;
+        final long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+        Arrays.sort(sorted);
+
+        System.out.printf(
+            "%s %s%s: %d потоков движка, %d потоков клиента, %d запросов, %.0f req/s, p50 %d us, p99 %d us, %d B/запрос%n",
+            engineName,
+            unixSocket == null ? "tcp" : "unix",
+            exchanges == null ? "" : " pool",
+            engineThreads,
+            clientThreads,
+            sorted.length,
+            sorted.length / seconds,
+            sorted[sorted.length / 2] / 1_000,
+            sorted[(int) (sorted.length * 0.99)] / 1_000,
+            allocated < 0 ? -1 : allocated / sorted.length
+        );
+
+        engine.close();
+        System.exit(0);
+    }
+
+    /**
+     * Метод суммирует память, выделенную живыми потоками процесса, кроме потоков клиента.
+     * @return байты или -1, если JVM не поддерживает замер.
+     */
+    @SuppressWarnings("deprecation") // Thread.threadId() появился только в Java 19
+    private static long serverAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)) return -1;
+        if (!threads.isThreadAllocatedMemorySupported()) return -1;
+
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(clientPrefix)) continue;
+
+            final long bytes = threads.getThreadAllocatedBytes(thread.getId());
+            if (bytes > 0) total += bytes;
+        }
+
+        return total;
+    }
+
+    /**
+     * Метод выполняет запросы в нескольких потоках.
+     * @return задержки запросов в наносекундах, последний элемент - общее время.
+     */
+    private static long[] run(SocketAddress address, int threads, int requests) throws Exception {
+        final int perThread = requests / threads;
+        final long[] latencies = new long[perThread * threads + 1];
+        final ExecutorService clients = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int number = 0;
+
+            @Override
+            public synchronized Thread newThread(@NotNull Runnable task) {
+                return new Thread(task, clientPrefix + number++);
+            }
+        });
+        final Future<?>[] results = new Future<?>[threads];
+        final long started = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            final int from = t * perThread;
+
+            results[t] = clients.submit(() -> {
+                final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+                for (int i = 0; i < perThread; i++) {
+                    final long start = System.nanoTime();
+                    exchange(address, buffer);
+                    latencies[from + i] = System.nanoTime() - start;
+                }
+
+                return null;
+            });
+        }
+        for (Future<?> result : results) result.get();
+
+        latencies[latencies.length - 1] = System.nanoTime() - started;
+        clients.shutdown();
+
+        return latencies;
+    }
+
+    private static void exchange(SocketAddress address, ByteBuffer buffer) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            final ByteBuffer out = ByteBuffer.wrap(request);
+            while (out.hasRemaining()) channel.write(out);
+
+            buffer.clear();
+            int total = 0;
+            int count;
+            while ((count = channel.read(buffer)) >= 0) {
+                total += count;
+                if (!buffer.hasRemaining()) buffer.clear();
+            }
+
+            if (total == 0) throw new IOException("Пустой ответ сервера");
+        }
+    }
+
+    private static void awaitServer(SocketAddress address) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (System.nanoTime() < deadline) {
+            try (SocketChannel ignored = SocketChannel.open(address)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+
+        throw new IllegalStateException("Сервер не запустился на " + address);
+    }
+
+    static class Handler extends HttpCattyQueryHandler {
+        public Handler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
+            super(clientChannel, limitBuffer, loggerInstance);
+        }
+
+        @Override
+        protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
+            try {
+                if (exchanges == null) {
+                    new Request(requestBuffer, logger); // разбор запроса, как в обработчике с пулом
+                    final IHttpCattyResponse response = new Response(logger);
+                    response.respond(ResponseCode.OK, "OK");
+
+                    return response.getByteBuffer();
+                }
+
+                final IHttpCattyRequest request = exchanges.request(requestBuffer, logger);
+                final IHttpCattyResponse response = exchanges.response(logger);
+                response.respond(ResponseCode.OK, "OK");
+
+                final ByteBuffer bytes = response.getByteBuffer();
+                exchanges.release(request, response);
+
+                return bytes;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -1,18 +1,41 @@
 import ru.axel.catty.Main;
 import ru.axel.catty.engine.CattyEngine;
 import ru.axel.catty.engine.ICattyEngine;
+import ru.axel.catty.engine.ListenerOptions;
 import ru.axel.catty.engine.handler.HttpCattyQueryHandler;
+import ru.axel.catty.engine.bulkhead.BulkheadOptions;
+import ru.axel.catty.engine.bulkhead.Bulkheads;
+import ru.axel.catty.engine.executor.AdaptiveExecutor;
+import ru.axel.catty.engine.executor.AdaptiveExecutorOptions;
 import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.logging.AccessLog;
+import ru.axel.catty.engine.logging.AccessLogOptions;
 import ru.axel.catty.engine.plugins.Plugins;
+import ru.axel.catty.engine.proxy.ProxyOptions;
+import ru.axel.catty.engine.proxy.ReverseProxy;
+import ru.axel.catty.engine.ratelimit.RateLimitOptions;
+import ru.axel.catty.engine.ratelimit.RateLimitPlugin;
+import ru.axel.catty.engine.ratelimit.RateLimiter;
+import ru.axel.catty.engine.cache.ETagPlugin;
 import ru.axel.catty.engine.request.ClientInfo;
+import ru.axel.catty.engine.request.ExchangePool;
 import ru.axel.catty.engine.request.IHttpCattyRequest;
-import ru.axel.catty.engine.request.Request;
 import ru.axel.catty.engine.request.RequestBuildException;
 import ru.axel.catty.engine.response.*;
 import ru.axel.catty.engine.routing.ICattyRoute;
 import ru.axel.catty.engine.routing.IRouting;
 import ru.axel.catty.engine.routing.Route;
+import ru.axel.catty.engine.routing.RouteExecute;
 import ru.axel.catty.engine.routing.Routing;
+import ru.axel.catty.engine.sse.SseBroadcaster;
+import ru.axel.catty.engine.sse.SseEvent;
+import ru.axel.catty.engine.sse.SseRoute;
+import ru.axel.catty.engine.tls.TlsContext;
+import ru.axel.catty.engine.tls.TlsOptions;
+import ru.axel.catty.engine.tracing.ISlowRequestSink;
+import ru.axel.catty.engine.tracing.Tracing;
+import ru.axel.catty.engine.tracing.TracingOptions;
+import ru.axel.catty.engine.websocket.WebSocketRoute;
 import ru.axel.logger.MiniLogger;
 
 import java.io.IOException;
@@ -20,7 +43,9 @@ import java.net.InetSocketAddress;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.file.Path;
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -39,10 +64,21 @@ public class TestMain {
     private static final IRouting routing = new Routing(logger);
     private static final Plugins plugins = new Plugins(logger);
     private static final long answerTimeout = 30;
+    private static final SseBroadcaster events = new SseBroadcaster();
+    private static final Tracing tracing = new Tracing(
+        new TracingOptions().setSlowThresholdMillis(100),
+        ISlowRequestSink.logger(logger)
+    );
+    private static final AccessLog accessLog = new AccessLog(System.out, new AccessLogOptions(), logger);
+    private static final ExchangePool exchanges = new ExchangePool();
+    private static final AdaptiveExecutor pool = new AdaptiveExecutor(
+        new AdaptiveExecutorOptions().setThreads(8, 16),
+        logger
+    );
+    private static final Bulkheads bulkheads = new Bulkheads(8); // минимальный размер пула движка
 
     public static void main(String[] args) {
         plugins.addPipelines("default headers", (request, response) -> {
-            response.addHeader(Headers.DATE, String.valueOf(new Date()));
             response.addHeader(Headers.SERVER, "Catty");
 //            response.addHeader(Headers.CONNECTION, "keep-alive");
 //            response.addHeader(Headers.KEEP_ALIVE, "timeout=5, max=100");
@@ -55,6 +91,12 @@ public class TestMain {
             logger.severe("Set request ID: " + id);
         });
 
+        plugins.addPlugin("rate limit", "/test", new RateLimitPlugin(
+            new RateLimiter(new RateLimitOptions().setPermitsPerSecond(5).setBurst(10))
+        ));
+        plugins.addPlugin("etag", new ETagPlugin());
+        routing.addRouteForget(plugins); // цепочки и обертки ETag удаленных маршрутов не копятся
+
         final ICattyRoute routeTest = new Route("/test", "GET", (request, response) -> {
             if (logger.isLoggable(Level.FINEST)) {
                 logger.finest("Request path: " + request.getPath().orElseThrow());
@@ -158,68 +200,151 @@ public class TestMain {
         routing.addRoute(routeTestPost);
         routing.addRoute(routeParams);
         routing.addRoute(routeTestCookie);
+        routing.addRoute(new WebSocketRoute("/ws/echo", (session, message) -> session.sendText(message)));
+        routing.addRoute(new SseRoute("/events", events));
+        routing.addRoute(new Route("/events/send", "GET", (request, response) -> {
+            final int subscribers = events.broadcast(new SseEvent(String.valueOf(request.getQueryParam("msg"))));
+            response.respond(ResponseCode.OK, "Sent to " + subscribers);
+        }));
+        routing.addRoute(new Route("/report", "GET", (request, response) -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.respond(ResponseCode.OK, "Report ready");
+        }), bulkheads.create("reports", new BulkheadOptions().setMaxConcurrent(2).setMaxQueue(2)));
+        routing.addRoute(new Route("/bulkheads", "GET", (request, response) -> {
+            response.respond(ResponseCode.OK, bulkheads.getStats().toString());
+        }));
+        routing.addRoute(new Route("/pool", "GET", (request, response) -> {
+            response.respond(ResponseCode.OK, pool.getStats().toString());
+        }));
         routing.staticResourceFiles("/static");
+        routing.proxy("/legacy", new ReverseProxy(
+            List.of(new InetSocketAddress("127.0.0.1", 9001), new InetSocketAddress("127.0.0.1", 9002)),
+            new ProxyOptions().setStripPrefix("/legacy"),
+            logger
+        ));
 
         try(final ICattyEngine engine = new CattyEngine(
             new InetSocketAddress(8080),
-            1,
+            pool,
             5000000L,
             Handler::new
         )) {
             engine.setLogger(logger);
+
+            final String unixSocket = System.getProperty("catty.unix"); // -Dcatty.unix=/tmp/catty.sock - дополнительно Unix domain socket
+            if (unixSocket != null) engine.setListenerOptions(new ListenerOptions().setUnixSocket(Path.of(unixSocket)));
+
+            final String keyStore = System.getProperty("catty.keystore"); // -Dcatty.keystore=server.p12 включает HTTPS
+            if (keyStore != null) {
+                engine.setTls(TlsContext.fromKeyStore(
+                    Path.of(keyStore),
+                    System.getProperty("catty.keystore.password", "changeit").toCharArray(),
+                    new TlsOptions().setApplicationProtocols("h2", "http/1.1")
+                ));
+            }
+
             engine.startServer();
         } catch (Throwable throwable) {
             throwable.printStackTrace();
         }
     }
 
+    /**
+     * Маршрутизация, плагины и обработчик маршрута, общие для HTTP/1.1 и HTTP/2.
+     */
+    static void dispatch(IHttpCattyRequest request, IHttpCattyResponse response) {
+        try {
+            var route = routing.takeRoute(request);
+
+            if (route.isPresent()) {
+                request.setRoute(route.get());
+
+                if (plugins.execute(request, response)) {
+                    CompletableFuture
+                        .runAsync(() -> {
+                            try {
+                                request.handle(response);
+                            } catch (IOException | URISyntaxException e) {
+                                response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
+                                e.printStackTrace();
+                            }
+                        }, Executors.newWorkStealingPool(1))
+                        .orTimeout(answerTimeout, TimeUnit.SECONDS)
+                        .get();
+                }
+            } else {
+                response.setResponseCode(ResponseCode.NOT_FOUND);
+            }
+        } catch (ExecutionException executionException) { // ожидание ответа превышено
+            request.retain(); // задача обработчика еще может обращаться к запросу
+            response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
+            executionException.printStackTrace();
+        } catch (Throwable exc) {
+            response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
+            exc.printStackTrace();
+        }
+    }
+
     static class Handler extends HttpCattyQueryHandler {
 
         public Handler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
             super(clientChannel, limitBuffer, loggerInstance);
         }
 
+        @Override
+        protected RouteExecute http2Handler() {
+            return TestMain::dispatch;
+        }
+
+        @Override
+        protected AccessLog accessLog() {
+            return accessLog;
+        }
+
+        @Override
+        protected Tracing tracing() {
+            return tracing;
+        }
+
+        @Override
+        protected ExchangePool exchangePool() {
+            return exchanges;
+        }
+
+        @Override
+        protected IHttpCattyResponse expectContinue(IHttpCattyRequest request) {
+            if (routing.takeRoute(request).isPresent()) return null;
+
+            final IHttpCattyResponse response = new Response(logger);
+            response.respond(ResponseCode.NOT_FOUND, "Not Found");
+
+            return response;
+        }
+
         @Override
         protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
             try {
-                final IHttpCattyRequest request = new Request(requestBuffer, logger);
-                final IHttpCattyResponse response = new Response(logger);
+                final long parseStart = System.nanoTime();
+                final IHttpCattyRequest request = exchanges.request(requestBuffer, logger);
+                final IHttpCattyResponse response = exchanges.response(logger);
 
                 request.setClientInfo(new ClientInfo(client.getLocalAddress(), client.getRemoteAddress()));
-
-                try {
-                    var route = routing.takeRoute(request);
-
-                    if (route.isPresent()) {
-                        request.setRoute(route.get());
-                        plugins.exec(request, response);
-
-                        CompletableFuture
-                            .runAsync(() -> {
-                                try {
-                                    request.handle(response);
-                                } catch (IOException | URISyntaxException e) {
-                                    response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
-                                    e.printStackTrace();
-                                }
-                            }, Executors.newWorkStealingPool(1))
-                            .orTimeout(answerTimeout, TimeUnit.SECONDS)
-                            .get();
-                    } else {
-                        response.setResponseCode(ResponseCode.NOT_FOUND);
-                    }
-                } catch (ExecutionException executionException) { // ожидание ответа превышено
-                    response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
-                    executionException.printStackTrace();
-                } catch (Throwable exc) {
-                    response.setResponseCode(ResponseCode.INTERNAL_SERVER_ERROR);
-                    exc.printStackTrace();
-                }
+                attachTrace(request, parseStart);
+                dispatch(request, response);
+                upgradeAfterResponse(response.getUpgrade());
+                logAccess(request, response);
 
                 logger.severe("Response code: " + response.getResponseCode());
                 logger.severe("Request ID: " + request.getParams("REQUEST_ID"));
 
-                return response.getByteBuffer();
+                final ByteBuffer bytes = serialize(request, response);
+                exchanges.release(request, response);
+
+                return bytes;
             } catch (RequestBuildException | IOException e) {
                 throw new RuntimeException(e);
             }
@@ -0,0 +1,196 @@
+package ru.axel.catty.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.axel.catty.engine.handler.HttpCattyQueryHandler;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Обработка соединений движком в пуле потоков, переданном в конструктор, для TCP и Unix domain socket,
+ * собственные пулы слушающих сокетов и их остановка вместе с группами каналов.
+ */
+class CattyEngineTest {
+    private static final Logger logger = Logger.getLogger(CattyEngineTest.class.getName());
+    private static final Set<String> handlerThreads = ConcurrentHashMap.newKeySet();
+
+    static class Handler extends HttpCattyQueryHandler {
+        Handler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
+            super(clientChannel, limitBuffer, loggerInstance);
+        }
+
+        @Override
+        protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
+            handlerThreads.add(Thread.currentThread().getName());
+
+            try {
+                final IHttpCattyResponse response = new Response(logger);
+                response.respond(ResponseCode.OK, "OK");
+
+                return response.getByteBuffer();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    static ExecutorService namedPool(String prefix) {
+        final AtomicInteger number = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(2, task -> {
+            final Thread thread = new Thread(task, prefix + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static Thread start(ICattyEngine engine) {
+        final Thread server = new Thread(() -> {
+            try {
+                engine.startServer();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        return server;
+    }
+
+    static String get(SocketAddress address) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (true) {
+            try (SocketChannel channel = SocketChannel.open(address)) {
+                channel.write(ByteBuffer.wrap("GET / HTTP/1.1\r\nHost: test\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+                final ByteBuffer buffer = ByteBuffer.allocate(4096);
+                while (channel.read(buffer) >= 0) {
+                    if (!buffer.hasRemaining()) break;
+                }
+
+                return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) throw e;
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    void callerPoolServesOneAcceptor() throws Exception {
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), freePort());
+        final CattyEngine engine = new CattyEngine(address, namedPool("caller-"), 1_000_000L, Handler::new);
+        engine.setLogger(logger);
+        engine.setListenerOptions(new ListenerOptions().setAcceptors(2));
+        handlerThreads.clear();
+
+        start(engine);
+        try {
+            for (int i = 0; i < 8; i++) assertTrue(get(address).startsWith("HTTP/1.1 200"));
+            assertEquals(1, engine.getGroups().size()); // пул нельзя разделить между группами
+        } finally {
+            engine.stopServer();
+        }
+
+        assertFalse(handlerThreads.isEmpty());
+        handlerThreads.forEach(name -> assertTrue(name.startsWith("caller-"), name));
+    }
+
+    @Test
+    void acceptorsOwnPoolsAndStopWithGroups() throws Exception {
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), freePort());
+        final List<Integer> sizes = new CopyOnWriteArrayList<>();
+        final AtomicInteger acceptor = new AtomicInteger();
+        final CattyEngine engine = new CattyEngine(address, 5, threads -> {
+            final int number = acceptor.incrementAndGet();
+            final AtomicInteger thread = new AtomicInteger();
+
+            sizes.add(threads);
+            return Executors.newFixedThreadPool(threads, task -> {
+                final Thread named = new Thread(task, "acceptor-" + number + "-" + thread.incrementAndGet());
+                named.setDaemon(true);
+                return named;
+            });
+        }, 1_000_000L, Handler::new);
+        engine.setLogger(logger);
+        engine.setListenerOptions(new ListenerOptions().setAcceptors(3));
+        handlerThreads.clear();
+
+        start(engine);
+        final List<AsynchronousChannelGroup> groups;
+        final List<ExecutorService> executors;
+        try {
+            for (int i = 0; i < 8; i++) assertTrue(get(address).startsWith("HTTP/1.1 200"));
+
+            groups = engine.getGroups();
+            executors = engine.getExecutors();
+        } finally {
+            engine.stopServer();
+        }
+
+        // у каждой группы свой пул с долей из 5 потоков
+        assertEquals(3, groups.size());
+        assertEquals(3, new HashSet<>(executors).size());
+        assertEquals(List.of(2, 2, 1), sizes);
+        handlerThreads.forEach(name -> assertTrue(name.startsWith("acceptor-"), name));
+
+        for (AsynchronousChannelGroup group : groups) {
+            assertTrue(group.awaitTermination(5, TimeUnit.SECONDS), "Группа каналов не остановлена");
+        }
+        for (ExecutorService executor : executors) {
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), "Пул группы не остановлен");
+        }
+    }
+
+    @Test
+    void unixSocketRunsHandlersInPool(@TempDir Path directory) throws Exception {
+        final UnixDomainSocketAddress address = UnixDomainSocketAddress.of(directory.resolve("catty.sock"));
+        final CattyEngine engine = new CattyEngine(address, namedPool("unix-pool-"), 1_000_000L, Handler::new);
+        engine.setLogger(logger);
+        handlerThreads.clear();
+
+        start(engine);
+        try {
+            for (int i = 0; i < 4; i++) assertTrue(get(address).startsWith("HTTP/1.1 200"));
+        } finally {
+            engine.stopServer();
+        }
+
+        assertFalse(handlerThreads.isEmpty());
+        handlerThreads.forEach(name -> assertTrue(name.startsWith("unix-pool-"), name));
+    }
+}
@@ -0,0 +1,193 @@
+package ru.axel.catty.engine.assets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Набор статики: индексация каталога и JAR, объединение элементов classpath, выбор gzip варианта
+ * по Accept-Encoding и отдача исходного файла, когда сжатого варианта нет.
+ */
+class AssetBundleTest {
+    private static final Logger logger = Logger.getLogger(AssetBundleTest.class.getName());
+    private static final String css = "body { color: black; }\n".repeat(40);
+
+    private static void write(Path root, String path, String content) throws IOException {
+        final Path file = root.resolve(path);
+
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    /**
+     * JAR с каталогом static и файлами по парам путь, содержимое.
+     */
+    private static Path jar(Path directory, String... files) throws IOException {
+        final Path jar = directory.resolve("assets.jar");
+
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            output.putNextEntry(new JarEntry("static/"));
+            output.closeEntry();
+            for (int i = 0; i < files.length; i += 2) {
+                output.putNextEntry(new JarEntry("static/" + files[i]));
+                output.write(files[i + 1].getBytes(StandardCharsets.UTF_8));
+                output.closeEntry();
+            }
+        }
+
+        return jar;
+    }
+
+    private static IHttpCattyResponse serve(AssetBundle bundle, String path, String acceptEncoding) {
+        final List<String> fields = acceptEncoding == null ? List.of() : List.of("accept-encoding", acceptEncoding);
+        final IHttpCattyResponse response = new Response(logger);
+
+        bundle.serve(new Request("GET", path, "HTTP/1.1", fields, new byte[0], logger), response);
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void indexesDirectory(@TempDir Path root) throws IOException {
+        write(root, "index.html", "<h1>root</h1>");
+        write(root, "docs/index.html", "<h1>docs</h1>");
+        write(root, "docs/read me.txt", "text");
+        write(root, "styles/app.css", css);
+
+        final AssetBundle bundle = AssetBundle.fromDirectory(root, "static/", new AssetOptions());
+
+        assertEquals("/static", bundle.getUrlPrefix());
+        assertEquals(6, bundle.size()); // два index.html доступны и по пути каталога
+        assertSame(bundle.get("/static/index.html"), bundle.get("/static/"));
+        assertSame(bundle.get("/static/docs/index.html"), bundle.get("/static/docs/"));
+        assertEquals("text/plain; charset=utf-8", bundle.get("/static/docs/read%20me.txt").getContentType());
+        assertEquals("text/css; charset=utf-8", bundle.get("/static/styles/app.css").getContentType());
+        assertNull(bundle.get("/static/missing.css"));
+        assertNull(bundle.get("/static/%zz"));
+
+        assertEquals(404, serve(bundle, "/static/missing.css", null).getResponseCode());
+        assertThrows(IOException.class, () -> AssetBundle.fromDirectory(root.resolve("missing"), "/", new AssetOptions()));
+    }
+
+    @Test
+    void selectsGzipByAcceptEncoding(@TempDir Path root) throws IOException {
+        write(root, "app.css", css);
+
+        final AssetBundle bundle = AssetBundle.fromDirectory(root, "/", new AssetOptions().setCacheControl("max-age=60"));
+        final StaticAsset asset = bundle.get("/app.css");
+
+        assertTrue(asset.hasGzip());
+        assertTrue(bundle.getTotalGzipBytes() < bundle.getTotalBytes());
+
+        final IHttpCattyResponse gzip = serve(bundle, "/app.css", "deflate, gzip;q=0.5");
+        assertEquals(200, gzip.getResponseCode());
+        assertEquals("gzip", gzip.getHeaders().get(Headers.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", gzip.getHeaders().get(Headers.VARY));
+        assertEquals("max-age=60", gzip.getHeaders().get(Headers.CACHE_CONTROL));
+        assertNotEquals(asset.getEtag(), gzip.getHeaders().get(Headers.ETAG)); // у сжатого варианта свой ETag
+        assertEquals(css, gunzip(gzip.getBody()));
+
+        for (String acceptEncoding : new String[] { null, "br", "gzip;q=0", "*;q=0" }) {
+            final IHttpCattyResponse identity = serve(bundle, "/app.css", acceptEncoding);
+
+            assertNull(identity.getHeaders().get(Headers.CONTENT_ENCODING), acceptEncoding);
+            assertEquals("Accept-Encoding", identity.getHeaders().get(Headers.VARY), acceptEncoding);
+            assertEquals(asset.getEtag(), identity.getHeaders().get(Headers.ETAG), acceptEncoding);
+            assertEquals(css, new String(identity.getBody(), StandardCharsets.UTF_8), acceptEncoding);
+        }
+
+        assertEquals("gzip", serve(bundle, "/app.css", "*").getHeaders().get(Headers.CONTENT_ENCODING));
+    }
+
+    @Test
+    void servesOriginalWithoutGzipVariant(@TempDir Path root) throws IOException {
+        write(root, "small.css", "a {}");
+        write(root, "image.png", css); // двоичный тип не сжимается
+
+        final AssetBundle bundle = AssetBundle.fromDirectory(root, "/", new AssetOptions());
+
+        for (String path : new String[] { "/small.css", "/image.png" }) {
+            final IHttpCattyResponse response = serve(bundle, path, "gzip");
+
+            assertFalse(bundle.get(path).hasGzip(), path);
+            assertNull(response.getHeaders().get(Headers.CONTENT_ENCODING), path);
+            assertNull(response.getHeaders().get(Headers.VARY), path);
+            assertEquals(bundle.get(path).getEtag(), response.getHeaders().get(Headers.ETAG), path);
+        }
+        assertEquals("image/png", bundle.get("/image.png").getContentType());
+        assertEquals(0, bundle.getTotalGzipBytes());
+    }
+
+    @Test
+    void indexesJarAndMergesClasspath(@TempDir Path root) throws IOException {
+        final Path jar = jar(root, "app.js", "console.log('jar');", "index.html", "<h1>jar</h1>");
+        final Path classes = root.resolve("classes");
+        write(classes, "static/index.html", "<h1>directory</h1>");
+        write(classes, "static/extra.json", "{}");
+
+        try (
+            URLClassLoader loader = new URLClassLoader(
+                new URL[] { jar.toUri().toURL(), classes.toUri().toURL() },
+                null
+            )
+        ) {
+            final AssetBundle bundle = AssetBundle.fromClasspath(loader, "/static/", "/assets", new AssetOptions());
+
+            assertEquals(4, bundle.size());
+            assertEquals("text/javascript; charset=utf-8", bundle.get("/assets/app.js").getContentType());
+            assertEquals("application/json; charset=utf-8", bundle.get("/assets/extra.json").getContentType());
+
+            // при совпадении путей используется файл из первого элемента classpath
+            final IHttpCattyResponse index = serve(bundle, "/assets/", null);
+            assertEquals("<h1>jar</h1>", new String(index.getBody(), StandardCharsets.UTF_8));
+
+            assertThrows(IOException.class, () -> AssetBundle.fromClasspath(loader, "missing", "/", new AssetOptions()));
+        }
+
+        // файловая система архива, открытая при сборке, закрыта
+        assertThrows(FileSystemNotFoundException.class, () -> FileSystems.getFileSystem(URI.create("jar:" + jar.toUri())));
+    }
+
+    @Test
+    void readsJarWithOpenFileSystem(@TempDir Path root) throws IOException {
+        final Path jar = jar(root, "app.js", "console.log('jar');");
+
+        try (
+            FileSystem open = FileSystems.newFileSystem(URI.create("jar:" + jar.toUri()), Map.of());
+            URLClassLoader loader = new URLClassLoader(new URL[] { jar.toUri().toURL() }, null)
+        ) {
+            final AssetBundle bundle = AssetBundle.fromClasspath(loader, "static", "/", new AssetOptions());
+
+            assertEquals(1, bundle.size());
+            assertTrue(open.isOpen()); // уже открытая файловая система архива не закрывается
+        }
+    }
+}
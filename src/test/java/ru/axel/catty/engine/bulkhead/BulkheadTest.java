@@ -0,0 +1,298 @@
+package ru.axel.catty.engine.bulkhead;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.CattyEngine;
+import ru.axel.catty.engine.handler.HttpCattyQueryHandler;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.Route;
+import ru.axel.catty.engine.routing.Routing;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ограничение одновременных обработчиков и очереди группы, ожидание в очереди, работа с внешним исполнителем
+ * и ограничение емкости групп количеством потоков движка.
+ */
+class BulkheadTest {
+    private static final Logger logger = Logger.getLogger(BulkheadTest.class.getName());
+    private static final int engineThreads = 8;
+    private final ThreadPoolExecutor external = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        external.shutdownNow();
+    }
+
+    @Test
+    void externalExecutorGetsWorkOnlyWhenSlotIsFree() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead(
+            "external",
+            new BulkheadOptions().setMaxConcurrent(1).setMaxQueue(2).setExecutor(external),
+            engineThreads
+        );
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CompletableFuture<Boolean> first = bulkhead.submit(() -> {
+            started.countDown();
+            release.await();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<Boolean> second = bulkhead.submit(() -> {});
+        final CompletableFuture<Boolean> third = bulkhead.submit(() -> {});
+
+        // ожидающая работа не занимает потоки исполнителя
+        assertEquals(1, external.getTaskCount());
+        assertEquals(1, bulkhead.getStats().getActive());
+        assertEquals(2, bulkhead.getStats().getQueued());
+        assertNull(bulkhead.submit(() -> {}));
+        assertEquals(1, bulkhead.getStats().getRejected());
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertTrue(third.get(5, TimeUnit.SECONDS));
+        assertEquals(3, external.getTaskCount());
+        assertEquals(3, bulkhead.getStats().getCompleted());
+        assertEquals(0, bulkhead.getStats().getQueued());
+    }
+
+    @Test
+    void workWaitingTooLongIsNotExecuted() throws Exception {
+        try (Bulkhead bulkhead = new Bulkhead(
+            "slow",
+            new BulkheadOptions().setMaxConcurrent(1).setMaxQueue(1).setMaxQueueWaitMillis(50),
+            engineThreads
+        )) {
+            final CompletableFuture<Boolean> first = bulkhead.submit(() -> Thread.sleep(200));
+            final CompletableFuture<Boolean> second = bulkhead.submit(() -> fail("Работа с истекшим ожиданием выполнена"));
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertFalse(second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, bulkhead.getStats().getExpired());
+        }
+    }
+
+    @Test
+    void stoppedExecutorCompletesWithoutRunning() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead("closed", new BulkheadOptions().setMaxConcurrent(1).setMaxQueue(0), engineThreads);
+        bulkhead.close();
+
+        final CompletableFuture<Boolean> done = bulkhead.submit(() -> fail("Работа выполнена после закрытия"));
+
+        assertNotNull(done);
+        assertFalse(done.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getStats().getQueued());
+    }
+
+    @Test
+    void routeRespondsUnavailableWhenFull() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead(
+            "full",
+            new BulkheadOptions().setMaxConcurrent(1).setMaxQueue(0).setRetryAfterSeconds(7).setExecutor(external),
+            engineThreads
+        );
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final BulkheadRoute route = new BulkheadRoute(new Route("/report", "GET", (request, response) -> {
+            response.respond(ResponseCode.OK, "report");
+        }), bulkhead);
+
+        final CompletableFuture<Boolean> busy = bulkhead.submit(() -> {
+            started.countDown();
+            release.await();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final IHttpCattyResponse rejected = new Response(logger);
+        route.handle(new Request("GET", "/report", "HTTP/1.1", List.of(), new byte[0], logger), rejected);
+
+        assertEquals(503, rejected.getResponseCode());
+        assertEquals("7", rejected.getHeaders().get(Headers.RETRY_AFTER));
+
+        release.countDown();
+        assertTrue(busy.get(5, TimeUnit.SECONDS));
+
+        final IHttpCattyResponse served = new Response(logger);
+        route.handle(new Request("GET", "/report", "HTTP/1.1", List.of(), new byte[0], logger), served);
+
+        assertEquals(200, served.getResponseCode());
+    }
+
+    @Test
+    void capacityMustStayBelowEngineThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead(
+            "large", new BulkheadOptions().setMaxConcurrent(2).setMaxQueue(2), 4
+        ));
+
+        try (Bulkheads bulkheads = new Bulkheads(6)) {
+            bulkheads.create("first", new BulkheadOptions().setMaxConcurrent(2).setMaxQueue(1));
+            // вместе с первой группой займет все потоки движка
+            assertThrows(IllegalArgumentException.class, () -> bulkheads.create(
+                "second", new BulkheadOptions().setMaxConcurrent(2).setMaxQueue(1)
+            ));
+            assertNotNull(bulkheads.create("third", new BulkheadOptions().setMaxConcurrent(1).setMaxQueue(1)));
+        }
+    }
+
+    @Test
+    void saturatedBulkheadLeavesEngineThreadsForOtherRoutes() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService enginePool = Executors.newFixedThreadPool(3);
+        final Routing routing = new Routing(logger);
+        final Bulkhead bulkhead = new Bulkhead(
+            "slow", new BulkheadOptions().setMaxConcurrent(1).setMaxQueue(1).setRetryAfterSeconds(0), 3
+        );
+
+        routing.addRoute(new Route("/slow", "GET", (request, response) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            response.respond(ResponseCode.OK, "slow");
+        }), bulkhead);
+        routing.addRoute(new Route("/fast", "GET", (request, response) -> response.respond(ResponseCode.OK, "fast")));
+
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), freePort());
+        final CattyEngine engine = new CattyEngine(
+            address,
+            enginePool,
+            1_000_000L,
+            (client, limit, handlerLogger) -> new RoutingHandler(client, limit, handlerLogger, routing)
+        );
+        engine.setLogger(logger);
+        final Thread server = new Thread(() -> {
+            try {
+                engine.startServer();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        final ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> running = clients.submit(() -> get(address, "/slow"));
+            awaitInFlight(bulkhead, 1);
+            final Future<String> queued = clients.submit(() -> get(address, "/slow"));
+            awaitInFlight(bulkhead, 2);
+
+            // оба запроса группы держат потоки движка, третий поток отвечает остальным
+            assertTrue(get(address, "/slow").startsWith("HTTP/1.1 503"));
+            assertTrue(get(address, "/fast").endsWith("fast"));
+            assertFalse(running.isDone());
+
+            release.countDown();
+            assertTrue(running.get(5, TimeUnit.SECONDS).endsWith("slow"));
+            assertTrue(queued.get(5, TimeUnit.SECONDS).endsWith("slow"));
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+            engine.stopServer();
+            bulkhead.close();
+        }
+    }
+
+    /**
+     * Обработчик движка: маршрутизация и выполнение маршрута в потоке движка.
+     */
+    static final class RoutingHandler extends HttpCattyQueryHandler {
+        private final Routing routing;
+
+        RoutingHandler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance, Routing handlerRouting) {
+            super(clientChannel, limitBuffer, loggerInstance);
+            routing = handlerRouting;
+        }
+
+        @Override
+        protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
+            try {
+                final IHttpCattyRequest request = new Request(requestBuffer, logger);
+                final IHttpCattyResponse response = new Response(logger);
+                final Optional<ICattyRoute> route = routing.takeRoute(request);
+
+                if (route.isPresent()) {
+                    request.setRoute(route.get());
+                    request.handle(response);
+                } else {
+                    response.respond(ResponseCode.NOT_FOUND, "not found");
+                }
+
+                return response.getByteBuffer();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static void awaitInFlight(Bulkhead bulkhead, int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (bulkhead.getStats().getActive() + bulkhead.getStats().getQueued() < count) {
+            if (System.nanoTime() > deadline) fail("Запросы не дошли до группы");
+            Thread.sleep(10);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String get(InetSocketAddress address, String path) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        SocketChannel opened = null;
+
+        while (opened == null) { // сервер запускается в отдельном потоке
+            try {
+                opened = SocketChannel.open(address);
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) throw e;
+                Thread.sleep(50);
+            }
+        }
+
+        try (SocketChannel channel = opened) {
+            channel.write(ByteBuffer.wrap(
+                ("GET " + path + " HTTP/1.1\r\nHost: test\r\n\r\n").getBytes(StandardCharsets.US_ASCII)
+            ));
+
+            final ByteBuffer buffer = ByteBuffer.allocate(4096);
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) break;
+            }
+
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.axel.catty.engine.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.Route;
+import ru.axel.catty.engine.routing.RouteExecute;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Объединение одновременных запросов: лимит ожидающих и передача роли первого запроса после ошибки.
+ */
+class CoalescingRouteTest {
+    private static final Logger logger = Logger.getLogger(CoalescingRouteTest.class.getName());
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static IHttpCattyRequest get() {
+        return new Request("GET", "/data", "HTTP/1.1", List.of("host", "test"), new byte[0], logger);
+    }
+
+    /**
+     * Запуск запроса в отдельном потоке, поток запоминается для ожидания его блокировки.
+     */
+    private Future<IHttpCattyResponse> submit(CoalescingRoute route) {
+        return executor.submit(() -> {
+            synchronized (threads) {
+                threads.add(Thread.currentThread());
+            }
+
+            final IHttpCattyResponse response = new Response(logger);
+            route.handle(get(), response);
+            return response;
+        });
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void pause(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Ожидание, пока указанное количество запущенных запросов не заблокируется в ожидании ответа.
+     */
+    private void awaitWaiting(int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (System.nanoTime() < deadline) {
+            int waiting = 0;
+            synchronized (threads) {
+                for (Thread thread : threads) {
+                    if (thread.getState() == Thread.State.TIMED_WAITING) waiting++;
+                }
+            }
+            if (waiting >= count) return;
+
+            Thread.sleep(10);
+        }
+
+        fail("Запросы не перешли в ожидание");
+    }
+
+    @Test
+    void waitersOverLimitRunHandlerThemselves() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final RouteExecute handler = (request, response) -> {
+            if (calls.incrementAndGet() == 1) {
+                entered.countDown();
+                await(release);
+            }
+            response.respond(ResponseCode.OK, "ok");
+        };
+        final CoalescingRoute route = new CoalescingRoute(
+            new Route("/data", "GET", handler),
+            new CachePolicy().setSingleFlight(5_000).setSingleFlightWaiters(1)
+        );
+
+        final Future<IHttpCattyResponse> leader = submit(route);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        final Future<IHttpCattyResponse> follower = submit(route);
+        awaitWaiting(1);
+
+        // второй ожидающий сверх лимита не блокируется, хотя первый запрос еще выполняется
+        assertEquals(200, submit(route).get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals(1, route.getOverflows());
+        assertFalse(leader.isDone());
+
+        release.countDown();
+        assertEquals(200, leader.get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals(200, follower.get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals(2, calls.get());
+        assertEquals(1, route.getCoalesced());
+    }
+
+    @Test
+    void oneWaiterTakesOverAfterLeaderFailure() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final RouteExecute handler = (request, response) -> {
+            if (calls.incrementAndGet() == 1) {
+                entered.countDown();
+                await(release);
+                throw new IOException("Ошибка первого запроса");
+            }
+
+            pause(300); // остальные успевают встать в ожидание нового первого запроса
+            response.respond(ResponseCode.OK, "ok");
+        };
+        final CoalescingRoute route = new CoalescingRoute(
+            new Route("/data", "GET", handler),
+            new CachePolicy().setSingleFlight(5_000)
+        );
+
+        final Future<IHttpCattyResponse> leader = submit(route);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        final List<Future<IHttpCattyResponse>> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) followers.add(submit(route));
+        awaitWaiting(3);
+
+        release.countDown();
+        final Exception failure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+
+        for (Future<IHttpCattyResponse> follower : followers) {
+            assertEquals(200, follower.get(5, TimeUnit.SECONDS).getResponseCode());
+        }
+        assertEquals(2, calls.get());
+        assertEquals(2, route.getCoalesced());
+    }
+}
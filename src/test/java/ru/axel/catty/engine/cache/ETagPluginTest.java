@@ -0,0 +1,172 @@
+package ru.axel.catty.engine.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.headers.Headers;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.Route;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Автоматический ETag: сильные и слабые значения, ответ 304 по If-None-Match, слабое сравнение и "*",
+ * ETag обработчика, ответы с готовыми байтами кэша и объединения запросов.
+ */
+class ETagPluginTest {
+    private static final Logger logger = Logger.getLogger(ETagPluginTest.class.getName());
+    private static final ICattyRoute hello = new Route("/hello", "GET", (request, response) -> {
+        response.addHeader(Headers.CONTENT_TYPE, "text/plain");
+        response.respond(ResponseCode.OK, "hello");
+    });
+
+    /**
+     * Запрос через плагин: плагин подменяет маршрут оберткой, затем выполняется обертка.
+     */
+    private static IHttpCattyResponse exchange(ETagPlugin plugin, ICattyRoute route, String method, String ifNoneMatch) throws Exception {
+        final List<String> fields = new ArrayList<>(List.of("host", "test"));
+        if (ifNoneMatch != null) fields.addAll(List.of("if-none-match", ifNoneMatch));
+
+        final IHttpCattyRequest request = new Request(method, "/hello", "HTTP/1.1", fields, new byte[0], logger);
+        final IHttpCattyResponse response = new Response(logger);
+
+        request.setRoute(route);
+        assertTrue(plugin.exec(request, response));
+        request.getRoute().orElseThrow().handle(request, response);
+
+        return response;
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Значение заголовка ETag из готовых байтов ответа.
+     */
+    private static String preparedETag(IHttpCattyResponse response) {
+        for (String line : text(response.getPreparedBytes()).split("\r\n")) {
+            if (line.startsWith("ETag: ")) return line.substring("ETag: ".length());
+        }
+
+        return null;
+    }
+
+    @Test
+    void generatesStrongAndWeakETags() throws Exception {
+        final ETagPlugin strong = new ETagPlugin(false);
+        final String etag = exchange(strong, hello, "GET", null).getHeaders().get(Headers.ETAG);
+
+        assertEquals("\"5-" + Long.toHexString(ETagPlugin.hash("hello".getBytes(StandardCharsets.UTF_8))) + "\"", etag);
+        assertEquals(etag, exchange(strong, hello, "HEAD", null).getHeaders().get(Headers.ETAG));
+        assertEquals(2, strong.getTagged());
+
+        assertEquals("W/" + etag, exchange(new ETagPlugin(), hello, "GET", null).getHeaders().get(Headers.ETAG));
+
+        // другое тело - другой ETag
+        final ICattyRoute other = new Route("/hello", "GET", (request, response) -> response.respond(ResponseCode.OK, "hellO"));
+        assertNotEquals(etag, exchange(strong, other, "GET", null).getHeaders().get(Headers.ETAG));
+    }
+
+    @Test
+    void ifNoneMatchReturnsNotModifiedWithoutBody() throws Exception {
+        final ETagPlugin plugin = new ETagPlugin(false);
+        final String etag = exchange(plugin, hello, "GET", null).getHeaders().get(Headers.ETAG);
+        final IHttpCattyResponse response = exchange(plugin, hello, "GET", "\"other\", " + etag);
+
+        assertEquals(304, response.getResponseCode());
+        assertEquals(0, response.getBody().length);
+        assertEquals(etag, response.getHeaders().get(Headers.ETAG));
+        assertNull(response.getHeaders().get(Headers.CONTENT_LENGTH));
+        assertNull(response.getHeaders().get(Headers.CONTENT_TYPE));
+        assertTrue(text(response.getBytes()).endsWith("\r\n\r\n"));
+        assertEquals(1, plugin.getNotModified());
+
+        assertEquals(200, exchange(plugin, hello, "GET", "\"other\"").getResponseCode());
+    }
+
+    @Test
+    void comparesWeakly() throws Exception {
+        assertTrue(ETagPlugin.matches("W/\"1-a\"", "\"1-a\""));
+        assertTrue(ETagPlugin.matches("\"1-a\"", "W/\"1-a\""));
+        assertTrue(ETagPlugin.matches(" \"0-b\" ,W/\"1-a\"", "\"1-a\""));
+        assertTrue(ETagPlugin.matches("*", "\"1-a\""));
+        assertFalse(ETagPlugin.matches("\"1-b\"", "\"1-a\""));
+        assertFalse(ETagPlugin.matches("", "\"1-a\""));
+        assertFalse(ETagPlugin.matches(null, "\"1-a\""));
+
+        final ETagPlugin strong = new ETagPlugin(false);
+        final String etag = exchange(strong, hello, "GET", null).getHeaders().get(Headers.ETAG);
+
+        assertEquals(304, exchange(strong, hello, "GET", "W/" + etag).getResponseCode());
+        assertEquals(304, exchange(new ETagPlugin(), hello, "GET", etag).getResponseCode());
+        assertEquals(304, exchange(strong, hello, "GET", "*").getResponseCode());
+    }
+
+    @Test
+    void keepsHandlerETagAndSkipsOtherResponses() throws Exception {
+        final ETagPlugin plugin = new ETagPlugin();
+        final ICattyRoute tagged = new Route("/hello", "GET", (request, response) -> {
+            response.addHeader(Headers.ETAG, "\"v1\"");
+            response.respond(ResponseCode.OK, "hello");
+        });
+
+        assertEquals("\"v1\"", exchange(plugin, tagged, "GET", null).getHeaders().get(Headers.ETAG));
+        assertEquals(304, exchange(plugin, tagged, "GET", "\"v1\"").getResponseCode());
+        assertEquals(0, plugin.getTagged());
+
+        final ICattyRoute missing = new Route("/hello", "GET", (request, response) -> response.respond(ResponseCode.NOT_FOUND, "missing"));
+        assertNull(exchange(plugin, hello, "POST", null).getHeaders().get(Headers.ETAG));
+        assertNull(exchange(plugin, missing, "GET", null).getHeaders().get(Headers.ETAG));
+    }
+
+    @Test
+    void tagsCachedResponsesWithoutChangingCache() throws Exception {
+        final ETagPlugin plugin = new ETagPlugin(false);
+        final ResponseCache cache = new ResponseCache(1_000_000L, 1);
+        final CachePolicy policy = new CachePolicy().setTtlSeconds(60);
+        final ICattyRoute route = new CachedRoute(hello, cache, policy);
+
+        final IHttpCattyResponse miss = exchange(plugin, route, "GET", null);
+        final IHttpCattyResponse hit = exchange(plugin, route, "GET", null);
+        final String etag = preparedETag(miss);
+
+        assertEquals(exchange(new ETagPlugin(false), hello, "GET", null).getHeaders().get(Headers.ETAG), etag);
+        assertEquals(etag, preparedETag(hit));
+        assertTrue(text(hit.getPreparedBytes()).endsWith("\r\n\r\nhello"));
+        assertEquals(2, plugin.getTagged());
+
+        // в кэше остаются исходные байты, общий массив не изменяется
+        final IHttpCattyRequest request = new Request("GET", "/hello", "HTTP/1.1", List.of("host", "test"), new byte[0], logger);
+        assertFalse(text(cache.get(ResponseCache.primaryKey(request, policy), request).getBytes()).contains("ETag"));
+
+        final IHttpCattyResponse notModified = exchange(plugin, route, "GET", "W/" + etag);
+        final String head = text(notModified.getPreparedBytes());
+
+        assertEquals(304, notModified.getResponseCode());
+        assertTrue(head.startsWith("HTTP/1.1 304 Not Modified\r\n"), head);
+        assertTrue(head.endsWith("\r\n\r\n"), head);
+        assertTrue(head.contains("ETag: " + etag + "\r\n"), head);
+        assertFalse(head.contains("Content-Length"), head);
+        assertFalse(head.contains("Content-Type"), head);
+        assertEquals(1, plugin.getNotModified());
+    }
+
+    @Test
+    void tagsCoalescedResponses() throws Exception {
+        final ETagPlugin plugin = new ETagPlugin(false);
+        final ICattyRoute route = new CoalescingRoute(hello, new CachePolicy().setSingleFlight(1_000));
+        final String etag = preparedETag(exchange(plugin, route, "GET", null));
+
+        assertNotNull(etag);
+        assertEquals(304, exchange(plugin, route, "GET", etag).getResponseCode());
+    }
+}
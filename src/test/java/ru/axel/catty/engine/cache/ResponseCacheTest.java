@@ -0,0 +1,82 @@
+package ru.axel.catty.engine.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Выбор вариантов по Vary, вытеснение по лимиту памяти вместе с индексом Vary и ограничение времени жизни.
+ */
+class ResponseCacheTest {
+    private static final Logger logger = Logger.getLogger(ResponseCacheTest.class.getName());
+    private static final String[] noVary = new String[0];
+
+    private static IHttpCattyRequest request(String path, String... fields) {
+        return new Request("GET", path, "HTTP/1.1", List.of(fields), new byte[0], logger);
+    }
+
+    @Test
+    void selectsVariantByVaryHeaders() {
+        final ResponseCache cache = new ResponseCache(1_000_000L, 1);
+        final String[] vary = { "accept-language" };
+        final IHttpCattyRequest ru = request("/page", "accept-language", "ru");
+        final IHttpCattyRequest en = request("/page", "accept-language", "en");
+
+        cache.put("GET /page", ru, vary, 200, new byte[] { 1 }, 60);
+        cache.put("GET /page", en, vary, 200, new byte[] { 2 }, 60);
+
+        assertArrayEquals(new byte[] { 1 }, cache.get("GET /page", ru).getBytes());
+        assertArrayEquals(new byte[] { 2 }, cache.get("GET /page", en).getBytes());
+        assertNull(cache.get("GET /page", request("/page", "accept-language", "de")));
+        assertEquals(1, cache.varyIndexSize());
+    }
+
+    @Test
+    void evictsVaryIndexWithLastEntry() {
+        final ResponseCache cache = new ResponseCache(2_000L, 1);
+        final String[] vary = { "accept-encoding" };
+
+        for (int i = 0; i < 1_000; i++) {
+            final String key = "GET /item/" + i;
+            cache.put(key, request("/item/" + i, "accept-encoding", "gzip"), vary, 200, new byte[500], 60);
+        }
+
+        final CacheStats stats = cache.getStats();
+        assertTrue(stats.getEntries() < 10, "entries: " + stats.getEntries());
+        assertEquals(stats.getEntries(), cache.varyIndexSize());
+        assertTrue(stats.getBytes() <= 2_000L);
+
+        cache.clear();
+        assertEquals(0, cache.varyIndexSize());
+    }
+
+    @Test
+    void expiredEntryIsRemovedWithVaryIndex() throws Exception {
+        final ResponseCache cache = new ResponseCache(1_000_000L, 1);
+        final IHttpCattyRequest request = request("/short", "accept", "text/plain");
+
+        cache.put("GET /short", request, new String[] { "accept" }, 200, new byte[] { 1 }, 1);
+        Thread.sleep(1_100);
+
+        assertNull(cache.get("GET /short", request));
+        assertEquals(0, cache.varyIndexSize());
+    }
+
+    @Test
+    void hugeTtlDoesNotOverflow() {
+        final ResponseCache cache = new ResponseCache(1_000_000L, 1);
+        final IHttpCattyRequest request = request("/forever");
+
+        // без ограничения ttl * 1e9 переполняется и запись сразу считается устаревшей
+        cache.put("GET /forever", request, noVary, 200, new byte[] { 1 }, Long.MAX_VALUE);
+        cache.put("GET /year", request, noVary, 200, new byte[] { 2 }, Long.MAX_VALUE / 1_000_000_000L + 1);
+
+        assertNotNull(cache.get("GET /forever", request));
+        assertNotNull(cache.get("GET /year", request));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.axel.catty.engine.executor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Решения размера адаптивного пула: рост под давлением очереди, уменьшение при простое, отмена
+ * ухудшившего изменения, удержание, блокировка направления и границы настроек.
+ */
+class HillClimbingTest {
+    private static final AdaptiveExecutorOptions options = new AdaptiveExecutorOptions()
+        .setThreads(2, 10)
+        .setStep(3)
+        .setTargetQueueWaitMillis(20)
+        .setTolerance(0.1)
+        .setCooldownSamples(4);
+
+    /**
+     * Решение по замеру без блокировки направления.
+     */
+    private static AdaptiveDecision decide(
+        int size,
+        int lastMove,
+        double previous,
+        double throughput,
+        double queueWaitMillis,
+        int queued,
+        long started,
+        int busy
+    ) {
+        return HillClimbing.decide(options, size, lastMove, previous, throughput, queueWaitMillis, queued, started, busy, 0, 0);
+    }
+
+    @Test
+    void growsWhenQueueWaitExceedsTarget() {
+        assertEquals(AdaptiveDecision.GROW, decide(4, 0, 0, 100, 50, 10, 100, 4));
+        assertEquals(7, HillClimbing.resize(options, AdaptiveDecision.GROW, 4, 0));
+    }
+
+    @Test
+    void growsWhenQueuedTasksNeverStarted() {
+        assertEquals(AdaptiveDecision.GROW, decide(4, 0, 0, 0, 0, 5, 0, 4));
+    }
+
+    @Test
+    void keepsGrowingWhileLastGrowthHelps() {
+        // ожидание в норме, но все потоки заняты и прошлое увеличение подняло пропускную способность
+        assertEquals(AdaptiveDecision.GROW, decide(7, 3, 100, 150, 1, 0, 150, 7));
+        // без прироста пропускной способности занятость пула не давит
+        assertEquals(AdaptiveDecision.HOLD, decide(7, 3, 100, 105, 1, 0, 105, 7));
+    }
+
+    @Test
+    void shrinksWhenIdle() {
+        assertEquals(AdaptiveDecision.SHRINK, decide(8, 0, 0, 100, 1, 0, 100, 2));
+        assertEquals(5, HillClimbing.resize(options, AdaptiveDecision.SHRINK, 8, 0));
+    }
+
+    @Test
+    void holdsWhenBusyThreadsLeaveNoStep() {
+        assertEquals(AdaptiveDecision.HOLD, decide(8, 0, 0, 100, 1, 0, 100, 6));
+        // задачи в очереди мешают уменьшению, даже если ожидание в норме
+        assertEquals(AdaptiveDecision.HOLD, decide(8, 0, 0, 100, 1, 1, 100, 2));
+    }
+
+    @Test
+    void backsOffMoveThatReducedThroughput() {
+        assertEquals(AdaptiveDecision.BACKOFF, decide(7, 3, 100, 80, 50, 10, 80, 7));
+        assertEquals(4, HillClimbing.resize(options, AdaptiveDecision.BACKOFF, 7, 3));
+
+        assertEquals(AdaptiveDecision.BACKOFF, decide(5, -3, 100, 80, 50, 10, 80, 5));
+        assertEquals(8, HillClimbing.resize(options, AdaptiveDecision.BACKOFF, 5, -3));
+    }
+
+    @Test
+    void toleranceAbsorbsSmallDrop() {
+        // падение в пределах допуска не считается ухудшением, давление продолжает рост
+        assertEquals(AdaptiveDecision.GROW, decide(4, 3, 100, 95, 50, 10, 95, 4));
+    }
+
+    @Test
+    void backoffNeedsPressureAndPreviousMove() {
+        assertEquals(AdaptiveDecision.SHRINK, decide(7, 3, 100, 50, 1, 0, 50, 1));
+        assertEquals(AdaptiveDecision.GROW, decide(4, 0, 100, 50, 50, 10, 50, 4));
+    }
+
+    @Test
+    void blockedDirectionHoldsUntilCooldownEnds() {
+        assertEquals(
+            AdaptiveDecision.HOLD,
+            HillClimbing.decide(options, 4, 0, 0, 100, 50, 10, 100, 4, 1, 2)
+        );
+        assertEquals(
+            AdaptiveDecision.GROW,
+            HillClimbing.decide(options, 4, 0, 0, 100, 50, 10, 100, 4, 1, 0)
+        );
+        assertEquals(
+            AdaptiveDecision.HOLD,
+            HillClimbing.decide(options, 8, 0, 0, 100, 1, 0, 100, 2, -1, 2)
+        );
+        // блокировка одного направления не мешает другому
+        assertEquals(
+            AdaptiveDecision.SHRINK,
+            HillClimbing.decide(options, 8, 0, 0, 100, 1, 0, 100, 2, 1, 2)
+        );
+    }
+
+    @Test
+    void clampsToMinAndMax() {
+        assertEquals(10, HillClimbing.resize(options, AdaptiveDecision.GROW, 9, 0));
+        assertEquals(2, HillClimbing.resize(options, AdaptiveDecision.SHRINK, 3, 0));
+        assertEquals(6, HillClimbing.resize(options, AdaptiveDecision.HOLD, 6, 3));
+
+        // на границах рост и уменьшение не выбираются
+        assertEquals(AdaptiveDecision.HOLD, decide(10, 0, 0, 100, 50, 10, 100, 10));
+        assertEquals(AdaptiveDecision.HOLD, decide(2, 0, 0, 100, 1, 0, 100, 0));
+    }
+}
@@ -0,0 +1,175 @@
+package ru.axel.catty.engine.handler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.CattyEngine;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Обработка Expect: 100-continue: промежуточный ответ перед телом, отказ обработчика до чтения тела,
+ * неизвестное ожидание и превышение лимита размера запроса.
+ */
+class ExpectContinueTest {
+    private static final Logger logger = Logger.getLogger(ExpectContinueTest.class.getName());
+    private CattyEngine engine;
+    private InetSocketAddress address;
+
+    static class Handler extends HttpCattyQueryHandler {
+        Handler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
+            super(clientChannel, limitBuffer, loggerInstance);
+        }
+
+        @Override
+        protected @Nullable IHttpCattyResponse expectContinue(@NotNull IHttpCattyRequest request) {
+            if (request.getHeaders("x-reject") == null) return null;
+
+            final IHttpCattyResponse response = new Response(logger);
+            response.respond(ResponseCode.FORBIDDEN, "rejected");
+            return response;
+        }
+
+        @Override
+        protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
+            try {
+                final IHttpCattyResponse response = new Response(logger);
+                response.respond(ResponseCode.OK, "body=" + new Request(requestBuffer, logger).getBody());
+
+                return response.getByteBuffer();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        engine = new CattyEngine(address, 2, 1_000_000L, Handler::new);
+        engine.setLogger(logger);
+
+        final Thread server = new Thread(() -> {
+            try {
+                engine.startServer();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        engine.stopServer();
+    }
+
+    private SocketChannel connect() throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (true) {
+            try {
+                return SocketChannel.open(address);
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) throw e;
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static void send(SocketChannel channel, String text) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Чтение до конца заголовков ответа, тело ответа с Content-Length дочитывается.
+     */
+    private static String readResponse(SocketChannel channel) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        final ByteBuffer one = ByteBuffer.allocate(1);
+
+        while (!text.toString().endsWith("\r\n\r\n")) {
+            one.clear();
+            if (channel.read(one) < 0) return text.toString();
+            text.append((char) one.get(0));
+        }
+
+        final String head = text.toString();
+        final int index = head.toLowerCase().indexOf("content-length:");
+        if (index >= 0) {
+            final int length = Integer.parseInt(head.substring(index + 15, head.indexOf("\r\n", index)).trim());
+            final ByteBuffer body = ByteBuffer.allocate(length);
+            while (body.hasRemaining() && channel.read(body) >= 0) { }
+            text.append(new String(body.array(), 0, body.position(), StandardCharsets.US_ASCII));
+        }
+
+        return text.toString();
+    }
+
+    @Test
+    void sendsContinueBeforeBody() throws Exception {
+        try (SocketChannel channel = connect()) {
+            send(channel, "POST /upload HTTP/1.1\r\nHost: test\r\nExpect: 100-continue\r\nContent-Length: 5\r\n\r\n");
+
+            assertEquals("HTTP/1.1 100 Continue\r\n\r\n", readResponse(channel));
+
+            send(channel, "hello");
+            final String response = readResponse(channel);
+
+            assertTrue(response.startsWith("HTTP/1.1 200"), response);
+            assertTrue(response.endsWith("body=hello"), response);
+        }
+    }
+
+    @Test
+    void rejectsBeforeBody() throws Exception {
+        try (SocketChannel channel = connect()) {
+            send(channel, "POST /upload HTTP/1.1\r\nHost: test\r\nExpect: 100-continue\r\nX-Reject: 1\r\nContent-Length: 5\r\n\r\n");
+
+            final String response = readResponse(channel);
+            assertTrue(response.startsWith("HTTP/1.1 403"), response);
+            assertTrue(response.toLowerCase().contains("connection: close"), response);
+        }
+    }
+
+    @Test
+    void unknownExpectationFails() throws Exception {
+        try (SocketChannel channel = connect()) {
+            send(channel, "POST /upload HTTP/1.1\r\nHost: test\r\nExpect: something\r\nContent-Length: 5\r\n\r\n");
+
+            assertTrue(readResponse(channel).startsWith("HTTP/1.1 417"));
+        }
+    }
+
+    @Test
+    void oversizedBodyIsRejectedBeforeContinue() throws Exception {
+        try (SocketChannel channel = connect()) {
+            send(channel, "POST /upload HTTP/1.1\r\nHost: test\r\nExpect: 100-continue\r\nContent-Length: 10000000\r\n\r\n");
+
+            assertTrue(readResponse(channel).startsWith("HTTP/1.1 413"));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.axel.catty.engine.headers;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Хранилище заголовков: срезы буфера запроса, поиск без учета регистра, несколько значений одного имени,
+ * замена и удаление, рост массивов и повторное использование после reset.
+ */
+class HttpHeadersTest {
+    /**
+     * Хранилище над буфером с заголовками вида "имя: значение", разделенными CRLF.
+     */
+    private static HttpHeaders parse(String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        final HttpHeaders headers = new HttpHeaders(bytes);
+        addLines(headers, text);
+
+        return headers;
+    }
+
+    private static void addLines(HttpHeaders headers, String text) {
+        int start = 0;
+        while (start < text.length()) {
+            final int end = text.indexOf("\r\n", start);
+            final int colon = text.indexOf(':', start);
+            final int valueStart = colon + 2;
+
+            headers.addRaw(start, colon - start, valueStart, end - valueStart);
+            start = end + 2;
+        }
+    }
+
+    @Test
+    void readsSlicesIgnoringCase() {
+        final HttpHeaders headers = parse("Host: example.com:8080\r\nX-Trace: abc\r\n");
+
+        assertEquals(2, headers.size());
+        assertEquals("example.com:8080", headers.get(Headers.HOST));
+        assertEquals("example.com:8080", headers.get("HOST"));
+        assertEquals("abc", headers.get("x-trace"));
+        assertEquals(Headers.HOST, headers.getKnown(0));
+        assertNull(headers.getKnown(1));
+        assertEquals("X-Trace", headers.getName(1));
+        assertNull(headers.get("x-missing"));
+        assertFalse(headers.contains(Headers.COOKIE));
+    }
+
+    @Test
+    void keepsRepeatedValuesInOrder() {
+        final HttpHeaders headers = parse("Cookie: a=1\r\nAccept: */*\r\ncookie: b=2\r\n");
+        headers.add(Headers.COOKIE, "c=3");
+
+        assertEquals(List.of("a=1", "b=2", "c=3"), headers.getAll(Headers.COOKIE));
+        assertEquals(List.of("a=1", "b=2", "c=3"), headers.getAll("COOKIE"));
+        assertTrue(headers.getAll("x-missing").isEmpty());
+    }
+
+    @Test
+    void setReplacesAndRemoveShifts() {
+        final HttpHeaders headers = parse("Accept: text/html\r\nX-A: 1\r\nx-a: 2\r\nHost: test\r\n");
+
+        headers.set("X-A", "3");
+        assertEquals(List.of("3"), headers.getAll("x-a"));
+
+        assertTrue(headers.remove(Headers.ACCEPT));
+        assertFalse(headers.remove(Headers.ACCEPT));
+        assertEquals(2, headers.size());
+        assertEquals("test", headers.get(Headers.HOST));
+        assertEquals("3", headers.get("x-a"));
+        assertThrows(IndexOutOfBoundsException.class, () -> headers.getName(2));
+    }
+
+    @Test
+    void growsAndResets() {
+        final HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < 40; i++) headers.add("x-" + i, String.valueOf(i));
+
+        assertEquals(40, headers.size());
+        assertEquals("39", headers.get("X-39"));
+
+        final String text = "User-Agent: test\r\n";
+        headers.reset(text.getBytes(StandardCharsets.US_ASCII));
+        addLines(headers, text);
+
+        assertEquals(1, headers.size());
+        assertNull(headers.get("x-0"));
+        assertEquals("test", headers.get(Headers.USER_AGENT));
+    }
+}
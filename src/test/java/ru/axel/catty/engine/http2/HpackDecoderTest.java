@@ -0,0 +1,91 @@
+package ru.axel.catty.engine.http2;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HpackDecoderTest {
+    private static List<String> decode(HpackDecoder decoder, String hex) throws Http2Exception {
+        final byte[] block = HexFormat.of().parseHex(hex);
+        final List<String> fields = new ArrayList<>();
+
+        decoder.decode(block, block.length, (name, value) -> {
+            fields.add(name);
+            fields.add(value);
+        });
+
+        return fields;
+    }
+
+    @Test
+    void decodesRequestsWithoutHuffman() throws Http2Exception { // RFC 7541, C.3
+        final HpackDecoder decoder = new HpackDecoder(4096, 65536);
+
+        assertEquals(
+            List.of(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+            decode(decoder, "828684410f7777772e6578616d706c652e636f6d")
+        );
+        assertEquals(
+            List.of(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache"),
+            decode(decoder, "828684be58086e6f2d6361636865")
+        );
+    }
+
+    @Test
+    void decodesHuffmanStrings() throws Http2Exception { // RFC 7541, C.4.1
+        assertEquals(
+            List.of(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+            decode(new HpackDecoder(4096, 65536), "828684418cf1e3c2e5f23a6ba0ab90f4ff")
+        );
+    }
+
+    @Test
+    void decodesEncoderOutput() throws Http2Exception {
+        final HpackEncoder encoder = new HpackEncoder();
+        final ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+        encoder.encodeStatus(200, block);
+        encoder.encode("content-type", "text/plain", block);
+        encoder.encode("set-cookie", "id=1", block);
+
+        final byte[] bytes = block.toByteArray();
+        final List<String> fields = new ArrayList<>();
+        new HpackDecoder(4096, 65536).decode(bytes, bytes.length, (name, value) -> {
+            fields.add(name);
+            fields.add(value);
+        });
+
+        assertEquals(List.of(":status", "200", "content-type", "text/plain", "set-cookie", "id=1"), fields);
+    }
+
+    @Test
+    void rejectsTruncatedString() {
+        final Http2Exception exc = assertThrows(
+            Http2Exception.class,
+            () -> decode(new HpackDecoder(4096, 65536), "400a6162")
+        );
+
+        assertEquals(Http2ErrorCode.COMPRESSION_ERROR, exc.getErrorCode());
+    }
+
+    @Test
+    void rejectsTableSizeAboveSetting() {
+        assertThrows(Http2Exception.class, () -> decode(new HpackDecoder(4096, 65536), "3fe21f"));
+    }
+
+    @Test
+    void limitsHeaderListSize() {
+        final Http2Exception exc = assertThrows(
+            Http2Exception.class,
+            () -> decode(new HpackDecoder(4096, 40), "828684410f7777772e6578616d706c652e636f6d")
+        );
+
+        assertEquals(Http2ErrorCode.ENHANCE_YOUR_CALM, exc.getErrorCode());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.axel.catty.engine.http2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2FieldValidationTest {
+    @Test
+    void acceptsRegularFields() {
+        assertTrue(Http2Connection.isValidField("accept", "text/html"));
+        assertTrue(Http2Connection.isValidField(":path", "/index?a=1"));
+        assertTrue(Http2Connection.isValidField("x-empty", ""));
+        assertTrue(Http2Connection.isValidField("user-agent", "a b\tc"));
+    }
+
+    @Test
+    void rejectsLineBreaksAndNulInValues() {
+        assertFalse(Http2Connection.isValidField("x-test", "a\r\nx-admin: 1"));
+        assertFalse(Http2Connection.isValidField("x-test", "a\nb"));
+        assertFalse(Http2Connection.isValidField("x-test", "a\rb"));
+        assertFalse(Http2Connection.isValidField("x-test", "a\0b"));
+        assertFalse(Http2Connection.isValidField(":path", "/a\r\nx-admin: 1"));
+        assertFalse(Http2Connection.isValidField(":authority", "host\r\nx-admin: 1"));
+    }
+
+    @Test
+    void rejectsBlankValueEdges() {
+        assertFalse(Http2Connection.isValidField("x-test", " a"));
+        assertFalse(Http2Connection.isValidField("x-test", "a\t"));
+    }
+
+    @Test
+    void rejectsBadNames() {
+        assertFalse(Http2Connection.isValidField("Accept", "x"));
+        assertFalse(Http2Connection.isValidField("x:test", "x"));
+        assertFalse(Http2Connection.isValidField("x test", "x"));
+        assertFalse(Http2Connection.isValidField("x\0", "x"));
+        assertFalse(Http2Connection.isValidField("", "x"));
+        assertFalse(Http2Connection.isValidField(":", "x"));
+        assertFalse(Http2Connection.isValidField("café", "x"));
+    }
+
+    @Test
+    void validatesTarget() {
+        assertTrue(Http2Connection.isValidTarget("GET", "/"));
+        assertTrue(Http2Connection.isValidTarget("OPTIONS", "*"));
+        assertFalse(Http2Connection.isValidTarget("GET", "*"));
+        assertFalse(Http2Connection.isValidTarget("GET", "index"));
+        assertFalse(Http2Connection.isValidTarget("GET", "/a b"));
+        assertFalse(Http2Connection.isValidTarget("GE T", "/"));
+        assertFalse(Http2Connection.isValidTarget("GET\r\n", "/"));
+        assertFalse(Http2Connection.isValidTarget(null, "/"));
+        assertFalse(Http2Connection.isValidTarget("GET", ""));
+    }
+}
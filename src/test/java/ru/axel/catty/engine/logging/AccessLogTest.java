@@ -0,0 +1,147 @@
+package ru.axel.catty.engine.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кольцевой буфер журнала доступа: переполнение с DROP_NEWEST, оборот буфера степени двойки,
+ * одновременные производители с BLOCK, запись остатка при закрытии и экранирование значений.
+ */
+class AccessLogTest {
+    private static final Logger logger = Logger.getLogger(AccessLogTest.class.getName());
+
+    /**
+     * Поток вывода, запись в который ждет сигнала: фоновый поток журнала останавливается на первом сбросе.
+     */
+    static final class BlockingStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+
+            synchronized (this) {
+                bytes.write(b, off, len);
+            }
+        }
+
+        synchronized List<String> lines() {
+            final String text = bytes.toString(StandardCharsets.UTF_8);
+            return text.isEmpty() ? List.of() : List.of(text.split("\n"));
+        }
+    }
+
+    private static boolean log(AccessLog log, String target) {
+        return log.log("127.0.0.1", "GET", target, "HTTP/1.1", 200, 5, 1_000, null, null);
+    }
+
+    @Test
+    void dropsNewestWhenRingIsFull() throws Exception {
+        final BlockingStream stream = new BlockingStream();
+        final AccessLog log = new AccessLog(stream, new AccessLogOptions().setCapacity(3).setFormat(AccessLogFormat.COMMON), logger);
+
+        assertEquals(4, log.getOptions().getCapacity()); // округление до степени двойки
+
+        assertTrue(log(log, "/0"));
+        assertTrue(stream.entered.await(5, TimeUnit.SECONDS)); // фоновый поток ждет в записи
+
+        for (int i = 1; i <= 4; i++) assertTrue(log(log, "/" + i));
+        assertFalse(log(log, "/dropped"));
+        assertEquals(1, log.getDropped());
+
+        stream.release.countDown();
+        log.close();
+
+        final List<String> lines = stream.lines();
+        assertEquals(5, lines.size());
+        for (int i = 0; i < lines.size(); i++) assertTrue(lines.get(i).contains("\"GET /" + i + " HTTP/1.1\" 200 5"), lines.get(i));
+        assertEquals(5, log.getWritten());
+    }
+
+    @Test
+    void ringWrapsInOrder() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AccessLog log = new AccessLog(
+            out,
+            new AccessLogOptions().setCapacity(4).setBatchSize(3).setOverflowPolicy(OverflowPolicy.BLOCK),
+            logger
+        );
+
+        for (int i = 0; i < 100; i++) assertTrue(log(log, "/" + i));
+        log.close();
+
+        final String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(100, lines.length);
+        for (int i = 0; i < lines.length; i++) assertTrue(lines[i].contains(" /" + i + " "), lines[i]);
+        assertEquals(0, log.getDropped());
+    }
+
+    @Test
+    void concurrentProducersLoseNothingWithBlock() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AccessLog log = new AccessLog(
+            out,
+            new AccessLogOptions().setCapacity(8).setOverflowPolicy(OverflowPolicy.BLOCK),
+            logger
+        );
+        final List<Thread> producers = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            final int producer = t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) log(log, "/" + producer + "/" + i);
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) thread.join(10_000);
+        log.close();
+
+        final String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        final Set<String> targets = new HashSet<>();
+        for (String line : lines) targets.add(line.substring(line.indexOf("GET ") + 4, line.indexOf(" HTTP/1.1")));
+
+        assertEquals(4_000, lines.length);
+        assertEquals(4_000, targets.size());
+        assertEquals(4_000, log.getWritten());
+        assertEquals(0, log.getDropped());
+    }
+
+    @Test
+    void escapesRequestValues() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AccessLog log = new AccessLog(out, new AccessLogOptions(), logger);
+
+        log.log(null, "GET", "/a\"b\n", "HTTP/1.1", 404, 0, 1_000, null, "agent\\1");
+        log.close();
+
+        final String line = out.toString(StandardCharsets.UTF_8);
+        assertTrue(line.startsWith("- - - ["), line);
+        assertTrue(line.endsWith("\"GET /a\\\"b\\x0a HTTP/1.1\" 404 - \"-\" \"agent\\\\1\"\n"), line);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.axel.catty.engine.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Фоновая запись журнала: flush ждет выполняемую запись, переполнение очереди, запись остатка при закрытии.
+ */
+class AsyncLogHandlerTest {
+    /**
+     * Целевой обработчик, который пишет медленно и может быть остановлен до сигнала.
+     */
+    static final class SlowHandler extends Handler {
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final long delayMillis;
+        private volatile boolean closed = false;
+
+        SlowHandler(long delay, CountDownLatch releaseLatch) {
+            delayMillis = delay;
+            release = releaseLatch;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            entered.countDown();
+            try {
+                release.await();
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void flushWaitsForRecordBeingWritten() {
+        final SlowHandler target = new SlowHandler(50, new CountDownLatch(0));
+        final AsyncLogHandler handler = new AsyncLogHandler(target);
+
+        for (int i = 0; i < 3; i++) handler.publish(new LogRecord(Level.INFO, "record " + i));
+        handler.flush();
+
+        // очередь пустеет раньше, чем записана последняя запись
+        assertEquals(List.of("record 0", "record 1", "record 2"), target.messages);
+        handler.close();
+    }
+
+    @Test
+    void dropsRecordsOverCapacity() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final SlowHandler target = new SlowHandler(0, release);
+        final AsyncLogHandler handler = new AsyncLogHandler(target, 2);
+
+        handler.publish(new LogRecord(Level.INFO, "first"));
+        assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+        handler.publish(new LogRecord(Level.INFO, "second"));
+        handler.publish(new LogRecord(Level.INFO, "dropped")); // выполняемая запись занимает место в очереди
+
+        assertEquals(1, handler.getDropped());
+
+        release.countDown();
+        handler.flush();
+        assertEquals(List.of("first", "second"), target.messages);
+        handler.close();
+    }
+
+    @Test
+    void closeWritesRemainingRecords() {
+        final SlowHandler target = new SlowHandler(10, new CountDownLatch(0));
+        final AsyncLogHandler handler = new AsyncLogHandler(target);
+
+        for (int i = 0; i < 5; i++) handler.publish(new LogRecord(Level.INFO, "record " + i));
+        handler.close();
+
+        assertEquals(5, target.messages.size());
+        assertTrue(target.closed);
+
+        handler.publish(new LogRecord(Level.INFO, "late")); // после закрытия записи не принимаются
+        assertEquals(5, target.messages.size());
+        assertEquals(0, handler.getDropped());
+    }
+}
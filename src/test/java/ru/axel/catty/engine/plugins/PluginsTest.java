@@ -0,0 +1,112 @@
+package ru.axel.catty.engine.plugins;
+
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+import ru.axel.catty.engine.routing.ICattyRoute;
+import ru.axel.catty.engine.routing.Route;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Цепочки плагинов: прерывание цепочки плагином и пропуск обработчика маршрута,
+ * пересборка после изменения состава, в том числе во время сборки цепочки.
+ */
+class PluginsTest {
+    private static final Logger logger = Logger.getLogger(PluginsTest.class.getName());
+
+    private static IHttpCattyRequest get(ICattyRoute route) {
+        final IHttpCattyRequest request = new Request("GET", "/items", "HTTP/1.1", List.of("host", "test"), new byte[0], logger);
+        request.setRoute(route);
+
+        return request;
+    }
+
+    @Test
+    void shortCircuitStopsChainAndSkipsHandler() throws Exception {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final ICattyRoute route = new Route("/items", "GET", (request, response) -> {
+            calls.add("handler");
+            response.respond(ResponseCode.OK, "items");
+        });
+        final Plugins plugins = new Plugins(logger);
+
+        plugins.addPlugin("first", (request, response) -> calls.add("first"));
+        plugins.addPlugin("auth", (request, response) -> {
+            calls.add("auth");
+            response.respond(ResponseCode.FORBIDDEN, "denied");
+            return false;
+        });
+        plugins.addPlugin("last", (request, response) -> calls.add("last"));
+
+        final IHttpCattyRequest request = get(route);
+        final IHttpCattyResponse response = new Response(logger);
+
+        // так обработчик запроса выполняет маршрут: только если цепочка не прервана
+        if (plugins.execute(request, response)) route.handle(request, response);
+
+        assertEquals(List.of("first", "auth"), calls);
+        assertEquals(ResponseCode.FORBIDDEN.getCode(), response.getResponseCode());
+    }
+
+    @Test
+    void scopedPluginsAndRebuildAfterChange() {
+        final ICattyRoute items = new Route("/items", "GET", (request, response) -> {});
+        final ICattyRoute admin = new Route("/admin/users", "GET", (request, response) -> {});
+        final Plugins plugins = new Plugins(logger);
+
+        plugins.addPlugin("audit", "/admin", (request, response) -> true);
+
+        final PluginChain chain = plugins.getChain(items);
+        assertEquals(0, chain.size());
+        assertEquals(1, plugins.getChain(admin).size());
+        assertSame(chain, plugins.getChain(items));
+
+        plugins.addPlugin("all", (request, response) -> true);
+
+        assertEquals(1, plugins.getChain(items).size());
+        assertEquals(2, plugins.getChain(admin).size());
+        assertEquals(1, plugins.getChain(null).size());
+    }
+
+    @Test
+    void chainCompiledDuringChangeIsNotCached() throws Exception {
+        final ICattyRoute route = new Route("/items", "GET", (request, response) -> {});
+        final Plugins plugins = new Plugins(logger);
+        final CountDownLatch compiling = new CountDownLatch(1);
+        final CountDownLatch changed = new CountDownLatch(1);
+
+        // область действия проверяется при сборке цепочки: сборка останавливается до изменения состава
+        plugins.addPlugin("slow", candidate -> {
+            compiling.countDown();
+            try {
+                return changed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, (request, response) -> true);
+
+        final CompletableFuture<PluginChain> stale = CompletableFuture.supplyAsync(() -> plugins.getChain(route));
+        assertTrue(compiling.await(5, TimeUnit.SECONDS));
+
+        plugins.addPlugin("added", (request, response) -> true);
+        changed.countDown();
+
+        final PluginChain compiled = stale.get(5, TimeUnit.SECONDS);
+        final PluginChain current = plugins.getChain(route);
+
+        assertEquals(1, compiled.size()); // собрана из конвейера до изменения
+        assertNotSame(compiled, current);
+        assertEquals(2, current.size());
+    }
+}
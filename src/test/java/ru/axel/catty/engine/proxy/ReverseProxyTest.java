@@ -0,0 +1,115 @@
+package ru.axel.catty.engine.proxy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Повтор запроса после закрытия сервером простаивающего соединения.
+ * Сервер отвечает на первый запрос соединения keep-alive и сразу закрывает соединение,
+ * поэтому следующий запрос получает из пула уже закрытое сервером соединение.
+ */
+class ReverseProxyTest {
+    private static final Logger logger = Logger.getLogger(ReverseProxyTest.class.getName());
+    private final AtomicInteger connections = new AtomicInteger();
+    private ServerSocket server;
+    private Thread acceptor;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    connections.incrementAndGet();
+                    readHead(socket.getInputStream());
+
+                    final OutputStream out = socket.getOutputStream();
+                    out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                } catch (IOException ignored) {
+                    // сервер остановлен
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.close();
+        acceptor.join(5_000);
+    }
+
+    private static void readHead(InputStream in) throws IOException {
+        int matched = 0;
+        int value;
+
+        while (matched < 4 && (value = in.read()) >= 0) {
+            matched = value == "\r\n\r\n".charAt(matched) ? matched + 1 : (value == '\r' ? 1 : 0);
+        }
+    }
+
+    private ReverseProxy proxy() {
+        return new ReverseProxy(
+            List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort())),
+            new ProxyOptions(),
+            logger
+        );
+    }
+
+    private IHttpCattyResponse exchange(ReverseProxy proxy, String method) {
+        final byte[] body = method.equals("POST") ? "data".getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        final Request request = new Request(method, "/items", "HTTP/1.1", List.of("host", "test"), body, logger);
+        final IHttpCattyResponse response = new Response(logger);
+
+        proxy.exec(request, response);
+        return response;
+    }
+
+    private void awaitClosedByServer() throws InterruptedException {
+        Thread.sleep(100); // сервер закрывает соединение после ответа
+    }
+
+    @Test
+    void retriesIdempotentRequestOnStaleConnection() throws Exception {
+        final ReverseProxy proxy = proxy();
+
+        assertEquals(200, exchange(proxy, "GET").getResponseCode());
+        awaitClosedByServer();
+        assertEquals(200, exchange(proxy, "GET").getResponseCode());
+
+        assertEquals(1, proxy.getRetries());
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    void doesNotRetryPost() throws Exception {
+        final ReverseProxy proxy = proxy();
+
+        assertEquals(200, exchange(proxy, "GET").getResponseCode());
+        awaitClosedByServer();
+        assertEquals(502, exchange(proxy, "POST").getResponseCode());
+
+        assertEquals(0, proxy.getRetries());
+        assertEquals(1, connections.get());
+    }
+}
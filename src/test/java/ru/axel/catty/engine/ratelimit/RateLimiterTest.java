@@ -0,0 +1,126 @@
+package ru.axel.catty.engine.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Корзины GCRA: емкость и время до следующего токена, независимость ключей, общая корзина ключей сверх лимита,
+ * удаление простаивающих корзин, конкурентное взятие токенов и ответ 429 плагина.
+ */
+class RateLimiterTest {
+    private static final Logger logger = Logger.getLogger(RateLimiterTest.class.getName());
+
+    @Test
+    void burstThenWaitForInterval() {
+        try (RateLimiter limiter = new RateLimiter(new RateLimitOptions().setPermitsPerSecond(1).setBurst(3))) {
+            for (int i = 0; i < 3; i++) assertEquals(0, limiter.acquire("client"));
+
+            final long wait = limiter.acquire("client");
+            assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "Ожидание: " + wait);
+            assertFalse(limiter.tryAcquire("client"));
+
+            // другой ключ получает свою полную корзину
+            assertTrue(limiter.tryAcquire("other"));
+            assertEquals(4, limiter.getAllowed());
+            assertEquals(2, limiter.getRejected());
+            assertEquals(2, limiter.getKeyCount());
+        }
+    }
+
+    @Test
+    void keysOverLimitShareOverflowBucket() {
+        try (RateLimiter limiter = new RateLimiter(
+            new RateLimitOptions().setPermitsPerSecond(1).setBurst(1).setMaxKeys(1).setStripes(1)
+        )) {
+            assertTrue(limiter.tryAcquire("a"));
+            assertTrue(limiter.tryAcquire("b"));
+            assertFalse(limiter.tryAcquire("c"));
+            assertEquals(1, limiter.getKeyCount());
+        }
+    }
+
+    @Test
+    void idleBucketIsEvicted() throws Exception {
+        try (RateLimiter limiter = new RateLimiter(
+            new RateLimitOptions().setPermitsPerSecond(1_000).setBurst(1).setMaxKeys(1).setStripes(1).setIdleSeconds(1)
+        )) {
+            assertTrue(limiter.tryAcquire("a"));
+            Thread.sleep(1_100);
+
+            assertTrue(limiter.tryAcquire("b"));
+            assertTrue(limiter.getEvictions() >= 1);
+            assertEquals(1, limiter.getKeyCount());
+        }
+    }
+
+    @Test
+    void concurrentAcquireNeverExceedsBurst() throws Exception {
+        final int burst = 50;
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try (RateLimiter limiter = new RateLimiter(new RateLimitOptions().setPermitsPerSecond(0.001).setBurst(burst))) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger granted = new AtomicInteger();
+            final List<Future<?>> workers = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 100; j++) {
+                        if (limiter.tryAcquire("shared")) granted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) worker.get(5, TimeUnit.SECONDS);
+
+            assertEquals(burst, granted.get());
+            assertEquals(burst, limiter.getAllowed());
+            assertEquals(800 - burst, limiter.getRejected());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void pluginRespondsTooManyRequests() throws Exception {
+        try (RateLimiter limiter = new RateLimiter(new RateLimitOptions().setPermitsPerSecond(1).setBurst(1))) {
+            final RateLimitPlugin plugin = new RateLimitPlugin(limiter, IRateLimitKey.header("x-api-key"));
+
+            assertTrue(plugin.exec(request(List.of("x-api-key", "k1")), new Response(logger)));
+            // запрос без ключа не ограничивается
+            assertTrue(plugin.exec(request(List.of()), new Response(logger)));
+
+            final IHttpCattyResponse rejected = new Response(logger);
+            assertFalse(plugin.exec(request(List.of("x-api-key", "k1")), rejected));
+            assertEquals(429, rejected.getResponseCode());
+
+            final byte[] prepared = rejected.getPreparedBytes();
+            assertNotNull(prepared);
+
+            final String text = new String(prepared, StandardCharsets.UTF_8);
+            assertTrue(text.startsWith("HTTP/1.1 429"), text);
+            assertTrue(text.toLowerCase().contains("retry-after: 1\r\n"), text);
+        }
+    }
+
+    private static Request request(List<String> fields) {
+        return new Request("GET", "/api", "HTTP/1.1", fields, new byte[0], logger);
+    }
+}
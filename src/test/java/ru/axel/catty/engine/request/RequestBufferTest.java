@@ -0,0 +1,59 @@
+package ru.axel.catty.engine.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Длина запроса в буфере: данные до позиции после чтения из канала или до границы после flip,
+ * двоичное тело с нулевыми байтами в конце не обрезается.
+ */
+class RequestBufferTest {
+    private static final Logger logger = Logger.getLogger(RequestBufferTest.class.getName());
+    private static final byte[] body = { 1, 0, 2, 0, 0 };
+
+    private static byte[] request() {
+        final byte[] head = (
+            "POST /upload HTTP/1.1\r\nHost: test\r\nContent-Length: " + body.length + "\r\n\r\n"
+        ).getBytes(StandardCharsets.US_ASCII);
+        final byte[] bytes = new byte[head.length + body.length];
+
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        System.arraycopy(body, 0, bytes, head.length, body.length);
+
+        return bytes;
+    }
+
+    @Test
+    void keepsTrailingZerosOfReadBuffer() throws Exception {
+        final byte[] bytes = request();
+        final ByteBuffer buffer = ByteBuffer.allocate(1024).put(bytes); // как после чтения из канала
+
+        final Request request = new Request(buffer, logger);
+
+        assertEquals("/upload", request.getPath().orElseThrow());
+        assertArrayEquals(body, request.getBodyBytes());
+        assertEquals(body.length, request.getBodyStream().readAllBytes().length);
+    }
+
+    @Test
+    void keepsTrailingZerosOfWrappedBuffer() throws Exception {
+        final byte[] bytes = request();
+
+        assertArrayEquals(body, new Request(ByteBuffer.wrap(bytes), logger).getBodyBytes());
+        assertArrayEquals(body, new Request(ByteBuffer.allocate(1024).put(bytes).flip(), logger).getBodyBytes());
+    }
+
+    @Test
+    void pooledRequestKeepsTrailingZeros() throws Exception {
+        final ExchangePool pool = new ExchangePool(1, false);
+        final Request request = pool.request(ByteBuffer.allocate(1024).put(request()), logger);
+
+        assertArrayEquals(body, request.getBodyBytes());
+        pool.release(request, null);
+    }
+}
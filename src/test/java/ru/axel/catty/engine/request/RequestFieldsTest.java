@@ -0,0 +1,62 @@
+package ru.axel.catty.engine.request;
+
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.headers.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestFieldsTest {
+    private static final Logger logger = Logger.getLogger(RequestFieldsTest.class.getName());
+
+    @Test
+    void buildsRequestFromFields() {
+        final Request request = new Request(
+            "POST",
+            "/items?id=7&sort=asc",
+            "HTTP/2.0",
+            List.of("host", "example.com", "cookie", "a=1; b=2", "content-type", "text/plain"),
+            "hello".getBytes(StandardCharsets.UTF_8),
+            logger
+        );
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/items", request.getPath().orElseThrow());
+        assertEquals("id=7&sort=asc", request.getRawQuery());
+        assertEquals("7", request.getQueryParam("id"));
+        assertEquals("HTTP/2.0", request.getVersion());
+        assertEquals("example.com", request.getHeaders(Headers.HOST));
+        assertEquals("2", request.getCookie("b"));
+        assertEquals("hello", request.getBody());
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), request.getBodyBytes());
+    }
+
+    @Test
+    void keepsLineBreaksInsideValue() {
+        // значение не разбирается повторно как текст HTTP/1, поэтому не превращается в новый заголовок
+        final Request request = new Request(
+            "GET", "/", "HTTP/2.0", List.of("x-test", "a\r\nx-admin: 1"), new byte[0], logger
+        );
+
+        assertNull(request.getHeaders("x-admin"));
+        assertEquals(1, request.getAllHeaders().size());
+        assertEquals("", request.getBody());
+    }
+
+    @Test
+    void poolReusesFieldRequest() {
+        final ExchangePool pool = new ExchangePool(2, false);
+        final Request first = pool.request("GET", "/a", "HTTP/2.0", List.of("x-a", "1"), new byte[0], logger);
+
+        pool.release(first, null);
+
+        final Request second = pool.request("GET", "/b", "HTTP/2.0", List.of(), new byte[0], logger);
+
+        assertSame(first, second);
+        assertEquals("/b", second.getPath().orElseThrow());
+        assertNull(second.getHeaders("x-a"));
+    }
+}
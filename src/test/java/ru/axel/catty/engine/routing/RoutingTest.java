@@ -0,0 +1,92 @@
+package ru.axel.catty.engine.routing;
+
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.cache.ETagPlugin;
+import ru.axel.catty.engine.plugins.PluginChain;
+import ru.axel.catty.engine.plugins.Plugins;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Публикация таблицы маршрутов и очистка данных маршрутов, выпавших из таблицы.
+ */
+class RoutingTest {
+    private static final Logger logger = Logger.getLogger(RoutingTest.class.getName());
+    private static final RouteExecute ok = (request, response) -> {};
+
+    private static IHttpCattyRequest get(String path) {
+        return new Request("GET", path, "HTTP/1.1", List.of("host", "test"), new byte[0], logger);
+    }
+
+    @Test
+    void replaceSwapsWholeTable() {
+        final Routing routing = new Routing(logger);
+        final ICattyRoute first = new Route("/first", "GET", ok);
+        final ICattyRoute second = new Route("/second", "GET", ok);
+        routing.addRoute(first);
+
+        final List<ICattyRoute> previous = routing.replaceRoutes(List.of(second));
+
+        assertEquals(List.of(first), previous);
+        assertEquals(List.of(second), routing.getRoutes());
+        assertTrue(routing.takeRoute(get("/first")).isEmpty());
+        assertSame(second, routing.takeRoute(get("/second")).orElseThrow());
+    }
+
+    @Test
+    void removedAndReplacedRoutesAreForgotten() {
+        final Routing routing = new Routing(logger);
+        final List<ICattyRoute> forgotten = new ArrayList<>();
+        final ICattyRoute kept = new Route("/kept", "GET", ok);
+        final ICattyRoute removed = new Route("/removed", "GET", ok);
+        final ICattyRoute replaced = new Route("/replaced", "GET", ok);
+        routing.addRouteForget(forgotten::addAll);
+        routing.addRoutes(List.of(kept, removed, replaced));
+
+        assertTrue(routing.removeRoute(removed));
+        assertEquals(List.of(removed), forgotten);
+
+        forgotten.clear();
+        routing.replaceRoutes(List.of(kept, new Route("/added", "GET", ok)));
+        assertEquals(List.of(replaced), forgotten);
+
+        forgotten.clear();
+        assertFalse(routing.removeRoute(removed));
+        assertTrue(forgotten.isEmpty());
+    }
+
+    @Test
+    void pluginsDropChainsAndETagWrappersOfRemovedRoutes() {
+        final Routing routing = new Routing(logger);
+        final Plugins plugins = new Plugins(logger);
+        final ICattyRoute route = new Route("/items", "GET", ok);
+        plugins.addPlugin("etag", new ETagPlugin());
+        routing.addRouteForget(plugins);
+        routing.addRoute(route);
+
+        final PluginChain chain = plugins.getChain(route);
+        final ICattyRoute wrapper = wrap(plugins, route);
+        assertSame(chain, plugins.getChain(route));
+        assertSame(wrapper, wrap(plugins, route));
+
+        routing.removeRoute(route);
+
+        assertNotSame(chain, plugins.getChain(route));
+        assertNotSame(wrapper, wrap(plugins, route));
+    }
+
+    private static ICattyRoute wrap(Plugins plugins, ICattyRoute route) {
+        final IHttpCattyRequest request = get("/items");
+        request.setRoute(route);
+        plugins.execute(request, new Response(logger));
+
+        return request.getRoute().orElseThrow();
+    }
+}
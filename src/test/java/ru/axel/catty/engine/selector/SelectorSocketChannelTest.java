@@ -0,0 +1,203 @@
+package ru.axel.catty.engine.selector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Подключение, запись нескольких буферов и чтение в несколько буферов через канал цикла событий,
+ * таймаут записи и ошибки обработки принятых соединений.
+ */
+class SelectorSocketChannelTest {
+    private EventLoop loop;
+    private Thread thread;
+
+    @BeforeEach
+    void start() throws Exception {
+        loop = new EventLoop(Logger.getLogger(SelectorSocketChannelTest.class.getName()));
+        thread = new Thread(loop, "test-loop");
+        thread.start();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        loop.stop();
+        thread.join(5_000);
+    }
+
+    private SelectorSocketChannel register() throws Exception {
+        final CompletableFuture<SelectorSocketChannel> registered = new CompletableFuture<>();
+
+        loop.execute(() -> {
+            try {
+                final SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                registered.complete(loop.register(channel));
+            } catch (Exception e) {
+                registered.completeExceptionally(e);
+            }
+        });
+
+        return registered.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void connectsAndExchangesWithVectoredIo() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            final SelectorSocketChannel client = register();
+            client.connect(server.getLocalAddress()).get(5, TimeUnit.SECONDS);
+
+            try (SocketChannel accepted = server.accept()) {
+                final ByteBuffer[] out = {
+                    ByteBuffer.wrap("hello ".getBytes(StandardCharsets.US_ASCII)),
+                    ByteBuffer.wrap("world".getBytes(StandardCharsets.US_ASCII))
+                };
+                final CompletableFuture<Long> written = new CompletableFuture<>();
+                client.write(out, 0, out.length, 0L, TimeUnit.MILLISECONDS, written, handler());
+                assertEquals(11L, written.get(5, TimeUnit.SECONDS));
+
+                final ByteBuffer received = ByteBuffer.allocate(11);
+                while (received.hasRemaining()) accepted.read(received);
+                received.flip();
+                accepted.write(received);
+
+                final ByteBuffer[] in = { ByteBuffer.allocate(3), ByteBuffer.allocate(32) };
+                long total = 0;
+                while (total < 11) {
+                    final CompletableFuture<Long> read = new CompletableFuture<>();
+                    client.read(in, 0, in.length, 5L, TimeUnit.SECONDS, read, handler());
+
+                    final long count = read.get(5, TimeUnit.SECONDS);
+                    assertTrue(count > 0);
+                    total += count;
+                }
+
+                assertEquals("hel", new String(in[0].array(), 0, 3, StandardCharsets.US_ASCII));
+                assertEquals("lo world", new String(in[1].array(), 0, in[1].position(), StandardCharsets.US_ASCII));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    void connectFailsWhenNobodyListens() throws Exception {
+        final InetSocketAddress address;
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            address = (InetSocketAddress) server.getLocalAddress();
+        }
+
+        final SelectorSocketChannel client = register();
+        try {
+            assertThrows(Exception.class, () -> client.connect(address).get(5, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    void writeFailsAfterTimeoutWhenPeerDoesNotRead() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            final SelectorSocketChannel client = register();
+            client.connect(server.getLocalAddress()).get(5, TimeUnit.SECONDS);
+
+            try (SocketChannel ignored = server.accept()) {
+                // больше буферов сокета с обеих сторон: запись ждет, пока сервер не начнет читать
+                final ByteBuffer[] out = { ByteBuffer.allocate(64 * 1024 * 1024) };
+                final CompletableFuture<Long> written = new CompletableFuture<>();
+                final long start = System.nanoTime();
+
+                client.write(out, 0, 1, 300L, TimeUnit.MILLISECONDS, written, handler());
+
+                final ExecutionException failure = assertThrows(ExecutionException.class, () -> written.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(InterruptedByTimeoutException.class, failure.getCause());
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+                assertTrue(out[0].hasRemaining());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    void acceptErrorClosesOnlyThatChannel() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.configureBlocking(false);
+
+            final AtomicInteger accepted = new AtomicInteger();
+            final CompletableFuture<SocketChannel> served = new CompletableFuture<>();
+            final CompletableFuture<Void> registered = new CompletableFuture<>();
+
+            loop.execute(() -> {
+                try {
+                    loop.registerServer(server, channel -> {
+                        switch (accepted.incrementAndGet()) {
+                            case 1 -> throw new IllegalStateException("handler failed");
+                            case 2 -> throw new IOException("handler failed");
+                            default -> served.complete(channel);
+                        }
+                    });
+                    registered.complete(null);
+                } catch (IOException e) {
+                    registered.completeExceptionally(e);
+                }
+            });
+            registered.get(5, TimeUnit.SECONDS);
+
+            try (
+                SocketChannel first = SocketChannel.open(server.getLocalAddress());
+                SocketChannel second = SocketChannel.open(server.getLocalAddress());
+                SocketChannel third = SocketChannel.open(server.getLocalAddress())
+            ) {
+                // соединения с ошибкой обработчика закрыты сервером
+                assertEquals(-1, first.read(ByteBuffer.allocate(1)));
+                assertEquals(-1, second.read(ByteBuffer.allocate(1)));
+
+                final SocketChannel channel = served.get(5, TimeUnit.SECONDS);
+                channel.write(ByteBuffer.wrap(new byte[] { 42 }));
+
+                final ByteBuffer received = ByteBuffer.allocate(1);
+                assertEquals(1, third.read(received));
+                assertEquals(42, received.get(0));
+                channel.close();
+            }
+        }
+    }
+
+    private static CompletionHandler<Long, CompletableFuture<Long>> handler() {
+        return new CompletionHandler<>() {
+            @Override
+            public void completed(Long result, CompletableFuture<Long> future) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Throwable exc, CompletableFuture<Long> future) {
+                future.completeExceptionally(exc);
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package ru.axel.catty.engine.selector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.BindException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Удаление файла сокета, оставшегося от предыдущего запуска.
+ */
+class UnixSocketListenerTest {
+    private static final Logger logger = Logger.getLogger(UnixSocketListenerTest.class.getName());
+
+    @TempDir
+    Path directory;
+
+    private UnixSocketListener open(Path path) throws Exception {
+        return UnixSocketListener.open(UnixDomainSocketAddress.of(path), 0, 0, logger);
+    }
+
+    @Test
+    void replacesStaleSocket() throws Exception {
+        final Path path = directory.resolve("stale.sock");
+        try (ServerSocketChannel previous = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            previous.bind(UnixDomainSocketAddress.of(path));
+        }
+        assertTrue(Files.exists(path)); // закрытие сокета не удаляет файл
+
+        try (UnixSocketListener listener = open(path)) {
+            assertTrue(listener.getServer().isOpen());
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void keepsRegularFile() throws Exception {
+        final Path path = directory.resolve("data.sock");
+        Files.writeString(path, "not a socket");
+
+        assertThrows(FileAlreadyExistsException.class, () -> open(path));
+        assertEquals("not a socket", Files.readString(path));
+    }
+
+    @Test
+    void keepsSocketOfRunningProcess() throws Exception {
+        final Path path = directory.resolve("live.sock");
+
+        try (ServerSocketChannel running = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            running.bind(UnixDomainSocketAddress.of(path));
+
+            assertThrows(BindException.class, () -> open(path));
+            assertTrue(Files.exists(path));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.axel.catty.engine.sse;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.request.Request;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Закрытие SSE соединения: обработчик закрытия вызывается один раз и без монитора соединения.
+ */
+class SseConnectionTest {
+    private static final Logger logger = Logger.getLogger(SseConnectionTest.class.getName());
+    private AsynchronousServerSocketChannel listener;
+    private SocketChannel peer;
+    private AsynchronousSocketChannel channel;
+
+    /**
+     * Обработчик запоминает, держал ли поток монитор сессии при вызове onClose.
+     */
+    static final class Handler implements ISseHandler {
+        private final AtomicInteger closes = new AtomicInteger();
+        private final CompletableFuture<Boolean> heldLock = new CompletableFuture<>();
+
+        @Override
+        public void onClose(@NotNull ISseSession session) {
+            closes.incrementAndGet();
+            heldLock.complete(Thread.holdsLock(session));
+        }
+    }
+
+    @BeforeEach
+    void connect() throws Exception {
+        listener = AsynchronousServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final Future<AsynchronousSocketChannel> accepted = listener.accept();
+
+        peer = SocketChannel.open(listener.getLocalAddress());
+        channel = accepted.get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        peer.close();
+        channel.close();
+        listener.close();
+    }
+
+    private SseConnection open(SseBroadcaster broadcaster, Handler handler) {
+        final SseConnection connection = new SseConnection(
+            channel,
+            broadcaster,
+            handler,
+            new Request("GET", "/events", "HTTP/1.1", List.of("host", "test"), new byte[0], logger),
+            logger
+        );
+        connection.start();
+
+        return connection;
+    }
+
+    @Test
+    void closeNotifiesOnceOutsideMonitor() throws Exception {
+        final SseBroadcaster broadcaster = new SseBroadcaster(new SseOptions().setHeartbeatSeconds(0));
+        final Handler handler = new Handler();
+        final SseConnection connection = open(broadcaster, handler);
+
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertTrue(connection.send(new SseEvent().setData("hello")));
+
+        connection.close();
+        connection.close();
+
+        assertFalse(handler.heldLock.get(5, TimeUnit.SECONDS));
+        assertEquals(1, handler.closes.get());
+        assertEquals(0, broadcaster.getSubscriberCount());
+        assertFalse(connection.isOpen());
+        assertFalse(connection.send(new SseEvent().setData("late")));
+    }
+
+    @Test
+    void clientDisconnectClosesSession() throws Exception {
+        final SseBroadcaster broadcaster = new SseBroadcaster(new SseOptions().setHeartbeatSeconds(0).setRetryMillis(1_000));
+        final Handler handler = new Handler();
+        final SseConnection connection = open(broadcaster, handler);
+
+        final ByteBuffer received = ByteBuffer.allocate(64);
+        while (received.position() == 0) peer.read(received); // поле retry отправляется при подписке
+        assertTrue(new String(received.array(), 0, received.position(), StandardCharsets.UTF_8).startsWith("retry:"));
+
+        peer.close();
+
+        assertFalse(handler.heldLock.get(5, TimeUnit.SECONDS));
+        assertFalse(connection.isOpen());
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.axel.catty.engine.tls;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Рукопожатие и обмен данными через TlsSocketChannel на loopback с тестовым хранилищем ключей
+ * src/test/resources/tls/test.p12 (CN=localhost, пароль changeit).
+ */
+class TlsSocketChannelTest {
+    private static final char[] password = "changeit".toCharArray();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Path keyStore() throws Exception {
+        return Path.of(TlsSocketChannelTest.class.getResource("/tls/test.p12").toURI());
+    }
+
+    private static TlsContext clientContext() throws Exception {
+        final KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream input = TlsSocketChannelTest.class.getResourceAsStream("/tls/test.p12")) {
+            store.load(input, password);
+        }
+
+        final TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(store);
+
+        final SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trust.getTrustManagers(), null);
+
+        return new TlsContext(context, new TlsOptions());
+    }
+
+    /**
+     * Сервер принимает одно соединение и возвращает клиенту прочитанные данные.
+     */
+    private Future<?> echo(TlsContext server, AsynchronousServerSocketChannel listener, int length) {
+        return executor.submit(() -> {
+            try (AsynchronousSocketChannel channel = server.wrap(listener.accept().get(5, TimeUnit.SECONDS), executor)) {
+                final ByteBuffer buffer = ByteBuffer.allocate(1024);
+                while (buffer.position() < length) { // каждый буфер записи клиента приходит отдельной записью TLS
+                    assertTrue(channel.read(buffer).get(5, TimeUnit.SECONDS) > 0);
+                }
+
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer).get(5, TimeUnit.SECONDS);
+                channel.read(ByteBuffer.allocate(16)).get(5, TimeUnit.SECONDS); // ждем закрытия клиентом
+            }
+
+            return null;
+        });
+    }
+
+    private void exchange(TlsContext server, TlsContext client) throws Exception {
+        try (AsynchronousServerSocketChannel listener = AsynchronousServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            final int port = ((InetSocketAddress) listener.getLocalAddress()).getPort();
+            final Future<?> served = echo(server, listener, 11);
+
+            try (TlsSocketChannel channel = client.wrapClient(AsynchronousSocketChannel.open(), "localhost", port, executor)) {
+                channel.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)).get(5, TimeUnit.SECONDS);
+                assertTrue(channel.isHandshakeComplete());
+
+                final ByteBuffer[] out = {
+                    ByteBuffer.wrap("hello ".getBytes(StandardCharsets.US_ASCII)),
+                    ByteBuffer.wrap("world".getBytes(StandardCharsets.US_ASCII))
+                };
+                final Future<Long> written = write(channel, out);
+                assertEquals(11L, written.get(5, TimeUnit.SECONDS));
+
+                final ByteBuffer[] in = { ByteBuffer.allocate(3), ByteBuffer.allocate(32) };
+                long total = 0;
+                while (total < 11) {
+                    final long count = read(channel, in).get(5, TimeUnit.SECONDS);
+                    if (count < 0) served.get(5, TimeUnit.SECONDS); // ошибка сервера закрыла соединение
+
+                    assertTrue(count >= 0, "Соединение закрыто сервером");
+                    total += count;
+                }
+
+                assertEquals("hel", new String(in[0].array(), 0, 3, StandardCharsets.US_ASCII));
+                assertEquals("lo world", new String(in[1].array(), 0, in[1].position(), StandardCharsets.US_ASCII));
+            }
+
+            served.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Future<Long> write(TlsSocketChannel channel, ByteBuffer[] buffers) {
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        channel.write(buffers, 0, buffers.length, 5, TimeUnit.SECONDS, future, handler());
+        return future;
+    }
+
+    private static Future<Long> read(TlsSocketChannel channel, ByteBuffer[] buffers) {
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        channel.read(buffers, 0, buffers.length, 5, TimeUnit.SECONDS, future, handler());
+        return future;
+    }
+
+    private static CompletionHandler<Long, CompletableFuture<Long>> handler() {
+        return new CompletionHandler<>() {
+            @Override
+            public void completed(Long result, CompletableFuture<Long> future) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Throwable exc, CompletableFuture<Long> future) {
+                future.completeExceptionally(exc);
+            }
+        };
+    }
+
+    @Test
+    void exchangesDataWithScatterAndGather() throws Exception {
+        final TlsContext server = TlsContext.fromKeyStore(keyStore(), password, new TlsOptions());
+
+        exchange(server, clientContext());
+
+        assertEquals(1, server.getHandshakes());
+        assertEquals(0, server.getFailedHandshakes());
+    }
+
+    @Test
+    void sessionTicketsAreStateless() throws Exception {
+        final TlsContext server = TlsContext.fromKeyStore(keyStore(), password, new TlsOptions().setSessionTickets(true));
+
+        exchange(server, clientContext());
+
+        // с билетами сессия хранится у клиента, кеш сервера пуст
+        assertFalse(server.getSslContext().getServerSessionContext().getIds().hasMoreElements());
+    }
+
+    @Test
+    void disabledTicketsUseServerCache() throws Exception {
+        final TlsContext server = TlsContext.fromKeyStore(keyStore(), password, new TlsOptions().setSessionTickets(false));
+
+        exchange(server, clientContext());
+
+        assertEquals(1, Collections.list(server.getSslContext().getServerSessionContext().getIds()).size());
+    }
+}
@@ -0,0 +1,192 @@
+package ru.axel.catty.engine.tracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.CattyEngine;
+import ru.axel.catty.engine.handler.HttpCattyQueryHandler;
+import ru.axel.catty.engine.request.IHttpCattyRequest;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+import ru.axel.catty.engine.response.ResponseCode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Разбор traceparent и tracestate, интервалы трассы HTTP/1.1 от принятия соединения до записи ответа.
+ */
+class TracingTest {
+    private static final Logger logger = Logger.getLogger(TracingTest.class.getName());
+    private static final String parent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+    private static final BlockingQueue<RequestTrace> slow = new LinkedBlockingQueue<>();
+    private static final Tracing tracing = new Tracing(new TracingOptions().setSlowThresholdMillis(0), slow::add);
+    private CattyEngine engine;
+    private InetSocketAddress address;
+
+    static class Handler extends HttpCattyQueryHandler {
+        Handler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
+            super(clientChannel, limitBuffer, loggerInstance);
+        }
+
+        @Override
+        protected Tracing tracing() {
+            return tracing;
+        }
+
+        @Override
+        protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
+            try {
+                final long parseStart = System.nanoTime();
+                final IHttpCattyRequest request = new Request(requestBuffer, logger);
+                final IHttpCattyResponse response = new Response(logger);
+
+                attachTrace(request, parseStart);
+                response.respond(ResponseCode.OK, "traced");
+
+                return serialize(request, response);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        slow.clear();
+        engine = new CattyEngine(address, 2, 1_000_000L, Handler::new);
+        engine.setLogger(logger);
+
+        final Thread server = new Thread(() -> {
+            try {
+                engine.startServer();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        engine.stopServer();
+    }
+
+    private String get(String headers) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (true) {
+            try (SocketChannel channel = SocketChannel.open(address)) {
+                channel.write(ByteBuffer.wrap(
+                    ("GET /traced HTTP/1.1\r\nHost: test\r\n" + headers + "\r\n").getBytes(StandardCharsets.US_ASCII)
+                ));
+
+                final ByteBuffer buffer = ByteBuffer.allocate(4096);
+                while (channel.read(buffer) >= 0) {
+                    if (!buffer.hasRemaining()) break;
+                }
+
+                return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) throw e;
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    void acceptsValidTraceparent() {
+        final RequestTrace trace = new RequestTrace(System.nanoTime());
+
+        assertTrue(trace.setParent(parent, "vendor=value"));
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", trace.getTraceId());
+        assertEquals("00f067aa0ba902b7", trace.getParentId());
+        assertEquals("vendor=value", trace.getTraceState());
+        assertTrue(trace.getTraceparent().startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-"));
+        assertTrue(trace.getTraceparent().endsWith("-01"));
+        assertNotEquals("00f067aa0ba902b7", trace.getSpanId());
+
+        // будущая версия может добавлять поля после флагов
+        assertTrue(new RequestTrace(0).setParent("01" + parent.substring(2) + "-extra", null));
+    }
+
+    @Test
+    void rejectsInvalidTraceparent() {
+        final List<String> invalid = List.of(
+            "",
+            parent.substring(0, 54),                                        // короткое значение
+            "ff" + parent.substring(2),                                     // запрещенная версия
+            parent + "-extra",                                              // версия 00 без дополнительных полей
+            parent.replace("4bf92f3577b34da6a3ce929d0e0e4736", "0".repeat(32)), // нулевой trace-id
+            parent.replace("00f067aa0ba902b7", "0".repeat(16)),             // нулевой parent-id
+            parent.toUpperCase(),                                           // только строчные шестнадцатеричные
+            parent.replace('-', '_'),                                       // разделители
+            "01" + parent.substring(2) + "extra"                            // после флагов нет разделителя
+        );
+
+        for (String value : invalid) {
+            final RequestTrace trace = new RequestTrace(0);
+
+            assertFalse(trace.setParent(value, "vendor=value"), value);
+            assertNull(trace.getParentId(), value);
+            assertNull(trace.getTraceState(), value);
+            assertEquals(32, trace.getTraceId().length());
+        }
+        assertFalse(new RequestTrace(0).setParent(null, null));
+    }
+
+    @Test
+    void emptyTracestateIsNotAdopted() {
+        final RequestTrace trace = new RequestTrace(0);
+
+        assertTrue(trace.setParent(parent, " "));
+        assertNull(trace.getTraceState());
+
+        final Request request = new Request("GET", "/", "HTTP/1.1", List.of("traceparent", parent), new byte[0], logger);
+        final RequestTrace attached = tracing.start(System.nanoTime());
+
+        tracing.attach(request, attached, System.nanoTime());
+        assertEquals("00f067aa0ba902b7", attached.getParentId());
+        assertNull(attached.getTraceState());
+    }
+
+    @Test
+    void recordsPhasesOfRequest() throws Exception {
+        assertTrue(get("traceparent: " + parent + "\r\n").endsWith("traced"));
+
+        final RequestTrace trace = slow.poll(5, TimeUnit.SECONDS);
+        assertNotNull(trace);
+
+        final List<String> names = new ArrayList<>();
+        for (TraceSpan span : trace.getSpans()) {
+            names.add(span.getName());
+            assertTrue(span.getEndNanos() >= span.getStartNanos(), span.getName());
+            assertTrue(span.getStartNanos() >= trace.getStartNanos(), span.getName());
+        }
+
+        assertEquals(List.of("first-byte", "headers-read", "body-read", "parse", "serialize", "write"), names);
+        assertEquals("GET /traced", trace.getDescription());
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", trace.getTraceId());
+        assertNull(trace.getTraceState());
+    }
+}
@@ -0,0 +1,365 @@
+package ru.axel.catty.engine.websocket;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.axel.catty.engine.CattyEngine;
+import ru.axel.catty.engine.handler.HttpCattyQueryHandler;
+import ru.axel.catty.engine.request.Request;
+import ru.axel.catty.engine.response.IHttpCattyResponse;
+import ru.axel.catty.engine.response.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Разбор фреймов клиента и ответы сервера: маска, фрагментация, управляющие фреймы, сжатие,
+ * ограничения протокола и фреймы, пришедшие вместе с рукопожатием.
+ */
+class WebSocketConnectionTest {
+    private static final Logger logger = Logger.getLogger(WebSocketConnectionTest.class.getName());
+    private static final byte[] mask = { 0x11, 0x22, 0x33, 0x44 };
+    private AsynchronousServerSocketChannel listener;
+    private SocketChannel peer;
+    private AsynchronousSocketChannel channel;
+    private final Handler handler = new Handler();
+
+    /**
+     * Обработчик возвращает текст клиенту и запоминает полученные сообщения.
+     */
+    static final class Handler implements IWebSocketHandler {
+        private final BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+        private final CompletableFuture<Integer> closed = new CompletableFuture<>();
+
+        @Override
+        public void onText(@NotNull IWebSocketSession session, @NotNull String message) {
+            messages.add(message);
+            session.sendText("echo:" + message);
+        }
+
+        @Override
+        public void onBinary(@NotNull IWebSocketSession session, @NotNull ByteBuffer message) {
+            final byte[] copy = new byte[message.remaining()];
+
+            messages.add(message.isReadOnly());
+            message.get(copy);
+            messages.add(copy);
+        }
+
+        @Override
+        public void onClose(@NotNull IWebSocketSession session, int code, @NotNull String reason) {
+            closed.complete(code);
+        }
+    }
+
+    @BeforeEach
+    void connect() throws Exception {
+        listener = AsynchronousServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final Future<AsynchronousSocketChannel> accepted = listener.accept();
+
+        peer = SocketChannel.open(listener.getLocalAddress());
+        channel = accepted.get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        peer.close();
+        channel.close();
+        listener.close();
+    }
+
+    private void open(WebSocketOptions options, boolean deflate, ByteBuffer received) {
+        new WebSocketConnection(
+            channel,
+            handler,
+            options,
+            new Request("GET", "/ws", "HTTP/1.1", List.of("host", "test"), new byte[0], logger),
+            deflate,
+            logger
+        ).start(received);
+    }
+
+    private void open() {
+        open(new WebSocketOptions(), false, ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Фрейм клиента с маской.
+     */
+    private static byte[] frame(int first, byte[] payload, boolean masked) {
+        final ByteBuffer frame = ByteBuffer.allocate(14 + payload.length);
+
+        frame.put((byte) first);
+        if (payload.length < 126) {
+            frame.put((byte) ((masked ? 0x80 : 0) | payload.length));
+        } else {
+            frame.put((byte) ((masked ? 0x80 : 0) | 126)).putShort((short) payload.length);
+        }
+
+        if (masked) {
+            frame.put(mask);
+            for (int i = 0; i < payload.length; i++) frame.put((byte) (payload[i] ^ mask[i % 4]));
+        } else {
+            frame.put(payload);
+        }
+
+        return Arrays.copyOf(frame.array(), frame.position());
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void send(byte[]... frames) throws IOException {
+        for (byte[] frame : frames) {
+            final ByteBuffer buffer = ByteBuffer.wrap(frame);
+            while (buffer.hasRemaining()) peer.write(buffer);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (peer.read(buffer) < 0) throw new IOException("Соединение закрыто сервером");
+        }
+    }
+
+    /**
+     * Чтение фрейма сервера (без маски).
+     * @return первый байт фрейма и данные.
+     */
+    private Object[] receive() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(2);
+        readFully(header);
+
+        int length = header.get(1) & 0x7F;
+        if (length == 126) {
+            final ByteBuffer extended = ByteBuffer.allocate(2);
+            readFully(extended);
+            length = extended.getShort(0) & 0xFFFF;
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload);
+
+        return new Object[] { header.get(0) & 0xFF, payload.array() };
+    }
+
+    private int receiveCloseCode() throws IOException {
+        final Object[] frame = receive();
+        final byte[] payload = (byte[]) frame[1];
+
+        assertEquals(0x88, frame[0]);
+        return ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+    }
+
+    @Test
+    void echoesMaskedText() throws Exception {
+        open();
+        send(frame(0x81, text("привет"), true));
+
+        assertEquals("привет", handler.messages.poll(5, TimeUnit.SECONDS));
+
+        final Object[] reply = receive();
+        assertEquals(0x81, reply[0]);
+        assertEquals("echo:привет", new String((byte[]) reply[1], StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void assemblesFragmentsAroundPing() throws Exception {
+        open();
+        send(frame(0x01, text("hel"), true), frame(0x89, text("p"), true), frame(0x80, text("lo"), true));
+
+        final Object[] pong = receive();
+        assertEquals(0x8A, pong[0]);
+        assertArrayEquals(text("p"), (byte[]) pong[1]);
+        assertEquals("hello", handler.messages.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void binaryMessageIsReadOnlySlice() throws Exception {
+        open();
+        send(frame(0x82, new byte[] { 1, 2, 3 }, true));
+
+        assertEquals(true, handler.messages.poll(5, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) handler.messages.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void parsesFramesSentWithHandshake() throws Exception {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        received.write(frame(0x81, text("first"), true));
+        received.write(frame(0x81, text("second"), true));
+
+        open(new WebSocketOptions(), false, ByteBuffer.wrap(received.toByteArray()));
+
+        assertEquals("first", handler.messages.poll(5, TimeUnit.SECONDS));
+        assertEquals("second", handler.messages.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void unmaskedFrameIsProtocolError() throws Exception {
+        open();
+        send(frame(0x81, text("plain"), false));
+
+        assertEquals(IWebSocketSession.CLOSE_PROTOCOL_ERROR, receiveCloseCode());
+        assertEquals(IWebSocketSession.CLOSE_PROTOCOL_ERROR, handler.closed.get(5, TimeUnit.SECONDS));
+        assertTrue(handler.messages.isEmpty());
+    }
+
+    @Test
+    void oversizedMessageIsRejected() throws Exception {
+        open(new WebSocketOptions().setMaxMessageSize(100), false, ByteBuffer.allocate(0));
+        send(frame(0x82, new byte[200], true));
+
+        assertEquals(IWebSocketSession.CLOSE_MESSAGE_TOO_BIG, receiveCloseCode());
+    }
+
+    @Test
+    void compressedFrameRequiresNegotiatedDeflate() throws Exception {
+        open();
+        send(frame(0xC1, compress(text("zip")), true));
+
+        assertEquals(IWebSocketSession.CLOSE_PROTOCOL_ERROR, receiveCloseCode());
+    }
+
+    @Test
+    void inflatesCompressedMessage() throws Exception {
+        final String message = "сжатое сообщение ".repeat(20);
+
+        open(new WebSocketOptions().setPerMessageDeflate(true), true, ByteBuffer.allocate(0));
+        send(frame(0xC1, compress(text(message)), true));
+
+        assertEquals(message, handler.messages.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closeHandshakeEchoesCode() throws Exception {
+        open();
+        send(frame(0x88, new byte[] { 0x03, (byte) 0xE8 }, true));
+
+        assertEquals(IWebSocketSession.CLOSE_NORMAL, receiveCloseCode());
+        assertEquals(IWebSocketSession.CLOSE_NORMAL, handler.closed.get(5, TimeUnit.SECONDS));
+        assertEquals(-1, peer.read(ByteBuffer.allocate(1)));
+    }
+
+    /**
+     * Обработчик HTTP выполняет рукопожатие маршрутом WebSocket на любой запрос.
+     */
+    static final class UpgradeHandler extends HttpCattyQueryHandler {
+        private static final Handler socketHandler = new Handler();
+
+        UpgradeHandler(AsynchronousSocketChannel clientChannel, long limitBuffer, Logger loggerInstance) {
+            super(clientChannel, limitBuffer, loggerInstance);
+        }
+
+        @Override
+        protected ByteBuffer responseBuffer(ByteBuffer requestBuffer) {
+            try {
+                final IHttpCattyResponse response = new Response(logger);
+
+                new WebSocketRoute("/ws", socketHandler).handle(new Request(requestBuffer, logger), response);
+                upgradeAfterResponse(response.getUpgrade());
+
+                return response.getByteBuffer();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    void engineHandsFramesAfterHandshakeToConnection() throws Exception {
+        final InetSocketAddress address;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        final CattyEngine engine = new CattyEngine(address, 2, 1_000_000L, UpgradeHandler::new);
+        engine.setLogger(logger);
+
+        final Thread server = new Thread(() -> {
+            try {
+                engine.startServer();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        try {
+            peer.close();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (true) {
+                try {
+                    peer = SocketChannel.open(address);
+                    break;
+                } catch (IOException e) {
+                    if (System.nanoTime() > deadline) throw e;
+                    Thread.sleep(50);
+                }
+            }
+
+            final ByteArrayOutputStream request = new ByteArrayOutputStream();
+            request.write(text(
+                "GET /ws HTTP/1.1\r\nHost: test\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n" +
+                "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n"
+            ));
+            request.write(frame(0x81, text("early"), true)); // фрейм в том же пакете, что и рукопожатие
+            send(request.toByteArray());
+
+            final StringBuilder head = new StringBuilder();
+            final ByteBuffer one = ByteBuffer.allocate(1);
+            while (!head.toString().endsWith("\r\n\r\n")) {
+                one.clear();
+                readFully(one);
+                head.append((char) one.get(0));
+            }
+            assertTrue(head.toString().startsWith("HTTP/1.1 101"), head.toString());
+
+            final Object[] reply = receive();
+            assertEquals("echo:early", new String((byte[]) reply[1], StandardCharsets.UTF_8));
+        } finally {
+            engine.stopServer();
+        }
+    }
+
+    @Test
+    void acceptKeyMatchesRfcExample() {
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketRoute.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+
+    /**
+     * Сжатие permessage-deflate: raw deflate с SYNC_FLUSH без завершающих 00 00 FF FF.
+     */
+    private static byte[] compress(byte[] payload) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final byte[] buffer = new byte[payload.length + 64];
+
+        deflater.setInput(payload);
+        final int length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        deflater.end();
+
+        return Arrays.copyOf(buffer, length - 4);
+    }
+}